@@ -0,0 +1,351 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+import io.pixelsdb.pixels.common.physical.PhysicalReader;
+import io.pixelsdb.pixels.common.physical.PhysicalReaderUtil;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.PixelsReader;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Warms the caches with the hot column chunks of the compact files for the WARMUP command.
+ * <p>
+ * A column chunk is identified by 'rowGroupId:columnId', which is the same in all the compact files,
+ * as in the column chunk order of the compact layout. The chunks of the columns accessed by the
+ * workload are ranked by their accesses per byte, and the hottest ones within the cache size are
+ * read from all the compact files in parallel, with the adjacent chunks in a file read together.
+ * </p>
+ * <p>
+ * The shared memory of pixels-cache is filled by the cache worker on each node with the column chunks
+ * before the cache border of the compact layout, thus the selected chunks are also put before the
+ * cache border by {@link #buildCompact(Compact, List)} so that pixels-cache can load the same chunks.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class CacheWarmer
+{
+    /**
+     * The max bytes read by one request when the adjacent chunks are read together.
+     */
+    private static final long MAX_REQUEST_SIZE = 256L * 1024L * 1024L;
+
+    /**
+     * The measurements of warming the chunks.
+     */
+    public static class Result
+    {
+        private final int numFiles;
+        private final long numChunks;
+        private final long numRequests;
+        private final long bytes;
+        private final double elapsedSeconds;
+
+        private Result(int numFiles, long numChunks, long numRequests, long bytes, double elapsedSeconds)
+        {
+            this.numFiles = numFiles;
+            this.numChunks = numChunks;
+            this.numRequests = numRequests;
+            this.bytes = bytes;
+            this.elapsedSeconds = elapsedSeconds;
+        }
+
+        public int getNumFiles()
+        {
+            return numFiles;
+        }
+
+        public long getNumChunks()
+        {
+            return numChunks;
+        }
+
+        public long getNumRequests()
+        {
+            return numRequests;
+        }
+
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public double getElapsedSeconds()
+        {
+            return elapsedSeconds;
+        }
+
+        public void print()
+        {
+            System.out.println(String.format("%d chunks (%.1f MB) of %d files are read by %d requests in %.3fs, " +
+                    "%.1f MB/s", numChunks, bytes / 1048576.0, numFiles, numRequests, elapsedSeconds,
+                    elapsedSeconds == 0 ? 0 : bytes / 1048576.0 / elapsedSeconds));
+        }
+    }
+
+    private final Storage storage;
+    private final int parallelism;
+
+    /**
+     * @param storage the storage of the compact files
+     * @param parallelism the number of threads that read the files concurrently
+     */
+    public CacheWarmer(Storage storage, int parallelism)
+    {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.storage = requireNonNull(storage, "storage is null");
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Read the footers of the files and sum up the size of each column chunk in all the files.
+     * The footers are kept in the shared footer cache for {@link #warm(List, List)}.
+     * @param files the paths of the compact files
+     * @return the total bytes of each column chunk, in the order of the row groups and columns
+     * @throws IOException if failed to read the footers
+     * @throws InterruptedException if interrupted while waiting for the footers
+     */
+    public Map<String, Long> getChunkBytes(List<String> files) throws IOException, InterruptedException
+    {
+        FooterPrefetcher.prefetch(storage, files, true, parallelism);
+        Map<String, Long> chunkBytes = new TreeMap<>(CacheWarmer::compareChunkIds);
+        for (String path : files)
+        {
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+            {
+                for (int rowGroupId = 0; rowGroupId < pixelsReader.getRowGroupNum(); ++rowGroupId)
+                {
+                    List<PixelsProto.ColumnChunkIndex> chunks = pixelsReader.getRowGroupFooter(rowGroupId)
+                            .getRowGroupIndexEntry().getColumnChunkIndexEntriesList();
+                    for (int columnId = 0; columnId < chunks.size(); ++columnId)
+                    {
+                        chunkBytes.merge(rowGroupId + ":" + columnId,
+                                (long) chunks.get(columnId).getChunkLength(), Long::sum);
+                    }
+                }
+            }
+        }
+        return chunkBytes;
+    }
+
+    /**
+     * Select the hottest column chunks by their accesses per byte.
+     * @param chunkBytes the total bytes of each column chunk
+     * @param columnHeat the total weight of the queries accessing each column
+     * @param cacheSize the max total bytes of the selected chunks, non-positive for no limit
+     * @return the ids of the selected chunks, from the hottest to the coldest
+     */
+    public static List<String> selectChunks(Map<String, Long> chunkBytes, double[] columnHeat, long cacheSize)
+    {
+        List<String> candidates = new ArrayList<>();
+        for (String chunkId : chunkBytes.keySet())
+        {
+            int columnId = getColumnId(chunkId);
+            if (columnId < columnHeat.length && columnHeat[columnId] > 0)
+            {
+                candidates.add(chunkId);
+            }
+        }
+        // the empty chunks are considered to be one byte, the stable sort keeps the order of the ties
+        candidates.sort((a, b) -> Double.compare(
+                columnHeat[getColumnId(b)] / Math.max(1, chunkBytes.get(b)),
+                columnHeat[getColumnId(a)] / Math.max(1, chunkBytes.get(a))));
+        List<String> selected = new ArrayList<>();
+        long selectedBytes = 0;
+        for (String chunkId : candidates)
+        {
+            long bytes = chunkBytes.get(chunkId);
+            if (cacheSize <= 0 || selectedBytes + bytes <= cacheSize)
+            {
+                selected.add(chunkId);
+                selectedBytes += bytes;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Read the selected column chunks of the files in parallel.
+     * @param files the paths of the compact files
+     * @param chunkIds the ids of the selected chunks
+     * @return the measurements of the reads
+     * @throws IOException if failed to read any of the files
+     * @throws InterruptedException if interrupted while waiting for the read threads
+     */
+    public Result warm(List<String> files, List<String> chunkIds) throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+        int numThreads = Math.max(1, Math.min(parallelism, files.size()));
+        ExecutorService warmExecutor = Executors.newFixedThreadPool(numThreads);
+        AtomicInteger nextFile = new AtomicInteger(0);
+        List<Future<long[]>> futures = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; ++i)
+        {
+            futures.add(warmExecutor.submit(() -> {
+                // the number of chunks, requests, and bytes
+                long[] counts = new long[3];
+                int fileId;
+                while ((fileId = nextFile.getAndIncrement()) < files.size())
+                {
+                    warmFile(files.get(fileId), chunkIds, counts);
+                }
+                return counts;
+            }));
+        }
+        warmExecutor.shutdown();
+
+        long numChunks = 0, numRequests = 0, bytes = 0;
+        try
+        {
+            for (Future<long[]> future : futures)
+            {
+                long[] counts = future.get();
+                numChunks += counts[0];
+                numRequests += counts[1];
+                bytes += counts[2];
+            }
+        } catch (ExecutionException e)
+        {
+            // stop the other threads from reading the remaining files
+            nextFile.set(files.size());
+            warmExecutor.shutdownNow();
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("failed to warm the files", e.getCause());
+        }
+        return new Result(files.size(), numChunks, numRequests, bytes, (System.nanoTime() - start) / 1e9);
+    }
+
+    private void warmFile(String path, List<String> chunkIds, long[] counts) throws IOException
+    {
+        // the offset and length of each chunk in the file
+        List<long[]> ranges = new ArrayList<>(chunkIds.size());
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+        {
+            for (String chunkId : chunkIds)
+            {
+                int rowGroupId = getRowGroupId(chunkId);
+                int columnId = getColumnId(chunkId);
+                if (rowGroupId >= pixelsReader.getRowGroupNum())
+                {
+                    continue;
+                }
+                PixelsProto.ColumnChunkIndex chunk = pixelsReader.getRowGroupFooter(rowGroupId)
+                        .getRowGroupIndexEntry().getColumnChunkIndexEntries(columnId);
+                if (chunk.getChunkLength() > 0)
+                {
+                    ranges.add(new long[]{chunk.getChunkOffset(), chunk.getChunkLength()});
+                }
+            }
+        }
+        counts[0] += ranges.size();
+        if (ranges.isEmpty())
+        {
+            return;
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+        PhysicalReader physicalReader = PhysicalReaderUtil.newPhysicalReader(storage, path);
+        try
+        {
+            long requestStart = ranges.get(0)[0], requestEnd = requestStart + ranges.get(0)[1];
+            for (int i = 1; i <= ranges.size(); ++i)
+            {
+                if (i < ranges.size() && ranges.get(i)[0] <= requestEnd &&
+                        ranges.get(i)[0] + ranges.get(i)[1] - requestStart <= MAX_REQUEST_SIZE)
+                {
+                    requestEnd = Math.max(requestEnd, ranges.get(i)[0] + ranges.get(i)[1]);
+                    continue;
+                }
+                physicalReader.seek(requestStart);
+                physicalReader.readFully((int) (requestEnd - requestStart));
+                counts[1]++;
+                counts[2] += requestEnd - requestStart;
+                if (i < ranges.size())
+                {
+                    requestStart = ranges.get(i)[0];
+                    requestEnd = requestStart + ranges.get(i)[1];
+                }
+            }
+        } finally
+        {
+            physicalReader.close();
+        }
+    }
+
+    /**
+     * Build the compact layout in which the selected chunks are before the cache border,
+     * while the order of the other chunks is kept.
+     * @param compact the current compact layout
+     * @param chunkIds the ids of the selected chunks
+     * @return the new compact layout
+     */
+    public static Compact buildCompact(Compact compact, List<String> chunkIds)
+    {
+        Set<String> selected = new HashSet<>(chunkIds);
+        Set<String> existing = new HashSet<>(compact.getColumnChunkOrder());
+        List<String> columnChunkOrder = new ArrayList<>(compact.getColumnChunkOrder().size());
+        int cacheBorder = 0;
+        for (String chunkId : chunkIds)
+        {
+            if (existing.contains(chunkId))
+            {
+                columnChunkOrder.add(chunkId);
+                cacheBorder++;
+            }
+        }
+        for (String chunkId : compact.getColumnChunkOrder())
+        {
+            if (!selected.contains(chunkId))
+            {
+                columnChunkOrder.add(chunkId);
+            }
+        }
+        Compact warmed = new Compact();
+        warmed.setNumRowGroupInBlock(compact.getNumRowGroupInBlock());
+        warmed.setNumColumn(compact.getNumColumn());
+        warmed.setCacheBorder(cacheBorder);
+        warmed.setColumnChunkOrder(columnChunkOrder);
+        return warmed;
+    }
+
+    private static int getRowGroupId(String chunkId)
+    {
+        return Integer.parseInt(chunkId.substring(0, chunkId.indexOf(':')));
+    }
+
+    private static int getColumnId(String chunkId)
+    {
+        return Integer.parseInt(chunkId.substring(chunkId.indexOf(':') + 1));
+    }
+
+    private static int compareChunkIds(String a, String b)
+    {
+        int cmp = Integer.compare(getRowGroupId(a), getRowGroupId(b));
+        return cmp != 0 ? cmp : Integer.compare(getColumnId(a), getColumnId(b));
+    }
+}
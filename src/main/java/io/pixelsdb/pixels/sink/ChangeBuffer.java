@@ -0,0 +1,220 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.alibaba.fastjson.JSON;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The micro-batch of the change events that are not flushed yet.
+ * <p>
+ * The rows to be inserted are buffered by their primary keys, thus the changes of a row within the same
+ * micro-batch are absorbed in memory: an update replaces the buffered row, and a delete removes it. The
+ * changes of the rows that have been flushed are recorded in the delete set of the micro-batch, keyed by
+ * the primary keys, and an update is a delete of the old row plus an insert of the new row. The delete set
+ * of a micro-batch applies to the rows flushed by the earlier micro-batches only. It is not thread safe.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ChangeBuffer
+{
+    private final String[] keyColumns;
+    private final long flushMs;
+    private final long flushBytes;
+    private final Map<String, Map<String, Object>> rows = new LinkedHashMap<>();
+    private final Map<String, List<Object>> deletes = new LinkedHashMap<>();
+    private long bytes = 0;
+    private long firstChangeMs = -1;
+    private long numAbsorbed = 0;
+
+    /**
+     * @param keyColumns the columns of the primary key
+     * @param flushMs the max time to buffer a change before it is flushed
+     * @param flushBytes the target size of the buffered rows, estimated by the text size of the values
+     */
+    public ChangeBuffer(String[] keyColumns, long flushMs, long flushBytes)
+    {
+        requireNonNull(keyColumns, "keyColumns is null");
+        checkArgument(keyColumns.length > 0, "keyColumns is empty");
+        checkArgument(flushMs > 0, "flushMs must be positive");
+        checkArgument(flushBytes > 0, "flushBytes must be positive");
+        this.keyColumns = keyColumns;
+        this.flushMs = flushMs;
+        this.flushBytes = flushBytes;
+    }
+
+    /**
+     * Check that the primary key columns of the rows that the event changes are present and not null.
+     * @param event the change event
+     * @throws IllegalArgumentException if a primary key column is null or absent
+     */
+    public void validate(ChangeEvent event)
+    {
+        if (event.getOp() != ChangeEvent.Op.DELETE)
+        {
+            getKey(event.getAfter());
+        }
+        if (event.getOp() != ChangeEvent.Op.INSERT && event.getBefore() != null)
+        {
+            getKey(event.getBefore());
+        }
+    }
+
+    /**
+     * @param event the change event, it must have been validated
+     * @param nowMs the current time in milliseconds
+     */
+    public void apply(ChangeEvent event, long nowMs)
+    {
+        if (firstChangeMs < 0)
+        {
+            firstChangeMs = nowMs;
+        }
+        switch (event.getOp())
+        {
+            case READ:
+            case INSERT:
+                insert(event.getAfter());
+                break;
+            case UPDATE:
+                // the before image is absent if the replica identity of the table is not full
+                delete(event.getBefore() != null ? event.getBefore() : event.getAfter());
+                insert(event.getAfter());
+                break;
+            case DELETE:
+                delete(event.getBefore());
+                break;
+        }
+    }
+
+    private void insert(Map<String, Object> row)
+    {
+        Map<String, Object> replaced = rows.put(getKey(row), row);
+        if (replaced != null)
+        {
+            bytes -= estimateBytes(replaced);
+            numAbsorbed++;
+        }
+        bytes += estimateBytes(row);
+    }
+
+    private void delete(Map<String, Object> row)
+    {
+        String key = getKey(row);
+        Map<String, Object> removed = rows.remove(key);
+        if (removed != null)
+        {
+            bytes -= estimateBytes(removed);
+            numAbsorbed++;
+        }
+        else
+        {
+            List<Object> keyValues = new ArrayList<>(keyColumns.length);
+            for (String column : keyColumns)
+            {
+                keyValues.add(row.get(column));
+            }
+            deletes.put(key, keyValues);
+        }
+    }
+
+    private String getKey(Map<String, Object> row)
+    {
+        Object[] values = new Object[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; ++i)
+        {
+            values[i] = row.get(keyColumns[i]);
+            checkArgument(values[i] != null, "primary key column '" + keyColumns[i] + "' is null or absent");
+        }
+        return JSON.toJSONString(values);
+    }
+
+    private static long estimateBytes(Map<String, Object> row)
+    {
+        long size = 0;
+        for (Object value : row.values())
+        {
+            size += value == null ? 1 : String.valueOf(value).length() + 1;
+        }
+        return size;
+    }
+
+    /**
+     * @param nowMs the current time in milliseconds
+     * @return true if the buffered changes have reached the flush latency or the target size
+     */
+    public boolean shouldFlush(long nowMs)
+    {
+        return !isEmpty() && (nowMs - firstChangeMs >= flushMs || bytes >= flushBytes);
+    }
+
+    public boolean isEmpty()
+    {
+        return rows.isEmpty() && deletes.isEmpty();
+    }
+
+    /**
+     * @param nowMs the current time in milliseconds
+     * @return the time since the first buffered change, 0 if there is no change
+     */
+    public long getAgeMs(long nowMs)
+    {
+        return firstChangeMs < 0 ? 0 : nowMs - firstChangeMs;
+    }
+
+    /**
+     * @return the number of changes absorbed by the later changes of the same rows in the buffer
+     */
+    public long getNumAbsorbed()
+    {
+        return numAbsorbed;
+    }
+
+    /**
+     * @return the rows to be inserted, in the order of their first insertion
+     */
+    public List<Map<String, Object>> getRows()
+    {
+        return new ArrayList<>(rows.values());
+    }
+
+    /**
+     * @return the primary keys of the flushed rows that are deleted or updated
+     */
+    public List<List<Object>> getDeletes()
+    {
+        return new ArrayList<>(deletes.values());
+    }
+
+    /**
+     * Clear the buffer after it is flushed.
+     */
+    public void clear()
+    {
+        rows.clear();
+        deletes.clear();
+        bytes = 0;
+        firstChangeMs = -1;
+    }
+}
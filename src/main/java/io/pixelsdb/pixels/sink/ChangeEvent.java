@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A row change event in the JSON format of Debezium.
+ * <p>
+ * Both the full envelope ({"schema": ..., "payload": {...}}) and the payload without the schema are
+ * accepted. The payload has the operation in 'op', the row image before the change in 'before', and the
+ * row image after the change in 'after'. The tombstones (empty or 'null' messages) are ignored.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ChangeEvent
+{
+    public enum Op
+    {
+        /**
+         * A row is read by the snapshot of the connector, it is handled as an insert.
+         */
+        READ("r"),
+        INSERT("c"),
+        UPDATE("u"),
+        DELETE("d");
+
+        private final String code;
+
+        Op(String code)
+        {
+            this.code = code;
+        }
+
+        public static Op from(String code)
+        {
+            for (Op op : values())
+            {
+                if (op.code.equals(code))
+                {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("unsupported change operation '" + code + "'");
+        }
+    }
+
+    private final Op op;
+    private final Map<String, Object> before;
+    private final Map<String, Object> after;
+
+    public ChangeEvent(Op op, Map<String, Object> before, Map<String, Object> after)
+    {
+        this.op = op;
+        this.before = before;
+        this.after = after;
+    }
+
+    /**
+     * @param json a change event in the JSON format of Debezium
+     * @return the change event, or null if it is a tombstone
+     * @throws IllegalArgumentException if the event is malformed or the operation is not supported
+     */
+    public static ChangeEvent parse(String json)
+    {
+        String trimmed = json.trim();
+        if (trimmed.isEmpty() || trimmed.equals("null"))
+        {
+            return null;
+        }
+        JSONObject event;
+        try
+        {
+            event = JSON.parseObject(trimmed);
+        } catch (RuntimeException e)
+        {
+            throw new IllegalArgumentException("malformed change event: " + trimmed, e);
+        }
+        JSONObject payload = event.containsKey("payload") ? event.getJSONObject("payload") : event;
+        if (payload == null)
+        {
+            return null;
+        }
+        checkArgument(payload.containsKey("op"), "change event has no operation: " + trimmed);
+        Op op = Op.from(payload.getString("op"));
+        JSONObject before = payload.getJSONObject("before");
+        JSONObject after = payload.getJSONObject("after");
+        checkArgument(op == Op.DELETE ? before != null : after != null,
+                "change event has no row image for " + op + ": " + trimmed);
+        return new ChangeEvent(op, before, after);
+    }
+
+    public Op getOp()
+    {
+        return op;
+    }
+
+    /**
+     * @return the row image before the change, null for inserts and possibly for updates
+     */
+    public Map<String, Object> getBefore()
+    {
+        return before;
+    }
+
+    /**
+     * @return the row image after the change, null for deletes
+     */
+    public Map<String, Object> getAfter()
+    {
+        return after;
+    }
+}
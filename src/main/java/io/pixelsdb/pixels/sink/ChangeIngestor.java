@@ -0,0 +1,410 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.alibaba.fastjson.JSON;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.common.utils.ConfigFactory;
+import io.pixelsdb.pixels.common.utils.Constants;
+import io.pixelsdb.pixels.core.PixelsWriter;
+import io.pixelsdb.pixels.core.PixelsWriterImpl;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.vector.ColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Ingests the change events of a table from a {@link ChangeSource} into Pixels.
+ * <p>
+ * The changes are micro-batched by {@link ChangeBuffer}. Each flush writes the inserted rows into a new
+ * pixels file in the loading data path, and the primary keys of the deleted or updated rows into a delete
+ * file with the same name and the '.del' suffix in the delete path, one JSON array of the key values per line.
+ * The file names are ordered by the flushes, and a delete file applies to the pixels files before it.
+ * The delete files are not in the loading data path, so that they are not read as pixels files.
+ * </p>
+ * <p>
+ * The values are converted as the text values of LOAD, except that the integer dates (days since epoch)
+ * and timestamps (milliseconds since epoch) of Debezium are converted into the text format of the column.
+ * </p>
+ * <p>
+ * Without a write-ahead log, the events are acknowledged to the source after each flush, thus the flush
+ * interval bounds both the latency of the acknowledgement and the size of the files. The delivery is
+ * at-least-once in this mode: if the process crashes after the files of a flush are written but before the
+ * source is acknowledged, the events are delivered again after restart and flushed into new files, thus the
+ * rows of the flush are duplicated.
+ * </p>
+ * <p>
+ * With a {@link ChangeLog}, the events polled together are appended and group-committed into the log, and
+ * acknowledged to the source once they are synced. The buffered changes are then flushed into large files at
+ * leisure, the log is discarded after each flush and replayed into the buffer on restart. The files of a flush
+ * are named by the base id of the log ({@link ChangeLog#getBaseId()}) instead of the flush time. Thus if the
+ * process crashes after the files are written but before the log is discarded, the replayed events are flushed
+ * into the files of the same names, which replace the files of the interrupted flush, and no row is duplicated.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ChangeIngestor
+{
+    /**
+     * The max number of events polled and committed into the write-ahead log together.
+     */
+    private static final int MAX_BATCH_EVENTS = 4096;
+
+    private final Config config;
+    private final ChangeLog changeLog;
+    private final String deletePath;
+    private final ChangeBuffer buffer;
+    private final TypeDescription schema;
+    private final String[] columnNames;
+    private final List<TypeDescription> columnTypes;
+    private final String[] targetPaths;
+    private final int pixelStride;
+    private final int rowGroupSize;
+    private final long blockSize;
+    private final short replication;
+    private int flushSeq = 0;
+    private long numEvents = 0;
+    private long numErrors = 0;
+    private long numRows = 0;
+    private long numDeletes = 0;
+    private long numFiles = 0;
+    private long maxFlushAgeMs = 0;
+
+    /**
+     * @param config the config of loading, it must be loaded
+     * @param keyColumns the columns of the primary key
+     * @param deletePath the directory of the delete files
+     * @param flushMs the max time to buffer a change before it is flushed
+     * @param fileSize the target size of a pixels file, estimated by the text size of the values
+     */
+    public ChangeIngestor(Config config, String[] keyColumns, String deletePath, long flushMs, long fileSize)
+    {
+        this(config, keyColumns, deletePath, flushMs, fileSize, null);
+    }
+
+    /**
+     * @param config the config of loading, it must be loaded
+     * @param keyColumns the columns of the primary key
+     * @param deletePath the directory of the delete files
+     * @param flushMs the max time to buffer a change before it is flushed
+     * @param fileSize the target size of a pixels file, estimated by the text size of the values
+     * @param changeLog the write-ahead log of the buffered changes, null to acknowledge the events after flushes,
+     *                  in which case a crash between a flush and the acknowledgement duplicates the flushed rows
+     */
+    public ChangeIngestor(Config config, String[] keyColumns, String deletePath, long flushMs, long fileSize,
+                          ChangeLog changeLog)
+    {
+        this.config = requireNonNull(config, "config is null");
+        this.changeLog = changeLog;
+        this.deletePath = deletePath.endsWith("/") ? deletePath : deletePath + "/";
+        this.buffer = new ChangeBuffer(keyColumns, flushMs, fileSize);
+        this.schema = TypeDescription.fromString(config.getSchema());
+        this.columnNames = schema.getFieldNames().toArray(new String[0]);
+        this.columnTypes = schema.getChildren();
+        for (String keyColumn : keyColumns)
+        {
+            if (!schema.getFieldNames().contains(keyColumn))
+            {
+                throw new IllegalArgumentException("primary key column '" + keyColumn + "' is not in the table");
+            }
+        }
+        this.targetPaths = config.getPixelsPath().split(";");
+        ConfigFactory configFactory = ConfigFactory.Instance();
+        this.pixelStride = Integer.parseInt(configFactory.getProperty("pixel.stride"));
+        this.rowGroupSize = Integer.parseInt(configFactory.getProperty("row.group.size"));
+        this.blockSize = Long.parseLong(configFactory.getProperty("block.size"));
+        this.replication = Short.parseShort(configFactory.getProperty("block.replication"));
+    }
+
+    /**
+     * Ingest the change events until the source is idle for the timeout, the buffered changes are flushed
+     * before returning. If there is a write-ahead log, the events in it are replayed first.
+     * @param source the source of the change events
+     * @param idleTimeoutMs the max idle time of the source, 0 to ingest until interrupted
+     * @throws IOException if failed to read the source or write the files
+     * @throws InterruptedException if interrupted while waiting for the events
+     */
+    public void run(ChangeSource source, long idleTimeoutMs) throws IOException, InterruptedException
+    {
+        if (changeLog != null)
+        {
+            long now = System.currentTimeMillis();
+            long numReplayed = changeLog.replay(line -> {
+                // skip the invalid events logged by the earlier versions
+                ChangeEvent event = parse(line);
+                if (event != null)
+                {
+                    buffer.apply(event, now);
+                }
+            });
+            System.out.println("Replayed " + numReplayed + " change events from the write-ahead log.");
+        }
+        long lastEventMs = System.currentTimeMillis();
+        List<String> lines = new ArrayList<>();
+        List<ChangeEvent> events = new ArrayList<>();
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                String line = source.poll(100);
+                for (int i = 1; line != null; ++i)
+                {
+                    ChangeEvent event = parse(line);
+                    if (event != null)
+                    {
+                        lines.add(line);
+                        events.add(event);
+                    }
+                    line = i < MAX_BATCH_EVENTS ? source.poll(0) : null;
+                }
+                long now = System.currentTimeMillis();
+                if (!events.isEmpty())
+                {
+                    lastEventMs = now;
+                    if (changeLog != null)
+                    {
+                        long lsn = 0;
+                        for (String event : lines)
+                        {
+                            lsn = changeLog.append(event);
+                        }
+                        // one fsync for all the events polled together
+                        changeLog.sync(lsn);
+                        source.commit();
+                    }
+                    for (ChangeEvent event : events)
+                    {
+                        buffer.apply(event, now);
+                    }
+                    numEvents += events.size();
+                    lines.clear();
+                    events.clear();
+                }
+                if (buffer.shouldFlush(now))
+                {
+                    flush(source, now);
+                }
+                if (idleTimeoutMs > 0 && now - lastEventMs >= idleTimeoutMs)
+                {
+                    break;
+                }
+            }
+        } finally
+        {
+            if (!buffer.isEmpty())
+            {
+                flush(source, System.currentTimeMillis());
+            }
+        }
+    }
+
+    /**
+     * Parse the event, the events without primary keys are invalid, they are rejected before they are logged,
+     * as they would fail the buffer and the replay of the write-ahead log.
+     * @return the valid event, or null if the event is a tombstone or invalid
+     */
+    private ChangeEvent parse(String line)
+    {
+        try
+        {
+            ChangeEvent event = ChangeEvent.parse(line);
+            if (event != null)
+            {
+                buffer.validate(event);
+            }
+            return event;
+        } catch (IllegalArgumentException e)
+        {
+            numErrors++;
+            System.out.println("Skipped change event: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void flush(ChangeSource source, long now) throws IOException, InterruptedException
+    {
+        maxFlushAgeMs = Math.max(maxFlushAgeMs, buffer.getAgeMs(now));
+        String name;
+        String targetDirPath;
+        if (changeLog != null)
+        {
+            // the base id is increased by each checkpoint, thus the names are ordered by the flushes
+            long baseId = changeLog.getBaseId();
+            name = config.getFilePrefix() + String.format("%020d", baseId);
+            targetDirPath = targetPaths[(int) (baseId % targetPaths.length)];
+        }
+        else
+        {
+            // the names are ordered by the flushes, within the same process
+            name = config.getFilePrefix() + String.format("%013d_%06d", now, flushSeq);
+            targetDirPath = targetPaths[flushSeq % targetPaths.length];
+        }
+        flushSeq++;
+
+        List<Map<String, Object>> rows = buffer.getRows();
+        Storage targetStorage = StorageFactory.Instance().getStorage(targetDirPath);
+        String targetFilePath = targetDirPath + name + ".pxl";
+        if (changeLog != null)
+        {
+            // the file of an interrupted flush is replaced, or deleted if the replayed rows are absorbed
+            deleteIfExists(targetStorage, targetFilePath);
+        }
+        if (!rows.isEmpty())
+        {
+            writeRows(targetStorage, targetFilePath, rows);
+            numRows += rows.size();
+            numFiles++;
+        }
+        List<List<Object>> deletes = buffer.getDeletes();
+        Storage deleteStorage = StorageFactory.Instance().getStorage(deletePath);
+        String deleteFilePath = deletePath + name + ".del";
+        if (changeLog != null)
+        {
+            deleteIfExists(deleteStorage, deleteFilePath);
+        }
+        if (!deletes.isEmpty())
+        {
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(deleteStorage.create(
+                    deleteFilePath, false, Constants.HDFS_BUFFER_SIZE), StandardCharsets.UTF_8)))
+            {
+                for (List<Object> key : deletes)
+                {
+                    writer.write(JSON.toJSONString(key));
+                    writer.newLine();
+                }
+            }
+            numDeletes += deletes.size();
+        }
+        System.out.println("Flushed " + rows.size() + " rows and " + deletes.size() + " deletes as '" + name +
+                "', the oldest change is buffered for " + buffer.getAgeMs(now) + "ms.");
+        buffer.clear();
+        if (changeLog != null)
+        {
+            // the events are acknowledged when they are synced into the log
+            changeLog.checkpoint();
+        }
+        else
+        {
+            source.commit();
+        }
+    }
+
+    private static void deleteIfExists(Storage storage, String path) throws IOException
+    {
+        if (storage.exists(path))
+        {
+            storage.delete(path, false);
+        }
+    }
+
+    private void writeRows(Storage storage, String path, List<Map<String, Object>> rows) throws IOException
+    {
+        VectorizedRowBatch rowBatch = schema.createRowBatch();
+        ColumnVector[] columnVectors = rowBatch.cols;
+        PixelsWriter pixelsWriter = PixelsWriterImpl.newBuilder()
+                .setSchema(schema)
+                .setPixelStride(pixelStride)
+                .setRowGroupSize(rowGroupSize)
+                .setStorage(storage)
+                .setPath(path)
+                .setBlockSize(blockSize)
+                .setReplication(replication)
+                .setBlockPadding(true)
+                .setEncoding(config.isEnableEncoding())
+                .setCompressionBlockSize(1)
+                .build();
+        try
+        {
+            for (Map<String, Object> row : rows)
+            {
+                rowBatch.size++;
+                for (int i = 0; i < columnVectors.length; i++)
+                {
+                    Object value = row.get(columnNames[i]);
+                    if (value == null)
+                    {
+                        columnVectors[i].addNull();
+                    }
+                    else
+                    {
+                        columnVectors[i].add(toText(value, columnTypes.get(i).getCategory()));
+                    }
+                }
+                if (rowBatch.size >= rowBatch.getMaxSize())
+                {
+                    pixelsWriter.addRowBatch(rowBatch);
+                    rowBatch.reset();
+                }
+            }
+            if (rowBatch.size > 0)
+            {
+                pixelsWriter.addRowBatch(rowBatch);
+                rowBatch.reset();
+            }
+        } finally
+        {
+            pixelsWriter.close();
+        }
+    }
+
+    private static String toText(Object value, TypeDescription.Category category)
+    {
+        if (value instanceof Number)
+        {
+            if (category == TypeDescription.Category.DATE)
+            {
+                return LocalDate.ofEpochDay(((Number) value).longValue()).toString();
+            }
+            if (category == TypeDescription.Category.TIMESTAMP)
+            {
+                return new Timestamp(((Number) value).longValue()).toString();
+            }
+            if (value instanceof BigDecimal)
+            {
+                return ((BigDecimal) value).toPlainString();
+            }
+        }
+        return String.valueOf(value);
+    }
+
+    public void printSummary()
+    {
+        System.out.println(numEvents + " change events are ingested (" + numErrors + " skipped, " +
+                buffer.getNumAbsorbed() + " absorbed in memory), " + numRows + " rows are written into " +
+                numFiles + " files, " + numDeletes + " deletes are recorded, the max flush latency is " +
+                maxFlushAgeMs + "ms.");
+        if (changeLog != null)
+        {
+            System.out.println(changeLog.getNumAppends() + " change events are group-committed into the " +
+                    "write-ahead log by " + changeLog.getNumSyncs() + " fsyncs, the avg fsync latency is " +
+                    String.format("%.3f", changeLog.getAvgSyncMs()) + "ms.");
+        }
+    }
+}
@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * The local write-ahead log of the change events buffered in memory by {@link ChangeIngestor}.
+ * <p>
+ * The events are appended into the memory and made durable by {@link #sync(long)}, which group-commits
+ * the events appended by all the threads: the first waiting thread writes and fsyncs the pending events
+ * while the others wait for it, thus an fsync is shared by all the events appended before it. An event
+ * can be acknowledged to its source once it is synced. After the buffered events are flushed into the
+ * pixels files, {@link #checkpoint()} discards the log. On restart, {@link #replay(Consumer)} returns the
+ * events that are not flushed yet.
+ * </p>
+ * <p>
+ * A checkpoint atomically replaces the checkpoint file with the id of the new segment, the base id, before
+ * the old segments are deleted, thus a crash during the checkpoint never replays a part of the discarded
+ * events. The flush between two checkpoints is named by the base id, see {@link #getBaseId()}. A new log
+ * starts its segment ids from the current time in milliseconds, so that the base ids of a recreated log do
+ * not collide with the ones of the earlier log.
+ * </p>
+ * <p>
+ * The log is a sequence of segment files in a local directory. Each record is the length and the CRC32
+ * of the event followed by the event in UTF-8. A torn record at the end of the last segment, written by a
+ * crash during the write, is truncated by replay.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ChangeLog implements AutoCloseable
+{
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path dir;
+    private final CRC32 crc = new CRC32();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel segment;
+    private long segmentId = 0;
+    private long baseId = 0;
+    private long appendedLsn = 0;
+    private long syncedLsn = 0;
+    private boolean syncing = false;
+    /**
+     * The log can not be trusted after a failed write or fsync, as the pages may have been dropped.
+     */
+    private boolean failed = false;
+    private long numSyncs = 0;
+    private long syncNanos = 0;
+    private boolean replayed = false;
+
+    /**
+     * @param dir the local directory of the log, it is created if it does not exist
+     * @throws IOException if failed to create the directory
+     */
+    public ChangeLog(String dir) throws IOException
+    {
+        this.dir = Paths.get(dir);
+        Files.createDirectories(this.dir);
+    }
+
+    /**
+     * Replay the events in the log, then open a new segment for appending. It must be called once
+     * before appending.
+     * @param consumer consumes the events in the order they were appended
+     * @return the number of replayed events
+     * @throws IOException if failed to read the log or a record is corrupt before the end of the log
+     */
+    public synchronized long replay(Consumer<String> consumer) throws IOException
+    {
+        if (replayed)
+        {
+            throw new IllegalStateException("the log is already replayed");
+        }
+        Path checkpointPath = dir.resolve(CHECKPOINT_FILE);
+        boolean newLog = !Files.exists(checkpointPath);
+        if (!newLog)
+        {
+            baseId = Long.parseLong(new String(Files.readAllBytes(checkpointPath), StandardCharsets.UTF_8).trim());
+        }
+        List<Path> segments = new ArrayList<>();
+        for (Path path : listSegments())
+        {
+            if (getSegmentId(path) < baseId)
+            {
+                // left by a crash after the checkpoint file is replaced, the events are flushed
+                Files.delete(path);
+            }
+            else
+            {
+                segments.add(path);
+            }
+        }
+        long numEvents = 0;
+        for (int i = 0; i < segments.size(); ++i)
+        {
+            numEvents += replaySegment(segments.get(i), i == segments.size() - 1, consumer);
+            segmentId = Math.max(segmentId, getSegmentId(segments.get(i)));
+        }
+        if (newLog && segments.isEmpty())
+        {
+            segmentId = System.currentTimeMillis();
+            openSegment(segmentId);
+            writeCheckpoint(segmentId);
+        }
+        else
+        {
+            openSegment(segmentId + 1);
+        }
+        replayed = true;
+        return numEvents;
+    }
+
+    private long replaySegment(Path path, boolean last, Consumer<String> consumer) throws IOException
+    {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long numEvents = 0;
+        while (buffer.remaining() > 0)
+        {
+            int start = buffer.position();
+            boolean valid = false;
+            if (buffer.remaining() >= RECORD_HEADER_SIZE)
+            {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length >= 0 && length <= buffer.remaining())
+                {
+                    crc.reset();
+                    crc.update(bytes, buffer.position(), length);
+                    if ((int) crc.getValue() == checksum)
+                    {
+                        consumer.accept(new String(bytes, buffer.position(), length, StandardCharsets.UTF_8));
+                        buffer.position(buffer.position() + length);
+                        numEvents++;
+                        valid = true;
+                    }
+                }
+            }
+            if (!valid)
+            {
+                if (!last)
+                {
+                    throw new IOException("corrupt record at offset " + start + " of log segment '" + path + "'");
+                }
+                // the record is torn by a crash, it has never been synced and acknowledged
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+                {
+                    channel.truncate(start);
+                    channel.force(true);
+                }
+                System.out.println("Truncated the torn tail of log segment '" + path + "' at offset " +
+                        start + ".");
+                break;
+            }
+        }
+        return numEvents;
+    }
+
+    /**
+     * Append an event into the log, it is durable after {@link #sync(long)}.
+     * @param event the event
+     * @return the log sequence number of the event
+     */
+    public synchronized long append(String event)
+    {
+        if (!replayed)
+        {
+            throw new IllegalStateException("the log must be replayed before appending");
+        }
+        byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+        crc.reset();
+        crc.update(bytes, 0, bytes.length);
+        DataOutputStream out = new DataOutputStream(pending);
+        try
+        {
+            out.writeInt(bytes.length);
+            out.writeInt((int) crc.getValue());
+            out.write(bytes);
+        } catch (IOException e)
+        {
+            // writing into the memory does not throw
+            throw new IllegalStateException(e);
+        }
+        return ++appendedLsn;
+    }
+
+    /**
+     * Wait until the event of the log sequence number is durable. The pending events of all the threads
+     * are written and fsynced together by one of the waiting threads.
+     * @param lsn the log sequence number returned by {@link #append(String)}
+     * @throws IOException if failed to write or fsync the log
+     * @throws InterruptedException if interrupted while waiting for the other thread to fsync
+     */
+    public void sync(long lsn) throws IOException, InterruptedException
+    {
+        while (true)
+        {
+            ByteArrayOutputStream group;
+            long groupLsn;
+            synchronized (this)
+            {
+                if (syncedLsn >= lsn)
+                {
+                    return;
+                }
+                if (failed)
+                {
+                    throw new IOException("the log has failed to sync, it must be replayed after restart");
+                }
+                if (syncing)
+                {
+                    wait();
+                    continue;
+                }
+                syncing = true;
+                group = pending;
+                groupLsn = appendedLsn;
+                pending = new ByteArrayOutputStream();
+            }
+
+            boolean success = false;
+            try
+            {
+                long start = System.nanoTime();
+                ByteBuffer buffer = ByteBuffer.wrap(group.toByteArray());
+                while (buffer.hasRemaining())
+                {
+                    segment.write(buffer);
+                }
+                segment.force(false);
+                success = true;
+                synchronized (this)
+                {
+                    syncNanos += System.nanoTime() - start;
+                    numSyncs++;
+                }
+            } finally
+            {
+                synchronized (this)
+                {
+                    if (success)
+                    {
+                        syncedLsn = groupLsn;
+                    }
+                    else
+                    {
+                        failed = true;
+                    }
+                    syncing = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Discard the events in the log after they are flushed into the pixels files. The events appended but
+     * not synced are discarded as well, thus it must not be called concurrently with appending.
+     * @throws IOException if failed to write the checkpoint file, delete the segments or open a new segment
+     * @throws InterruptedException if interrupted while waiting for a running sync
+     */
+    public synchronized void checkpoint() throws IOException, InterruptedException
+    {
+        while (syncing)
+        {
+            wait();
+        }
+        pending = new ByteArrayOutputStream();
+        syncedLsn = appendedLsn;
+        segment.close();
+        openSegment(segmentId + 1);
+        // the checkpoint takes effect once the file is replaced, the old segments are garbage afterwards
+        writeCheckpoint(segmentId);
+        for (Path path : listSegments())
+        {
+            if (getSegmentId(path) < baseId)
+            {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private void writeCheckpoint(long id) throws IOException
+    {
+        Path tmpPath = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tmpPath.toFile()))
+        {
+            output.write(String.valueOf(id).getBytes(StandardCharsets.UTF_8));
+            output.getFD().sync();
+        }
+        Files.move(tmpPath, dir.resolve(CHECKPOINT_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+        baseId = id;
+    }
+
+    /**
+     * The base id is the id of the first segment after the last checkpoint. It is not changed until the next
+     * checkpoint, even across restarts, thus the files flushed before a checkpoint can be named by it: if the
+     * process crashes before the checkpoint, the same events are replayed and flushed into the files of the
+     * same names, which overwrite the files of the interrupted flush instead of duplicating the rows.
+     * @return the base id of the log, it must be replayed first
+     */
+    public synchronized long getBaseId()
+    {
+        if (!replayed)
+        {
+            throw new IllegalStateException("the log must be replayed before getting the base id");
+        }
+        return baseId;
+    }
+
+    private void openSegment(long id) throws IOException
+    {
+        segmentId = id;
+        segment = FileChannel.open(dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        syncDirectory();
+    }
+
+    private void syncDirectory()
+    {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        } catch (IOException e)
+        {
+            // some file systems and platforms do not support syncing a directory
+        }
+    }
+
+    private List<Path> listSegments() throws IOException
+    {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX))
+        {
+            for (Path path : stream)
+            {
+                segments.add(path);
+            }
+        }
+        // the segment ids are zero-padded
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long getSegmentId(Path path)
+    {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * @return the number of fsyncs, each of which commits a group of events
+     */
+    public synchronized long getNumSyncs()
+    {
+        return numSyncs;
+    }
+
+    /**
+     * @return the number of events appended since the log is opened
+     */
+    public synchronized long getNumAppends()
+    {
+        return appendedLsn;
+    }
+
+    /**
+     * @return the average time of writing and fsyncing a group of events in milliseconds
+     */
+    public synchronized double getAvgSyncMs()
+    {
+        return numSyncs == 0 ? 0 : syncNanos / 1000000.0 / numSyncs;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (segment != null)
+        {
+            segment.close();
+        }
+    }
+}
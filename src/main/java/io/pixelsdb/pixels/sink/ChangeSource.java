@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.IOException;
+
+/**
+ * The source of the change events consumed by {@link ChangeIngestor}, each event is a line of JSON.
+ * <p>
+ * {@link FileTailSource} and {@link SocketSource} are the stand-ins of a message queue, e.g., a Kafka
+ * topic written by Debezium, which can be plugged in by implementing this interface.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public interface ChangeSource extends AutoCloseable
+{
+    /**
+     * @param timeoutMs the max time to wait for an event
+     * @return the next event, or null if there is no event within the timeout
+     * @throws IOException if failed to read from the source
+     * @throws InterruptedException if interrupted while waiting
+     */
+    String poll(long timeoutMs) throws IOException, InterruptedException;
+
+    /**
+     * Acknowledge the events returned by {@link #poll(long)} so far, as they are durable in the write-ahead
+     * log or in the flushed files. The unacknowledged events may be returned again after restart.
+     * @throws IOException if failed to acknowledge the events
+     */
+    default void commit() throws IOException
+    {
+    }
+
+    @Override
+    void close() throws IOException;
+}
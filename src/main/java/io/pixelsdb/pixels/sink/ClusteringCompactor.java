@@ -0,0 +1,750 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.common.utils.ConfigFactory;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.PixelsWriter;
+import io.pixelsdb.pixels.core.PixelsWriterImpl;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.reader.PixelsReaderOption;
+import io.pixelsdb.pixels.core.reader.PixelsRecordReader;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Merges the rows of a group of order files and sorts them by the cluster columns,
+ * either lexicographically or by their positions on the Z-order or Hilbert curve.
+ * <p>
+ * The sorted rows are written into temporary order files in a local directory, which are
+ * then compacted with the compact layout into the compact file. Sorting is done in three passes:
+ * <ol>
+ *     <li>read the cluster columns to get their value ranges and a sample of the sort keys;</li>
+ *     <li>read all the columns and route the rows into range partitions by the sampled key boundaries,
+ *     each partition is spilled into a local file if the rows do not fit in memory;</li>
+ *     <li>sort each partition in memory and write the rows in order.</li>
+ * </ol>
+ * A partition that still has more rows than fit in memory, e.g., because of a few hot keys that the
+ * sample underestimates, is split again by a sample of its own keys until every partition fits in
+ * memory. The rows of a partition whose keys are all equal are already in order and are written
+ * without being sorted. In the key mode, the string and binary values are compared by all their bytes,
+ * whereas the space-filling curves only use their 8-byte prefixes as the coordinates.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ClusteringCompactor
+{
+    public enum Mode
+    {
+        KEY, ZORDER, HILBERT;
+
+        public static Mode from(String name)
+        {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private static final int BATCH_SIZE = VectorizedRowBatch.DEFAULT_SIZE;
+    private static final int SAMPLE_SIZE = 100000;
+    /**
+     * The spill files are only read once locally, thus small row groups are used
+     * to bound the memory of the concurrent spill writers.
+     */
+    private static final int SPILL_ROW_GROUP_SIZE = 8 * 1024 * 1024;
+
+    private final List<String> clusterColumns;
+    private final Mode mode;
+    private final long maxRowsInMemory;
+    private final String workDir;
+    private final Storage localStorage;
+    private final int pixelStride;
+    private final int rowGroupSize;
+    private final long blockSize;
+    private final short replication;
+
+    /**
+     * @param clusterColumns the names of the columns to cluster the rows by
+     * @param mode the order of the rows
+     * @param maxRowsInMemory the max number of rows to be sorted in memory
+     * @param workDir the local directory for the spill files and the sorted order files
+     * @throws IOException if failed to get the local storage
+     */
+    public ClusteringCompactor(List<String> clusterColumns, Mode mode, long maxRowsInMemory, String workDir)
+            throws IOException
+    {
+        checkArgument(clusterColumns != null && !clusterColumns.isEmpty(), "clusterColumns is empty");
+        checkArgument(mode == Mode.KEY || clusterColumns.size() < Long.SIZE,
+                "too many cluster columns for a space-filling curve");
+        checkArgument(maxRowsInMemory > 0, "maxRowsInMemory must be positive");
+        this.clusterColumns = clusterColumns;
+        this.mode = requireNonNull(mode, "mode is null");
+        this.maxRowsInMemory = maxRowsInMemory;
+        this.workDir = requireNonNull(workDir, "workDir is null");
+        this.localStorage = StorageFactory.Instance().getStorage("file");
+        ConfigFactory configFactory = ConfigFactory.Instance();
+        this.pixelStride = Integer.parseInt(configFactory.getProperty("pixel.stride"));
+        this.rowGroupSize = Integer.parseInt(configFactory.getProperty("row.group.size"));
+        this.blockSize = Long.parseLong(configFactory.getProperty("block.size"));
+        this.replication = Short.parseShort(configFactory.getProperty("block.replication"));
+    }
+
+    public Storage getLocalStorage()
+    {
+        return localStorage;
+    }
+
+    /**
+     * Sort the rows in the source files into new order files in a local directory.
+     * @param inputStorage the storage of the source files
+     * @param sourcePaths the paths of the source files
+     * @param numOutputFiles the number of sorted order files, each of which has a similar number of rows
+     * @param taskName the unique name of the sorting task, used as the name of its local directory
+     * @return the paths of the sorted order files in the sort order
+     * @throws IOException if failed to read the source files or write the local files
+     */
+    public List<String> sort(Storage inputStorage, List<String> sourcePaths, int numOutputFiles, String taskName)
+            throws IOException
+    {
+        File taskDir = new File(workDir, taskName);
+        if (!taskDir.exists() && !taskDir.mkdirs())
+        {
+            throw new IOException("failed to create the local directory '" + taskDir + "'");
+        }
+
+        TypeDescription schema;
+        long totalRows = 0;
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(inputStorage, sourcePaths.get(0)))
+        {
+            schema = pixelsReader.getFileSchema();
+        }
+        for (String path : sourcePaths)
+        {
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(inputStorage, path))
+            {
+                totalRows += pixelsReader.getNumberOfRows();
+            }
+        }
+        List<String> fieldNames = schema.getFieldNames();
+        int[] keyColumnIds = new int[clusterColumns.size()];
+        for (int i = 0; i < keyColumnIds.length; ++i)
+        {
+            keyColumnIds[i] = fieldNames.indexOf(clusterColumns.get(i));
+            checkArgument(keyColumnIds[i] >= 0, "cluster column '" + clusterColumns.get(i) + "' does not exist");
+        }
+
+        // pass 1: get the value ranges of the cluster columns and a sample of the raw keys.
+        KeyEncoder encoder = sampleKeys(inputStorage, sourcePaths, totalRows);
+
+        // pass 2: route the rows into range partitions.
+        int numPartitions = (int) Math.max(1, (totalRows + maxRowsInMemory - 1) / maxRowsInMemory);
+        long[][] boundaries = encoder.getBoundaries(numPartitions);
+        numPartitions = boundaries.length + 1;
+        String[] allColumns = fieldNames.toArray(new String[0]);
+        long rowsPerFile = Math.max(1, (totalRows + numOutputFiles - 1) / numOutputFiles);
+        SortedFileWriter output = new SortedFileWriter(schema, taskDir, rowsPerFile);
+
+        if (totalRows <= maxRowsInMemory)
+        {
+            List<VectorizedRowBatch> rows = new ArrayList<>();
+            for (String path : sourcePaths)
+            {
+                readRows(inputStorage, path, allColumns, schema, rows);
+            }
+            sortAndWrite(rows, keyColumnIds, encoder, output);
+        }
+        else
+        {
+            // even if the sample has no distinct boundaries, the rows are spilled to be split in pass 3.
+            String[] spillPaths = new String[numPartitions];
+            for (int p = 0; p < numPartitions; ++p)
+            {
+                spillPaths[p] = new File(taskDir, "spill_" + p + ".pxl").getPath();
+            }
+            long[] numRows = spill(inputStorage, sourcePaths, schema, keyColumnIds, encoder, boundaries, spillPaths);
+
+            // pass 3: sort each partition in the order of the partitions.
+            for (int p = 0; p < numPartitions; ++p)
+            {
+                if (numRows[p] > 0)
+                {
+                    sortPartition(spillPaths[p], numRows[p], schema, keyColumnIds, encoder, output);
+                }
+            }
+        }
+        return output.close();
+    }
+
+    /**
+     * Route the rows of the files into range partitions, each of which is spilled into a local file.
+     * @param spillPaths the paths of the spill files of the partitions
+     * @return the number of rows in each partition, the spill files of the empty partitions are not created
+     */
+    private long[] spill(Storage storage, List<String> paths, TypeDescription schema, int[] keyColumnIds,
+                         KeyEncoder encoder, long[][] boundaries, String[] spillPaths) throws IOException
+    {
+        int numPartitions = spillPaths.length;
+        String[] allColumns = schema.getFieldNames().toArray(new String[0]);
+        PixelsWriter[] spillWriters = new PixelsWriter[numPartitions];
+        VectorizedRowBatch[] spillBatches = new VectorizedRowBatch[numPartitions];
+        long[] numRows = new long[numPartitions];
+        for (int p = 0; p < numPartitions; ++p)
+        {
+            spillBatches[p] = schema.createRowBatch(BATCH_SIZE);
+        }
+        for (String path : paths)
+        {
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+            {
+                PixelsRecordReader recordReader = pixelsReader.read(newOption(allColumns));
+                VectorizedRowBatch rowBatch;
+                do
+                {
+                    rowBatch = recordReader.readBatch(BATCH_SIZE);
+                    for (int r = 0; r < rowBatch.size; ++r)
+                    {
+                        int p = findPartition(boundaries, encoder.encode(rawKey(rowBatch, keyColumnIds, r)));
+                        copyRow(rowBatch, r, spillBatches[p]);
+                        numRows[p]++;
+                        if (spillBatches[p].size >= spillBatches[p].getMaxSize())
+                        {
+                            if (spillWriters[p] == null)
+                            {
+                                spillWriters[p] = newWriter(schema, spillPaths[p], SPILL_ROW_GROUP_SIZE);
+                            }
+                            spillWriters[p].addRowBatch(spillBatches[p]);
+                            spillBatches[p].reset();
+                        }
+                    }
+                } while (!rowBatch.endOfFile);
+            }
+        }
+        for (int p = 0; p < numPartitions; ++p)
+        {
+            if (spillBatches[p].size > 0)
+            {
+                if (spillWriters[p] == null)
+                {
+                    spillWriters[p] = newWriter(schema, spillPaths[p], SPILL_ROW_GROUP_SIZE);
+                }
+                spillWriters[p].addRowBatch(spillBatches[p]);
+                spillBatches[p].reset();
+            }
+            if (spillWriters[p] != null)
+            {
+                spillWriters[p].close();
+            }
+        }
+        return numRows;
+    }
+
+    /**
+     * Sort the rows of a spilled partition and write them in order, the spill file is deleted afterwards.
+     * If the partition does not fit in memory, it is split again by a sample of its own keys.
+     */
+    private void sortPartition(String path, long numRows, TypeDescription schema, int[] keyColumnIds,
+                               KeyEncoder encoder, SortedFileWriter output) throws IOException
+    {
+        String[] allColumns = schema.getFieldNames().toArray(new String[0]);
+        if (numRows <= maxRowsInMemory)
+        {
+            List<VectorizedRowBatch> rows = new ArrayList<>();
+            readRows(localStorage, path, allColumns, schema, rows);
+            sortAndWrite(rows, keyColumnIds, encoder, output);
+            localStorage.delete(path, false);
+            return;
+        }
+
+        // the partition is skewed, sample its keys to split it.
+        List<long[]> sample = new ArrayList<>();
+        long[] minKey = null, maxKey = null;
+        long stride = Math.max(1, numRows / SAMPLE_SIZE);
+        long rowId = 0;
+        // only the cluster columns are read
+        int[] columnIds = getSequence(keyColumnIds.length);
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(localStorage, path))
+        {
+            PixelsRecordReader recordReader = pixelsReader.read(newOption(clusterColumns.toArray(new String[0])));
+            VectorizedRowBatch rowBatch;
+            do
+            {
+                rowBatch = recordReader.readBatch(BATCH_SIZE);
+                for (int r = 0; r < rowBatch.size; ++r, ++rowId)
+                {
+                    long[] key = encoder.encode(rawKey(rowBatch, columnIds, r));
+                    if (minKey == null || ColumnValues.compareKeys(key, minKey) < 0)
+                    {
+                        minKey = key;
+                    }
+                    if (maxKey == null || ColumnValues.compareKeys(key, maxKey) > 0)
+                    {
+                        maxKey = key;
+                    }
+                    if (rowId % stride == 0)
+                    {
+                        sample.add(key);
+                    }
+                }
+            } while (!rowBatch.endOfFile);
+        }
+
+        if (minKey == null || ColumnValues.compareKeys(minKey, maxKey) == 0)
+        {
+            // all the rows have the same key, thus they are written in their current order.
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(localStorage, path))
+            {
+                PixelsRecordReader recordReader = pixelsReader.read(newOption(allColumns));
+                VectorizedRowBatch rowBatch;
+                do
+                {
+                    rowBatch = recordReader.readBatch(BATCH_SIZE);
+                    for (int r = 0; r < rowBatch.size; ++r)
+                    {
+                        output.write(rowBatch, r);
+                    }
+                } while (!rowBatch.endOfFile);
+            }
+            localStorage.delete(path, false);
+            return;
+        }
+
+        int numPartitions = (int) Math.min(Integer.MAX_VALUE, (numRows + maxRowsInMemory - 1) / maxRowsInMemory);
+        sample.sort(ColumnValues::compareKeys);
+        /*
+         * Besides the sampled boundaries, the rows with the most frequent sampled key are separated into
+         * their own partition, which needs no sorting. Each of the other sub-partitions is smaller than this
+         * partition as it has none of these rows, thus the splitting always terminates.
+         */
+        TreeSet<long[]> boundarySet = new TreeSet<>(ColumnValues::compareKeys);
+        boundarySet.addAll(getBoundaries(sample, numPartitions));
+        long[] hotKey = getMostFrequent(sample);
+        boundarySet.add(hotKey);
+        long[] nextKey = getNextKey(hotKey);
+        if (nextKey != null)
+        {
+            boundarySet.add(nextKey);
+        }
+        List<long[]> boundaries = new ArrayList<>(boundarySet);
+        String[] subPaths = new String[boundaries.size() + 1];
+        for (int p = 0; p < subPaths.length; ++p)
+        {
+            subPaths[p] = path.substring(0, path.length() - ".pxl".length()) + "_" + p + ".pxl";
+        }
+        long[] subRows = spill(localStorage, Collections.singletonList(path), schema, keyColumnIds, encoder,
+                boundaries.toArray(new long[0][]), subPaths);
+        localStorage.delete(path, false);
+        for (int p = 0; p < subPaths.length; ++p)
+        {
+            if (subRows[p] > 0)
+            {
+                sortPartition(subPaths[p], subRows[p], schema, keyColumnIds, encoder, output);
+            }
+        }
+    }
+
+    /**
+     * Delete the sorted order files and the local directory of a sorting task.
+     */
+    public void cleanup(List<String> sortedPaths, String taskName) throws IOException
+    {
+        for (String path : sortedPaths)
+        {
+            localStorage.delete(path, false);
+        }
+        File taskDir = new File(workDir, taskName);
+        if (taskDir.exists() && !taskDir.delete())
+        {
+            System.err.println("failed to delete the local directory '" + taskDir + "'.");
+        }
+    }
+
+    private KeyEncoder sampleKeys(Storage inputStorage, List<String> sourcePaths, long totalRows)
+            throws IOException
+    {
+        int numKeys = clusterColumns.size();
+        long[] min = new long[numKeys];
+        long[] max = new long[numKeys];
+        Arrays.fill(min, Long.MAX_VALUE);
+        Arrays.fill(max, Long.MIN_VALUE);
+        List<long[]> sample = new ArrayList<>();
+        // the sample is taken deterministically at a fixed stride of rows.
+        long stride = Math.max(1, totalRows / SAMPLE_SIZE);
+        long rowId = 0;
+        String[] keyColumns = clusterColumns.toArray(new String[0]);
+        int[] columnIds = getSequence(numKeys);
+        for (String path : sourcePaths)
+        {
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(inputStorage, path))
+            {
+                PixelsRecordReader recordReader = pixelsReader.read(newOption(keyColumns));
+                VectorizedRowBatch rowBatch;
+                do
+                {
+                    rowBatch = recordReader.readBatch(BATCH_SIZE);
+                    for (int r = 0; r < rowBatch.size; ++r, ++rowId)
+                    {
+                        long[] rawKey = rawKey(rowBatch, columnIds, r);
+                        // the value ranges are only used by the space-filling curves
+                        for (int k = 0; mode != Mode.KEY && k < numKeys; ++k)
+                        {
+                            min[k] = Math.min(min[k], rawKey[k]);
+                            max[k] = Math.max(max[k], rawKey[k]);
+                        }
+                        if (rowId % stride == 0)
+                        {
+                            sample.add(rawKey);
+                        }
+                    }
+                } while (!rowBatch.endOfFile);
+            }
+        }
+        return new KeyEncoder(mode, min, max, sample);
+    }
+
+    private void sortAndWrite(List<VectorizedRowBatch> batches, int[] keyColumnIds,
+                              KeyEncoder encoder, SortedFileWriter output) throws IOException
+    {
+        int numRows = 0;
+        for (VectorizedRowBatch batch : batches)
+        {
+            numRows += batch.size;
+        }
+        long[][] keys = new long[numRows][];
+        long[] pointers = new long[numRows];
+        int i = 0;
+        for (int b = 0; b < batches.size(); ++b)
+        {
+            VectorizedRowBatch batch = batches.get(b);
+            for (int r = 0; r < batch.size; ++r, ++i)
+            {
+                keys[i] = encoder.encode(rawKey(batch, keyColumnIds, r));
+                pointers[i] = ((long) b << 32) | r;
+            }
+        }
+        Integer[] order = new Integer[numRows];
+        for (i = 0; i < numRows; ++i)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (x, y) -> ColumnValues.compareKeys(keys[x], keys[y]));
+        for (int index : order)
+        {
+            long pointer = pointers[index];
+            output.write(batches.get((int) (pointer >>> 32)), (int) pointer);
+        }
+    }
+
+    /**
+     * @param rowBatch the row batch
+     * @param columnIds the ids of the cluster columns in the row batch
+     * @param row the row index in the row batch
+     * @return the exact key of the row in the key mode, so that the string values sharing a prefix are in order,
+     * or else the sortable key of each cluster column, as the coordinates of the row on the curve
+     */
+    private long[] rawKey(VectorizedRowBatch rowBatch, int[] columnIds, int row)
+    {
+        if (mode == Mode.KEY)
+        {
+            return ColumnValues.exactKey(rowBatch.cols, columnIds, row);
+        }
+        long[] rawKey = new long[columnIds.length];
+        for (int k = 0; k < columnIds.length; ++k)
+        {
+            rawKey[k] = ColumnValues.sortableKey(rowBatch.cols[columnIds[k]], row);
+        }
+        return rawKey;
+    }
+
+    private static int[] getSequence(int length)
+    {
+        int[] sequence = new int[length];
+        for (int i = 0; i < length; ++i)
+        {
+            sequence[i] = i;
+        }
+        return sequence;
+    }
+
+    /**
+     * @param sortedKeys the sorted sample of the keys
+     * @param numPartitions the expected number of range partitions
+     * @return the distinct upper boundaries (exclusive) of the partitions except the last one
+     */
+    private static List<long[]> getBoundaries(List<long[]> sortedKeys, int numPartitions)
+    {
+        List<long[]> boundaries = new ArrayList<>(Math.max(0, numPartitions - 1));
+        for (int p = 1; p < numPartitions && !sortedKeys.isEmpty(); ++p)
+        {
+            long[] boundary = sortedKeys.get((int) ((long) p * sortedKeys.size() / numPartitions));
+            if (boundaries.isEmpty() || ColumnValues.compareKeys(boundaries.get(boundaries.size() - 1), boundary) < 0)
+            {
+                boundaries.add(boundary);
+            }
+        }
+        return boundaries;
+    }
+
+    /**
+     * @param sortedKeys the sorted keys, not empty
+     * @return the most frequent key
+     */
+    private static long[] getMostFrequent(List<long[]> sortedKeys)
+    {
+        long[] mostFrequent = sortedKeys.get(0);
+        int maxCount = 0;
+        for (int i = 0, j; i < sortedKeys.size(); i = j)
+        {
+            for (j = i + 1; j < sortedKeys.size() &&
+                    ColumnValues.compareKeys(sortedKeys.get(i), sortedKeys.get(j)) == 0; ++j);
+            if (j - i > maxCount)
+            {
+                maxCount = j - i;
+                mostFrequent = sortedKeys.get(i);
+            }
+        }
+        return mostFrequent;
+    }
+
+    /**
+     * @param key the key
+     * @return the smallest key that is greater than the given key, or null if the given key is the largest
+     */
+    private static long[] getNextKey(long[] key)
+    {
+        long[] next = key.clone();
+        for (int k = next.length - 1; k >= 0; --k)
+        {
+            if (next[k] != Long.MAX_VALUE)
+            {
+                next[k]++;
+                return next;
+            }
+            next[k] = Long.MIN_VALUE;
+        }
+        return null;
+    }
+
+    private static int findPartition(long[][] boundaries, long[] key)
+    {
+        int low = 0, high = boundaries.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (ColumnValues.compareKeys(boundaries[mid], key) <= 0)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Read the rows of a file into the batches owned by the caller, so that they are not
+     * affected by the reuse of row batches in the record reader.
+     */
+    private void readRows(Storage storage, String path, String[] columns, TypeDescription schema,
+                          List<VectorizedRowBatch> batches) throws IOException
+    {
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+        {
+            PixelsRecordReader recordReader = pixelsReader.read(newOption(columns));
+            VectorizedRowBatch current = schema.createRowBatch(BATCH_SIZE);
+            VectorizedRowBatch rowBatch;
+            do
+            {
+                rowBatch = recordReader.readBatch(BATCH_SIZE);
+                for (int r = 0; r < rowBatch.size; ++r)
+                {
+                    copyRow(rowBatch, r, current);
+                    if (current.size >= current.getMaxSize())
+                    {
+                        batches.add(current);
+                        current = schema.createRowBatch(BATCH_SIZE);
+                    }
+                }
+            } while (!rowBatch.endOfFile);
+            if (current.size > 0)
+            {
+                batches.add(current);
+            }
+        }
+    }
+
+    private static void copyRow(VectorizedRowBatch source, int row, VectorizedRowBatch target)
+    {
+        target.size++;
+        for (int c = 0; c < target.cols.length; ++c)
+        {
+            target.cols[c].addElement(row, source.cols[c]);
+        }
+    }
+
+    private static PixelsReaderOption newOption(String[] columns)
+    {
+        PixelsReaderOption option = new PixelsReaderOption();
+        option.skipCorruptRecords(true);
+        option.tolerantSchemaEvolution(true);
+        option.includeCols(columns);
+        return option;
+    }
+
+    private PixelsWriter newWriter(TypeDescription schema, String path, int rowGroupSize)
+    {
+        return PixelsWriterImpl.newBuilder()
+                .setSchema(schema)
+                .setPixelStride(pixelStride)
+                .setRowGroupSize(rowGroupSize)
+                .setStorage(localStorage)
+                .setPath(path)
+                .setBlockSize(blockSize)
+                .setReplication(replication)
+                .setBlockPadding(true)
+                .setEncoding(true)
+                .setCompressionBlockSize(1)
+                .build();
+    }
+
+    /**
+     * Encodes the raw sortable keys of the cluster columns into the keys to sort the rows.
+     */
+    private static class KeyEncoder
+    {
+        private final Mode mode;
+        private final long[] min;
+        private final long[] max;
+        private final int bits;
+        private final List<long[]> sample;
+
+        private KeyEncoder(Mode mode, long[] min, long[] max, List<long[]> sample)
+        {
+            this.mode = mode;
+            this.min = min;
+            this.max = max;
+            this.bits = SpaceFillingCurve.getBitsPerDimension(min.length);
+            this.sample = sample;
+        }
+
+        private long[] encode(long[] rawKey)
+        {
+            if (mode == Mode.KEY)
+            {
+                return rawKey;
+            }
+            long[] coordinates = new long[rawKey.length];
+            for (int k = 0; k < rawKey.length; ++k)
+            {
+                // the values out of the sampled range can only occur in files modified during the sorting
+                long value = Math.max(min[k], Math.min(max[k], rawKey[k]));
+                coordinates[k] = SpaceFillingCurve.normalize(value, min[k], max[k], bits);
+            }
+            long position = mode == Mode.ZORDER ?
+                    SpaceFillingCurve.zOrder(coordinates, bits) :
+                    SpaceFillingCurve.hilbert(coordinates, bits);
+            return new long[]{position};
+        }
+
+        /**
+         * @param numPartitions the expected number of range partitions
+         * @return the distinct upper boundaries (exclusive) of the partitions except the last one
+         */
+        private long[][] getBoundaries(int numPartitions)
+        {
+            if (numPartitions <= 1 || sample.isEmpty())
+            {
+                return new long[0][];
+            }
+            List<long[]> keys = new ArrayList<>(sample.size());
+            for (long[] rawKey : sample)
+            {
+                keys.add(encode(rawKey));
+            }
+            keys.sort(ColumnValues::compareKeys);
+            return ClusteringCompactor.getBoundaries(keys, numPartitions).toArray(new long[0][]);
+        }
+    }
+
+    /**
+     * Writes the sorted rows into order files of a fixed number of rows.
+     */
+    private class SortedFileWriter
+    {
+        private final TypeDescription schema;
+        private final File dir;
+        private final long rowsPerFile;
+        private final VectorizedRowBatch rowBatch;
+        private final List<String> paths = new ArrayList<>();
+        private PixelsWriter pixelsWriter = null;
+        private long rowsInFile = 0;
+
+        private SortedFileWriter(TypeDescription schema, File dir, long rowsPerFile)
+        {
+            this.schema = schema;
+            this.dir = dir;
+            this.rowsPerFile = rowsPerFile;
+            this.rowBatch = schema.createRowBatch(BATCH_SIZE);
+        }
+
+        private void write(VectorizedRowBatch source, int row) throws IOException
+        {
+            if (pixelsWriter == null)
+            {
+                String path = new File(dir, "sorted_" + paths.size() + ".pxl").getPath();
+                pixelsWriter = newWriter(schema, path, rowGroupSize);
+                paths.add(path);
+            }
+            copyRow(source, row, rowBatch);
+            rowsInFile++;
+            if (rowBatch.size >= rowBatch.getMaxSize() || rowsInFile >= rowsPerFile)
+            {
+                pixelsWriter.addRowBatch(rowBatch);
+                rowBatch.reset();
+            }
+            if (rowsInFile >= rowsPerFile)
+            {
+                pixelsWriter.close();
+                pixelsWriter = null;
+                rowsInFile = 0;
+            }
+        }
+
+        private List<String> close() throws IOException
+        {
+            if (pixelsWriter != null)
+            {
+                if (rowBatch.size > 0)
+                {
+                    pixelsWriter.addRowBatch(rowBatch);
+                    rowBatch.reset();
+                }
+                pixelsWriter.close();
+                pixelsWriter = null;
+            }
+            return paths;
+        }
+    }
+}
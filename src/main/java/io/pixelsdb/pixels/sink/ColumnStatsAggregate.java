@@ -0,0 +1,420 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnknownFieldSet;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.reader.PixelsReaderOption;
+import io.pixelsdb.pixels.core.reader.PixelsRecordReader;
+import io.pixelsdb.pixels.core.stats.StatsRecorder;
+import io.pixelsdb.pixels.core.vector.ColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The aggregated statistics of the columns in a set of Pixels files.
+ * <p>
+ * The sizes and the {@link StatsRecorder}s of the columns are read from the footers. Optionally,
+ * the rows are also read to count the nulls and sketch the distinct values and the quantiles of each column.
+ * </p>
+ * <p>
+ * It is not thread safe. Each scan thread of STAT aggregates the files it reads into its own
+ * instance, and the partial aggregates are merged at the end. So does {@link StatPublisher} for
+ * the files written by LOAD and COMPACT.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ColumnStatsAggregate
+{
+    private int numRowGroups = 0;
+    private long numRows = 0;
+    /**
+     * The total length in bytes of the column chunks of each column.
+     */
+    private final Map<String, Long> columnSizes = new HashMap<>();
+    private final Map<String, StatsRecorder> columnStats = new HashMap<>();
+    /**
+     * The types of the columns, used to deserialize the {@link StatsRecorder}s.
+     */
+    private final Map<String, TypeDescription> columnTypes = new HashMap<>();
+    private final Map<String, HyperLogLog> distinctSketches = new HashMap<>();
+    private final Map<String, Long> nullCounts = new HashMap<>();
+    private final Map<String, QuantileSketch> quantileSketches = new HashMap<>();
+
+    /**
+     * Add the footers of a file into this aggregate.
+     * @param pixelsReader the reader of the file
+     * @throws IOException if failed to read the footers
+     */
+    public void addFile(PixelsReader pixelsReader) throws IOException
+    {
+        PixelsProto.Footer fileFooter = pixelsReader.getFooter();
+        int numRowGroup = pixelsReader.getRowGroupNum();
+        numRowGroups += numRowGroup;
+        numRows += pixelsReader.getNumberOfRows();
+        List<PixelsProto.Type> types = fileFooter.getTypesList();
+        for (int i = 0; i < numRowGroup; ++i)
+        {
+            PixelsProto.RowGroupFooter rowGroupFooter = pixelsReader.getRowGroupFooter(i);
+            List<PixelsProto.ColumnChunkIndex> chunkIndices =
+                    rowGroupFooter.getRowGroupIndexEntry().getColumnChunkIndexEntriesList();
+            for (int j = 0; j < types.size(); ++j)
+            {
+                columnSizes.merge(types.get(j).getName(), chunkIndices.get(j).getChunkLength(), Long::sum);
+            }
+        }
+        List<TypeDescription> fields = pixelsReader.getFileSchema().getChildren();
+        checkArgument(fields.size() == types.size(),
+                "types.size and fields.size are not consistent");
+        for (int i = 0; i < fields.size(); ++i)
+        {
+            columnTypes.putIfAbsent(types.get(i).getName(), fields.get(i));
+            mergeStats(types.get(i).getName(), StatsRecorder.create(fields.get(i), fileFooter.getColumnStats(i)));
+        }
+    }
+
+    /**
+     * Read the rows of a file and add them into the null counts, distinct sketches, and quantile sketches
+     * of this aggregate. The columns of the types not supported by {@link ColumnValues} have no sketches.
+     * @param pixelsReader the reader of the file
+     * @throws IOException if failed to read the rows
+     */
+    public void addRows(PixelsReader pixelsReader) throws IOException
+    {
+        List<PixelsProto.Type> types = pixelsReader.getFooter().getTypesList();
+        String[] columnNames = new String[types.size()];
+        for (int i = 0; i < columnNames.length; ++i)
+        {
+            columnNames[i] = types.get(i).getName();
+        }
+        PixelsReaderOption option = new PixelsReaderOption();
+        option.skipCorruptRecords(true);
+        option.tolerantSchemaEvolution(true);
+        option.includeCols(columnNames);
+        PixelsRecordReader recordReader = pixelsReader.read(option);
+        VectorizedRowBatch rowBatch;
+        do
+        {
+            rowBatch = recordReader.readBatch(VectorizedRowBatch.DEFAULT_SIZE);
+            addRowBatch(columnNames, rowBatch);
+        } while (!rowBatch.endOfFile);
+    }
+
+    /**
+     * Add a batch of rows into the null counts, distinct sketches, and quantile sketches of this
+     * aggregate, e.g., a batch that is written by LOAD. The footers of the file that the rows are
+     * written into should be added by {@link #addFile(PixelsReader)} after the file is closed.
+     * @param columnNames the names of the columns, in the order of the column vectors in the batch
+     * @param rowBatch the batch of rows
+     */
+    public void addRowBatch(String[] columnNames, VectorizedRowBatch rowBatch)
+    {
+        for (int c = 0; c < columnNames.length; ++c)
+        {
+            String columnName = columnNames[c];
+            if (!distinctSketches.containsKey(columnName))
+            {
+                distinctSketches.put(columnName, new HyperLogLog());
+                quantileSketches.put(columnName, new QuantileSketch());
+            }
+            HyperLogLog sketch = distinctSketches.get(columnName);
+            QuantileSketch quantiles = quantileSketches.get(columnName);
+            ColumnVector vector = rowBatch.cols[c];
+            long nulls = 0;
+            // a repeating vector has the same value in all the rows
+            int numRows = vector.isRepeating ? Math.min(1, rowBatch.size) : rowBatch.size;
+            for (int r = 0; r < numRows; ++r)
+            {
+                if (ColumnValues.isNull(vector, r))
+                {
+                    nulls += vector.isRepeating ? rowBatch.size : 1;
+                }
+                else if (sketch != null)
+                {
+                    try
+                    {
+                        sketch.add(ColumnValues.hash(vector, r));
+                        long key = ColumnValues.sortableKey(vector, r);
+                        for (int i = vector.isRepeating ? rowBatch.size : 1; i > 0; --i)
+                        {
+                            quantiles.add(key);
+                        }
+                    } catch (UnsupportedOperationException e)
+                    {
+                        sketch = null;
+                        distinctSketches.put(columnName, null);
+                        quantileSketches.put(columnName, null);
+                    }
+                }
+            }
+            nullCounts.merge(columnName, nulls, Long::sum);
+        }
+    }
+
+    /**
+     * Merge another aggregate into this one.
+     * @param other the other aggregate, which should not be used after merging
+     */
+    public void merge(ColumnStatsAggregate other)
+    {
+        numRowGroups += other.numRowGroups;
+        numRows += other.numRows;
+        other.columnSizes.forEach((name, size) -> columnSizes.merge(name, size, Long::sum));
+        other.columnStats.forEach(this::mergeStats);
+        other.columnTypes.forEach(columnTypes::putIfAbsent);
+        other.nullCounts.forEach((name, count) -> nullCounts.merge(name, count, Long::sum));
+        for (String columnName : other.nullCounts.keySet())
+        {
+            mergeSketch(columnName, other.distinctSketches.get(columnName),
+                    other.quantileSketches.get(columnName));
+        }
+    }
+
+    /**
+     * Merge the sketches of the distinct values and the quantiles of a column. The column has no sketches
+     * if any of the merged sketches is null, i.e., the type of the column is not supported.
+     */
+    private void mergeSketch(String columnName, HyperLogLog sketch, QuantileSketch quantiles)
+    {
+        if (sketch == null || quantiles == null)
+        {
+            distinctSketches.put(columnName, null);
+            quantileSketches.put(columnName, null);
+            return;
+        }
+        if (!distinctSketches.containsKey(columnName))
+        {
+            distinctSketches.put(columnName, sketch);
+            quantileSketches.put(columnName, quantiles);
+            return;
+        }
+        HyperLogLog existing = distinctSketches.get(columnName);
+        if (existing != null)
+        {
+            existing.merge(sketch);
+            quantileSketches.get(columnName).merge(quantiles);
+        }
+    }
+
+    private void mergeStats(String columnName, StatsRecorder statsRecorder)
+    {
+        StatsRecorder existing = columnStats.get(columnName);
+        if (existing == null)
+        {
+            columnStats.put(columnName, statsRecorder);
+        }
+        else
+        {
+            existing.merge(statsRecorder);
+        }
+    }
+
+    public int getNumRowGroups()
+    {
+        return numRowGroups;
+    }
+
+    public long getNumRows()
+    {
+        return numRows;
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the total length in bytes of the column chunks of the column
+     */
+    public long getColumnSize(String columnName)
+    {
+        return columnSizes.getOrDefault(columnName, 0L);
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the merged statistics of the column, or null if the column is not found in any file
+     */
+    public StatsRecorder getColumnStats(String columnName)
+    {
+        return columnStats.get(columnName);
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the type of the column, or null if the column is not found in any file
+     */
+    public TypeDescription getColumnType(String columnName)
+    {
+        return columnTypes.get(columnName);
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the record stats of the column to be stored in metadata, or null if the column is not
+     * found in any file. If the quantiles of the column are sketched, the equi-depth histogram of the
+     * column is attached as the unknown field {@link EquiDepthHistogram#FIELD_NUMBER}.
+     */
+    public PixelsProto.ColumnStatistic getRecordStats(String columnName)
+    {
+        StatsRecorder statsRecorder = columnStats.get(columnName);
+        if (statsRecorder == null)
+        {
+            return null;
+        }
+        PixelsProto.ColumnStatistic.Builder builder = statsRecorder.serialize();
+        EquiDepthHistogram histogram = getHistogram(columnName);
+        if (histogram != null)
+        {
+            builder.setUnknownFields(UnknownFieldSet.newBuilder(builder.getUnknownFields())
+                    .addField(EquiDepthHistogram.FIELD_NUMBER, UnknownFieldSet.Field.newBuilder()
+                            .addLengthDelimited(ByteString.copyFrom(histogram.toBytes())).build())
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the equi-depth histogram of the non-null values in the column, or null if the
+     * quantiles of the column are not sketched or the column has no non-null values
+     */
+    public EquiDepthHistogram getHistogram(String columnName)
+    {
+        QuantileSketch quantiles = quantileSketches.get(columnName);
+        if (quantiles == null || quantiles.getCount() == 0)
+        {
+            return null;
+        }
+        return EquiDepthHistogram.fromSketch(quantiles, EquiDepthHistogram.DEFAULT_NUM_BUCKETS);
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the sketch of the distinct values of the column, or null if the rows are not read
+     * or the type of the column is not supported
+     */
+    public HyperLogLog getDistinctSketch(String columnName)
+    {
+        return distinctSketches.get(columnName);
+    }
+
+    /**
+     * @param columnName the name of the column
+     * @return the number of nulls in the column, or 0 if the rows are not read
+     */
+    public long getNullCount(String columnName)
+    {
+        return nullCounts.getOrDefault(columnName, 0L);
+    }
+
+    /**
+     * Serialize this aggregate, e.g., into the STAT cache.
+     * @param output the output to write this aggregate into
+     * @throws IOException if failed to write the output
+     */
+    public void writeTo(DataOutput output) throws IOException
+    {
+        output.writeInt(numRowGroups);
+        output.writeLong(numRows);
+        output.writeInt(columnTypes.size());
+        for (Map.Entry<String, TypeDescription> entry : columnTypes.entrySet())
+        {
+            String columnName = entry.getKey();
+            output.writeUTF(columnName);
+            output.writeUTF(entry.getValue().toString());
+            output.writeLong(getColumnSize(columnName));
+            StatsRecorder statsRecorder = columnStats.get(columnName);
+            writeBytes(output, statsRecorder == null ? null : statsRecorder.serialize().build().toByteArray());
+            output.writeBoolean(nullCounts.containsKey(columnName));
+            output.writeLong(getNullCount(columnName));
+            HyperLogLog sketch = distinctSketches.get(columnName);
+            writeBytes(output, sketch == null ? null : sketch.toBytes());
+            QuantileSketch quantiles = quantileSketches.get(columnName);
+            writeBytes(output, quantiles == null ? null : quantiles.toBytes());
+        }
+    }
+
+    /**
+     * @param input the input to read an aggregate serialized by {@link #writeTo(DataOutput)}
+     * @return the deserialized aggregate
+     * @throws IOException if failed to read the input
+     */
+    public static ColumnStatsAggregate readFrom(DataInput input) throws IOException
+    {
+        ColumnStatsAggregate aggregate = new ColumnStatsAggregate();
+        aggregate.numRowGroups = input.readInt();
+        aggregate.numRows = input.readLong();
+        int numColumns = input.readInt();
+        for (int i = 0; i < numColumns; ++i)
+        {
+            String columnName = input.readUTF();
+            TypeDescription type = TypeDescription.fromString(input.readUTF());
+            aggregate.columnTypes.put(columnName, type);
+            aggregate.columnSizes.put(columnName, input.readLong());
+            byte[] stats = readBytes(input);
+            if (stats != null)
+            {
+                aggregate.columnStats.put(columnName,
+                        StatsRecorder.create(type, PixelsProto.ColumnStatistic.parseFrom(stats)));
+            }
+            boolean hasRows = input.readBoolean();
+            long nullCount = input.readLong();
+            byte[] sketch = readBytes(input);
+            byte[] quantiles = readBytes(input);
+            if (hasRows)
+            {
+                aggregate.nullCounts.put(columnName, nullCount);
+                aggregate.distinctSketches.put(columnName, sketch == null ? null : HyperLogLog.fromBytes(sketch));
+                aggregate.quantileSketches.put(columnName,
+                        quantiles == null ? null : QuantileSketch.fromBytes(quantiles));
+            }
+        }
+        return aggregate;
+    }
+
+    private static void writeBytes(DataOutput output, byte[] bytes) throws IOException
+    {
+        if (bytes == null)
+        {
+            output.writeInt(-1);
+            return;
+        }
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput input) throws IOException
+    {
+        int length = input.readInt();
+        if (length < 0)
+        {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.vector.*;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Type-independent accessors of the values in Pixels column vectors.
+ * <p>
+ * A value is mapped to a sortable key, i.e., a long whose signed order is the same as the order
+ * of the values. This holds exactly for the integer, decimal, date, time, timestamp, and floating
+ * point types. For the string and binary types, the key is built from the first 8 bytes of the
+ * value, thus the values sharing the same 8-byte prefix have the same key. The exact key of a row, see
+ * {@link #exactKey(ColumnVector[], int[], int)}, has all the bytes of such values instead.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ColumnValues
+{
+    /**
+     * The sortable key of null values, which are ordered before all the other values.
+     */
+    public static final long NULL_KEY = Long.MIN_VALUE;
+
+    private ColumnValues()
+    {
+    }
+
+    /**
+     * @param vector the column vector
+     * @param row the row index in the vector
+     * @return true if the value is null
+     */
+    public static boolean isNull(ColumnVector vector, int row)
+    {
+        if (vector.noNulls)
+        {
+            return false;
+        }
+        return vector.isNull[vector.isRepeating ? 0 : row];
+    }
+
+    /**
+     * @param vector the column vector
+     * @param row the row index in the vector
+     * @return the sortable key of the value, or {@link #NULL_KEY} if the value is null
+     */
+    public static long sortableKey(ColumnVector vector, int row)
+    {
+        if (isNull(vector, row))
+        {
+            return NULL_KEY;
+        }
+        if (vector.isRepeating)
+        {
+            row = 0;
+        }
+        if (vector instanceof LongColumnVector)
+        {
+            return ((LongColumnVector) vector).vector[row];
+        }
+        if (vector instanceof DecimalColumnVector)
+        {
+            // the unscaled values in the same column have the same scale
+            return ((DecimalColumnVector) vector).vector[row];
+        }
+        if (vector instanceof DateColumnVector)
+        {
+            return ((DateColumnVector) vector).dates[row];
+        }
+        if (vector instanceof TimeColumnVector)
+        {
+            return ((TimeColumnVector) vector).times[row];
+        }
+        if (vector instanceof TimestampColumnVector)
+        {
+            return ((TimestampColumnVector) vector).times[row];
+        }
+        if (vector instanceof DoubleColumnVector)
+        {
+            // the double values are stored as their long bits
+            long bits = ((DoubleColumnVector) vector).vector[row];
+            return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+        }
+        if (vector instanceof ByteColumnVector)
+        {
+            return ((ByteColumnVector) vector).vector[row];
+        }
+        if (vector instanceof BinaryColumnVector)
+        {
+            BinaryColumnVector binaryVector = (BinaryColumnVector) vector;
+            return prefixKey(binaryVector.vector[row], binaryVector.start[row], binaryVector.lens[row]);
+        }
+        throw new UnsupportedOperationException(
+                "column vector " + vector.getClass().getSimpleName() + " is not supported");
+    }
+
+    /**
+     * Get the exact key of the values of some columns in a row. The keys are compared by
+     * {@link #compareKeys(long[], long[])}, and the order of the keys is the lexicographic order of
+     * the values. Each value has one sortable key, except the non-null string or binary value, which
+     * is split into chunks of 7 bytes, each chunk is a long of the bytes followed by a marker byte,
+     * which is the number of the bytes plus 1 for the last chunk, or 9 if more chunks follow.
+     * @param columns the column vectors
+     * @param columnIds the ids of the columns in the vectors
+     * @param row the row index in the vectors
+     * @return the exact key of the row
+     */
+    public static long[] exactKey(ColumnVector[] columns, int[] columnIds, int row)
+    {
+        int length = 0;
+        for (int columnId : columnIds)
+        {
+            ColumnVector vector = columns[columnId];
+            if (vector instanceof BinaryColumnVector && !isNull(vector, row))
+            {
+                int valueLength = ((BinaryColumnVector) vector).lens[vector.isRepeating ? 0 : row];
+                length += Math.max(1, (valueLength + 6) / 7);
+            }
+            else
+            {
+                length++;
+            }
+        }
+        long[] key = new long[length];
+        int offset = 0;
+        for (int columnId : columnIds)
+        {
+            ColumnVector vector = columns[columnId];
+            if (!(vector instanceof BinaryColumnVector) || isNull(vector, row))
+            {
+                key[offset++] = sortableKey(vector, row);
+                continue;
+            }
+            BinaryColumnVector binaryVector = (BinaryColumnVector) vector;
+            int r = vector.isRepeating ? 0 : row;
+            byte[] bytes = binaryVector.vector[r];
+            int start = binaryVector.start[r], valueLength = binaryVector.lens[r];
+            int i = 0;
+            do
+            {
+                int chunkLength = Math.min(7, valueLength - i);
+                long chunk = 0;
+                for (int j = 0; j < 7; ++j)
+                {
+                    chunk <<= 8;
+                    if (j < chunkLength)
+                    {
+                        chunk |= bytes[start + i + j] & 0xFFL;
+                    }
+                }
+                i += chunkLength;
+                chunk = (chunk << 8) | (i < valueLength ? 9 : chunkLength + 1);
+                // flip the sign bit as the prefix key does, a chunk is greater than the null key
+                key[offset++] = chunk ^ Long.MIN_VALUE;
+            } while (i < valueLength);
+        }
+        return key;
+    }
+
+    /**
+     * @param x a sortable key of a row, e.g., the exact key
+     * @param y another sortable key of a row of the same columns
+     * @return the order of the keys, a key is greater than its own prefix
+     */
+    public static int compareKeys(long[] x, long[] y)
+    {
+        int length = Math.min(x.length, y.length);
+        for (int k = 0; k < length; ++k)
+        {
+            int cmp = Long.compare(x[k], y[k]);
+            if (cmp != 0)
+            {
+                return cmp;
+            }
+        }
+        return Integer.compare(x.length, y.length);
+    }
+
+    /**
+     * @param vector the column vector
+     * @param row the row index in the vector, the value must not be null
+     * @return the 64-bit hash of the value, the equal values have the same hash
+     */
+    public static long hash(ColumnVector vector, int row)
+    {
+        if (vector instanceof BinaryColumnVector)
+        {
+            if (vector.isRepeating)
+            {
+                row = 0;
+            }
+            BinaryColumnVector binaryVector = (BinaryColumnVector) vector;
+            return hashBytes(binaryVector.vector[row], binaryVector.start[row], binaryVector.lens[row]);
+        }
+        // the sortable keys of the other types are one-to-one mappings of the values
+        return mix(sortableKey(vector, row));
+    }
+
+    /**
+     * @param bytes the bytes of a string or binary value
+     * @param start the start offset of the value
+     * @param length the length of the value
+     * @return the 64-bit hash of all the bytes of the value
+     */
+    public static long hashBytes(byte[] bytes, int start, int length)
+    {
+        long hash = length;
+        int i = 0;
+        for (; i + Long.BYTES <= length; i += Long.BYTES)
+        {
+            long word = 0;
+            for (int j = 0; j < Long.BYTES; ++j)
+            {
+                word = (word << 8) | (bytes[start + i + j] & 0xFFL);
+            }
+            hash = mix(hash ^ word) * 0x9E3779B97F4A7C15L;
+        }
+        long tail = 0;
+        for (; i < length; ++i)
+        {
+            tail = (tail << 8) | (bytes[start + i] & 0xFFL);
+        }
+        return mix(hash ^ tail);
+    }
+
+    /**
+     * The finalizer of MurmurHash3, which makes every bit of the input affect every bit of the output.
+     * @param value the value
+     * @return the mixed 64-bit hash of the value
+     */
+    public static long mix(long value)
+    {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Get the range of the sortable keys of a column from its statistics in a file or row group footer.
+     * @param type the type of the column
+     * @param stats the statistics of the column
+     * @return the min and max sortable keys, or null if the range is unknown (e.g., all the values are null)
+     */
+    public static long[] sortableRange(PixelsProto.Type type, PixelsProto.ColumnStatistic stats)
+    {
+        if (stats.getNumberOfValues() == 0)
+        {
+            return null;
+        }
+        if (stats.hasIntStatistics())
+        {
+            return new long[]{stats.getIntStatistics().getMinimum(), stats.getIntStatistics().getMaximum()};
+        }
+        if (stats.hasDateStatistics())
+        {
+            return new long[]{stats.getDateStatistics().getMinimum(), stats.getDateStatistics().getMaximum()};
+        }
+        if (stats.hasTimeStatistics())
+        {
+            return new long[]{stats.getTimeStatistics().getMinimum(), stats.getTimeStatistics().getMaximum()};
+        }
+        if (stats.hasTimestampStatistics())
+        {
+            return new long[]{stats.getTimestampStatistics().getMinimum(),
+                    stats.getTimestampStatistics().getMaximum()};
+        }
+        if (stats.hasDoubleStatistics())
+        {
+            return new long[]{doubleKey(stats.getDoubleStatistics().getMinimum()),
+                    doubleKey(stats.getDoubleStatistics().getMaximum())};
+        }
+        if (stats.hasDecimalStatistics())
+        {
+            return new long[]{
+                    new BigDecimal(stats.getDecimalStatistics().getMinimum())
+                            .setScale(type.getScale(), BigDecimal.ROUND_FLOOR).unscaledValue().longValue(),
+                    new BigDecimal(stats.getDecimalStatistics().getMaximum())
+                            .setScale(type.getScale(), BigDecimal.ROUND_CEILING).unscaledValue().longValue()};
+        }
+        if (stats.hasStringStatistics())
+        {
+            byte[] min = stats.getStringStatistics().getMinimum().getBytes(StandardCharsets.UTF_8);
+            byte[] max = stats.getStringStatistics().getMaximum().getBytes(StandardCharsets.UTF_8);
+            return new long[]{prefixKey(min, 0, min.length), prefixKey(max, 0, max.length)};
+        }
+        return null;
+    }
+
+    /**
+     * @param value the double value
+     * @return the sortable key of the double value
+     */
+    public static long doubleKey(double value)
+    {
+        long bits = Double.doubleToLongBits(value);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * @param bytes the bytes of a string or binary value
+     * @param start the start offset of the value
+     * @param length the length of the value
+     * @return the sortable key built from the first 8 bytes of the value
+     */
+    public static long prefixKey(byte[] bytes, int start, int length)
+    {
+        long key = 0;
+        for (int i = 0; i < Long.BYTES; ++i)
+        {
+            key <<= 8;
+            if (i < length)
+            {
+                key |= bytes[start + i] & 0xFFL;
+            }
+        }
+        // flip the sign bit to make the unsigned order of the bytes a signed order
+        return key ^ Long.MIN_VALUE;
+    }
+}
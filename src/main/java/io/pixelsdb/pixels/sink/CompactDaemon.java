@@ -0,0 +1,227 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Keeps compacting the newly landed order files of a layout.
+ * <p>
+ * The intent to create each compact file is recorded in a local {@link CompactState} before
+ * the compact file is created, and the compact file is committed together with its order files
+ * after it is built. On restart, the compact files of the uncommitted intents are deleted, thus
+ * the order files of a compaction interrupted by a crash are compacted again without duplicating
+ * their rows. A new order file is only considered after its length is unchanged in two consecutive
+ * polls, thus the files still being written by LOAD are not compacted.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class CompactDaemon
+{
+    private final CompactRunner runner;
+    private final String orderPath;
+    private final CompactState state;
+    private final long targetSize;
+    private final long pollIntervalMs;
+    private final long maxWaitMs;
+    private final int prefetchParallelism;
+    /**
+     * The column to group the order files by their ranges of, null for bin-packing.
+     */
+    private final String rangeColumn;
+    /**
+     * The lengths of the order files seen in the last poll.
+     */
+    private final Map<String, Long> lastLengths = new HashMap<>();
+    /**
+     * The time when the order files become stable and pending for compaction.
+     */
+    private final Map<String, Long> pendingSince = new HashMap<>();
+    private int taskId = 0;
+
+    /**
+     * @param runner the runner to compact the order files
+     * @param orderPath the order path of the layout
+     * @param stateFile the local file to record the intents and commits of the compact files
+     * @param targetSize the target size in bytes of a compact file, non-positive for no size target
+     * @param pollIntervalMs the interval in milliseconds between two polls of the order path
+     * @param maxWaitMs the max time in milliseconds that a stable order file waits for enough
+     *                  files to fill a compact file, after which it is compacted anyway
+     * @param prefetchParallelism the number of threads used for prefetching the footers of order files
+     * @param rangeColumn the column to group the order files by their min/max values of, null for bin-packing
+     */
+    public CompactDaemon(CompactRunner runner, String orderPath, String stateFile, long targetSize,
+                         long pollIntervalMs, long maxWaitMs, int prefetchParallelism,
+                         String rangeColumn) throws IOException
+    {
+        this.runner = requireNonNull(runner, "runner is null");
+        this.orderPath = requireNonNull(orderPath, "orderPath is null");
+        this.targetSize = targetSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxWaitMs = maxWaitMs;
+        this.prefetchParallelism = prefetchParallelism;
+        this.rangeColumn = rangeColumn;
+        this.state = new CompactState(new File(requireNonNull(stateFile, "stateFile is null")));
+        for (String compactFile : this.state.getPendingIntents())
+        {
+            // the compaction is interrupted, its order files are compacted again in the later polls.
+            runner.deleteCompactFile(compactFile);
+            this.state.abort(compactFile);
+            System.out.println("Compact file '" + compactFile + "' of an interrupted compaction is deleted.");
+        }
+        System.out.println(this.state.getCompacted().size() + " order files are already compacted according to '" +
+                stateFile + "'.");
+    }
+
+    /**
+     * Poll and compact the order path until the current thread is interrupted.
+     */
+    public void run() throws IOException, InterruptedException
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            long start = System.currentTimeMillis();
+            compactOnce();
+            long elapsed = System.currentTimeMillis() - start;
+            if (elapsed < pollIntervalMs)
+            {
+                Thread.sleep(pollIntervalMs - elapsed);
+            }
+        }
+    }
+
+    /**
+     * Poll the order path once and compact the stable order files if they reach the threshold.
+     * @return the number of order files compacted in this round
+     */
+    public int compactOnce() throws IOException, InterruptedException
+    {
+        long now = System.currentTimeMillis();
+        List<Status> statuses = runner.getOrderStorage().listStatus(orderPath);
+        List<Status> stable = new ArrayList<>();
+        Map<String, Long> lengths = new HashMap<>();
+        for (Status status : statuses)
+        {
+            String path = status.getPath();
+            if (path.endsWith("/") || state.getCompacted().contains(path))
+            {
+                continue;
+            }
+            lengths.put(path, status.getLength());
+            Long lastLength = lastLengths.get(path);
+            if (lastLength != null && lastLength == status.getLength())
+            {
+                stable.add(status);
+                pendingSince.putIfAbsent(path, now);
+            }
+        }
+        lastLengths.clear();
+        lastLengths.putAll(lengths);
+        pendingSince.keySet().retainAll(lengths.keySet());
+        if (stable.isEmpty())
+        {
+            return 0;
+        }
+        // the footers of the pending files are cached, thus they are only read once across the polls.
+        List<CompactPlanner.SourceFile> sourceFiles = CompactPlanner.getSourceFiles(
+                runner.getOrderStorage(), stable, rangeColumn, prefetchParallelism);
+
+        // compact the files that fill whole compact files, or all of them if some file has waited too long.
+        int numRowGroupInBlock = runner.getNumRowGroupInBlock();
+        long pendingLength = 0;
+        int pendingRowGroups = CompactPlanner.getNumRowGroups(sourceFiles);
+        long oldest = now;
+        for (CompactPlanner.SourceFile file : sourceFiles)
+        {
+            pendingLength += file.getLength();
+            oldest = Math.min(oldest, pendingSince.get(file.getPath()));
+        }
+        List<CompactPlanner.SourceFile> toCompact;
+        if (now - oldest >= maxWaitMs || (targetSize > 0 && pendingLength >= targetSize))
+        {
+            toCompact = sourceFiles;
+        }
+        else
+        {
+            int numFullRowGroups = pendingRowGroups / numRowGroupInBlock * numRowGroupInBlock;
+            int numFiles = 0;
+            for (int rowGroups = 0; numFiles < sourceFiles.size(); ++numFiles)
+            {
+                rowGroups += sourceFiles.get(numFiles).getNumRowGroups();
+                if (rowGroups > numFullRowGroups)
+                {
+                    break;
+                }
+            }
+            toCompact = sourceFiles.subList(0, numFiles);
+        }
+        if (toCompact.isEmpty())
+        {
+            return 0;
+        }
+
+        List<List<CompactPlanner.SourceFile>> groups = rangeColumn != null ?
+                CompactPlanner.groupByRange(toCompact, targetSize, numRowGroupInBlock) :
+                CompactPlanner.binPack(toCompact, targetSize, numRowGroupInBlock);
+        List<String> compactFiles = new ArrayList<>(groups.size());
+        for (int i = 0; i < groups.size(); ++i)
+        {
+            compactFiles.add(runner.newCompactFilePath());
+        }
+        state.intent(compactFiles);
+        List<Future<Boolean>> futures = new ArrayList<>(groups.size());
+        for (int i = 0; i < groups.size(); ++i)
+        {
+            futures.add(runner.submit(taskId++, groups.get(i), compactFiles.get(i)));
+        }
+        int numCompacted = 0;
+        for (int i = 0; i < groups.size(); ++i)
+        {
+            boolean success;
+            try
+            {
+                success = futures.get(i).get();
+            } catch (ExecutionException e)
+            {
+                e.printStackTrace();
+                success = false;
+            }
+            if (success)
+            {
+                List<String> paths = CompactPlanner.getPaths(groups.get(i));
+                state.commit(compactFiles.get(i), paths);
+                numCompacted += paths.size();
+            }
+            else
+            {
+                // the order files stay uncompacted and are retried in the next poll.
+                runner.deleteCompactFile(compactFiles.get(i));
+                state.abort(compactFiles.get(i));
+            }
+        }
+        System.out.println(numCompacted + " newly landed order files are compacted.");
+        return numCompacted;
+    }
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+import io.pixelsdb.pixels.common.physical.Status;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.core.PixelsProto;
+
+import java.io.IOException;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Decides which order files are compacted into the same compact file.
+ * <p>
+ * Order files are bin-packed by their byte size and number of row groups, so that
+ * the compact files have similar sizes and no compaction task dominates the run.
+ * Alternatively, they are grouped by the ranges of a column, so that the compact files
+ * have tight min/max statistics on that column and can still be pruned by the queries.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class CompactPlanner
+{
+    /**
+     * An order file to be compacted.
+     */
+    public static class SourceFile
+    {
+        private final String path;
+        private final long length;
+        private final int numRowGroups;
+        /**
+         * The min and max sortable keys (see {@link ColumnValues}) of the range column in this file,
+         * null if the range is unknown.
+         */
+        private final long[] range;
+
+        public SourceFile(String path, long length, int numRowGroups)
+        {
+            this(path, length, numRowGroups, null);
+        }
+
+        public SourceFile(String path, long length, int numRowGroups, long[] range)
+        {
+            this.path = requireNonNull(path, "path is null");
+            checkArgument(length >= 0, "length must be non-negative");
+            checkArgument(numRowGroups > 0, "numRowGroups must be positive");
+            checkArgument(range == null || (range.length == 2 && range[0] <= range[1]),
+                    "range must be null or [min, max]");
+            this.length = length;
+            this.numRowGroups = numRowGroups;
+            this.range = range;
+        }
+
+        public String getPath()
+        {
+            return path;
+        }
+
+        public long getLength()
+        {
+            return length;
+        }
+
+        public int getNumRowGroups()
+        {
+            return numRowGroups;
+        }
+
+        public boolean hasRange()
+        {
+            return range != null;
+        }
+
+        public long getMinKey()
+        {
+            return range[0];
+        }
+
+        public long getMaxKey()
+        {
+            return range[1];
+        }
+    }
+
+    private static class Bin
+    {
+        private final int id;
+        private final List<Integer> fileIds = new ArrayList<>();
+        private long length = 0;
+        private int numRowGroups = 0;
+
+        private Bin(int id)
+        {
+            this.id = id;
+        }
+    }
+
+    /**
+     * Get the order files to be compacted, with their numbers of row groups read from the footers.
+     * The footers are prefetched in parallel into the {@link SharedFooterCache}.
+     * @param storage the storage of the order files
+     * @param statuses the statuses of the order files, directories are ignored
+     * @param parallelism the number of concurrent footer reads
+     * @return the order files, in the order of the statuses
+     * @throws IOException if failed to read the footer of any order file
+     */
+    public static List<SourceFile> getSourceFiles(Storage storage, List<Status> statuses, int parallelism)
+            throws IOException, InterruptedException
+    {
+        return getSourceFiles(storage, statuses, null, parallelism);
+    }
+
+    /**
+     * Get the order files to be compacted, with their numbers of row groups and the ranges of
+     * the range column read from the footers.
+     * The footers are prefetched in parallel into the {@link SharedFooterCache}.
+     * @param storage the storage of the order files
+     * @param statuses the statuses of the order files, directories are ignored
+     * @param rangeColumn the name of the column to read the ranges of, null for no range
+     * @param parallelism the number of concurrent footer reads
+     * @return the order files, in the order of the statuses
+     * @throws IOException if failed to read the footer of any order file, e.g., it is not a pixels file
+     */
+    public static List<SourceFile> getSourceFiles(Storage storage, List<Status> statuses,
+                                                  String rangeColumn, int parallelism)
+            throws IOException, InterruptedException
+    {
+        List<String> paths = new ArrayList<>(statuses.size());
+        for (Status status : statuses)
+        {
+            if (!status.getPath().endsWith("/"))
+            {
+                paths.add(status.getPath());
+            }
+        }
+        Map<String, PixelsProto.Footer> footers = FooterPrefetcher.prefetch(storage, paths, false, parallelism);
+        List<SourceFile> sourceFiles = new ArrayList<>(paths.size());
+        for (Status status : statuses)
+        {
+            if (status.getPath().endsWith("/"))
+            {
+                continue;
+            }
+            PixelsProto.Footer footer = footers.get(status.getPath());
+            int numRowGroups = Math.max(1, footer.getRowGroupInfosCount());
+            long[] range = null;
+            if (rangeColumn != null)
+            {
+                range = getRange(footer, rangeColumn);
+            }
+            sourceFiles.add(new SourceFile(status.getPath(), status.getLength(), numRowGroups, range));
+        }
+        return sourceFiles;
+    }
+
+    /**
+     * @param footer the footer of a file
+     * @param columnName the name of the column
+     * @return the min and max sortable keys of the column in the file, or null if unknown
+     */
+    private static long[] getRange(PixelsProto.Footer footer, String columnName)
+    {
+        // the types in the footer are the columns, in the same order as the column statistics
+        List<PixelsProto.Type> types = footer.getTypesList();
+        for (int i = 0; i < types.size() && i < footer.getColumnStatsCount(); ++i)
+        {
+            if (types.get(i).getName().equalsIgnoreCase(columnName))
+            {
+                return ColumnValues.sortableRange(types.get(i), footer.getColumnStats(i));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Bin-pack the order files into groups, each of which is compacted into one compact file.
+     * <p>
+     * The number of groups is the minimum one that neither exceeds maxRowGroups row groups
+     * nor (if targetSize is positive) targetSize bytes per group on average. Files are then
+     * assigned in descending order of their lengths, each to the lightest group that still has
+     * room for its row groups. Thus the tail files are spread over the groups instead of being
+     * left as one small group.
+     * </p>
+     * The files in each group keep their listing order, and the groups are ordered by their first files.
+     * @param files the order files
+     * @param targetSize the target size in bytes of a compact file, non-positive for no size target
+     * @param maxRowGroups the max number of row groups in a compact file
+     * @return the groups of files
+     */
+    public static List<List<SourceFile>> binPack(List<SourceFile> files, long targetSize, int maxRowGroups)
+    {
+        requireNonNull(files, "files is null");
+        checkArgument(maxRowGroups > 0, "maxRowGroups must be positive");
+        if (files.isEmpty())
+        {
+            return new ArrayList<>();
+        }
+
+        long totalLength = 0;
+        long totalRowGroups = 0;
+        int numPackable = 0;
+        for (SourceFile file : files)
+        {
+            // the files with too many row groups are compacted alone and not counted here
+            if (file.numRowGroups <= maxRowGroups)
+            {
+                totalLength += file.length;
+                totalRowGroups += file.numRowGroups;
+                numPackable++;
+            }
+        }
+        long numBins = (totalRowGroups + maxRowGroups - 1) / maxRowGroups;
+        if (targetSize > 0)
+        {
+            numBins = Math.max(numBins, (totalLength + targetSize - 1) / targetSize);
+        }
+        numBins = Math.min(numBins, numPackable);
+
+        List<Bin> bins = new ArrayList<>();
+        PriorityQueue<Bin> lightest = new PriorityQueue<>(
+                Comparator.comparingLong((Bin bin) -> bin.length).thenComparingInt(bin -> bin.id));
+        for (int i = 0; i < numBins; ++i)
+        {
+            Bin bin = new Bin(i);
+            bins.add(bin);
+            lightest.add(bin);
+        }
+
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; ++i)
+        {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int cmp = Long.compare(files.get(b).length, files.get(a).length);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+
+        List<Bin> full = new ArrayList<>();
+        for (int fileId : order)
+        {
+            SourceFile file = files.get(fileId);
+            Bin target = null;
+            while (!lightest.isEmpty())
+            {
+                Bin bin = lightest.poll();
+                if (bin.numRowGroups + file.numRowGroups <= maxRowGroups)
+                {
+                    target = bin;
+                    break;
+                }
+                full.add(bin);
+            }
+            lightest.addAll(full);
+            full.clear();
+            if (target == null)
+            {
+                // the row groups of this file do not fit into any existing group
+                target = new Bin(bins.size());
+                bins.add(target);
+            }
+            target.fileIds.add(fileId);
+            target.length += file.length;
+            target.numRowGroups += file.numRowGroups;
+            lightest.add(target);
+        }
+
+        List<List<SourceFile>> groups = new ArrayList<>(bins.size());
+        bins.sort(Comparator.comparingInt(bin -> bin.fileIds.isEmpty() ?
+                Integer.MAX_VALUE : Collections.min(bin.fileIds)));
+        for (Bin bin : bins)
+        {
+            if (bin.fileIds.isEmpty())
+            {
+                continue;
+            }
+            Collections.sort(bin.fileIds);
+            List<SourceFile> group = new ArrayList<>(bin.fileIds.size());
+            for (int fileId : bin.fileIds)
+            {
+                group.add(files.get(fileId));
+            }
+            groups.add(group);
+        }
+        return groups;
+    }
+
+    /**
+     * Group the order files by the ranges of the range column, each group is compacted into one compact file.
+     * <p>
+     * The files are sorted by their ranges and cut into contiguous groups. The number of groups and the
+     * caps on the row groups and bytes per group are the same as {@link #binPack(List, long, int)}.
+     * A group is closed at a gap between the ranges (i.e., the next file neither overlaps nor is adjacent
+     * to the files in the group) once it reaches the average length of the groups, or anywhere if the next
+     * file does not fit into its caps. Thus the files with overlapping ranges stay together as long as
+     * possible and each compact file covers a narrow range, without re-sorting the rows.
+     * </p>
+     * The files with unknown ranges are bin-packed separately. Their groups and the files with
+     * more than maxRowGroups row groups (each compacted alone) follow the range groups.
+     * @param files the order files
+     * @param targetSize the target size in bytes of a compact file, non-positive for no size target
+     * @param maxRowGroups the max number of row groups in a compact file
+     * @return the groups of files, the range groups are in the ascending order of their ranges
+     */
+    public static List<List<SourceFile>> groupByRange(List<SourceFile> files, long targetSize, int maxRowGroups)
+    {
+        requireNonNull(files, "files is null");
+        checkArgument(maxRowGroups > 0, "maxRowGroups must be positive");
+        List<SourceFile> ranged = new ArrayList<>();
+        List<SourceFile> unranged = new ArrayList<>();
+        List<List<SourceFile>> oversized = new ArrayList<>();
+        List<List<SourceFile>> groups = new ArrayList<>();
+        long totalLength = 0;
+        long totalRowGroups = 0;
+        for (SourceFile file : files)
+        {
+            if (!file.hasRange())
+            {
+                unranged.add(file);
+            }
+            else if (file.numRowGroups > maxRowGroups)
+            {
+                // the files with too many row groups are compacted alone
+                oversized.add(Collections.singletonList(file));
+            }
+            else
+            {
+                ranged.add(file);
+                totalLength += file.length;
+                totalRowGroups += file.numRowGroups;
+            }
+        }
+
+        if (!ranged.isEmpty())
+        {
+            long numGroups = (totalRowGroups + maxRowGroups - 1) / maxRowGroups;
+            if (targetSize > 0)
+            {
+                numGroups = Math.max(numGroups, (totalLength + targetSize - 1) / targetSize);
+            }
+            long averageLength = (totalLength + numGroups - 1) / numGroups;
+            // a stable sort, thus the files with the same range keep their listing order
+            ranged.sort(Comparator.comparingLong(SourceFile::getMinKey).thenComparingLong(SourceFile::getMaxKey));
+
+            List<SourceFile> group = new ArrayList<>();
+            long groupLength = 0;
+            int groupRowGroups = 0;
+            long groupMaxKey = Long.MIN_VALUE;
+            for (SourceFile file : ranged)
+            {
+                if (!group.isEmpty())
+                {
+                    // the keys are integers, thus the next file is adjacent if its min key is groupMaxKey + 1
+                    boolean connected = groupMaxKey == Long.MAX_VALUE || file.range[0] <= groupMaxKey + 1;
+                    boolean fits = groupRowGroups + file.numRowGroups <= maxRowGroups &&
+                            (targetSize <= 0 || groupLength + file.length <= targetSize);
+                    if (!fits || (!connected && groupLength >= averageLength))
+                    {
+                        groups.add(group);
+                        group = new ArrayList<>();
+                        groupLength = 0;
+                        groupRowGroups = 0;
+                        groupMaxKey = Long.MIN_VALUE;
+                    }
+                }
+                group.add(file);
+                groupLength += file.length;
+                groupRowGroups += file.numRowGroups;
+                groupMaxKey = Math.max(groupMaxKey, file.range[1]);
+            }
+            groups.add(group);
+        }
+
+        groups.addAll(oversized);
+        groups.addAll(binPack(unranged, targetSize, maxRowGroups));
+        return groups;
+    }
+
+    /**
+     * @param group a group of files
+     * @return the total number of row groups in the files
+     */
+    public static int getNumRowGroups(List<SourceFile> group)
+    {
+        int numRowGroups = 0;
+        for (SourceFile file : group)
+        {
+            numRowGroups += file.numRowGroups;
+        }
+        return numRowGroups;
+    }
+
+    /**
+     * @param group a group of files
+     * @return the paths of the files
+     */
+    public static List<String> getPaths(List<SourceFile> group)
+    {
+        List<String> paths = new ArrayList<>(group.size());
+        for (SourceFile file : group)
+        {
+            paths.add(file.path);
+        }
+        return paths;
+    }
+
+    /**
+     * Project the compact layout in metadata onto a compact file with fewer row groups.
+     * The column chunks of the missing row groups are dropped, while the order of the remaining
+     * column chunks and their relative position to the cache border are kept.
+     * @param compact the compact layout in metadata
+     * @param numRowGroups the number of row groups in the compact file, not greater than
+     *                     compact.getNumRowGroupInBlock()
+     * @return the projected compact layout
+     */
+    public static Compact projectCompact(Compact compact, int numRowGroups)
+    {
+        checkArgument(numRowGroups > 0 && numRowGroups <= compact.getNumRowGroupInBlock(),
+                "numRowGroups must be in the range of (0, numRowGroupInBlock]");
+        if (numRowGroups == compact.getNumRowGroupInBlock())
+        {
+            return compact;
+        }
+        List<String> columnChunkOrder = new ArrayList<>();
+        int cacheBorder = 0;
+        List<String> originChunkOrder = compact.getColumnChunkOrder();
+        for (int i = 0; i < originChunkOrder.size(); ++i)
+        {
+            String chunk = originChunkOrder.get(i);
+            int rowGroupId = Integer.parseInt(chunk.split(":")[0]);
+            if (rowGroupId < numRowGroups)
+            {
+                columnChunkOrder.add(chunk);
+                if (i < compact.getCacheBorder())
+                {
+                    cacheBorder++;
+                }
+            }
+        }
+        Compact projected = new Compact();
+        projected.setNumRowGroupInBlock(numRowGroups);
+        projected.setNumColumn(compact.getNumColumn());
+        projected.setCacheBorder(cacheBorder);
+        projected.setColumnChunkOrder(columnChunkOrder);
+        return projected;
+    }
+}
@@ -0,0 +1,408 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+import io.pixelsdb.pixels.common.metadata.domain.Layout;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.common.utils.ConfigFactory;
+import io.pixelsdb.pixels.common.utils.Constants;
+import io.pixelsdb.pixels.common.utils.DateUtil;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.compactor.CompactLayout;
+import io.pixelsdb.pixels.core.compactor.PixelsCompactor;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.pixelsdb.pixels.sink.Main.validateOrderOrCompactPath;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Compacts groups of order files of a layout into compact files in a thread pool.
+ * It is shared by the one-shot COMPACT command and the compaction daemon.
+ * <p>
+ * Without a bandwidth limit or clustering, a compact file is written directly into the compact path,
+ * and it is deleted if the compaction fails. Otherwise, it is built in a local work directory and only
+ * copied to the compact path after it is built successfully. If the bandwidth is limited, the order
+ * files are also staged into the work directory, so that the bytes read from and written to the storage
+ * are throttled as they are transferred.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class CompactRunner
+{
+    private final Compact compact;
+    private final boolean naive;
+    private final Storage orderStorage;
+    private final Storage compactStorage;
+    private final long blockSize;
+    private final short replication;
+    private final String[] targetPaths;
+    private final AtomicInteger targetPathId = new AtomicInteger(0);
+    private final SharedThreadPool.TaskGroup compactTasks;
+    private final Storage localStorage;
+    /**
+     * The local directory to stage the order files and build the compact files, if the bandwidth
+     * is limited or the rows are clustered.
+     */
+    private final String workDir;
+    /**
+     * Limits the bytes read from and written to the storage per second, null for no limit.
+     * The permits are in KB.
+     */
+    private final RateLimiter rateLimiter;
+    /**
+     * Sorts the rows of the order files before compaction, null for no clustering.
+     */
+    private final ClusteringCompactor clusteringCompactor;
+    /**
+     * Collects the statistics of the compact files, null if the statistics are not published.
+     */
+    private final StatPublisher statPublisher;
+
+    /**
+     * @param layout the writable layout of the table
+     * @param naive whether to use the naive compact layout instead of the one in metadata
+     * @param threadNum the number of threads used for data compaction
+     * @param bytesPerSecond the max bytes read from and written to the storage per second,
+     *                       non-positive for no limit
+     * @param clusteringCompactor the compactor to sort the rows of the order files, null for no clustering
+     * @throws IOException if failed to get the storage of the order or compact path
+     */
+    public CompactRunner(Layout layout, boolean naive, int threadNum, long bytesPerSecond,
+                         ClusteringCompactor clusteringCompactor) throws IOException
+    {
+        this(layout, layout.getCompactObject(), naive, threadNum, bytesPerSecond, clusteringCompactor, null,
+                System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * @param layout the writable layout of the table
+     * @param compact the compact layout to use instead of the one in metadata, e.g., the one built by LAYOUT
+     * @param naive whether to use the naive compact layout instead of the given one
+     * @param threadNum the number of threads used for data compaction
+     * @param bytesPerSecond the max bytes read from and written to the storage per second,
+     *                       non-positive for no limit
+     * @param clusteringCompactor the compactor to sort the rows of the order files, null for no clustering
+     * @param statPublisher collects the statistics of the compact files, null if not needed
+     * @param workDir the local directory to stage the order files and build the compact files, only used
+     *                if the bandwidth is limited or the rows are clustered
+     * @throws IOException if failed to get the storage of the order or compact path
+     */
+    public CompactRunner(Layout layout, Compact compact, boolean naive, int threadNum, long bytesPerSecond,
+                         ClusteringCompactor clusteringCompactor, StatPublisher statPublisher,
+                         String workDir) throws IOException
+    {
+        validateOrderOrCompactPath(layout.getOrderPath());
+        validateOrderOrCompactPath(layout.getCompactPath());
+        ConfigFactory configFactory = ConfigFactory.Instance();
+        this.compact = requireNonNull(compact, "compact is null");
+        this.naive = naive;
+        // PIXELS-399: it is not a problem if the order or compact path contains multiple directories
+        this.orderStorage = StorageFactory.Instance().getStorage(layout.getOrderPath());
+        this.compactStorage = StorageFactory.Instance().getStorage(layout.getCompactPath());
+        this.blockSize = Long.parseLong(configFactory.getProperty("block.size"));
+        this.replication = Short.parseShort(configFactory.getProperty("block.replication"));
+        this.targetPaths = layout.getCompactPath().split(";");
+        this.compactTasks = SharedThreadPool.newTaskGroup(threadNum);
+        this.localStorage = StorageFactory.Instance().getStorage("file");
+        this.workDir = requireNonNull(workDir, "workDir is null");
+        this.rateLimiter = bytesPerSecond > 0 ? RateLimiter.create(bytesPerSecond / 1024.0) : null;
+        this.clusteringCompactor = clusteringCompactor;
+        this.statPublisher = statPublisher;
+    }
+
+    public Storage getOrderStorage()
+    {
+        return orderStorage;
+    }
+
+    public Storage getCompactStorage()
+    {
+        return compactStorage;
+    }
+
+    public int getNumRowGroupInBlock()
+    {
+        return compact.getNumRowGroupInBlock();
+    }
+
+    /**
+     * @param numRowGroups the number of row groups in the compact file
+     * @return the compact layout of the compact file
+     */
+    public CompactLayout getCompactLayout(int numRowGroups)
+    {
+        if (naive)
+        {
+            return CompactLayout.buildNaive(numRowGroups, compact.getNumColumn());
+        }
+        if (numRowGroups <= compact.getNumRowGroupInBlock())
+        {
+            /**
+             * Issue #160:
+             * The groups that can not fulfill the compactLayout defined in the metadata
+             * (including the tail files) use the compactLayout projected onto their row groups.
+             */
+            return CompactLayout.fromCompact(CompactPlanner.projectCompact(compact, numRowGroups));
+        }
+        // a single order file with more row groups than the compactLayout.
+        return CompactLayout.buildPure(numRowGroups, compact.getNumColumn());
+    }
+
+    /**
+     * @return the path of a new compact file in the compact path
+     */
+    public String newCompactFilePath()
+    {
+        String targetPath = targetPaths[targetPathId.getAndIncrement() % targetPaths.length];
+        if (!targetPath.endsWith("/"))
+        {
+            targetPath += "/";
+        }
+        return targetPath + DateUtil.getCurTime() + "_compact.pxl";
+    }
+
+    /**
+     * Submit a group of order files to be compacted into a new compact file.
+     * @param taskId the id of the compaction task, only used in the log
+     * @param group the order files
+     * @return the future of the compaction, which returns true if the compact file is built successfully
+     */
+    public Future<Boolean> submit(int taskId, List<CompactPlanner.SourceFile> group)
+    {
+        return submit(taskId, group, newCompactFilePath());
+    }
+
+    /**
+     * Submit a group of order files to be compacted into the given compact file.
+     * @param taskId the id of the compaction task, only used in the log
+     * @param group the order files
+     * @param filePath the path of the compact file, which is deleted if the compaction fails
+     * @return the future of the compaction, which returns true if the compact file is built successfully
+     */
+    public Future<Boolean> submit(int taskId, List<CompactPlanner.SourceFile> group, String filePath)
+    {
+        List<String> sourcePaths = CompactPlanner.getPaths(group);
+        int numRowGroups = CompactPlanner.getNumRowGroups(group);
+
+        System.out.println("(" + taskId + ") " + sourcePaths.size() +
+                " ordered files to be compacted into '" + filePath + "'.");
+
+        return compactTasks.submit(() -> {
+            // Issue #192: run compaction in threads.
+            long threadStart = System.currentTimeMillis();
+            String fileName = filePath.substring(filePath.lastIndexOf('/') + 1);
+            String taskName = fileName.replace(".pxl", "");
+            File stageDir = new File(workDir, taskName + "_stage");
+            try
+            {
+                if (rateLimiter == null && clusteringCompactor == null)
+                {
+                    // nothing to throttle or sort, the compact file is deleted below if the compaction fails
+                    compact(sourcePaths, orderStorage, numRowGroups, compactStorage, filePath);
+                }
+                else
+                {
+                    buildLocally(sourcePaths, numRowGroups, filePath, taskName, stageDir);
+                }
+                if (statPublisher != null)
+                {
+                    statPublisher.addFile(compactStorage, filePath, null);
+                }
+            } catch (Exception e)
+            {
+                e.printStackTrace();
+                try
+                {
+                    deleteCompactFile(filePath);
+                } catch (IOException e1)
+                {
+                    e1.printStackTrace();
+                }
+                return false;
+            } finally
+            {
+                File[] stagedFiles = stageDir.listFiles();
+                if (stagedFiles != null)
+                {
+                    for (File stagedFile : stagedFiles)
+                    {
+                        stagedFile.delete();
+                    }
+                }
+                if (stageDir.exists() && !stageDir.delete())
+                {
+                    System.err.println("failed to delete the local directory '" + stageDir + "'.");
+                }
+            }
+            System.out.println("Compact file '" + filePath + "' is built in " +
+                    ((System.currentTimeMillis() - threadStart) / 1000.0) + "s");
+            return true;
+        });
+    }
+
+    /**
+     * Build the compact file in the stage directory, and copy it to the compact path after it is built.
+     * The order files are staged first if the bandwidth is limited, and the rows are sorted if clustered.
+     */
+    private void buildLocally(List<String> sourcePaths, int numRowGroups, String filePath, String taskName,
+                              File stageDir) throws IOException
+    {
+        if (!stageDir.exists() && !stageDir.mkdirs())
+        {
+            throw new IOException("failed to create the local directory '" + stageDir + "'");
+        }
+        Storage inputStorage = orderStorage;
+        List<String> inputPaths = sourcePaths;
+        if (rateLimiter != null)
+        {
+            inputStorage = localStorage;
+            inputPaths = new ArrayList<>(sourcePaths.size());
+            for (String sourcePath : sourcePaths)
+            {
+                String stagedPath = new File(stageDir, "order_" + inputPaths.size() + ".pxl").getPath();
+                copy(orderStorage, sourcePath, localStorage, stagedPath, true);
+                inputPaths.add(stagedPath);
+            }
+        }
+        String localPath = new File(stageDir, filePath.substring(filePath.lastIndexOf('/') + 1)).getPath();
+        if (clusteringCompactor == null)
+        {
+            compact(inputPaths, inputStorage, numRowGroups, localStorage, localPath);
+        }
+        else
+        {
+            // the rows are sorted into the same number of row groups as the order files.
+            List<String> sortedPaths = clusteringCompactor.sort(inputStorage, inputPaths, numRowGroups, taskName);
+            try
+            {
+                int numSortedRowGroups = 0;
+                for (PixelsProto.Footer footer : FooterPrefetcher.prefetch(
+                        localStorage, sortedPaths, false, 1).values())
+                {
+                    numSortedRowGroups += footer.getRowGroupInfosCount();
+                }
+                compact(sortedPaths, localStorage, numSortedRowGroups, localStorage, localPath);
+            } finally
+            {
+                clusteringCompactor.cleanup(sortedPaths, taskName);
+            }
+        }
+        // publish the compact file only after it is completely built.
+        copy(localStorage, localPath, compactStorage, filePath, false);
+    }
+
+    /**
+     * Delete the compact file if it exists.
+     * @param filePath the path of the compact file
+     * @throws IOException if failed to delete the compact file
+     */
+    public void deleteCompactFile(String filePath) throws IOException
+    {
+        if (compactStorage.exists(filePath))
+        {
+            compactStorage.delete(filePath, false);
+        }
+    }
+
+    private void compact(List<String> sourcePaths, Storage inputStorage, int numRowGroups,
+                         Storage outputStorage, String filePath) throws IOException
+    {
+        PixelsCompactor.Builder compactorBuilder =
+                PixelsCompactor.newBuilder()
+                        .setSourcePaths(sourcePaths)
+                        /**
+                         * Issue #192:
+                         * No need to deep copy compactLayout as it is never modified in-place
+                         * (e.g., call setters to change some members). Thus it is safe to use
+                         * the current reference of compactLayout even if the compactors will
+                         * be running multiple threads.
+                         *
+                         * Deep copy it if it is in-place modified in the future.
+                         */
+                        .setCompactLayout(getCompactLayout(numRowGroups))
+                        .setInputStorage(inputStorage)
+                        .setOutputStorage(outputStorage)
+                        .setPath(filePath)
+                        .setBlockSize(blockSize)
+                        .setReplication(replication)
+                        .setBlockPadding(false);
+        // build() spends some time to read file footers and should be called inside sub-thread.
+        PixelsCompactor pixelsCompactor = compactorBuilder.build();
+        pixelsCompactor.compact();
+        pixelsCompactor.close();
+    }
+
+    /**
+     * Copy a file between the storages, the copied bytes are throttled by the rate limiter if any.
+     */
+    private void copy(Storage fromStorage, String fromPath, Storage toStorage, String toPath, boolean overwrite)
+            throws IOException
+    {
+        byte[] buffer = new byte[Constants.HDFS_BUFFER_SIZE];
+        try (DataInputStream input = fromStorage.open(fromPath);
+             DataOutputStream output = toStorage.create(toPath, overwrite, Constants.HDFS_BUFFER_SIZE,
+                     replication, blockSize))
+        {
+            int n;
+            while ((n = input.read(buffer)) > 0)
+            {
+                if (rateLimiter != null)
+                {
+                    rateLimiter.acquire(Math.max(1, n / 1024));
+                }
+                output.write(buffer, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Cancel the queued compactions and interrupt the running compactions.
+     */
+    public void cancel()
+    {
+        compactTasks.cancelAll();
+    }
+
+    /**
+     * Wait for the submitted compactions to complete, the running compactions are interrupted
+     * if the current thread is interrupted while waiting.
+     */
+    public void shutdown() throws InterruptedException
+    {
+        // Issue #192: wait for the compaction to complete.
+        try
+        {
+            compactTasks.awaitAll();
+        } catch (InterruptedException e)
+        {
+            // the failed compact files are deleted by the compactions, or left to the recovery of the daemon
+            compactTasks.cancelAll();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The local state file of the compaction daemon. Each line is a record synced to disk before
+ * the daemon goes on:
+ * <ul>
+ *     <li>{@code intent\t<compact file>}, written before the compact file is created;</li>
+ *     <li>{@code commit\t<compact file>\t<order file>...}, written after the compact file is built,
+ *     it commits the compact file and marks its order files as compacted in one line;</li>
+ *     <li>{@code abort\t<compact file>}, written after a failed compact file is deleted.</li>
+ * </ul>
+ * An intent that is neither committed nor aborted belongs to a compaction interrupted by a crash.
+ * Its compact file may be partially or even completely built, and it must be deleted before its
+ * order files are compacted again, otherwise their rows are duplicated.
+ * A torn line at the end of the file, left by a crash in the middle of a write, is truncated.
+ * <p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class CompactState
+{
+    private static final String INTENT = "intent";
+    private static final String COMMIT = "commit";
+    private static final String ABORT = "abort";
+
+    private final File file;
+    private final Set<String> compacted = new HashSet<>();
+    /**
+     * The compact files of the intents that are neither committed nor aborted, in the order of the intents.
+     */
+    private final Set<String> pendingIntents = new LinkedHashSet<>();
+
+    /**
+     * Load the records in the state file, it is created if not exists.
+     * @param file the local state file
+     * @throws IOException if failed to read or truncate the state file, or it has an invalid record
+     */
+    public CompactState(File file) throws IOException
+    {
+        this.file = requireNonNull(file, "file is null");
+        if (!file.exists())
+        {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n')
+        {
+            --end;
+        }
+        if (end < bytes.length)
+        {
+            System.out.println("Truncate the torn record at the end of state file '" + file + "'.");
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+            {
+                raf.setLength(end);
+                raf.getFD().sync();
+            }
+        }
+        for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n"))
+        {
+            if (line.isEmpty())
+            {
+                continue;
+            }
+            String[] fields = line.split("\t");
+            switch (fields[0])
+            {
+                case INTENT:
+                    pendingIntents.add(fields[1]);
+                    break;
+                case COMMIT:
+                    pendingIntents.remove(fields[1]);
+                    compacted.addAll(Arrays.asList(fields).subList(2, fields.length));
+                    break;
+                case ABORT:
+                    pendingIntents.remove(fields[1]);
+                    break;
+                default:
+                    throw new IOException("invalid record '" + line + "' in state file '" + file + "'");
+            }
+        }
+    }
+
+    /**
+     * @return the paths of the compacted order files
+     */
+    public Set<String> getCompacted()
+    {
+        return Collections.unmodifiableSet(compacted);
+    }
+
+    /**
+     * @return the compact files of the intents that are neither committed nor aborted
+     */
+    public List<String> getPendingIntents()
+    {
+        return new ArrayList<>(pendingIntents);
+    }
+
+    /**
+     * Record the intents to create the compact files.
+     */
+    public void intent(List<String> compactFiles) throws IOException
+    {
+        StringBuilder builder = new StringBuilder();
+        for (String compactFile : compactFiles)
+        {
+            builder.append(INTENT).append('\t').append(compactFile).append('\n');
+        }
+        append(builder.toString());
+        pendingIntents.addAll(compactFiles);
+    }
+
+    /**
+     * Commit the compact file that is built from the given order files.
+     */
+    public void commit(String compactFile, List<String> orderFiles) throws IOException
+    {
+        StringBuilder builder = new StringBuilder(COMMIT).append('\t').append(compactFile);
+        for (String orderFile : orderFiles)
+        {
+            builder.append('\t').append(orderFile);
+        }
+        append(builder.append('\n').toString());
+        pendingIntents.remove(compactFile);
+        compacted.addAll(orderFiles);
+    }
+
+    /**
+     * Abort the compact file that has been deleted or never created.
+     */
+    public void abort(String compactFile) throws IOException
+    {
+        append(ABORT + '\t' + compactFile + '\n');
+        pendingIntents.remove(compactFile);
+    }
+
+    private void append(String records) throws IOException
+    {
+        try (FileOutputStream output = new FileOutputStream(file, true))
+        {
+            output.write(records.getBytes(StandardCharsets.UTF_8));
+            output.getFD().sync();
+        }
+    }
+}
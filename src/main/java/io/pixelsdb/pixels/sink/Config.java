@@ -39,6 +39,8 @@ public class Config
     private String schema;
     private int[] orderMapping;
     private final boolean enableEncoding;
+    private String filePrefix = "";
+    private String sourceFormat = "text";
 
     public String getPixelsPath()
     {
@@ -75,6 +77,40 @@ public class Config
         return enableEncoding;
     }
 
+    /**
+     * @return the prefix of the names of the loaded files, empty by default
+     */
+    public String getFilePrefix()
+    {
+        return filePrefix;
+    }
+
+    /**
+     * @param filePrefix the prefix of the names of the loaded files, it avoids the name conflicts between
+     *                   the workers of a distributed LOAD that write into the same directory
+     */
+    public void setFilePrefix(String filePrefix)
+    {
+        this.filePrefix = filePrefix;
+    }
+
+    /**
+     * @return the format of the source files, text by default
+     */
+    public String getSourceFormat()
+    {
+        return sourceFormat;
+    }
+
+    /**
+     * @param sourceFormat the format of the source files, text or orc, the orc files are only loaded
+     *                     into the pixels format
+     */
+    public void setSourceFormat(String sourceFormat)
+    {
+        this.sourceFormat = sourceFormat;
+    }
+
     public Config(String dbName, String tableName, int maxRowNum, String regex, String format, String pixelsPath, boolean enableEncoding)
     {
         this.dbName = dbName;
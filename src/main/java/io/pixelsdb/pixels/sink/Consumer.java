@@ -30,12 +30,29 @@ public abstract class Consumer extends Thread
     private BlockingQueue<Path> queue;
     private Properties prop;
     private Config config;
+    private volatile boolean failed = false;
 
     public Properties getProp()
     {
         return prop;
     }
 
+    /**
+     * @return true if the consumer has failed to load the source files, e.g., failed to read or write a file
+     */
+    public boolean isFailed()
+    {
+        return failed;
+    }
+
+    /**
+     * Mark the consumer as failed, the failure is caught in the consumer and not thrown to the caller.
+     */
+    protected void setFailed()
+    {
+        this.failed = true;
+    }
+
     public Consumer(BlockingQueue<Path> queue, Properties prop, Config config)
     {
         this.queue = queue;
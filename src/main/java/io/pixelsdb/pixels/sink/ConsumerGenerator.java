@@ -18,6 +18,8 @@ package io.pixelsdb.pixels.sink;
 import io.pixelsdb.pixels.common.exception.MetadataException;
 import io.pixelsdb.pixels.common.utils.ConfigFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 
@@ -38,6 +40,16 @@ public class ConsumerGenerator
     {
     }
 
+    /**
+     * Create a generator that is not shared, so that concurrent loads (e.g., in the sink server)
+     * do not overwrite the number of threads of each other.
+     * @param threadNum the number of consumer threads
+     */
+    public ConsumerGenerator(int threadNum)
+    {
+        this.threadNum = threadNum;
+    }
+
     public static ConsumerGenerator getInstance(int threadNum)
     {
         instance.threadNum = threadNum;
@@ -45,6 +57,34 @@ public class ConsumerGenerator
     }
 
     public boolean startConsumer(BlockingQueue<String> queue, Config config)
+    {
+        return startConsumer(queue, config, null);
+    }
+
+    /**
+     * @param queue the paths of the source files
+     * @param config the config of loading
+     * @param statPublisher collects the statistics of the written files, null if not needed.
+     *                      It is only supported by the pixels format.
+     * @return true if all the source files are loaded
+     */
+    public boolean startConsumer(BlockingQueue<String> queue, Config config, StatPublisher statPublisher)
+    {
+        return startConsumer(queue, config, statPublisher, null);
+    }
+
+    /**
+     * @param queue the paths of the source files
+     * @param config the config of loading
+     * @param statPublisher collects the statistics of the written files, null if not needed.
+     *                      It is only supported by the pixels format.
+     * @param writtenFiles collects the paths of the written files, it must be thread safe, null if not needed.
+     *                     It is only supported by the pixels format.
+     * @return true if all the source files are loaded, false if any consumer has failed, in which case
+     * a part of the rows may have been written
+     */
+    public boolean startConsumer(BlockingQueue<String> queue, Config config, StatPublisher statPublisher,
+                                 List<String> writtenFiles)
     {
         // init info
         ConfigFactory configFactory = ConfigFactory.Instance();
@@ -70,34 +110,43 @@ public class ConsumerGenerator
         boolean flag = false;
         if (option)
         {
-            Consumer[] consumers = new Consumer[threadNum];
+            // the consumers run on the shared threads instead of being started as new threads
+            SharedThreadPool.TaskGroup consumerTasks = SharedThreadPool.newTaskGroup(threadNum);
+            List<Consumer> consumers = new ArrayList<>(threadNum);
             try
             {
                 for (int i = 0; i < threadNum; i++)
                 {
-                    if (config.getFormat().equalsIgnoreCase("pixels"))
+                    if (config.getFormat().equalsIgnoreCase("pixels") &&
+                            config.getSourceFormat().equalsIgnoreCase("orc"))
+                    {
+                        ORCToPixelsConsumer orcToPixelsConsumer = new ORCToPixelsConsumer(queue, prop, config, i,
+                                statPublisher, writtenFiles);
+                        consumers.add(orcToPixelsConsumer);
+                        consumerTasks.execute(orcToPixelsConsumer);
+                    } else if (config.getFormat().equalsIgnoreCase("pixels"))
                     {
-                        PixelsConsumer pixelsConsumer = new PixelsConsumer(queue, prop, config, i);
-                        consumers[i] = pixelsConsumer;
-                        pixelsConsumer.start();
+                        PixelsConsumer pixelsConsumer = new PixelsConsumer(queue, prop, config, i,
+                                statPublisher, writtenFiles);
+                        consumers.add(pixelsConsumer);
+                        consumerTasks.execute(pixelsConsumer);
                     } else if (config.getFormat().equalsIgnoreCase("orc"))
                     {
                         ORCConsumer orcConsumer = new ORCConsumer(queue, prop, config);
-                        consumers[i] = orcConsumer;
-                        orcConsumer.start();
+                        consumers.add(orcConsumer);
+                        consumerTasks.execute(orcConsumer);
                     }
                 }
-                for (Consumer c : consumers)
+                try
                 {
-                    try
-                    {
-                        c.join();
-                    } catch (InterruptedException e)
-                    {
-                        throw new Exception("ConsumerGenerator InterruptedException, " + e.getMessage());
-                    }
+                    consumerTasks.awaitAll();
+                } catch (InterruptedException e)
+                {
+                    consumerTasks.cancelAll();
+                    throw new Exception("ConsumerGenerator InterruptedException, " + e.getMessage());
                 }
-                flag = true;
+                // the consumers catch and print their failures
+                flag = consumers.stream().noneMatch(Consumer::isFailed);
             } catch (Exception e)
             {
                 try
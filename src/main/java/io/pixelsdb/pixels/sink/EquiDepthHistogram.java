@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.nio.ByteBuffer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The equi-depth histogram of the non-null values in a column, persisted by STAT in the record stats
+ * of the column (see {@link ColumnStatsAggregate#getRecordStats(String)}).
+ * <p>
+ * The values are the sortable keys in {@link ColumnValues}. Each of the buckets holds about
+ * count / numBuckets values, bucket i covers the values in (boundaries[i], boundaries[i + 1]],
+ * except that the first bucket also includes boundaries[0], the min value.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class EquiDepthHistogram
+{
+    public static final int DEFAULT_NUM_BUCKETS = 64;
+    /**
+     * The number of the unknown field in the ColumnStatistic protobuf message that holds the
+     * serialized histogram. It is far from the numbers of the known fields, and the readers
+     * that do not know it keep it as an unknown field.
+     */
+    public static final int FIELD_NUMBER = 1001;
+    private static final byte VERSION = 1;
+
+    private final long count;
+    private final long[] boundaries;
+
+    /**
+     * @param count the number of non-null values
+     * @param boundaries the min value and the upper bounds of the buckets, in ascending order
+     */
+    public EquiDepthHistogram(long count, long[] boundaries)
+    {
+        checkArgument(count >= 0, "count must be non-negative");
+        checkArgument(boundaries.length >= 2, "there must be at least one bucket");
+        for (int i = 1; i < boundaries.length; ++i)
+        {
+            checkArgument(boundaries[i - 1] <= boundaries[i], "boundaries must be in ascending order");
+        }
+        this.count = count;
+        this.boundaries = boundaries;
+    }
+
+    /**
+     * @param sketch the quantile sketch of the values, must not be empty
+     * @param numBuckets the number of buckets
+     * @return the histogram built from the quantiles of the sketch
+     */
+    public static EquiDepthHistogram fromSketch(QuantileSketch sketch, int numBuckets)
+    {
+        return new EquiDepthHistogram(sketch.getCount(), sketch.getEquiDepthBoundaries(numBuckets));
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public int getNumBuckets()
+    {
+        return boundaries.length - 1;
+    }
+
+    public long[] getBoundaries()
+    {
+        return boundaries;
+    }
+
+    /**
+     * Estimate the fraction of the non-null values in [low, high], assuming the values are
+     * uniformly distributed inside each bucket.
+     * @param low the lower bound, inclusive
+     * @param high the upper bound, inclusive
+     * @return the estimated fraction
+     */
+    public double estimateFraction(long low, long high)
+    {
+        if (low > high)
+        {
+            return 0;
+        }
+        return getFractionAtMost(high) - getFractionBelow(low);
+    }
+
+    private double getFractionAtMost(long value)
+    {
+        int numBuckets = getNumBuckets();
+        if (value < boundaries[0])
+        {
+            return 0;
+        }
+        if (value >= boundaries[numBuckets])
+        {
+            return 1;
+        }
+        double fraction = 0;
+        for (int i = 0; i < numBuckets; ++i)
+        {
+            long lower = boundaries[i], upper = boundaries[i + 1];
+            if (value >= upper)
+            {
+                fraction += 1.0 / numBuckets;
+            }
+            else
+            {
+                // the widths are computed in double to avoid overflowing the long range
+                double width = (double) upper - (double) lower;
+                double covered = (double) value - (double) lower;
+                if (width > 0 && covered >= 0)
+                {
+                    fraction += covered / width / numBuckets;
+                }
+                break;
+            }
+        }
+        return fraction;
+    }
+
+    private double getFractionBelow(long value)
+    {
+        return value == Long.MIN_VALUE ? 0 : getFractionAtMost(value - 1);
+    }
+
+    /**
+     * @return the serialized histogram
+     */
+    public byte[] toBytes()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 + 4 + boundaries.length * 8);
+        buffer.put(VERSION).putLong(count).putInt(boundaries.length);
+        for (long boundary : boundaries)
+        {
+            buffer.putLong(boundary);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes the bytes serialized by {@link #toBytes()}
+     * @return the deserialized histogram
+     */
+    public static EquiDepthHistogram fromBytes(byte[] bytes)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        checkArgument(buffer.get() == VERSION, "unknown version of the serialized histogram");
+        long count = buffer.getLong();
+        long[] boundaries = new long[buffer.getInt()];
+        for (int i = 0; i < boundaries.length; ++i)
+        {
+            boundaries[i] = buffer.getLong();
+        }
+        return new EquiDepthHistogram(count, boundaries);
+    }
+}
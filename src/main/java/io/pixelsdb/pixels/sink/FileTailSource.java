@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the change events appended to a local file, like 'tail -f'.
+ * <p>
+ * Only the complete lines are returned, thus a line that is being appended is read when its line
+ * break is written. The offset of the acknowledged events is saved in the '.offset' file next to the
+ * tailed file, and the tailing is resumed from it after restart. The offset file is replaced atomically
+ * and synced with its directory, thus an acknowledgement is durable once {@link #commit()} returns.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class FileTailSource implements ChangeSource
+{
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final RandomAccessFile file;
+    private final Path offsetPath;
+    private long committedOffset = -1;
+    private final byte[] buffer = new byte[64 * 1024];
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private int bufferPos = 0;
+    private int bufferLimit = 0;
+
+    /**
+     * @param path the path of the local file
+     * @param fromEnd true to skip the existing events in the file, if there is no saved offset
+     * @throws IOException if failed to open the file or read the saved offset
+     */
+    public FileTailSource(String path, boolean fromEnd) throws IOException
+    {
+        this.file = new RandomAccessFile(path, "r");
+        this.offsetPath = Paths.get(path + ".offset");
+        if (Files.exists(offsetPath))
+        {
+            this.committedOffset = Long.parseLong(
+                    new String(Files.readAllBytes(offsetPath), StandardCharsets.UTF_8).trim());
+            this.file.seek(Math.min(this.committedOffset, this.file.length()));
+            System.out.println("Resume tailing '" + path + "' from offset " + this.committedOffset + ".");
+        }
+        else if (fromEnd)
+        {
+            this.file.seek(this.file.length());
+        }
+    }
+
+    @Override
+    public String poll(long timeoutMs) throws IOException, InterruptedException
+    {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (true)
+        {
+            while (bufferPos < bufferLimit)
+            {
+                byte b = buffer[bufferPos++];
+                if (b == '\n')
+                {
+                    String event = new String(line.toByteArray(), StandardCharsets.UTF_8);
+                    line.reset();
+                    return event;
+                }
+                line.write(b);
+            }
+            int n = file.read(buffer);
+            if (n > 0)
+            {
+                bufferPos = 0;
+                bufferLimit = n;
+                continue;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+            {
+                return null;
+            }
+            Thread.sleep(Math.min(remaining, POLL_INTERVAL_MS));
+        }
+    }
+
+    @Override
+    public void commit() throws IOException
+    {
+        // the offset of the first byte that is not returned yet
+        long offset = file.getFilePointer() - (bufferLimit - bufferPos) - line.size();
+        if (offset == committedOffset)
+        {
+            return;
+        }
+        Path tmpPath = Paths.get(offsetPath + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(tmpPath.toFile()))
+        {
+            output.write(String.valueOf(offset).getBytes(StandardCharsets.UTF_8));
+            // otherwise the renamed file may be empty after a crash
+            output.getFD().sync();
+        }
+        Files.move(tmpPath, offsetPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // make the rename durable
+        syncDirectory(offsetPath.toAbsolutePath().getParent());
+        committedOffset = offset;
+    }
+
+    private static void syncDirectory(Path dir)
+    {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ))
+        {
+            channel.force(true);
+        } catch (IOException e)
+        {
+            // some file systems and platforms do not support syncing a directory
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        file.close();
+    }
+}
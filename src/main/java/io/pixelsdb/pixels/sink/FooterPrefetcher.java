@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.google.common.collect.ImmutableList;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.PixelsReaderImpl;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the footers of Pixels files in parallel into the {@link SharedFooterCache}.
+ * <p>
+ * Footer reads are dominated by the round trips to the storage (e.g., S3), thus they are issued
+ * concurrently as soon as the file list is known, and the readers opened later by
+ * {@link #openReader(Storage, String)} find the footers in the cache.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class FooterPrefetcher
+{
+    private FooterPrefetcher()
+    {
+    }
+
+    /**
+     * Open a pixels reader that reads and puts the footers through the shared footer cache.
+     * @param storage the storage of the file
+     * @param path the path of the file
+     * @return the pixels reader
+     * @throws IOException if failed to open the file or read its footer
+     */
+    public static PixelsReader openReader(Storage storage, String path) throws IOException
+    {
+        return PixelsReaderImpl.newBuilder()
+                .setPath(path).setStorage(storage).setEnableCache(false)
+                .setCacheOrder(ImmutableList.of()).setPixelsCacheReader(null)
+                .setPixelsFooterCache(SharedFooterCache.Instance()).build();
+    }
+
+    /**
+     * Read the footers of the files in parallel and wait for them to be cached.
+     * @param storage the storage of the files
+     * @param paths the paths of the files
+     * @param withRowGroupFooters whether to also read the footers of all the row groups
+     * @param parallelism the number of concurrent footer reads
+     * @return the file footers by the path
+     * @throws IOException if failed to read the footer of any file, after all the reads are done
+     * @throws InterruptedException if interrupted while waiting for the footers
+     */
+    public static Map<String, PixelsProto.Footer> prefetch(Storage storage, List<String> paths,
+                                                           boolean withRowGroupFooters, int parallelism)
+            throws IOException, InterruptedException
+    {
+        Map<String, PixelsProto.Footer> footers = new ConcurrentHashMap<>(paths.size());
+        Map<String, Exception> failures = new ConcurrentHashMap<>();
+        SharedThreadPool.TaskGroup prefetchTasks = SharedThreadPool.newTaskGroup(Math.max(1, parallelism));
+        for (String path : paths)
+        {
+            prefetchTasks.execute(() -> {
+                try (PixelsReader pixelsReader = openReader(storage, path))
+                {
+                    if (withRowGroupFooters)
+                    {
+                        for (int i = 0; i < pixelsReader.getRowGroupNum(); ++i)
+                        {
+                            pixelsReader.getRowGroupFooter(i);
+                        }
+                    }
+                    footers.put(path, pixelsReader.getFooter());
+                } catch (Exception e)
+                {
+                    failures.put(path, e);
+                }
+            });
+        }
+        prefetchTasks.awaitAll();
+        if (!failures.isEmpty())
+        {
+            Map.Entry<String, Exception> failure = failures.entrySet().iterator().next();
+            throw new IOException("failed to read the footers of " + failures.size() + " files, e.g., '" +
+                    failure.getKey() + "'", failure.getValue());
+        }
+        return footers;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The HyperLogLog sketch that estimates the number of distinct values.
+ * <p>
+ * It takes 64-bit hashes of the values (see {@link ColumnValues#hash}), thus no large range
+ * correction is needed. The relative standard error of the estimation is 1.04 / sqrt(2^precision),
+ * e.g., about 0.81% for the default precision of 14 with 16KB of registers.
+ * The sketches with the same precision can be merged without losing accuracy.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class HyperLogLog
+{
+    public static final int DEFAULT_PRECISION = 14;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog()
+    {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision the number of bits of the hash used to pick the register, in the range of [4, 18]
+     */
+    public HyperLogLog(int precision)
+    {
+        checkArgument(precision >= 4 && precision <= 18, "precision must be in the range of [4, 18]");
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * @param hash the 64-bit hash of a value
+     */
+    public void add(long hash)
+    {
+        int index = (int) (hash >>> (Long.SIZE - precision));
+        // the remaining bits are followed by a 1 bit, so that the rank does not exceed 64 - precision + 1
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index])
+        {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Merge another sketch into this one.
+     * @param other the other sketch with the same precision
+     */
+    public void merge(HyperLogLog other)
+    {
+        checkArgument(other.precision == precision, "can not merge sketches with different precisions");
+        for (int i = 0; i < registers.length; ++i)
+        {
+            if (other.registers[i] > registers[i])
+            {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    /**
+     * @return the estimated number of distinct values
+     */
+    public long estimate()
+    {
+        int m = registers.length;
+        double sum = 0;
+        int numZeros = 0;
+        for (byte register : registers)
+        {
+            sum += 1.0 / (1L << register);
+            if (register == 0)
+            {
+                numZeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && numZeros > 0)
+        {
+            // linear counting for small cardinalities
+            estimate = m * Math.log((double) m / numZeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return the relative standard error of the estimation
+     */
+    public double getStandardError()
+    {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    public int getPrecision()
+    {
+        return precision;
+    }
+
+    /**
+     * @return the serialized sketch, whose first byte is the precision
+     */
+    public byte[] toBytes()
+    {
+        byte[] bytes = new byte[registers.length + 1];
+        bytes[0] = (byte) precision;
+        System.arraycopy(registers, 0, bytes, 1, registers.length);
+        return bytes;
+    }
+
+    /**
+     * @param bytes the bytes serialized by {@link #toBytes()}
+     * @return the deserialized sketch
+     */
+    public static HyperLogLog fromBytes(byte[] bytes)
+    {
+        HyperLogLog sketch = new HyperLogLog(bytes[0]);
+        checkArgument(bytes.length == sketch.registers.length + 1, "invalid length of the serialized sketch");
+        System.arraycopy(bytes, 1, sketch.registers, 0, sketch.registers.length);
+        return sketch;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof HyperLogLog))
+        {
+            return false;
+        }
+        HyperLogLog other = (HyperLogLog) o;
+        return precision == other.precision && Arrays.equals(registers, other.registers);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.hashCode(registers);
+    }
+}
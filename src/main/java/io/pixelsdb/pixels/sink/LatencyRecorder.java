@@ -0,0 +1,173 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records the latencies of the queries in HDR histograms per query id (template).
+ * <p>
+ * It is not thread safe. Each client thread of QUERY records into its own instance,
+ * and the instances are merged at the end. The latencies are recorded in microseconds.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class LatencyRecorder
+{
+    public static final String TOTAL = "ALL";
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double[] PERCENTILES = {50, 95, 99, 99.9};
+
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Long> errors = new LinkedHashMap<>();
+
+    /**
+     * @param queryId the query id of the query
+     * @param latencyNanos the latency of the query in nanoseconds
+     */
+    public void record(String queryId, long latencyNanos)
+    {
+        getOrCreate(String.valueOf(queryId)).recordValue(Math.max(1, latencyNanos / 1000));
+    }
+
+    /**
+     * @param queryId the query id of the failed query
+     */
+    public void recordError(String queryId)
+    {
+        getOrCreate(String.valueOf(queryId));
+        errors.merge(String.valueOf(queryId), 1L, Long::sum);
+    }
+
+    private Histogram getOrCreate(String queryId)
+    {
+        return histograms.computeIfAbsent(queryId, k -> new Histogram(SIGNIFICANT_DIGITS));
+    }
+
+    /**
+     * Merge another recorder into this one.
+     * @param other the other recorder
+     */
+    public void merge(LatencyRecorder other)
+    {
+        other.histograms.forEach((queryId, histogram) -> getOrCreate(queryId).add(histogram));
+        other.errors.forEach((queryId, count) -> errors.merge(queryId, count, Long::sum));
+    }
+
+    /**
+     * @return the histogram of all the queries
+     */
+    public Histogram getTotal()
+    {
+        Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+        for (Histogram histogram : histograms.values())
+        {
+            total.add(histogram);
+        }
+        return total;
+    }
+
+    /**
+     * @return the number of failed queries
+     */
+    public long getTotalErrors()
+    {
+        long total = 0;
+        for (long count : errors.values())
+        {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Print the QPS and the latency percentiles of each query id and of all the queries.
+     * @param elapsedSeconds the elapsed time of the run in seconds
+     */
+    public void print(double elapsedSeconds)
+    {
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet())
+        {
+            System.out.println(formatLine(entry.getKey(), entry.getValue(),
+                    errors.getOrDefault(entry.getKey(), 0L), elapsedSeconds));
+        }
+        System.out.println(formatLine(TOTAL, getTotal(), getTotalErrors(), elapsedSeconds));
+    }
+
+    private static String formatLine(String queryId, Histogram histogram, long errors, double elapsedSeconds)
+    {
+        StringBuilder builder = new StringBuilder(queryId).append(": ")
+                .append(histogram.getTotalCount()).append(" queries, ")
+                .append(errors).append(" errors, ")
+                .append(String.format("%.2f qps", histogram.getTotalCount() / elapsedSeconds));
+        for (double percentile : PERCENTILES)
+        {
+            builder.append(String.format(", p%s %.1fms", formatPercentile(percentile),
+                    histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        return builder.append(String.format(", max %.1fms", histogram.getMaxValue() / 1000.0)).toString();
+    }
+
+    /**
+     * Write the QPS and the latency percentiles of each query id and of all the queries in CSV.
+     * @param writer the writer of the summary file
+     * @param elapsedSeconds the elapsed time of the run in seconds
+     * @throws IOException if failed to write the summary
+     */
+    public void writeSummary(Writer writer, double elapsedSeconds) throws IOException
+    {
+        StringBuilder header = new StringBuilder("query id,count,errors,qps");
+        for (double percentile : PERCENTILES)
+        {
+            header.append(",p").append(formatPercentile(percentile)).append("(ms)");
+        }
+        writer.write(header.append(",max(ms)\n").toString());
+        for (Map.Entry<String, Histogram> entry : histograms.entrySet())
+        {
+            writeSummaryLine(writer, entry.getKey(), entry.getValue(),
+                    errors.getOrDefault(entry.getKey(), 0L), elapsedSeconds);
+        }
+        writeSummaryLine(writer, TOTAL, getTotal(), getTotalErrors(), elapsedSeconds);
+        writer.flush();
+    }
+
+    private static void writeSummaryLine(Writer writer, String queryId, Histogram histogram, long errors,
+                                         double elapsedSeconds) throws IOException
+    {
+        StringBuilder line = new StringBuilder(queryId).append(',').append(histogram.getTotalCount())
+                .append(',').append(errors)
+                .append(',').append(String.format("%.3f", histogram.getTotalCount() / elapsedSeconds));
+        for (double percentile : PERCENTILES)
+        {
+            line.append(',').append(String.format("%.3f", histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        line.append(',').append(String.format("%.3f", histogram.getMaxValue() / 1000.0)).append('\n');
+        writer.write(line.toString());
+    }
+
+    private static String formatPercentile(double percentile)
+    {
+        // 99.9 -> 999, 50 -> 50
+        return percentile == Math.rint(percentile) ? String.valueOf((int) percentile) :
+                String.valueOf(percentile).replace(".", "");
+    }
+}
@@ -0,0 +1,573 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Derives the compact layout of a table from the columns accessed by the queries in a workload.
+ * <p>
+ * In a compact file, the chunks of the same column in all the row groups are stored together,
+ * and the chunks of the columns are stored in the column order of the compact layout. A query reads
+ * the span from its first accessed column to its last one with the adjacent reads merged, thus the
+ * bytes it reads include the columns inside the span that it does not access. The column order is
+ * built greedily by chaining the most co-accessed columns, and then refined by moving single columns
+ * as long as the total weighted bytes read by the queries decrease.
+ * </p>
+ * <p>
+ * The hottest columns (by accesses per byte) that fit into the cache size are placed before
+ * the cache border, so that they are loaded into pixels-cache.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class LayoutOptimizer
+{
+    private static final Pattern STRING_LITERAL = Pattern.compile("'([^']|'')*'");
+    /**
+     * The tokens of a query: (possibly qualified) identifiers including 'x.*', numbers, and single characters.
+     */
+    private static final Pattern TOKEN = Pattern.compile(
+            "[A-Za-z_][A-Za-z0-9_]*(\\.([A-Za-z_][A-Za-z0-9_]*|\\*))*|[0-9][A-Za-z0-9_.]*|''|\\S");
+    /**
+     * The keywords that can follow a table reference, thus they are not the alias of the table.
+     */
+    private static final Set<String> NON_ALIASES = new HashSet<>(Arrays.asList(
+            "where", "on", "using", "join", "inner", "left", "right", "full", "outer", "cross", "natural",
+            "group", "order", "having", "limit", "offset", "fetch", "union", "intersect", "except", "window",
+            "select", "from", "as", "tablesample", "lateral", "and", "or", "not"));
+
+    /**
+     * A distinct set of accessed columns and the total weight of the queries accessing it.
+     */
+    private static class Access
+    {
+        private final BitSet columns;
+        private double weight;
+
+        private Access(BitSet columns)
+        {
+            this.columns = columns;
+        }
+    }
+
+    private final String tableName;
+    private final List<String> columnNames;
+    private final Map<String, Integer> columnIds = new HashMap<>();
+    private final double[] columnSizes;
+    private final Map<BitSet, Access> accesses = new LinkedHashMap<>();
+    private int numCachedColumns = 0;
+
+    /**
+     * @param tableName the name of the table, the columns of the other tables in the queries are ignored
+     * @param columnNames the names of the columns in the table, in the column order of the files
+     * @param columnSizes the average sizes in bytes of the column chunks, zero or negative sizes are
+     *                    considered to be one byte
+     */
+    public LayoutOptimizer(String tableName, List<String> columnNames, double[] columnSizes)
+    {
+        requireNonNull(tableName, "tableName is null");
+        requireNonNull(columnNames, "columnNames is null");
+        requireNonNull(columnSizes, "columnSizes is null");
+        checkArgument(!columnNames.isEmpty(), "columnNames is empty");
+        checkArgument(columnNames.size() == columnSizes.length,
+                "columnNames and columnSizes are not consistent");
+        this.tableName = tableName.toLowerCase();
+        this.columnNames = columnNames;
+        this.columnSizes = new double[columnSizes.length];
+        for (int i = 0; i < columnSizes.length; ++i)
+        {
+            this.columnIds.put(columnNames.get(i).toLowerCase(), i);
+            this.columnSizes[i] = columnSizes[i] > 0 ? columnSizes[i] : 1;
+        }
+    }
+
+    /**
+     * Add a query to the workload.
+     * @param sql the sql statement of the query
+     * @param weight the weight of the query, e.g., its frequency or latency
+     * @return the number of columns of this table accessed by the query
+     */
+    public int addQuery(String sql, double weight)
+    {
+        BitSet columns = getAccessedColumns(sql);
+        if (columns.isEmpty() || weight <= 0)
+        {
+            return columns.cardinality();
+        }
+        accesses.computeIfAbsent(columns, Access::new).weight += weight;
+        return columns.cardinality();
+    }
+
+    /**
+     * Extract the columns of this table accessed by a query. The tables in the FROM and JOIN clauses
+     * are resolved first, the query accesses no column if this table is not among them. A qualified
+     * column (e.g., 't.a' or 'x.a' where x is an alias of this table) is accessed if its qualifier refers
+     * to this table, and an unqualified identifier (except in string literals) matching a column name is
+     * considered to be accessed. 'SELECT *', or 'x.*' qualified by this table, accesses all the columns.
+     * @param sql the sql statement
+     * @return the ids of the accessed columns
+     */
+    public BitSet getAccessedColumns(String sql)
+    {
+        String stripped = STRING_LITERAL.matcher(sql).replaceAll("''");
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(stripped);
+        while (matcher.find())
+        {
+            tokens.add(matcher.group().toLowerCase());
+        }
+
+        // resolve the table references, and the qualifiers (names and aliases) referring to this table.
+        boolean[] isTableRef = new boolean[tokens.size()];
+        Set<String> qualifiers = new HashSet<>();
+        boolean inFrom = false;
+        for (int i = 0; i < tokens.size(); ++i)
+        {
+            String keyword = tokens.get(i);
+            if (!keyword.equals("join") && !(keyword.equals("from") && isSelectFrom(tokens, i)))
+            {
+                continue;
+            }
+            int j = i + 1;
+            while (j < tokens.size())
+            {
+                String table = null;
+                if (tokens.get(j).equals("("))
+                {
+                    // a derived table, whose columns are resolved by its own FROM clause.
+                    j++;
+                }
+                else if (isIdentifier(tokens.get(j)))
+                {
+                    table = tokens.get(j);
+                    isTableRef[j++] = true;
+                }
+                else
+                {
+                    break;
+                }
+                if (j < tokens.size() && tokens.get(j).equals("as"))
+                {
+                    isTableRef[j++] = true;
+                }
+                String alias = null;
+                if (j < tokens.size() && isIdentifier(tokens.get(j)) && !tokens.get(j).contains(".") &&
+                        !NON_ALIASES.contains(tokens.get(j)))
+                {
+                    alias = tokens.get(j);
+                    isTableRef[j++] = true;
+                }
+                if (table != null && table.substring(table.lastIndexOf('.') + 1).equals(tableName))
+                {
+                    inFrom = true;
+                    qualifiers.add(table);
+                    qualifiers.add(tableName);
+                    if (alias != null)
+                    {
+                        qualifiers.add(alias);
+                    }
+                }
+                if (keyword.equals("from") && j < tokens.size() && tokens.get(j).equals(","))
+                {
+                    j++;
+                    continue;
+                }
+                break;
+            }
+        }
+
+        BitSet columns = new BitSet(columnSizes.length);
+        if (!inFrom)
+        {
+            return columns;
+        }
+        for (int i = 0; i < tokens.size(); ++i)
+        {
+            String token = tokens.get(i);
+            if (isTableRef[i])
+            {
+                continue;
+            }
+            if (token.equals("*"))
+            {
+                String previous = i > 0 ? tokens.get(i - 1) : "";
+                if (previous.equals("distinct") && i > 1)
+                {
+                    previous = tokens.get(i - 2);
+                }
+                if (previous.equals("select") || previous.equals(","))
+                {
+                    columns.set(0, columnSizes.length);
+                    return columns;
+                }
+                continue;
+            }
+            if (!isIdentifier(token))
+            {
+                continue;
+            }
+            int dot = token.lastIndexOf('.');
+            if (dot >= 0 && !qualifiers.contains(token.substring(0, dot)) &&
+                    !qualifiers.contains(token.substring(token.lastIndexOf('.', dot - 1) + 1, dot)))
+            {
+                // qualified by another table
+                continue;
+            }
+            String column = token.substring(dot + 1);
+            if (column.equals("*"))
+            {
+                columns.set(0, columnSizes.length);
+                return columns;
+            }
+            Integer columnId = columnIds.get(column);
+            if (columnId != null)
+            {
+                columns.set(columnId);
+            }
+        }
+        return columns;
+    }
+
+    /**
+     * @return true if the FROM at the index belongs to a SELECT at the same level of parentheses,
+     * instead of a function such as EXTRACT(YEAR FROM d)
+     */
+    private static boolean isSelectFrom(List<String> tokens, int index)
+    {
+        int depth = 0;
+        for (int i = index - 1; i >= 0; --i)
+        {
+            String token = tokens.get(i);
+            if (token.equals(")"))
+            {
+                depth++;
+            }
+            else if (token.equals("("))
+            {
+                if (depth == 0)
+                {
+                    return false;
+                }
+                depth--;
+            }
+            else if (depth == 0 && token.equals("select"))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isIdentifier(String token)
+    {
+        char first = token.charAt(0);
+        return first == '_' || (first >= 'a' && first <= 'z');
+    }
+
+    /**
+     * @param order the column order
+     * @return the total weighted bytes read by the queries in a row group
+     */
+    public double getCost(int[] order)
+    {
+        double[] offsets = new double[order.length + 1];
+        int[] positions = new int[order.length];
+        for (int i = 0; i < order.length; ++i)
+        {
+            offsets[i + 1] = offsets[i] + columnSizes[order[i]];
+            positions[order[i]] = i;
+        }
+        double cost = 0;
+        for (Access access : accesses.values())
+        {
+            int first = order.length, last = -1;
+            for (int id = access.columns.nextSetBit(0); id >= 0; id = access.columns.nextSetBit(id + 1))
+            {
+                first = Math.min(first, positions[id]);
+                last = Math.max(last, positions[id]);
+            }
+            cost += access.weight * (offsets[last + 1] - offsets[first]);
+        }
+        return cost;
+    }
+
+    /**
+     * @return the total weight of the queries accessing each column
+     */
+    public double[] getColumnHeat()
+    {
+        double[] heat = new double[columnSizes.length];
+        for (Access access : accesses.values())
+        {
+            for (int id = access.columns.nextSetBit(0); id >= 0; id = access.columns.nextSetBit(id + 1))
+            {
+                heat[id] += access.weight;
+            }
+        }
+        return heat;
+    }
+
+    /**
+     * Compute the column order.
+     * @param cacheSize the max bytes of the cached columns in a row group, non-positive for no cache
+     * @return the column order, the first {@link #getNumCachedColumns()} columns are cached
+     */
+    public int[] optimize(double cacheSize)
+    {
+        int numColumns = columnSizes.length;
+        double[] heat = getColumnHeat();
+
+        // pick the cached columns by the accesses per byte
+        List<Integer> cached = new ArrayList<>();
+        List<Integer> uncached = new ArrayList<>();
+        Integer[] byDensity = new Integer[numColumns];
+        for (int i = 0; i < numColumns; ++i)
+        {
+            byDensity[i] = i;
+        }
+        Arrays.sort(byDensity, (a, b) -> {
+            int cmp = Double.compare(heat[b] / columnSizes[b], heat[a] / columnSizes[a]);
+            return cmp != 0 ? cmp : Integer.compare(a, b);
+        });
+        double cachedSize = 0;
+        for (int id : byDensity)
+        {
+            if (heat[id] > 0 && cachedSize + columnSizes[id] <= cacheSize)
+            {
+                cached.add(id);
+                cachedSize += columnSizes[id];
+            }
+            else
+            {
+                uncached.add(id);
+            }
+        }
+
+        int[] order = new int[numColumns];
+        int[] cachedOrder = chain(cached, heat);
+        int[] uncachedOrder = chain(uncached, heat);
+        System.arraycopy(cachedOrder, 0, order, 0, cachedOrder.length);
+        System.arraycopy(uncachedOrder, 0, order, cachedOrder.length, uncachedOrder.length);
+        refine(order, 0, cachedOrder.length);
+        refine(order, cachedOrder.length, numColumns);
+        numCachedColumns = cachedOrder.length;
+        return order;
+    }
+
+    /**
+     * @return the number of leading columns that are cached in the last computed column order
+     */
+    public int getNumCachedColumns()
+    {
+        return numCachedColumns;
+    }
+
+    /**
+     * Chain the columns starting from the hottest one, each time appending the column
+     * most co-accessed with the last appended one.
+     */
+    private int[] chain(List<Integer> columns, double[] heat)
+    {
+        int[] order = new int[columns.size()];
+        boolean[] placed = new boolean[columnSizes.length];
+        int last = -1;
+        for (int i = 0; i < order.length; ++i)
+        {
+            int best = -1;
+            double bestAffinity = -1, bestHeat = -1;
+            for (int id : columns)
+            {
+                if (placed[id])
+                {
+                    continue;
+                }
+                double affinity = last < 0 ? 0 : getAffinity(last, id);
+                if (affinity > bestAffinity || (affinity == bestAffinity && heat[id] > bestHeat))
+                {
+                    best = id;
+                    bestAffinity = affinity;
+                    bestHeat = heat[id];
+                }
+            }
+            order[i] = best;
+            placed[best] = true;
+            last = best;
+        }
+        return order;
+    }
+
+    private double getAffinity(int a, int b)
+    {
+        double affinity = 0;
+        for (Access access : accesses.values())
+        {
+            if (access.columns.get(a) && access.columns.get(b))
+            {
+                affinity += access.weight;
+            }
+        }
+        return affinity;
+    }
+
+    /**
+     * Move single columns inside [from, to) of the order to the positions that reduce the cost the most,
+     * until no move reduces the cost.
+     */
+    private void refine(int[] order, int from, int to)
+    {
+        double cost = getCost(order);
+        boolean improved = true;
+        while (improved)
+        {
+            improved = false;
+            for (int i = from; i < to; ++i)
+            {
+                int bestPosition = i;
+                double bestCost = cost;
+                for (int j = from; j < to; ++j)
+                {
+                    if (j != i)
+                    {
+                        move(order, i, j);
+                        double newCost = getCost(order);
+                        if (newCost < bestCost - 1e-9)
+                        {
+                            bestCost = newCost;
+                            bestPosition = j;
+                        }
+                        move(order, j, i);
+                    }
+                }
+                if (bestPosition != i)
+                {
+                    move(order, i, bestPosition);
+                    cost = bestCost;
+                    improved = true;
+                }
+            }
+        }
+    }
+
+    private static void move(int[] order, int from, int to)
+    {
+        int column = order[from];
+        if (from < to)
+        {
+            System.arraycopy(order, from + 1, order, from, to - from);
+        }
+        else
+        {
+            System.arraycopy(order, to, order, to + 1, from - to);
+        }
+        order[to] = column;
+    }
+
+    /**
+     * Build the compact layout, in which the chunks of each column in all the row groups are stored together.
+     * @param order the column order
+     * @param numCachedColumns the number of leading columns in the order that are cached
+     * @param numRowGroupInBlock the number of row groups in a compact file
+     * @return the compact layout
+     */
+    public Compact buildCompact(int[] order, int numCachedColumns, int numRowGroupInBlock)
+    {
+        checkArgument(order.length == columnSizes.length, "order is not consistent with the columns");
+        checkArgument(numRowGroupInBlock > 0, "numRowGroupInBlock must be positive");
+        List<String> columnChunkOrder = new ArrayList<>(order.length * numRowGroupInBlock);
+        for (int column : order)
+        {
+            for (int rowGroup = 0; rowGroup < numRowGroupInBlock; ++rowGroup)
+            {
+                columnChunkOrder.add(rowGroup + ":" + column);
+            }
+        }
+        Compact compact = new Compact();
+        compact.setNumRowGroupInBlock(numRowGroupInBlock);
+        compact.setNumColumn(order.length);
+        compact.setCacheBorder(numCachedColumns * numRowGroupInBlock);
+        compact.setColumnChunkOrder(columnChunkOrder);
+        return compact;
+    }
+
+    public List<String> getColumnNames(int[] order)
+    {
+        List<String> names = new ArrayList<>(order.length);
+        for (int column : order)
+        {
+            names.add(columnNames.get(column));
+        }
+        return names;
+    }
+
+    /**
+     * Add the queries in a workload file of the QUERY command to the workload.
+     * @param workload the workload file, in which each line is either a query id or a SELECT statement
+     * @param log the timing log written by the QUERY command, null for equally weighted queries.
+     *            If present, each query is weighted by its duration.
+     * @return the number of queries accessing this table
+     */
+    public int addWorkload(String workload, String log) throws IOException
+    {
+        Map<Integer, Long> durations = new HashMap<>();
+        if (log != null)
+        {
+            try (BufferedReader logReader = new BufferedReader(new FileReader(log)))
+            {
+                // the header is: query id,id,duration(ms)
+                String line = logReader.readLine();
+                while ((line = logReader.readLine()) != null)
+                {
+                    String[] fields = line.split(",");
+                    if (fields.length >= 3)
+                    {
+                        durations.put(Integer.parseInt(fields[1].trim()), Long.parseLong(fields[2].trim()));
+                    }
+                }
+            }
+        }
+        int numQueries = 0;
+        try (BufferedReader workloadReader = new BufferedReader(new FileReader(workload)))
+        {
+            String line;
+            int i = 0;
+            while ((line = workloadReader.readLine()) != null)
+            {
+                if (!line.contains("SELECT"))
+                {
+                    continue;
+                }
+                Long duration = durations.get(i++);
+                double weight = log == null ? 1 : (duration == null ? 0 : duration);
+                if (addQuery(line, weight) > 0)
+                {
+                    numQueries++;
+                }
+            }
+        }
+        return numQueries;
+    }
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coordinates a LOAD that is distributed to the worker processes started by WORKER.
+ * <p>
+ * The source files are grouped into splits. A worker acquires a lease of a split, loads the files
+ * of the split by the existing consumers, renews the lease while loading, and completes the split
+ * with the paths of the files it has written. If the lease of a split expires (e.g., the worker
+ * is dead) or the worker fails to load the split, the attempt is retired and the split is assigned
+ * again. A split fails after the max number of attempts, which aborts the load. It is thread safe.
+ * </p>
+ * <p>
+ * The files of an attempt are named with the prefix {@code split<id>_a<attempt>_}. The files reported by
+ * a worker only cover the files written before its last renewal, thus the files of a retired attempt are
+ * found by listing the loading path for its prefix and deleted, including the files written after the
+ * last renewal. The listing is repeated after the load is finished, so that the files written by a
+ * paused worker after its attempt is retired are also deleted. A paused worker that resumes writing after
+ * the coordinator exits can still leave the files of its retired attempt, which are found by the prefix.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class LoadCoordinator
+{
+    public enum SplitState
+    {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    /**
+     * The lease of a split assigned to a worker.
+     */
+    public static class Lease
+    {
+        private final int splitId;
+        private final int attempt;
+        private final List<String> files;
+
+        private Lease(int splitId, int attempt, List<String> files)
+        {
+            this.splitId = splitId;
+            this.attempt = attempt;
+            this.files = files;
+        }
+
+        public int getSplitId()
+        {
+            return splitId;
+        }
+
+        /**
+         * @return the attempt of the split, starting from 1, a stale attempt can not renew or complete the split
+         */
+        public int getAttempt()
+        {
+            return attempt;
+        }
+
+        public List<String> getFiles()
+        {
+            return files;
+        }
+    }
+
+    private static class Split
+    {
+        private final List<String> files;
+        private SplitState state = SplitState.PENDING;
+        private int attempt = 0;
+        private String workerId;
+        private long leaseDeadline;
+        private List<String> writtenFiles = Collections.emptyList();
+
+        private Split(List<String> files)
+        {
+            this.files = files;
+        }
+    }
+
+    private final List<Split> splits = new ArrayList<>();
+    private final long leaseMs;
+    private final int maxAttempts;
+    private final LongSupplier clock;
+    private final List<String> loadedFiles = new ArrayList<>();
+    private final List<String> orphanFiles = new ArrayList<>();
+    /**
+     * The file prefixes of the retired attempts, and those not taken by {@link #takeRetiredPrefixes()}.
+     */
+    private final Set<String> retiredPrefixes = new LinkedHashSet<>();
+    private final List<String> newRetiredPrefixes = new ArrayList<>();
+    private int numDone = 0;
+    private int numRetries = 0;
+    private boolean aborted = false;
+
+    /**
+     * @param splits the source files of each split
+     * @param leaseMs the lease of a split expires if it is not renewed in this number of milliseconds
+     * @param maxAttempts the max number of attempts of each split
+     */
+    public LoadCoordinator(List<List<String>> splits, long leaseMs, int maxAttempts)
+    {
+        this(splits, leaseMs, maxAttempts, System::currentTimeMillis);
+    }
+
+    LoadCoordinator(List<List<String>> splits, long leaseMs, int maxAttempts, LongSupplier clock)
+    {
+        requireNonNull(splits, "splits is null");
+        checkArgument(leaseMs > 0, "leaseMs must be positive");
+        checkArgument(maxAttempts > 0, "maxAttempts must be positive");
+        for (List<String> files : splits)
+        {
+            this.splits.add(new Split(new ArrayList<>(files)));
+        }
+        this.leaseMs = leaseMs;
+        this.maxAttempts = maxAttempts;
+        this.clock = requireNonNull(clock, "clock is null");
+    }
+
+    /**
+     * Group the source files into the splits of similar sizes, the files are not split.
+     * @param paths the paths of the source files
+     * @param lengths the lengths of the source files
+     * @param splitSize the target size of a split, a larger file is a split itself
+     * @return the paths of the files in each split
+     */
+    public static List<List<String>> groupFiles(List<String> paths, List<Long> lengths, long splitSize)
+    {
+        checkArgument(paths.size() == lengths.size(), "paths and lengths must have the same size");
+        checkArgument(splitSize > 0, "splitSize must be positive");
+        List<List<String>> splits = new ArrayList<>();
+        List<String> split = new ArrayList<>();
+        long size = 0;
+        for (int i = 0; i < paths.size(); ++i)
+        {
+            if (!split.isEmpty() && size + lengths.get(i) > splitSize)
+            {
+                splits.add(split);
+                split = new ArrayList<>();
+                size = 0;
+            }
+            split.add(paths.get(i));
+            size += lengths.get(i);
+        }
+        if (!split.isEmpty())
+        {
+            splits.add(split);
+        }
+        return splits;
+    }
+
+    public long getLeaseMs()
+    {
+        return leaseMs;
+    }
+
+    /**
+     * @param splitId the id of the split
+     * @param attempt the attempt of the split
+     * @return the prefix of the names of the files written by the attempt
+     */
+    public static String getFilePrefix(int splitId, int attempt)
+    {
+        return "split" + splitId + "_a" + attempt + "_";
+    }
+
+    /**
+     * @param workerId the id of the worker
+     * @return the lease of a pending split, or null if there is no pending split now
+     */
+    public synchronized Lease acquire(String workerId)
+    {
+        expireLeases();
+        if (aborted)
+        {
+            return null;
+        }
+        for (int i = 0; i < splits.size(); ++i)
+        {
+            Split split = splits.get(i);
+            if (split.state == SplitState.PENDING)
+            {
+                split.state = SplitState.RUNNING;
+                split.attempt++;
+                split.workerId = workerId;
+                split.leaseDeadline = clock.getAsLong() + leaseMs;
+                split.writtenFiles = Collections.emptyList();
+                return new Lease(i, split.attempt, Collections.unmodifiableList(split.files));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Renew the lease of a split.
+     * @param workerId the id of the worker
+     * @param splitId the id of the split
+     * @param attempt the attempt of the lease
+     * @param writtenFiles the files written by the attempt so far, they are deleted if the lease expires
+     * @return false if the lease is lost, i.e., it has expired and the split may be assigned to another worker
+     */
+    public synchronized boolean renew(String workerId, int splitId, int attempt, List<String> writtenFiles)
+    {
+        expireLeases();
+        Split split = getRunningSplit(workerId, splitId, attempt);
+        if (split == null)
+        {
+            return false;
+        }
+        split.leaseDeadline = clock.getAsLong() + leaseMs;
+        split.writtenFiles = new ArrayList<>(writtenFiles);
+        return true;
+    }
+
+    /**
+     * Complete the attempt of a split.
+     * @param workerId the id of the worker
+     * @param splitId the id of the split
+     * @param attempt the attempt of the lease
+     * @param success whether the files of the split are loaded successfully
+     * @param writtenFiles the files written by the attempt
+     * @return false if the lease is lost, the worker should delete the written files in this case
+     */
+    public synchronized boolean complete(String workerId, int splitId, int attempt, boolean success,
+                                         List<String> writtenFiles)
+    {
+        expireLeases();
+        Split split = getRunningSplit(workerId, splitId, attempt);
+        if (split == null)
+        {
+            return false;
+        }
+        split.writtenFiles = new ArrayList<>(writtenFiles);
+        if (success)
+        {
+            split.state = SplitState.DONE;
+            loadedFiles.addAll(split.writtenFiles);
+            numDone++;
+        }
+        else
+        {
+            System.out.println("Split " + splitId + " attempt " + attempt + " is failed on worker " + workerId + ".");
+            retry(splitId, split);
+        }
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * @return true if all the splits are done, or the load is aborted and no split is running
+     */
+    public synchronized boolean isFinished()
+    {
+        if (numDone == splits.size())
+        {
+            return true;
+        }
+        if (!aborted)
+        {
+            return false;
+        }
+        for (Split split : splits)
+        {
+            if (split.state == SplitState.RUNNING)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if all the splits are done
+     */
+    public synchronized boolean isSuccessful()
+    {
+        return numDone == splits.size();
+    }
+
+    /**
+     * Wait until the load is finished, the expired leases are released while waiting.
+     * @param timeoutMs the max time to wait, it does not wait if it is not positive
+     * @return true if the load is finished
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized boolean awaitFinished(long timeoutMs) throws InterruptedException
+    {
+        expireLeases();
+        if (!isFinished() && timeoutMs > 0)
+        {
+            wait(timeoutMs);
+            expireLeases();
+        }
+        return isFinished();
+    }
+
+    /**
+     * @return the files written by the completed attempts
+     */
+    public synchronized List<String> getLoadedFiles()
+    {
+        return new ArrayList<>(loadedFiles);
+    }
+
+    /**
+     * @return the files written by the expired or failed attempts since the last call, they should be deleted
+     */
+    public synchronized List<String> takeOrphanFiles()
+    {
+        List<String> files = new ArrayList<>(orphanFiles);
+        orphanFiles.clear();
+        return files;
+    }
+
+    /**
+     * @return the file prefixes of the attempts retired since the last call, their files should be deleted
+     */
+    public synchronized List<String> takeRetiredPrefixes()
+    {
+        List<String> prefixes = new ArrayList<>(newRetiredPrefixes);
+        newRetiredPrefixes.clear();
+        return prefixes;
+    }
+
+    /**
+     * @return the file prefixes of all the retired attempts
+     */
+    public synchronized List<String> getRetiredPrefixes()
+    {
+        return new ArrayList<>(retiredPrefixes);
+    }
+
+    public synchronized SplitState getState(int splitId)
+    {
+        return splits.get(splitId).state;
+    }
+
+    public synchronized String getProgress()
+    {
+        int numRunning = 0;
+        for (Split split : splits)
+        {
+            if (split.state == SplitState.RUNNING)
+            {
+                numRunning++;
+            }
+        }
+        return numDone + "/" + splits.size() + " splits are loaded, " + numRunning + " running, " +
+                numRetries + " retried" + (aborted ? ", aborted" : "");
+    }
+
+    /**
+     * Serve the workers until the load is finished, the files of the retired attempts are deleted while
+     * serving, and once more after the load is finished.
+     * @param port the port of the coordinator
+     * @param spec the spec of the load sent to the workers, its loading data path must be resolved
+     * @return true if all the splits are loaded
+     * @throws IOException if failed to start the coordinator
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public boolean serve(int port, LoadService.LoadSpec spec) throws IOException, InterruptedException
+    {
+        // the workers write into the loading data path, which is listed for the files of the retired attempts
+        checkArgument(spec.getLoadingDataPath() != null && !spec.getLoadingDataPath().isEmpty(),
+                "the loading data path of the spec must be resolved");
+        Server server = ServerBuilder.forPort(port).addService(LoadService.bindService(this, spec)).build().start();
+        System.out.println("Load coordinator is started on port " + port + ", waiting for the workers.");
+        try
+        {
+            long lastReport = System.currentTimeMillis();
+            while (!awaitFinished(1000))
+            {
+                deleteFiles(takeOrphanFiles());
+                deleteAttemptFiles(spec.getLoadingDataPath(), takeRetiredPrefixes());
+                if (System.currentTimeMillis() - lastReport >= 10000)
+                {
+                    System.out.println(getProgress());
+                    lastReport = System.currentTimeMillis();
+                }
+            }
+            deleteFiles(takeOrphanFiles());
+            System.out.println(getProgress());
+            // give the idle workers a chance to learn that the load is finished
+            Thread.sleep(2000);
+            // the paused workers of the retired attempts may have written more files after the first deletion
+            deleteAttemptFiles(spec.getLoadingDataPath(), getRetiredPrefixes());
+        } finally
+        {
+            server.shutdown();
+        }
+        return isSuccessful();
+    }
+
+    /**
+     * Delete the files if they exist, the failures are printed.
+     * @param paths the paths of the files
+     */
+    public static void deleteFiles(List<String> paths)
+    {
+        for (String path : paths)
+        {
+            try
+            {
+                Storage storage = StorageFactory.Instance().getStorage(path);
+                if (storage.exists(path))
+                {
+                    storage.delete(path, false);
+                    System.out.println("Deleted orphan file '" + path + "'.");
+                }
+            } catch (IOException e)
+            {
+                System.out.println("Failed to delete orphan file '" + path + "'.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Delete the files of the retired attempts in the loading path, the failures are printed.
+     * @param loadingPath the loading path, which may contain multiple directories separated by ';'
+     * @param prefixes the file prefixes of the retired attempts
+     */
+    public static void deleteAttemptFiles(String loadingPath, List<String> prefixes)
+    {
+        if (prefixes.isEmpty())
+        {
+            return;
+        }
+        for (String dir : loadingPath.split(";"))
+        {
+            try
+            {
+                Storage storage = StorageFactory.Instance().getStorage(dir);
+                if (!storage.exists(dir))
+                {
+                    continue;
+                }
+                List<String> paths = new ArrayList<>();
+                for (String path : storage.listPaths(dir))
+                {
+                    String name = path.substring(path.lastIndexOf('/') + 1);
+                    for (String prefix : prefixes)
+                    {
+                        if (name.startsWith(prefix))
+                        {
+                            paths.add(path);
+                            break;
+                        }
+                    }
+                }
+                deleteFiles(paths);
+            } catch (IOException e)
+            {
+                System.out.println("Failed to list the files of the retired attempts in '" + dir + "'.");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private Split getRunningSplit(String workerId, int splitId, int attempt)
+    {
+        if (splitId < 0 || splitId >= splits.size())
+        {
+            return null;
+        }
+        Split split = splits.get(splitId);
+        if (split.state != SplitState.RUNNING || split.attempt != attempt || !split.workerId.equals(workerId))
+        {
+            return null;
+        }
+        return split;
+    }
+
+    private void expireLeases()
+    {
+        long now = clock.getAsLong();
+        for (int i = 0; i < splits.size(); ++i)
+        {
+            Split split = splits.get(i);
+            if (split.state == SplitState.RUNNING && split.leaseDeadline < now)
+            {
+                System.out.println("Lease of split " + i + " attempt " + split.attempt + " on worker " +
+                        split.workerId + " is expired.");
+                retry(i, split);
+                notifyAll();
+            }
+        }
+    }
+
+    private void retry(int splitId, Split split)
+    {
+        orphanFiles.addAll(split.writtenFiles);
+        String prefix = getFilePrefix(splitId, split.attempt);
+        retiredPrefixes.add(prefix);
+        newRetiredPrefixes.add(prefix);
+        split.writtenFiles = Collections.emptyList();
+        split.workerId = null;
+        if (split.attempt >= maxAttempts)
+        {
+            split.state = SplitState.FAILED;
+            aborted = true;
+            System.out.println("Split " + splitId + " is failed after " + split.attempt +
+                    " attempts, the load is aborted.");
+        }
+        else
+        {
+            split.state = SplitState.PENDING;
+            numRetries++;
+        }
+    }
+}
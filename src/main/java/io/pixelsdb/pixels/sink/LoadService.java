@@ -0,0 +1,368 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The gRPC lease API between the load coordinator and the workers of a distributed LOAD.
+ * <p>
+ * A worker calls Acquire to get a split, Renew to keep the lease of the split while loading it, and
+ * Complete when the split is loaded. The messages are encoded in JSON as in {@link SinkService}.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class LoadService
+{
+    public static final String SERVICE_NAME = "io.pixelsdb.pixels.sink.LoadService";
+
+    public static final String STATUS_ASSIGNED = "assigned";
+    public static final String STATUS_WAIT = "wait";
+    public static final String STATUS_FINISHED = "finished";
+    public static final String STATUS_OK = "ok";
+    public static final String STATUS_LOST = "lost";
+
+    public static final MethodDescriptor<LeaseRequest, LeaseResponse> ACQUIRE_METHOD = newMethod("Acquire");
+    public static final MethodDescriptor<LeaseRequest, LeaseResponse> RENEW_METHOD = newMethod("Renew");
+    public static final MethodDescriptor<LeaseRequest, LeaseResponse> COMPLETE_METHOD = newMethod("Complete");
+
+    private LoadService()
+    {
+    }
+
+    private static MethodDescriptor<LeaseRequest, LeaseResponse> newMethod(String name)
+    {
+        return MethodDescriptor.<LeaseRequest, LeaseResponse>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, name))
+                .setRequestMarshaller(new SinkService.JsonMarshaller<>(LeaseRequest.class))
+                .setResponseMarshaller(new SinkService.JsonMarshaller<>(LeaseResponse.class))
+                .build();
+    }
+
+    /**
+     * @param coordinator the coordinator of the load
+     * @param spec the spec of the load sent to the workers with the splits
+     * @return the service to be added into the gRPC server of the coordinator
+     */
+    public static ServerServiceDefinition bindService(LoadCoordinator coordinator, LoadSpec spec)
+    {
+        return ServerServiceDefinition.builder(SERVICE_NAME)
+                .addMethod(ACQUIRE_METHOD, ServerCalls.asyncUnaryCall(
+                        (LeaseRequest request, StreamObserver<LeaseResponse> observer) -> {
+                            LeaseResponse response = new LeaseResponse();
+                            LoadCoordinator.Lease lease = coordinator.acquire(request.getWorkerId());
+                            if (lease != null)
+                            {
+                                response.setStatus(STATUS_ASSIGNED);
+                                response.setSplitId(lease.getSplitId());
+                                response.setAttempt(lease.getAttempt());
+                                response.setFiles(new ArrayList<>(lease.getFiles()));
+                                response.setLeaseMs(coordinator.getLeaseMs());
+                                response.setSpec(spec);
+                            }
+                            else
+                            {
+                                response.setStatus(coordinator.isFinished() ? STATUS_FINISHED : STATUS_WAIT);
+                            }
+                            observer.onNext(response);
+                            observer.onCompleted();
+                        }))
+                .addMethod(RENEW_METHOD, ServerCalls.asyncUnaryCall(
+                        (LeaseRequest request, StreamObserver<LeaseResponse> observer) -> {
+                            LeaseResponse response = new LeaseResponse();
+                            response.setStatus(coordinator.renew(request.getWorkerId(), request.getSplitId(),
+                                    request.getAttempt(), request.getFiles()) ? STATUS_OK : STATUS_LOST);
+                            observer.onNext(response);
+                            observer.onCompleted();
+                        }))
+                .addMethod(COMPLETE_METHOD, ServerCalls.asyncUnaryCall(
+                        (LeaseRequest request, StreamObserver<LeaseResponse> observer) -> {
+                            LeaseResponse response = new LeaseResponse();
+                            response.setStatus(coordinator.complete(request.getWorkerId(), request.getSplitId(),
+                                    request.getAttempt(), request.isSuccess(), request.getFiles()) ?
+                                    STATUS_OK : STATUS_LOST);
+                            observer.onNext(response);
+                            observer.onCompleted();
+                        }))
+                .build();
+    }
+
+    /**
+     * The parameters of LOAD that are needed by the workers to load a split.
+     */
+    public static class LoadSpec
+    {
+        private String schemaName;
+        private String tableName;
+        private int rowNum;
+        private String regex;
+        private String loadingDataPath;
+        private boolean enableEncoding;
+
+        public LoadSpec()
+        {
+        }
+
+        public LoadSpec(String schemaName, String tableName, int rowNum, String regex,
+                        String loadingDataPath, boolean enableEncoding)
+        {
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+            this.rowNum = rowNum;
+            this.regex = regex;
+            this.loadingDataPath = loadingDataPath;
+            this.enableEncoding = enableEncoding;
+        }
+
+        /**
+         * @return the config of loading in the pixels format
+         */
+        public Config toConfig()
+        {
+            return new Config(schemaName, tableName, rowNum, regex, "pixels", loadingDataPath, enableEncoding);
+        }
+
+        public String getSchemaName()
+        {
+            return schemaName;
+        }
+
+        public void setSchemaName(String schemaName)
+        {
+            this.schemaName = schemaName;
+        }
+
+        public String getTableName()
+        {
+            return tableName;
+        }
+
+        public void setTableName(String tableName)
+        {
+            this.tableName = tableName;
+        }
+
+        public int getRowNum()
+        {
+            return rowNum;
+        }
+
+        public void setRowNum(int rowNum)
+        {
+            this.rowNum = rowNum;
+        }
+
+        public String getRegex()
+        {
+            return regex;
+        }
+
+        public void setRegex(String regex)
+        {
+            this.regex = regex;
+        }
+
+        /**
+         * @return the loading data path, or null to use the order path of the table, it must be resolved
+         * before the coordinator serves the workers
+         */
+        public String getLoadingDataPath()
+        {
+            return loadingDataPath;
+        }
+
+        public void setLoadingDataPath(String loadingDataPath)
+        {
+            this.loadingDataPath = loadingDataPath;
+        }
+
+        public boolean isEnableEncoding()
+        {
+            return enableEncoding;
+        }
+
+        public void setEnableEncoding(boolean enableEncoding)
+        {
+            this.enableEncoding = enableEncoding;
+        }
+    }
+
+    public static class LeaseRequest
+    {
+        private String workerId;
+        private int splitId;
+        private int attempt;
+        private boolean success;
+        private List<String> files = new ArrayList<>();
+
+        public LeaseRequest()
+        {
+        }
+
+        public LeaseRequest(String workerId, int splitId, int attempt, boolean success, List<String> files)
+        {
+            this.workerId = workerId;
+            this.splitId = splitId;
+            this.attempt = attempt;
+            this.success = success;
+            this.files = files;
+        }
+
+        public String getWorkerId()
+        {
+            return workerId;
+        }
+
+        public void setWorkerId(String workerId)
+        {
+            this.workerId = workerId;
+        }
+
+        public int getSplitId()
+        {
+            return splitId;
+        }
+
+        public void setSplitId(int splitId)
+        {
+            this.splitId = splitId;
+        }
+
+        public int getAttempt()
+        {
+            return attempt;
+        }
+
+        public void setAttempt(int attempt)
+        {
+            this.attempt = attempt;
+        }
+
+        /**
+         * @return whether the split is loaded successfully, only used by Complete
+         */
+        public boolean isSuccess()
+        {
+            return success;
+        }
+
+        public void setSuccess(boolean success)
+        {
+            this.success = success;
+        }
+
+        /**
+         * @return the files written by the attempt so far
+         */
+        public List<String> getFiles()
+        {
+            return files;
+        }
+
+        public void setFiles(List<String> files)
+        {
+            this.files = files;
+        }
+    }
+
+    public static class LeaseResponse
+    {
+        private String status;
+        private int splitId;
+        private int attempt;
+        private List<String> files = new ArrayList<>();
+        private long leaseMs;
+        private LoadSpec spec;
+
+        public LeaseResponse()
+        {
+        }
+
+        /**
+         * @return assigned, wait, or finished for Acquire, ok or lost for Renew and Complete
+         */
+        public String getStatus()
+        {
+            return status;
+        }
+
+        public void setStatus(String status)
+        {
+            this.status = status;
+        }
+
+        public int getSplitId()
+        {
+            return splitId;
+        }
+
+        public void setSplitId(int splitId)
+        {
+            this.splitId = splitId;
+        }
+
+        public int getAttempt()
+        {
+            return attempt;
+        }
+
+        public void setAttempt(int attempt)
+        {
+            this.attempt = attempt;
+        }
+
+        /**
+         * @return the source files of the assigned split
+         */
+        public List<String> getFiles()
+        {
+            return files;
+        }
+
+        public void setFiles(List<String> files)
+        {
+            this.files = files;
+        }
+
+        public long getLeaseMs()
+        {
+            return leaseMs;
+        }
+
+        public void setLeaseMs(long leaseMs)
+        {
+            this.leaseMs = leaseMs;
+        }
+
+        public LoadSpec getSpec()
+        {
+            return spec;
+        }
+
+        public void setSpec(LoadSpec spec)
+        {
+            this.spec = spec;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.MethodDescriptor;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A worker of a distributed LOAD, it loads the splits assigned by the {@link LoadCoordinator} until
+ * the load is finished.
+ * <p>
+ * Each split is loaded by the consumers of {@link ConsumerGenerator} in this process, and the lease of the
+ * split is renewed in the background with the files written so far. If the lease is lost, e.g., the worker
+ * has been paused for longer than the lease, the coordinator rejects the completion of the split and the
+ * worker deletes the files it has written for the split.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class LoadWorker implements AutoCloseable
+{
+    /**
+     * Loads the source files of a split into the pixels files.
+     */
+    interface SplitLoader
+    {
+        /**
+         * @param files the paths of the source files
+         * @param config the config of loading, the names of the written files must start with its file prefix
+         * @param writtenFiles collects the paths of the written files, it is thread safe
+         * @return true if all the source files are loaded
+         */
+        boolean load(BlockingQueue<String> files, Config config, List<String> writtenFiles);
+    }
+
+    private final ManagedChannel channel;
+    private final SplitLoader splitLoader;
+    private final String workerId;
+
+    /**
+     * @param host the host of the coordinator
+     * @param port the port of the coordinator
+     * @param threadNum the number of consumer threads used to load a split
+     */
+    public LoadWorker(String host, int port, int threadNum)
+    {
+        this(host, port, threadNum, null);
+    }
+
+    /**
+     * @param splitLoader loads the files of a split, null to load them by the consumers of {@link ConsumerGenerator}
+     */
+    LoadWorker(String host, int port, int threadNum, SplitLoader splitLoader)
+    {
+        checkArgument(threadNum > 0, "threadNum must be positive");
+        this.channel = ManagedChannelBuilder.forAddress(host, port).usePlaintext().build();
+        this.splitLoader = splitLoader != null ? splitLoader : (files, config, writtenFiles) ->
+                new ConsumerGenerator(threadNum).startConsumer(files, config, null, writtenFiles);
+        // the name of the runtime is pid@hostname
+        String[] name = ManagementFactory.getRuntimeMXBean().getName().split("@");
+        this.workerId = name.length == 2 ? name[1] + "-" + name[0] : name[0];
+    }
+
+    public String getWorkerId()
+    {
+        return workerId;
+    }
+
+    /**
+     * Load the assigned splits until the load is finished.
+     * @return the number of splits loaded by this worker
+     * @throws InterruptedException if interrupted while waiting for a split
+     */
+    public int run() throws InterruptedException
+    {
+        int numSplits = 0;
+        while (true)
+        {
+            LoadService.LeaseResponse response;
+            try
+            {
+                response = call(LoadService.ACQUIRE_METHOD, new LoadService.LeaseRequest(
+                        workerId, -1, 0, false, new ArrayList<>()));
+            } catch (StatusRuntimeException e)
+            {
+                System.out.println("Load coordinator is unreachable: " + e.getStatus());
+                break;
+            }
+            if (LoadService.STATUS_FINISHED.equals(response.getStatus()))
+            {
+                break;
+            }
+            if (LoadService.STATUS_WAIT.equals(response.getStatus()))
+            {
+                TimeUnit.SECONDS.sleep(1);
+                continue;
+            }
+            if (loadSplit(response))
+            {
+                numSplits++;
+            }
+        }
+        return numSplits;
+    }
+
+    private boolean loadSplit(LoadService.LeaseResponse lease)
+    {
+        int splitId = lease.getSplitId(), attempt = lease.getAttempt();
+        System.out.println("Loading split " + splitId + " attempt " + attempt + " with " +
+                lease.getFiles().size() + " files.");
+        long start = System.currentTimeMillis();
+        Config config = lease.getSpec().toConfig();
+        // the files of a retired attempt are found by the prefix and deleted by the coordinator
+        config.setFilePrefix(LoadCoordinator.getFilePrefix(splitId, attempt));
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>(lease.getFiles());
+        List<String> writtenFiles = Collections.synchronizedList(new ArrayList<>());
+
+        AtomicBoolean lost = new AtomicBoolean(false);
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor();
+        long period = Math.max(lease.getLeaseMs() / 3, 1);
+        heartbeat.scheduleAtFixedRate(() -> {
+            try
+            {
+                LoadService.LeaseResponse response = call(LoadService.RENEW_METHOD, new LoadService.LeaseRequest(
+                        workerId, splitId, attempt, false, copy(writtenFiles)));
+                if (LoadService.STATUS_LOST.equals(response.getStatus()) && !lost.getAndSet(true))
+                {
+                    System.out.println("Lease of split " + splitId + " attempt " + attempt + " is lost.");
+                }
+            } catch (StatusRuntimeException e)
+            {
+                // the lease expires if the coordinator keeps unreachable
+                System.out.println("Failed to renew the lease of split " + splitId + ": " + e.getStatus());
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        boolean success;
+        try
+        {
+            // false if any consumer has failed, then the split is retried and the written files are orphans
+            success = splitLoader.load(queue, config, writtenFiles);
+        } finally
+        {
+            heartbeat.shutdownNow();
+        }
+
+        boolean accepted;
+        try
+        {
+            accepted = LoadService.STATUS_OK.equals(call(LoadService.COMPLETE_METHOD, new LoadService.LeaseRequest(
+                    workerId, splitId, attempt, success, copy(writtenFiles))).getStatus());
+        } catch (StatusRuntimeException e)
+        {
+            System.out.println("Failed to complete split " + splitId + ": " + e.getStatus());
+            accepted = false;
+        }
+        if (!accepted)
+        {
+            // the split has been or will be assigned to another worker
+            LoadCoordinator.deleteFiles(copy(writtenFiles));
+            return false;
+        }
+        System.out.println("Split " + splitId + " is " + (success ? "loaded" : "failed") + " in " +
+                (System.currentTimeMillis() - start) + "ms, " + writtenFiles.size() + " files are written.");
+        return success;
+    }
+
+    private LoadService.LeaseResponse call(MethodDescriptor<LoadService.LeaseRequest, LoadService.LeaseResponse> method,
+                                           LoadService.LeaseRequest request)
+    {
+        return ClientCalls.blockingUnaryCall(channel, method, CallOptions.DEFAULT, request);
+    }
+
+    private static List<String> copy(List<String> files)
+    {
+        synchronized (files)
+        {
+            return new ArrayList<>(files);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException
+    {
+        channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
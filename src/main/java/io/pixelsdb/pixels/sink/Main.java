@@ -15,8 +15,8 @@
  */
 package io.pixelsdb.pixels.sink;
 
+import com.alibaba.fastjson.JSON;
 import com.facebook.presto.jdbc.PrestoDriver;
-import com.google.common.collect.ImmutableList;
 import io.pixelsdb.pixels.common.exception.MetadataException;
 import io.pixelsdb.pixels.common.metadata.MetadataCache;
 import io.pixelsdb.pixels.common.metadata.MetadataService;
@@ -30,9 +30,6 @@ import io.pixelsdb.pixels.common.utils.ConfigFactory;
 import io.pixelsdb.pixels.common.utils.Constants;
 import io.pixelsdb.pixels.common.utils.DateUtil;
 import io.pixelsdb.pixels.core.*;
-import io.pixelsdb.pixels.core.compactor.CompactLayout;
-import io.pixelsdb.pixels.core.compactor.PixelsCompactor;
-import io.pixelsdb.pixels.core.stats.StatsRecorder;
 import io.trino.jdbc.TrinoDriver;
 import net.sourceforge.argparse4j.ArgumentParsers;
 import net.sourceforge.argparse4j.inf.ArgumentParser;
@@ -41,6 +38,9 @@ import net.sourceforge.argparse4j.inf.Namespace;
 import org.apache.hadoop.io.IOUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.*;
 import java.util.*;
 import java.util.concurrent.*;
@@ -66,6 +66,12 @@ import static java.util.Objects.requireNonNull;
  * -l hdfs://dbiir10:9000/pixels/pixels/test_105/v_0_order_orc/
  * </p>
  * [-l] is optional, its default value is the orderPath of the last writable layout of the table.
+ * <p>
+ * LOAD -f pixels --source_format orc -o hdfs://dbiir10:9000/pixels/pixels/test_105/orc -s pixels -t test_105 -n 275000 -r \t -c 16
+ * </p>
+ * <p>
+ * LOAD -f pixels -o s3://text-105/source -s pixels -t test_105 -n 275000 -r \t -c 16 --publish_stats replace --sketch_stats true
+ * </p>
  *
  * <br>This should be run under root user to execute cache cleaning commands
  * <p>
@@ -75,20 +81,128 @@ import static java.util.Objects.requireNonNull;
  * QUERY -t pixels -w /home/tao/software/station/bitbucket/105_dedup_query.txt -l /home/tao/software/station/bitbucket/pixels_duration_local.csv
  * </p>
  * <p>
+ * QUERY -t pixels -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/pixels_duration_105_c16.csv -n 16 -d 600 --summary /home/iir/opt/pixels/pixels_latency_105_c16.csv
+ * QUERY -t pixels -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/pixels_duration_105_warm.csv --mode warm --warmup 2 --repeat 10 --summary /home/iir/opt/pixels/pixels_stats_105_warm.csv
+ * QUERY -t orc -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/orc_duration_105.csv --checksum true
+ * QUERY -t pixels -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/pixels_duration_105.csv --expect /home/iir/opt/pixels/orc_duration_105.csv
+ * QUERY -t pixels -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/pixels_duration_105_open.csv -d 300 --rate 0.5,1,2,4,8 --summary /home/iir/opt/pixels/pixels_curve_105.csv
+ * </p>
+ * <p>
  * COPY -p .pxl -s hdfs://dbiir27:9000/pixels/pixels/test_105/v_1_order -d hdfs://dbiir27:9000/pixels/pixels/test_105/v_1_order -n 3 -c 3
  * </p>
  * <p>
  * COMPACT -s pixels -t test_105 -n yes -c 8
  * </p>
  * <p>
- * STAT -s tpch -t region -o false -c true
+ * COMPACT -s pixels -t test_105 -n yes -c 2 -b 100 -d true --state_file /home/pixels/test_105_compacted.txt
+ * </p>
+ * <p>
+ * COMPACT -s tpch -t lineitem -n no -c 8 -k l_shipdate,l_partkey -m zorder --spill_dir /data/tmp
+ * </p>
+ * <p>
+ * COMPACT -s tpch -t orders -n no -c 8 -r o_orderdate
+ * </p>
+ * <p>
+ * COMPACT -s pixels -t test_105 -n no -c 8 --publish_stats replace
+ * </p>
+ * <p>
+ * LAYOUT -s pixels -t test_105 -w /home/iir/opt/pixels/105_dedup_query.txt -l /home/iir/opt/pixels/pixels_duration_105.csv -o /home/iir/opt/pixels/test_105_compact.json -z 100
+ * COMPACT -s pixels -t test_105 -n no -c 8 --layout_file /home/iir/opt/pixels/test_105_compact.json
+ * </p>
+ * <p>
+ * STAT -s tpch -t region -o false -c true -p 16
+ * STAT -s tpch -t region -o false -c true --sql true
+ * STAT -s tpch -t lineitem -o true -c true --cache_file /home/pixels/lineitem_stat.cache
+ * STAT -s tpch -t lineitem -o false -c true --sample 0.05 --seed 42
+ * </p>
+ * <p>
+ * SCAN -s tpch -t lineitem -o false -c true -p 8 --columns l_orderkey,l_quantity --predicate l_shipdate>=1994-01-01 -l /home/pixels/lineitem_scan.csv --summary /home/pixels/scan_summary.csv
+ * SCAN --path file:///data/tpch/lineitem/v-0-compact -p 4
+ * </p>
+ * <p>
+ * WARMUP -s pixels -t test_105 -w /home/iir/opt/pixels/105_dedup_query.txt -z 4096 -o /home/iir/opt/pixels/test_105_warm.json
+ * WARMUP -s tpch -t lineitem --columns l_orderkey,l_shipdate,l_quantity -p 8
+ * </p>
+ * <p>
+ * Distribute LOAD to the workers, each worker is started by WORKER in a sink process on any node:
+ * LOAD -f pixels -o s3://text-105/source -s pixels -t test_105 -n 275000 -r \t -c 16 --coordinator_port 18891 --split_size 2048
+ * WORKER -a dbiir10 -p 18891 -c 16
+ * </p>
+ * <p>
+ * Ingest the change events of Debezium, the file or socket source is a stand-in of the message queue:
+ * INGEST -s tpch -t orders -k o_orderkey --tail /data/cdc/orders.json --flush_ms 500 --file_size 64 --idle_timeout 60
+ * INGEST -s tpch -t orders -k o_orderkey --listen 9999 -l hdfs://dbiir10:9000/pixels/tpch/orders/v-0-order/
+ * INGEST -s tpch -t orders -k o_orderkey --listen 9999 --wal_dir /data/wal/orders --flush_ms 600000 --file_size 1024
+ * </p>
+ * <p>
+ * Start the sink server that executes LOAD, COPY, COMPACT, and STAT submitted over gRPC:
+ * java -jar pixels-sink.jar SERVER -p 18890 -j 4 -t 32
+ * Connect to the sink server and submit the commands in the same syntax, or cancel a job by its id:
+ * java -jar pixels-sink.jar CLIENT -a localhost -p 18890
+ * CANCEL job-3
  * </p>
  */
 public class Main
 {
     public static void main(String args[])
     {
-        Config config = null;
+        SinkClient client = null;
+        if (args.length > 0 && args[0].equalsIgnoreCase("SERVER"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Sink SERVER")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-p", "--port").setDefault("18890")
+                    .help("specify the port of the sink server");
+            argumentParser.addArgument("-j", "--jobs").setDefault("4")
+                    .help("specify the max number of concurrent jobs");
+            argumentParser.addArgument("-t", "--threads").setDefault("32")
+                    .help("specify the number of warmed threads shared by the jobs to run their tasks");
+
+            Namespace ns;
+            try
+            {
+                ns = argumentParser.parseArgs(Arrays.copyOfRange(args, 1, args.length));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                return;
+            }
+
+            SinkServer server = new SinkServer(Integer.parseInt(ns.getString("port")),
+                    Integer.parseInt(ns.getString("jobs")), Integer.parseInt(ns.getString("threads")));
+            try
+            {
+                server.start();
+                server.awaitTermination();
+            } catch (IOException | InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+            return;
+        }
+        else if (args.length > 0 && args[0].equalsIgnoreCase("CLIENT"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Sink CLIENT")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-a", "--host").setDefault("localhost")
+                    .help("specify the host of the sink server");
+            argumentParser.addArgument("-p", "--port").setDefault("18890")
+                    .help("specify the port of the sink server");
+
+            Namespace ns;
+            try
+            {
+                ns = argumentParser.parseArgs(Arrays.copyOfRange(args, 1, args.length));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                return;
+            }
+            client = new SinkClient(ns.getString("host"), Integer.parseInt(ns.getString("port")));
+        }
+
         Scanner scanner = new Scanner(System.in);
         String inputStr;
 
@@ -121,377 +235,895 @@ public class Main
                         "QUERY\n" +
                         "COPY\n" +
                         "COMPACT\n" +
-                        "STAT");
+                        "LAYOUT\n" +
+                        "STAT\n" +
+                        "SCAN\n" +
+                        "WARMUP\n" +
+                        "WORKER\n" +
+                        "INGEST" + (client != null ? "\nCANCEL {job id}" : ""));
                 System.out.println("{command} -h to show the usage of a command.\nexit / quit / -q to exit.\n");
                 continue;
             }
 
-            String command = inputStr.trim().split("\\s+")[0].toUpperCase();
-
-            if (command.equals("LOAD"))
-            {
-                ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL LOAD")
-                        .defaultHelp(true);
-
-                argumentParser.addArgument("-f", "--format").required(true)
-                        .help("Specify the format of files");
-                argumentParser.addArgument("-o", "--original_data_path").required(true)
-                        .help("specify the path of original data");
-                argumentParser.addArgument("-s", "--schema").required(true)
-                        .help("specify the name of database");
-                argumentParser.addArgument("-t", "--table").required(true)
-                        .help("Specify the name of table");
-                argumentParser.addArgument("-n", "--row_num").required(true)
-                        .help("Specify the max number of rows to write in a file");
-                argumentParser.addArgument("-r", "--row_regex").required(true)
-                        .help("Specify the split regex of each row in a file");
-                argumentParser.addArgument("-c", "--consumer_thread_num").setDefault("4").required(true)
-                        .help("specify the number of consumer threads used for data generation");
-                argumentParser.addArgument("-p", "--producer").setDefault(false)
-                        .help("specify the option of choosing producer");
-                argumentParser.addArgument("-e", "--enable_encoding").setDefault(true)
-                        .help("specify the option of enabling encoding or not");
-                argumentParser.addArgument("-l", "--loading_data_path")
-                        .help("specify the path of loading data");
-
-                Namespace ns = null;
-                try
-                {
-                    ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
-                } catch (ArgumentParserException e)
-                {
-                    argumentParser.handleError(e);
-                    System.out.println("Pixels Load.");
-                    System.exit(0);
-                }
-
-                try
-                {
-                    String format = ns.getString("format");
-                    String schemaName = ns.getString("schema");
-                    String tableName = ns.getString("table");
-                    String origin = ns.getString("original_data_path");
-                    int rowNum = Integer.parseInt(ns.getString("row_num"));
-                    String regex = ns.getString("row_regex");
-                    String loadingDataPath = ns.getString("loading_data_path");
-                    int threadNum = Integer.parseInt(ns.getString("consumer_thread_num"));
-                    boolean producer = Boolean.parseBoolean(ns.getString("producer"));
-                    boolean enableEncoding = Boolean.parseBoolean(ns.getString("enable_encoding"));
-                    System.out.println("enable encoding: " + enableEncoding);
-                    if (loadingDataPath != null && !loadingDataPath.isEmpty())
-                    {
-                        validateOrderOrCompactPath(loadingDataPath);
-                    }
+            if (client != null)
+            {
+                String[] words = inputStr.split("\\s+");
+                if (words[0].equalsIgnoreCase("CANCEL") && words.length == 2)
+                {
+                    client.cancel(words[1], System.out::println);
+                }
+                else
+                {
+                    client.execute(inputStr, System.out::println);
+                }
+            }
+            else
+            {
+                executeCommand(inputStr);
+            }
+        }
 
-                    if (!origin.endsWith("/"))
-                    {
-                        origin += "/";
-                    }
+        if (client != null)
+        {
+            try
+            {
+                client.close();
+            } catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
 
-                    Storage storage = StorageFactory.Instance().getStorage(origin);
+    /**
+     * Execute a command of the sink, the output of the command is printed to System.out and System.err.
+     * @param inputStr the command line without the trailing ';'
+     */
+    public static void executeCommand(String inputStr)
+    {
+        Config config = null;
+        String command = inputStr.trim().split("\\s+")[0].toUpperCase();
 
-                    if (format != null)
+        if (command.equals("LOAD"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL LOAD")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-f", "--format").required(true)
+                    .help("Specify the format of files");
+            argumentParser.addArgument("-o", "--original_data_path").required(true)
+                    .help("specify the path of original data");
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("specify the name of database");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("Specify the name of table");
+            argumentParser.addArgument("-n", "--row_num").required(true)
+                    .help("Specify the max number of rows to write in a file");
+            argumentParser.addArgument("-r", "--row_regex").required(true)
+                    .help("Specify the split regex of each row in a file");
+            argumentParser.addArgument("-c", "--consumer_thread_num").setDefault("4").required(true)
+                    .help("specify the number of consumer threads used for data generation");
+            argumentParser.addArgument("-p", "--producer").setDefault(false)
+                    .help("specify the option of choosing producer");
+            argumentParser.addArgument("-e", "--enable_encoding").setDefault(true)
+                    .help("specify the option of enabling encoding or not");
+            argumentParser.addArgument("-l", "--loading_data_path")
+                    .help("specify the path of loading data");
+            argumentParser.addArgument("--publish_stats").setDefault("none")
+                    .help("specify how to publish the statistics of the loaded files into metadata: " +
+                            "none, replace, or merge");
+            argumentParser.addArgument("--sketch_stats").setDefault(false)
+                    .help("specify whether to count the nulls and distinct values of the loaded rows " +
+                            "for the published statistics");
+            argumentParser.addArgument("--source_format").setDefault("text")
+                    .help("specify the format of the original data: text, or orc that is only loaded into " +
+                            "the pixels format, the columns of the orc files are in the column order of the table");
+            argumentParser.addArgument("--coordinator_port")
+                    .help("specify the port to coordinate the workers started by WORKER, " +
+                            "the files are loaded by the workers instead of this process if it is set");
+            argumentParser.addArgument("--split_size").setDefault("1024")
+                    .help("specify the target size (MB) of the files in a split assigned to a worker");
+            argumentParser.addArgument("--lease_timeout").setDefault("60")
+                    .help("specify the timeout (s) of the lease of a split, after which the split is reassigned");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels Load.");
+                return;
+            }
+
+            try
+            {
+                String format = ns.getString("format");
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String origin = ns.getString("original_data_path");
+                int rowNum = Integer.parseInt(ns.getString("row_num"));
+                String regex = ns.getString("row_regex");
+                String loadingDataPath = ns.getString("loading_data_path");
+                int threadNum = Integer.parseInt(ns.getString("consumer_thread_num"));
+                boolean producer = Boolean.parseBoolean(ns.getString("producer"));
+                boolean enableEncoding = Boolean.parseBoolean(ns.getString("enable_encoding"));
+                System.out.println("enable encoding: " + enableEncoding);
+                if (loadingDataPath != null && !loadingDataPath.isEmpty())
+                {
+                    validateOrderOrCompactPath(loadingDataPath);
+                }
+
+                if (!origin.endsWith("/"))
+                {
+                    origin += "/";
+                }
+
+                Storage storage = StorageFactory.Instance().getStorage(origin);
+
+                String sourceFormat = ns.getString("source_format");
+                if (!sourceFormat.equalsIgnoreCase("text") && !(sourceFormat.equalsIgnoreCase("orc") &&
+                        format.equalsIgnoreCase("pixels")))
+                {
+                    System.out.println("The source format '" + sourceFormat + "' can not be loaded into the '" +
+                            format + "' format.");
+                    return;
+                }
+
+                if (format != null)
+                {
+                    config = new Config(schemaName, tableName, rowNum, regex, format, loadingDataPath, enableEncoding);
+                    config.setSourceFormat(sourceFormat);
+                }
+
+                if (producer && config != null)
+                {
+                    // TODO: the producer option is true, means that the producer is dynamic
+                } else if (!producer && config != null)
+                {
+                    StatPublisher statPublisher = StatPublisher.create(ns.getString("publish_stats"),
+                            Boolean.parseBoolean(ns.getString("sketch_stats")));
+                    if (statPublisher != null && !format.equalsIgnoreCase("pixels"))
                     {
-                        config = new Config(schemaName, tableName, rowNum, regex, format, loadingDataPath, enableEncoding);
+                        System.out.println("Statistics are only published for the pixels format.");
+                        statPublisher = null;
                     }
 
-                    if (producer && config != null)
+                    if (ns.getString("coordinator_port") != null)
                     {
-                        // TODO: the producer option is true, means that the producer is dynamic
-                    } else if (!producer && config != null)
-                    {
-                        // source already exist, producer option is false, add list of source to the queue
-                        List<String> fileList = storage.listPaths(origin);
-                        BlockingQueue<String> fileQueue = new LinkedBlockingQueue<>(fileList.size());
-                        for (String filePath : fileList)
+                        if (!format.equalsIgnoreCase("pixels") || !sourceFormat.equalsIgnoreCase("text"))
                         {
-                            fileQueue.add(storage.ensureSchemePrefix(filePath));
+                            System.out.println("Distributed loading is only supported for the text files " +
+                                    "loaded into the pixels format.");
+                            return;
                         }
-
-                        ConsumerGenerator instance = ConsumerGenerator.getInstance(threadNum);
+                        List<String> paths = new ArrayList<>();
+                        List<Long> lengths = new ArrayList<>();
+                        for (Status status : storage.listStatus(origin))
+                        {
+                            paths.add(storage.ensureSchemePrefix(status.getPath()));
+                            lengths.add(status.getLength());
+                        }
+                        List<List<String>> splits = LoadCoordinator.groupFiles(paths, lengths,
+                                Long.parseLong(ns.getString("split_size")) * 1024L * 1024L);
+                        LoadCoordinator coordinator = new LoadCoordinator(splits,
+                                Long.parseLong(ns.getString("lease_timeout")) * 1000L, 3);
+                        LoadService.LoadSpec spec = new LoadService.LoadSpec(schemaName, tableName, rowNum, regex,
+                                loadingDataPath, enableEncoding);
+                        if (loadingDataPath == null)
+                        {
+                            // resolve the order path of the writable layout once for all the workers,
+                            // the coordinator lists it for the files of the retired attempts
+                            if (!config.load(ConfigFactory.Instance()))
+                            {
+                                System.out.println("Failed to resolve the loading data path of table '" +
+                                        schemaName + "." + tableName + "', there is no valid writable layout.");
+                                return;
+                            }
+                            spec.setLoadingDataPath(config.getPixelsPath());
+                        }
+                        System.out.println(paths.size() + " files are grouped into " + splits.size() + " splits.");
                         long startTime = System.currentTimeMillis();
 
-                        if (instance.startConsumer(fileQueue, config))
+                        if (coordinator.serve(Integer.parseInt(ns.getString("coordinator_port")), spec))
                         {
                             System.out.println("Executing command " + command + " successfully");
+                            if (statPublisher != null)
+                            {
+                                for (String file : coordinator.getLoadedFiles())
+                                {
+                                    statPublisher.addFile(StorageFactory.Instance().getStorage(file), file, null);
+                                }
+                                statPublisher.publish(schemaName, tableName);
+                            }
                         } else
                         {
                             System.out.println("Executing command " + command + " unsuccessfully when loading data");
                         }
 
                         long endTime = System.currentTimeMillis();
-                        System.out.println("Text files in '" + origin + "' are loaded into '" + format +
-                                "' format by " + threadNum + " threads in " + (endTime - startTime) / 1000 + "s.");
+                        System.out.println("Text files in '" + origin + "' are loaded into " +
+                                coordinator.getLoadedFiles().size() + " files by the workers in " +
+                                (endTime - startTime) / 1000 + "s.");
+                        return;
+                    }
+
+                    // source already exist, producer option is false, add list of source to the queue
+                    List<String> fileList = storage.listPaths(origin);
+                    BlockingQueue<String> fileQueue = new LinkedBlockingQueue<>(fileList.size());
+                    for (String filePath : fileList)
+                    {
+                        fileQueue.add(storage.ensureSchemePrefix(filePath));
+                    }
+                    ConsumerGenerator instance = new ConsumerGenerator(threadNum);
+                    long startTime = System.currentTimeMillis();
 
+                    if (instance.startConsumer(fileQueue, config, statPublisher))
+                    {
+                        System.out.println("Executing command " + command + " successfully");
+                        if (statPublisher != null)
+                        {
+                            statPublisher.publish(schemaName, tableName);
+                        }
                     } else
                     {
-                        System.out.println("Please input the producer option.");
+                        System.out.println("Executing command " + command + " unsuccessfully when loading data");
                     }
-                } catch (Exception e)
+
+                    long endTime = System.currentTimeMillis();
+                    System.out.println(sourceFormat + " files in '" + origin + "' are loaded into '" + format +
+                            "' format by " + threadNum + " threads in " + (endTime - startTime) / 1000 + "s.");
+
+                } else
                 {
-                    e.printStackTrace();
+                    System.out.println("Please input the producer option.");
                 }
+            } catch (Exception e)
+            {
+                e.printStackTrace();
             }
+        }
 
-            if (command.equals("QUERY"))
+        if (command.equals("QUERY"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels QUERY")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-t", "--type").required(true)
+                    .help("Specify the format of files");
+            argumentParser.addArgument("-w", "--workload").required(true)
+                    .help("specify the path of workload");
+            argumentParser.addArgument("-l", "--log").required(true)
+                    .help("Specify the path of log");
+            argumentParser.addArgument("-c", "--cache")
+                    .help("Specify the command of dropping cache");
+            argumentParser.addArgument("-n", "--clients").setDefault("0")
+                    .help("Specify the number of concurrent clients to replay the workload, " +
+                            "0 to run the queries one by one");
+            argumentParser.addArgument("-d", "--duration").setDefault("0")
+                    .help("Specify the duration (s) of the concurrent replay, " +
+                            "0 for each client to run the workload once");
+            argumentParser.addArgument("--summary")
+                    .help("Specify the csv file of the qps and latency percentiles of each query id, " +
+                            "or of the statistics of the repeated runs of each query if run one by one");
+            argumentParser.addArgument("--rate")
+                    .help("Specify the comma-separated arrival rates (queries per second) to issue the " +
+                            "queries in an open loop, each rate is run for the duration");
+            argumentParser.addArgument("--arrival").setDefault("poisson")
+                    .help("Specify the arrivals of the open loop: poisson or uniform");
+            argumentParser.addArgument("--max_in_flight").setDefault("64")
+                    .help("Specify the max number of running queries in the open loop, " +
+                            "more arrivals are queued up to the same number and then dropped");
+            argumentParser.addArgument("--seed").setDefault("0")
+                    .help("Specify the seed of the poisson arrivals");
+            argumentParser.addArgument("--warmup").setDefault("0")
+                    .help("Specify the number of unmeasured runs of each query before its measured runs");
+            argumentParser.addArgument("--repeat").setDefault("1")
+                    .help("Specify the number of measured runs of each query");
+            argumentParser.addArgument("--mode").setDefault("cold")
+                    .help("Specify cold to drop caches (or wait for the interval if no cache command " +
+                            "is given) before each measured run, or warm to run the queries back to back");
+            argumentParser.addArgument("--interval").setDefault("15000")
+                    .help("Specify the time (ms) to wait before each measured run in cold mode " +
+                            "if no cache command is given");
+            argumentParser.addArgument("--count_bytes").setDefault(false)
+                    .help("Specify whether to count the fetched bytes of each result, the values are " +
+                            "decoded for it and the decode time is excluded from the latency");
+            argumentParser.addArgument("--checksum").setDefault(false)
+                    .help("Specify whether to compute the row count and order-independent checksum of " +
+                            "each result, and to check that the results of the same query are the same");
+            argumentParser.addArgument("--expect")
+                    .help("Specify the log of an earlier run with the checksums (e.g., on the other " +
+                            "storage format) to check the results against, it implies --checksum");
+            argumentParser.addArgument("--warm_connections").setDefault("1")
+                    .help("Specify the number of connections of each user created and warmed up " +
+                            "before the queries, the connections are reused by the queries");
+
+            Namespace ns = null;
+            try
             {
-                ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels QUERY")
-                        .defaultHelp(true);
-
-                argumentParser.addArgument("-t", "--type").required(true)
-                        .help("Specify the format of files");
-                argumentParser.addArgument("-w", "--workload").required(true)
-                        .help("specify the path of workload");
-                argumentParser.addArgument("-l", "--log").required(true)
-                        .help("Specify the path of log");
-                argumentParser.addArgument("-c", "--cache")
-                        .help("Specify the command of dropping cache");
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels QUERY.");
+                return;
+            }
 
-                Namespace ns = null;
-                try
-                {
-                    ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
-                } catch (ArgumentParserException e)
-                {
-                    argumentParser.handleError(e);
-                    System.out.println("Pixels QUERY.");
-                    System.exit(0);
-                }
+            try
+            {
+                String type = ns.getString("type");
+                String workload = ns.getString("workload");
+                String log = ns.getString("log");
+                String cache = ns.getString("cache");
+                int numClients = Integer.parseInt(ns.getString("clients"));
 
-                try
+                if (type != null && workload != null && log != null)
                 {
-                    String type = ns.getString("type");
-                    String workload = ns.getString("workload");
-                    String log = ns.getString("log");
-                    String cache = ns.getString("cache");
+                    ConfigFactory instance = ConfigFactory.Instance();
+                    Properties properties = new Properties();
+                    // String user = instance.getProperty("presto.user");
+                    String password = instance.getProperty("presto.password");
+                    String ssl = instance.getProperty("presto.ssl");
+                    String jdbc = instance.getProperty("presto.pixels.jdbc.url");
+                    if (type.equalsIgnoreCase("orc"))
+                    {
+                        jdbc = instance.getProperty("presto.orc.jdbc.url");
+                    }
 
-                    if (type != null && workload != null && log != null)
+                    if (!password.equalsIgnoreCase("null"))
+                    {
+                        properties.setProperty("password", password);
+                    }
+                    properties.setProperty("SSL", ssl);
+
+                    String rates = ns.getString("rate");
+                    String summary = ns.getString("summary");
+                    List<Workload.Query> queries = Workload.load(workload);
+                    String expect = ns.getString("expect");
+                    boolean checksum = expect != null || Boolean.parseBoolean(ns.getString("checksum"));
+                    ResultValidator resultValidator = null;
+                    if (checksum)
                     {
-                        ConfigFactory instance = ConfigFactory.Instance();
-                        Properties properties = new Properties();
-                        // String user = instance.getProperty("presto.user");
-                        String password = instance.getProperty("presto.password");
-                        String ssl = instance.getProperty("presto.ssl");
-                        String jdbc = instance.getProperty("presto.pixels.jdbc.url");
-                        if (type.equalsIgnoreCase("orc"))
+                        resultValidator = new ResultValidator();
+                        if (expect != null)
                         {
-                            jdbc = instance.getProperty("presto.orc.jdbc.url");
+                            System.out.println(resultValidator.load(expect) +
+                                    " expected results are loaded from '" + expect + "'.");
                         }
-
-                        if (!password.equalsIgnoreCase("null"))
+                    }
+                    try (QueryExecutor queryExecutor = new QueryExecutor(jdbc, properties,
+                            Boolean.parseBoolean(ns.getString("count_bytes")), checksum);
+                         BufferedWriter timeWriter = new BufferedWriter(new FileWriter(log)))
+                    {
+                        QueryReplayer replayer = new QueryReplayer(queryExecutor, type + "_", queries,
+                                timeWriter, resultValidator);
+                        // connect before measuring, so that the connect time is not in the latencies
+                        replayer.warmup(Integer.parseInt(ns.getString("warm_connections")));
+                        if (rates != null)
                         {
-                            properties.setProperty("password", password);
+                            long duration = Long.parseLong(ns.getString("duration")) * 1000L;
+                            checkArgument(duration > 0, "duration is required by the open loop");
+                            boolean poisson = ns.getString("arrival").equalsIgnoreCase("poisson");
+                            int maxInFlight = Integer.parseInt(ns.getString("max_in_flight"));
+                            long seed = Long.parseLong(ns.getString("seed"));
+                            try (BufferedWriter summaryWriter = summary == null ? null :
+                                    new BufferedWriter(new FileWriter(summary)))
+                            {
+                                timeWriter.write("query id,id,duration(ms),scheduled(ms),started(ms)," +
+                                        QueryExecutor.QueryResult.CSV_HEADER + "\n");
+                                if (summaryWriter != null)
+                                {
+                                    summaryWriter.write(QueryReplayer.OpenLoopResult.getCsvHeader());
+                                }
+                                Double saturationRate = null;
+                                for (String rate : rates.split(","))
+                                {
+                                    QueryReplayer.OpenLoopResult result = replayer.runOpenLoop(
+                                            Double.parseDouble(rate), poisson, maxInFlight, duration, seed);
+                                    timeWriter.flush();
+                                    System.out.println(String.format("offered %s qps, achieved %.2f qps, " +
+                                                    "%d dropped, mean start delay %.1fms:", rate,
+                                            result.getAchievedRate(), result.getDropped(),
+                                            result.getStartDelays().getMean() / 1000.0));
+                                    result.getResponseTimes().print(result.getElapsedSeconds());
+                                    if (summaryWriter != null)
+                                    {
+                                        summaryWriter.write(result.toCsvLine());
+                                        summaryWriter.flush();
+                                    }
+                                    if (saturationRate == null && result.isSaturated())
+                                    {
+                                        saturationRate = result.getOfferedRate();
+                                    }
+                                }
+                                System.out.println(saturationRate == null ?
+                                        "Not saturated at the given rates." :
+                                        "Saturated at " + saturationRate + " qps.");
+                            }
                         }
-                        properties.setProperty("SSL", ssl);
-
-                        try (BufferedReader workloadReader = new BufferedReader(new FileReader(workload));
-                             BufferedWriter timeWriter = new BufferedWriter(new FileWriter(log)))
+                        else if (numClients > 0)
                         {
-                            timeWriter.write("query id,id,duration(ms)\n");
+                            timeWriter.write("query id,id,duration(ms),client," +
+                                    QueryExecutor.QueryResult.CSV_HEADER + "\n");
+                            long startTime = System.currentTimeMillis();
+                            LatencyRecorder recorder = replayer.runClosedLoop(numClients,
+                                    Long.parseLong(ns.getString("duration")) * 1000L);
+                            double elapsedSeconds = (System.currentTimeMillis() - startTime) / 1000.0;
                             timeWriter.flush();
-                            String line;
-                            int i = 0;
-                            String defaultUser = null;
-                            while ((line = workloadReader.readLine()) != null)
+                            System.out.println(queries.size() + " queries are replayed by " + numClients +
+                                    " clients in " + elapsedSeconds + "s.");
+                            recorder.print(elapsedSeconds);
+                            if (summary != null)
                             {
-                                if (!line.contains("SELECT"))
+                                try (BufferedWriter summaryWriter = new BufferedWriter(new FileWriter(summary)))
                                 {
-                                    defaultUser = line;
-                                    properties.setProperty("user", type + "_" + defaultUser);
-                                } else
+                                    recorder.writeSummary(summaryWriter, elapsedSeconds);
+                                }
+                            }
+                        }
+                        else
+                        {
+                            int warmup = Integer.parseInt(ns.getString("warmup"));
+                            int repeat = Integer.parseInt(ns.getString("repeat"));
+                            checkArgument(repeat > 0, "repeat must be positive");
+                            boolean cold = ns.getString("mode").equalsIgnoreCase("cold");
+                            long interval = Long.parseLong(ns.getString("interval"));
+                            timeWriter.write("query id,id,duration(ms)," +
+                                    QueryExecutor.QueryResult.CSV_HEADER + ",iteration,warmup\n");
+                            timeWriter.flush();
+                            try (BufferedWriter summaryWriter = summary == null ? null :
+                                    new BufferedWriter(new FileWriter(summary)))
+                            {
+                                if (summaryWriter != null)
                                 {
-                                    if (cache != null)
+                                    summaryWriter.write("query id,id,runs,errors,mean(ms),median(ms),stddev(ms)," +
+                                            "ci95 low(ms),ci95 high(ms),min(ms),max(ms)\n");
+                                }
+                                for (Workload.Query query : queries)
+                                {
+                                    List<Double> durations = new ArrayList<>(repeat);
+                                    int errors = 0;
+                                    // the warmup runs have negative iterations
+                                    for (int iteration = -warmup; iteration < repeat; ++iteration)
                                     {
-                                        long start = System.currentTimeMillis();
-                                        ProcessBuilder processBuilder = new ProcessBuilder(cache);
-                                        Process process = processBuilder.start();
-                                        process.waitFor();
-                                        Thread.sleep(1000);
-                                        System.out.println("clear cache: " + (System.currentTimeMillis() - start) + "ms\n");
+                                        boolean measured = iteration >= 0;
+                                        if (cold && measured)
+                                        {
+                                            long start = System.currentTimeMillis();
+                                            if (cache != null)
+                                            {
+                                                ProcessBuilder processBuilder = new ProcessBuilder(cache);
+                                                Process process = processBuilder.start();
+                                                process.waitFor();
+                                                Thread.sleep(1000);
+                                                System.out.println("clear cache: " +
+                                                        (System.currentTimeMillis() - start) + "ms\n");
+                                            }
+                                            else if (interval > 0)
+                                            {
+                                                Thread.sleep(interval);
+                                                System.out.println("wait " + interval + " ms\n");
+                                            }
+                                        }
+
+                                        QueryExecutor.QueryResult result = replayer.execute(query);
+                                        long cost = result.getTotalNanos() / 1000000;
+                                        timeWriter.write(query.getQueryId() + "," + query.getId() + "," +
+                                                cost + "," + result.toCsv() + "," + iteration + "," +
+                                                !measured + "\n");
+                                        System.out.println(query.getId() + (measured ? "" : " (warmup)") +
+                                                "," + cost + "ms, first row " +
+                                                result.getFirstRowNanos() / 1000000 + "ms, " +
+                                                result.getRows() + " rows" +
+                                                (result.getServerStats() == null ? "" : ", server cpu " +
+                                                        result.getServerStats().getCpuTimeMillis() + "ms, " +
+                                                        result.getServerStats().getProcessedBytes() +
+                                                        " bytes processed"));
+                                        if (measured)
+                                        {
+                                            if (result.isFailed())
+                                            {
+                                                errors++;
+                                            }
+                                            else
+                                            {
+                                                durations.add(result.getTotalNanos() / 1e6);
+                                            }
+                                        }
                                     }
-                                    else
+                                    timeWriter.flush();
+                                    if (durations.isEmpty())
                                     {
-                                        Thread.sleep(15 * 1000);
-                                        System.out.println("wait 15000 ms\n");
+                                        continue;
                                     }
-
-                                    long cost = executeSQL(jdbc, properties, line, defaultUser);
-                                    timeWriter.write(defaultUser + "," + i + "," + cost + "\n");
-
-                                    System.out.println(i + "," + cost + "ms");
-                                    i++;
-                                    if (i % 10 == 0)
+                                    SampleStatistics statistics = new SampleStatistics(durations);
+                                    double[] interval95 = statistics.getConfidenceInterval();
+                                    System.out.println(String.format("%s (%d): %d runs, mean %.1fms, " +
+                                                    "median %.1fms, stddev %.1fms, 95%% CI [%.1f, %.1f]ms",
+                                            query.getQueryId(), query.getId(), statistics.getCount(),
+                                            statistics.getMean(), statistics.getMedian(),
+                                            statistics.getStddev(), interval95[0], interval95[1]));
+                                    if (summaryWriter != null)
                                     {
-                                        timeWriter.flush();
-                                        System.out.println(i);
+                                        summaryWriter.write(String.format(
+                                                "%s,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n",
+                                                query.getQueryId(), query.getId(), statistics.getCount(),
+                                                errors, statistics.getMean(), statistics.getMedian(),
+                                                statistics.getStddev(), interval95[0], interval95[1],
+                                                statistics.getMin(), statistics.getMax()));
+                                        summaryWriter.flush();
                                     }
-
                                 }
                             }
-                            timeWriter.flush();
-                        } catch (Exception e)
+                        }
+                        timeWriter.flush();
+                        if (resultValidator != null)
                         {
-                            e.printStackTrace();
+                            System.out.println(resultValidator.getNumChecked() + " results are checked, " +
+                                    resultValidator.getNumMismatches() + " mismatches.");
                         }
-                    } else
+                    } catch (Exception e)
                     {
-                        System.out.println("Please input the parameters.");
+                        e.printStackTrace();
                     }
-                } catch (Exception e)
+                } else
                 {
-                    e.printStackTrace();
+                    System.out.println("Please input the parameters.");
                 }
+            } catch (Exception e)
+            {
+                e.printStackTrace();
             }
+        }
 
-            if (command.equals("COPY"))
+        if (command.equals("COPY"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL COPY")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-p", "--postfix").required(true)
+                    .help("Specify the postfix of files to be copied");
+            argumentParser.addArgument("-s", "--source").required(true)
+                    .help("specify the source directory");
+            argumentParser.addArgument("-d", "--destination").required(true)
+                    .help("Specify the destination directory");
+            argumentParser.addArgument("-n", "--number").required(true)
+                    .help("Specify the number of copies");
+            argumentParser.addArgument("-c", "--concurrency")
+                    .setDefault("4").required(true)
+                    .help("specify the number of threads used for data compaction");
+
+            Namespace ns = null;
+            try
             {
-                ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL COPY")
-                        .defaultHelp(true);
-
-                argumentParser.addArgument("-p", "--postfix").required(true)
-                        .help("Specify the postfix of files to be copied");
-                argumentParser.addArgument("-s", "--source").required(true)
-                        .help("specify the source directory");
-                argumentParser.addArgument("-d", "--destination").required(true)
-                        .help("Specify the destination directory");
-                argumentParser.addArgument("-n", "--number").required(true)
-                        .help("Specify the number of copies");
-                argumentParser.addArgument("-c", "--concurrency")
-                        .setDefault("4").required(true)
-                        .help("specify the number of threads used for data compaction");
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels COPY.");
+                return;
+            }
 
-                Namespace ns = null;
-                try
-                {
-                    ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
-                } catch (ArgumentParserException e)
+            try
+            {
+                String postfix = ns.getString("postfix");
+                String source = ns.getString("source");
+                String destination = ns.getString("destination");
+                int n = Integer.parseInt(ns.getString("number"));
+                int threadNum = Integer.parseInt(ns.getString("concurrency"));
+                SharedThreadPool.TaskGroup copyTasks = SharedThreadPool.newTaskGroup(threadNum);
+
+                if (!destination.endsWith("/"))
                 {
-                    argumentParser.handleError(e);
-                    System.out.println("Pixels COPY.");
-                    System.exit(0);
+                    destination += "/";
                 }
 
-                try
-                {
-                    String postfix = ns.getString("postfix");
-                    String source = ns.getString("source");
-                    String destination = ns.getString("destination");
-                    int n = Integer.parseInt(ns.getString("number"));
-                    int threadNum = Integer.parseInt(ns.getString("concurrency"));
-                    ExecutorService copyExecutor = Executors.newFixedThreadPool(threadNum);
-
-                    if (!destination.endsWith("/"))
-                    {
-                        destination += "/";
-                    }
+                ConfigFactory configFactory = ConfigFactory.Instance();
 
-                    ConfigFactory configFactory = ConfigFactory.Instance();
+                Storage sourceStorage = StorageFactory.Instance().getStorage(source);
+                Storage destStorage = StorageFactory.Instance().getStorage(destination);
 
-                    Storage sourceStorage = StorageFactory.Instance().getStorage(source);
-                    Storage destStorage = StorageFactory.Instance().getStorage(destination);
+                List<Status> files =  sourceStorage.listStatus(source);
+                long blockSize = Long.parseLong(configFactory.getProperty("block.size"));
+                short replication = Short.parseShort(configFactory.getProperty("block.replication"));
 
-                    List<Status> files =  sourceStorage.listStatus(source);
-                    long blockSize = Long.parseLong(configFactory.getProperty("block.size"));
-                    short replication = Short.parseShort(configFactory.getProperty("block.replication"));
-
-                    // copy
-                    long startTime = System.currentTimeMillis();
-                    AtomicInteger copiedNum = new AtomicInteger(0);
-                    for (int i = 0; i < n; ++i)
+                // copy
+                long startTime = System.currentTimeMillis();
+                AtomicInteger copiedNum = new AtomicInteger(0);
+                for (int i = 0; i < n; ++i)
+                {
+                    String destination_ = destination;
+                    // Issue #192: make copy multi-threaded.
+                    for (Status s : files)
                     {
-                        String destination_ = destination;
-                        // Issue #192: make copy multi-threaded.
-                        for (Status s : files)
+                        String sourceName = s.getName();
+                        if (!sourceName.contains(postfix))
                         {
-                            String sourceName = s.getName();
-                            if (!sourceName.contains(postfix))
+                            continue;
+                        }
+                        String destPath = destination_ +
+                                sourceName.substring(0, sourceName.indexOf(postfix)) +
+                                "_copy_" + DateUtil.getCurTime() + postfix;
+                        copyTasks.execute(() -> {
+                            try
                             {
-                                continue;
-                            }
-                            String destPath = destination_ +
-                                    sourceName.substring(0, sourceName.indexOf(postfix)) +
-                                    "_copy_" + DateUtil.getCurTime() + postfix;
-                            copyExecutor.execute(() -> {
-                                try
+                                if (sourceStorage.getScheme() == destStorage.getScheme() &&
+                                        destStorage.supportDirectCopy())
                                 {
-                                    if (sourceStorage.getScheme() == destStorage.getScheme() &&
-                                            destStorage.supportDirectCopy())
-                                    {
-                                        destStorage.directCopy(s.getPath(), destPath);
-                                    } else
-                                    {
-                                        DataInputStream inputStream = sourceStorage.open(s.getPath());
-                                        DataOutputStream outputStream = destStorage.create(destPath, false,
-                                                Constants.HDFS_BUFFER_SIZE, replication, blockSize);
-                                        IOUtils.copyBytes(inputStream, outputStream,
-                                                Constants.HDFS_BUFFER_SIZE, true);
-                                    }
-                                    copiedNum.incrementAndGet();
-                                } catch (IOException e)
+                                    destStorage.directCopy(s.getPath(), destPath);
+                                } else
                                 {
-                                    e.printStackTrace();
+                                    DataInputStream inputStream = sourceStorage.open(s.getPath());
+                                    DataOutputStream outputStream = destStorage.create(destPath, false,
+                                            Constants.HDFS_BUFFER_SIZE, replication, blockSize);
+                                    IOUtils.copyBytes(inputStream, outputStream,
+                                            Constants.HDFS_BUFFER_SIZE, true);
                                 }
-                            });
-                        }
+                                copiedNum.incrementAndGet();
+                            } catch (IOException e)
+                            {
+                                e.printStackTrace();
+                            }
+                        });
                     }
+                }
 
-                    copyExecutor.shutdown();
-                    while (!copyExecutor.awaitTermination(100, TimeUnit.SECONDS));
+                copyTasks.awaitAll();
 
-                    long endTime = System.currentTimeMillis();
-                    System.out.println((copiedNum.get()/n) + " file(s) are copied " + n + " time(s) by "
-                            + threadNum + " threads in " + (endTime - startTime) / 1000 + "s.");
-                }
-                catch (IOException | InterruptedException e)
-                {
-                    e.printStackTrace();
-                }
+                long endTime = System.currentTimeMillis();
+                System.out.println((copiedNum.get()/n) + " file(s) are copied " + n + " time(s) by "
+                        + threadNum + " threads in " + (endTime - startTime) / 1000 + "s.");
             }
+            catch (IOException | InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
 
-            if (command.equals("COMPACT"))
+        if (command.equals("COMPACT"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL COMPACT")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("Specify the name of schema.");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("specify the name of table.");
+            argumentParser.addArgument("-n", "--naive").required(true)
+                    .help("Specify whether or not to create naive compact layout.");
+            argumentParser.addArgument("-c", "--concurrency")
+                    .setDefault("4").required(true)
+                    .help("specify the number of threads used for data compaction");
+            argumentParser.addArgument("-z", "--target_size").setDefault("0")
+                    .help("specify the target size (MB) of each compact file, 0 for no size target");
+            argumentParser.addArgument("-b", "--bandwidth").setDefault("0")
+                    .help("specify the max size (MB) read from and written to the storage per second " +
+                            "by compaction, 0 for no limit. Without a limit or clustering, the compact files " +
+                            "are written directly into the compact path, otherwise they are built in spill_dir");
+            argumentParser.addArgument("-f", "--prefetch").setDefault("16")
+                    .help("specify the number of threads used for prefetching the footers of order files");
+            argumentParser.addArgument("-l", "--layout_file")
+                    .help("specify the json file of the compact layout built by LAYOUT, " +
+                            "instead of the one in metadata");
+            argumentParser.addArgument("-r", "--range_column")
+                    .help("specify the column to group the order files by their min/max values of");
+            argumentParser.addArgument("-k", "--cluster_by")
+                    .help("specify the comma-separated columns to sort the rows by before compaction");
+            argumentParser.addArgument("-m", "--cluster_mode").setDefault("key")
+                    .help("specify the order of the rows by the cluster columns: key, zorder, or hilbert");
+            argumentParser.addArgument("--sort_buffer").setDefault("4000000")
+                    .help("specify the max number of rows sorted in memory, more rows are spilled to disk");
+            argumentParser.addArgument("--spill_dir").setDefault(System.getProperty("java.io.tmpdir"))
+                    .help("specify the local directory to build the compact files, and for the staged, " +
+                            "spilled, and sorted files");
+            argumentParser.addArgument("-d", "--daemon").setDefault(false)
+                    .help("specify whether to keep compacting the newly landed order files");
+            argumentParser.addArgument("--state_file")
+                    .help("specify the local file to record the compacted order files, required by daemon");
+            argumentParser.addArgument("--interval").setDefault("60")
+                    .help("specify the interval (s) between two polls of the order path in daemon");
+            argumentParser.addArgument("--max_wait").setDefault("600")
+                    .help("specify the max time (s) an order file waits to fill a compact file in daemon");
+            argumentParser.addArgument("--publish_stats").setDefault("none")
+                    .help("specify how to publish the statistics of the compact files into metadata: " +
+                            "none, replace, or merge, not supported by daemon");
+            argumentParser.addArgument("--sketch_stats").setDefault(false)
+                    .help("specify whether to count the nulls and distinct values of the compacted rows " +
+                            "for the published statistics");
+
+            Namespace ns = null;
+            try
             {
-                ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels ETL COMPACT")
-                        .defaultHelp(true);
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels Compact.");
+                return;
+            }
 
-                argumentParser.addArgument("-s", "--schema").required(true)
-                        .help("Specify the name of schema.");
-                argumentParser.addArgument("-t", "--table").required(true)
-                        .help("specify the name of table.");
-                argumentParser.addArgument("-n", "--naive").required(true)
-                        .help("Specify whether or not to create naive compact layout.");
-                argumentParser.addArgument("-c", "--concurrency")
-                        .setDefault("4").required(true)
-                        .help("specify the number of threads used for data compaction");
+            try
+            {
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String naive = ns.getString("naive");
+                int threadNum = Integer.parseInt(ns.getString("concurrency"));
+                long targetSize = Long.parseLong(ns.getString("target_size")) * 1024L * 1024L;
+                long bandwidth = Long.parseLong(ns.getString("bandwidth")) * 1024L * 1024L;
+                boolean daemon = Boolean.parseBoolean(ns.getString("daemon"));
+                int prefetchParallelism = Integer.parseInt(ns.getString("prefetch"));
+
+                String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+                int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+
+                // get compact layout
+                MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+                List<Layout> layouts = metadataService.getLayouts(schemaName, tableName);
+                metadataService.shutdown();
+                System.out.println("existing number of layouts: " + layouts.size());
+                Layout layout = null;
+                for (Layout layout1 : layouts)
+                {
+                    if (layout1.isWritable())
+                    {
+                        layout = layout1;
+                        break;
+                    }
+                }
 
-                Namespace ns = null;
-                try
+                requireNonNull(layout, String.format("writable layout is not found for table '%s.%s'.",
+                        schemaName, tableName));
+                boolean isNaive = naive.equalsIgnoreCase("yes") || naive.equalsIgnoreCase("y");
+                ClusteringCompactor clusteringCompactor = null;
+                String clusterBy = ns.getString("cluster_by");
+                if (clusterBy != null && !clusterBy.isEmpty())
                 {
-                    ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
-                } catch (ArgumentParserException e)
+                    clusteringCompactor = new ClusteringCompactor(Arrays.asList(clusterBy.split(",")),
+                            ClusteringCompactor.Mode.from(ns.getString("cluster_mode")),
+                            Long.parseLong(ns.getString("sort_buffer")), ns.getString("spill_dir"));
+                }
+                Compact compact = layout.getCompactObject();
+                String layoutFile = ns.getString("layout_file");
+                if (layoutFile != null)
+                {
+                    compact = JSON.parseObject(new String(Files.readAllBytes(Paths.get(layoutFile)),
+                            StandardCharsets.UTF_8), Compact.class);
+                    checkArgument(compact.getNumColumn() == layout.getCompactObject().getNumColumn(),
+                            "the number of columns in the layout file is not consistent with the table");
+                }
+                StatPublisher statPublisher = StatPublisher.create(ns.getString("publish_stats"),
+                        Boolean.parseBoolean(ns.getString("sketch_stats")));
+                if (statPublisher != null && daemon)
                 {
-                    argumentParser.handleError(e);
-                    System.out.println("Pixels Compact.");
-                    System.exit(0);
+                    System.out.println("Statistics are not published by the compaction daemon.");
+                    statPublisher = null;
                 }
+                CompactRunner compactRunner = new CompactRunner(layout, compact, isNaive, threadNum,
+                        bandwidth, clusteringCompactor, statPublisher, ns.getString("spill_dir"));
 
-                try
+                if (daemon)
                 {
-                    String schemaName = ns.getString("schema");
-                    String tableName = ns.getString("table");
-                    String naive = ns.getString("naive");
-                    int threadNum = Integer.parseInt(ns.getString("concurrency"));
-                    ExecutorService compactExecutor = Executors.newFixedThreadPool(threadNum);
+                    String stateFile = ns.getString("state_file");
+                    requireNonNull(stateFile, "state file is required by the compaction daemon");
+                    long interval = Long.parseLong(ns.getString("interval")) * 1000L;
+                    long maxWait = Long.parseLong(ns.getString("max_wait")) * 1000L;
+                    System.out.println("Compaction daemon is started on '" + layout.getOrderPath() + "'.");
+                    CompactDaemon compactDaemon = new CompactDaemon(compactRunner, layout.getOrderPath(),
+                            stateFile, targetSize, interval, maxWait, prefetchParallelism,
+                            ns.getString("range_column"));
+                    try
+                    {
+                        compactDaemon.run();
+                    } catch (InterruptedException e)
+                    {
+                        // the job is cancelled, the interrupted compactions are recovered when the daemon restarts
+                        compactRunner.cancel();
+                        System.out.println("Compaction daemon is stopped on '" + layout.getOrderPath() + "'.");
+                    } finally
+                    {
+                        compactRunner.shutdown();
+                    }
+                    return;
+                }
 
-                    String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
-                    int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+                // get input file paths, and prefetch the footers to get the number of row groups in each file
+                List<Status> statuses = compactRunner.getOrderStorage().listStatus(layout.getOrderPath());
+                String rangeColumn = ns.getString("range_column");
+                List<CompactPlanner.SourceFile> sourceFiles = CompactPlanner.getSourceFiles(
+                        compactRunner.getOrderStorage(), statuses, rangeColumn, prefetchParallelism);
+                List<List<CompactPlanner.SourceFile>> groups;
+                if (rangeColumn != null)
+                {
+                    // keep the min/max statistics of the compact files tight on the range column
+                    groups = CompactPlanner.groupByRange(
+                            sourceFiles, targetSize, compactRunner.getNumRowGroupInBlock());
+                }
+                else
+                {
+                    groups = CompactPlanner.binPack(
+                            sourceFiles, targetSize, compactRunner.getNumRowGroupInBlock());
+                }
 
-                    // get compact layout
-                    MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
-                    List<Layout> layouts = metadataService.getLayouts(schemaName, tableName);
-                    metadataService.shutdown();
-                    System.out.println("existing number of layouts: " + layouts.size());
+                // compact
+                long startTime = System.currentTimeMillis();
+                for (int thdId = 0; thdId < groups.size(); ++thdId)
+                {
+                    compactRunner.submit(thdId, groups.get(thdId));
+                }
+                compactRunner.shutdown();
+
+                long endTime = System.currentTimeMillis();
+                System.out.println("Pixels files in '" + layout.getOrderPath() + "' are compacted into '" +
+                        layout.getCompactPath() + "' by " + threadNum + " threads in " +
+                        (endTime - startTime) / 1000 + "s.");
+                if (statPublisher != null)
+                {
+                    statPublisher.publish(schemaName, tableName);
+                }
+            }
+            catch (MetadataException | IOException | InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        if (command.equals("LAYOUT"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels LAYOUT")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("Specify the name of schema.");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("specify the name of table.");
+            argumentParser.addArgument("-w", "--workload").required(true)
+                    .help("specify the path of workload, in the format of QUERY");
+            argumentParser.addArgument("-l", "--log")
+                    .help("specify the duration log of the workload written by QUERY, " +
+                            "the queries are equally weighted if it is absent");
+            argumentParser.addArgument("-o", "--output").required(true)
+                    .help("specify the path of the json file to write the compact layout");
+            argumentParser.addArgument("-r", "--row_groups")
+                    .help("specify the number of row groups in a compact file, " +
+                            "default is the one in the current compact layout");
+            argumentParser.addArgument("-z", "--cache_size").setDefault("0")
+                    .help("specify the max size (MB) of the cached column chunks in a compact file");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels LAYOUT.");
+                return;
+            }
+
+            try
+            {
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String workload = ns.getString("workload");
+                String log = ns.getString("log");
+                String output = ns.getString("output");
+                long cacheSize = Long.parseLong(ns.getString("cache_size")) * 1024L * 1024L;
+
+                String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+                int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+                MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+                List<Column> columns = metadataService.getColumns(schemaName, tableName, false);
+                int numRowGroupInBlock;
+                if (ns.getString("row_groups") != null)
+                {
+                    numRowGroupInBlock = Integer.parseInt(ns.getString("row_groups"));
+                }
+                else
+                {
                     Layout layout = null;
-                    for (Layout layout1 : layouts)
+                    for (Layout layout1 : metadataService.getLayouts(schemaName, tableName))
                     {
                         if (layout1.isWritable())
                         {
@@ -499,253 +1131,245 @@ public class Main
                             break;
                         }
                     }
-
                     requireNonNull(layout, String.format("writable layout is not found for table '%s.%s'.",
                             schemaName, tableName));
-                    Compact compact = layout.getCompactObject();
-                    int numRowGroupInBlock = compact.getNumRowGroupInBlock();
-                    int numColumn = compact.getNumColumn();
-                    CompactLayout compactLayout;
-                    if (naive.equalsIgnoreCase("yes") || naive.equalsIgnoreCase("y"))
-                    {
-                        compactLayout = CompactLayout.buildNaive(numRowGroupInBlock, numColumn);
-                    }
-                    else
-                    {
-                        compactLayout = CompactLayout.fromCompact(compact);
-                    }
-
-                    // get input file paths
-                    ConfigFactory configFactory = ConfigFactory.Instance();
-                    validateOrderOrCompactPath(layout.getOrderPath());
-                    validateOrderOrCompactPath(layout.getCompactPath());
-                    // PIXELS-399: it is not a problem if the order or compact path contains multiple directories
-                    Storage orderStorage = StorageFactory.Instance().getStorage(layout.getOrderPath());
-                    Storage compactStorage = StorageFactory.Instance().getStorage(layout.getCompactPath());
-                    long blockSize = Long.parseLong(configFactory.getProperty("block.size"));
-                    short replication = Short.parseShort(configFactory.getProperty("block.replication"));
-                    List<Status> statuses = orderStorage.listStatus(layout.getOrderPath());
-                    String[] targetPaths = layout.getCompactPath().split(";");
-                    int targetPathId = 0;
-
-                    // compact
-                    long startTime = System.currentTimeMillis();
-                    for (int i = 0, thdId = 0; i < statuses.size(); i += numRowGroupInBlock, ++thdId)
-                    {
-                        if (i + numRowGroupInBlock > statuses.size())
-                        {
-                            /**
-                             * Issue #160:
-                             * Compact the tail files that can not fulfill the compactLayout
-                             * defined in the metadata.
-                             * Note that if (i + numRowGroupInBlock == statues.size()),
-                             * then the remaining files are not tail files.
-                             *
-                             * Here we set numRowGroupInBlock to the number of tail files,
-                             * and rebuild a pure compactLayout for the tail files as the
-                             * compactLayout in metadata does not work for the tail files.
-                             */
-                            numRowGroupInBlock = statuses.size() - i;
-                            compactLayout = CompactLayout.buildPure(numRowGroupInBlock, numColumn);
-                        }
-
-                        List<String> sourcePaths = new ArrayList<>();
-                        for (int j = 0; j < numRowGroupInBlock; ++j)
-                        {
-                            if (!statuses.get(i+j).getPath().endsWith("/"))
-                            {
-                                sourcePaths.add(statuses.get(i + j).getPath());
-                            }
-                        }
-
-                        String targetPath = targetPaths[targetPathId++];
-                        targetPathId %= targetPaths.length;
-                        if (!targetPath.endsWith("/"))
-                        {
-                            targetPath += "/";
-                        }
-                        String filePath = targetPath + DateUtil.getCurTime() + "_compact.pxl";
-
-                        System.out.println("(" + thdId + ") " + sourcePaths.size() +
-                                " ordered files to be compacted into '" + filePath + "'.");
-
-                        PixelsCompactor.Builder compactorBuilder =
-                                PixelsCompactor.newBuilder()
-                                        .setSourcePaths(sourcePaths)
-                                        /**
-                                         * Issue #192:
-                                         * No need to deep copy compactLayout as it is never modified in-place
-                                         * (e.g., call setters to change some members). Thus it is safe to use
-                                         * the current reference of compactLayout even if the compactors will
-                                         * be running multiple threads.
-                                         *
-                                         * Deep copy it if it is in-place modified in the future.
-                                         */
-                                        .setCompactLayout(compactLayout)
-                                        .setInputStorage(orderStorage)
-                                        .setOutputStorage(compactStorage)
-                                        .setPath(filePath)
-                                        .setBlockSize(blockSize)
-                                        .setReplication(replication)
-                                        .setBlockPadding(false);
-
-                        long threadStart = System.currentTimeMillis();
-                        String finalFilePath = filePath;
-                        compactExecutor.execute(() -> {
-                            // Issue #192: run compaction in threads.
-                            try
-                            {
-                                // build() spends some time to read file footers and should be called inside sub-thread.
-                                PixelsCompactor pixelsCompactor = compactorBuilder.build();
-                                pixelsCompactor.compact();
-                                pixelsCompactor.close();
-                            } catch (IOException e)
-                            {
-                                e.printStackTrace();
-                            }
-                            System.out.println("Compact file '" + finalFilePath + "' is built in " +
-                                    ((System.currentTimeMillis() - threadStart) / 1000.0) + "s");
-                        });
-                    }
-
-                    // Issue #192: wait for the compaction to complete.
-                    compactExecutor.shutdown();
-                    while (!compactExecutor.awaitTermination(100, TimeUnit.SECONDS));
+                    numRowGroupInBlock = layout.getCompactObject().getNumRowGroupInBlock();
+                }
+                metadataService.shutdown();
 
-                    long endTime = System.currentTimeMillis();
-                    System.out.println("Pixels files in '" + layout.getOrderPath() + "' are compacted into '" +
-                            layout.getCompactPath() + "' by " + threadNum + " threads in " +
-                            (endTime - startTime) / 1000 + "s.");
+                // the chunk sizes are collected by STAT, the columns are equally sized if STAT is never run.
+                List<String> columnNames = new ArrayList<>(columns.size());
+                double[] chunkSizes = new double[columns.size()];
+                for (int i = 0; i < columns.size(); ++i)
+                {
+                    columnNames.add(columns.get(i).getName());
+                    chunkSizes[i] = columns.get(i).getChunkSize();
                 }
-                catch (MetadataException | IOException | InterruptedException e)
+                LayoutOptimizer optimizer = new LayoutOptimizer(tableName, columnNames, chunkSizes);
+                int numQueries = optimizer.addWorkload(workload, log);
+                int[] order = optimizer.optimize(cacheSize / (double) numRowGroupInBlock);
+                Compact compact = optimizer.buildCompact(
+                        order, optimizer.getNumCachedColumns(), numRowGroupInBlock);
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(output)))
                 {
-                    e.printStackTrace();
+                    writer.write(JSON.toJSONString(compact));
                 }
+                System.out.println(numQueries + " queries on '" + schemaName + "." + tableName +
+                        "' are analyzed, column order: " + optimizer.getColumnNames(order) + ", " +
+                        optimizer.getNumCachedColumns() + " columns are cached.");
+                System.out.println("Compact layout is written into '" + output + "'.");
             }
-
-            if (command.equals("STAT"))
+            catch (MetadataException | IOException e)
             {
-                ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Update Statistics")
-                        .defaultHelp(true);
-
-                argumentParser.addArgument("-s", "--schema").required(true)
-                        .help("Specify the schema name");
-                argumentParser.addArgument("-t", "--table").required(true)
-                        .help("Specify the table name");
-                argumentParser.addArgument("-o", "--ordered_enabled").setDefault(false)
-                        .help("Specify whether the ordered path is enabled");
-                argumentParser.addArgument("-c", "--compact_enabled").setDefault(true)
-                        .help("Specify whether the compact path is enabled");
+                e.printStackTrace();
+            }
+        }
 
-                Namespace ns = null;
-                try
-                {
-                    ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
-                } catch (ArgumentParserException e)
-                {
-                    argumentParser.handleError(e);
-                    System.out.println("Pixels STAT.");
-                    System.exit(0);
-                }
+        if (command.equals("STAT"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Update Statistics")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("Specify the schema name");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("Specify the table name");
+            argumentParser.addArgument("-o", "--ordered_enabled").setDefault(false)
+                    .help("Specify whether the ordered path is enabled");
+            argumentParser.addArgument("-c", "--compact_enabled").setDefault(true)
+                    .help("Specify whether the compact path is enabled");
+            argumentParser.addArgument("-p", "--parallelism").setDefault("16")
+                    .help("Specify the number of threads used for reading the files");
+            argumentParser.addArgument("--cache_file")
+                    .help("Specify the local file to cache the statistics of the files, " +
+                            "so that only the new or changed files are read, it can not be used with --sample");
+            argumentParser.addArgument("--sample").setDefault("1")
+                    .help("Specify the fraction of files to read, the statistics are extrapolated " +
+                            "if it is less than 1");
+            argumentParser.addArgument("--seed").setDefault("0")
+                    .help("Specify the seed of sampling the files");
+            argumentParser.addArgument("--sql").setDefault(false)
+                    .help("Specify whether to get the cardinality and null fraction by SQL queries " +
+                            "instead of reading the files");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels STAT.");
+                return;
+            }
 
-                try
+            try
+            {
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                boolean orderedEnabled = Boolean.parseBoolean(ns.getString("ordered_enabled"));
+                boolean compactEnabled = Boolean.parseBoolean(ns.getString("compact_enabled"));
+                int parallelism = Integer.parseInt(ns.getString("parallelism"));
+                boolean useSql = Boolean.parseBoolean(ns.getString("sql"));
+                String cacheFile = ns.getString("cache_file");
+                double sampleFraction = Double.parseDouble(ns.getString("sample"));
+                // the cache holds the statistics of all the files, a sampled scan neither reads nor fills it
+                checkArgument(cacheFile == null || sampleFraction == 1, "cache_file can not be used with sample < 1");
+
+                String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+                int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+                MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+                List<Layout> layouts = metadataService.getLayouts(schemaName, tableName);
+                List<Status> files = new ArrayList<>();
+                for (Layout layout : layouts)
                 {
-                    String schemaName = ns.getString("schema");
-                    String tableName = ns.getString("table");
-                    boolean orderedEnabled = Boolean.parseBoolean(ns.getString("ordered_enabled"));
-                    boolean compactEnabled = Boolean.parseBoolean(ns.getString("compact_enabled"));
-
-                    String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
-                    int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
-                    MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
-                    List<Layout> layouts = metadataService.getLayouts(schemaName, tableName);
-                    List<String> files = new LinkedList<>();
-                    for (Layout layout : layouts)
+                    if (layout.isReadable())
                     {
-                        if (layout.isReadable())
+                        if (orderedEnabled)
                         {
-                            if (orderedEnabled)
-                            {
-                                String orderedPath = layout.getOrderPath();
-                                validateOrderOrCompactPath(orderedPath);
-                                Storage storage = StorageFactory.Instance().getStorage(orderedPath);
-                                files.addAll(storage.listPaths(orderedPath));
-                            }
-                            if (compactEnabled)
-                            {
-                                String compactPath = layout.getCompactPath();
-                                validateOrderOrCompactPath(compactPath);
-                                Storage storage = StorageFactory.Instance().getStorage(compactPath);
-                                files.addAll(storage.listPaths(compactPath));
-                            }
+                            String orderedPath = layout.getOrderPath();
+                            validateOrderOrCompactPath(orderedPath);
+                            Storage storage = StorageFactory.Instance().getStorage(orderedPath);
+                            files.addAll(storage.listStatus(orderedPath));
+                        }
+                        if (compactEnabled)
+                        {
+                            String compactPath = layout.getCompactPath();
+                            validateOrderOrCompactPath(compactPath);
+                            Storage storage = StorageFactory.Instance().getStorage(compactPath);
+                            files.addAll(storage.listStatus(compactPath));
                         }
                     }
+                }
 
-                    // get the statistics.
-                    long startTime = System.currentTimeMillis();
-
-                    List<Column> columns = metadataService.getColumns(schemaName, tableName, true);
-                    Map<String, Column> columnMap = new HashMap<>(columns.size());
-                    Map<String, StatsRecorder> columnStatsMap = new HashMap<>(columns.size());
-
-                    for (Column column : columns)
+                // get the statistics.
+                long startTime = System.currentTimeMillis();
+
+                List<Column> columns = metadataService.getColumns(schemaName, tableName, true);
+                StatScanner statScanner = new StatScanner(parallelism, !useSql);
+                ColumnStatsAggregate aggregate;
+                // the scale from the read files to all the files, it is 1 if all the files are read.
+                double sizeScale = 1;
+                // the sizes of the sampled files, and the number of row groups in them
+                double[] sampledLengths = null, sampledRowGroups = null;
+                List<ColumnStatsAggregate> sampledAggregates = null;
+                double totalLength = 0;
+                if (sampleFraction < 1)
+                {
+                    StatSampler statSampler = new StatSampler(sampleFraction, Long.parseLong(ns.getString("seed")));
+                    List<Status> sampled = statSampler.sample(files);
+                    List<String> paths = new ArrayList<>(sampled.size());
+                    sampledLengths = new double[sampled.size()];
+                    sampledRowGroups = new double[sampled.size()];
+                    sampledAggregates = new ArrayList<>(sampled.size());
+                    double[] sampledRows = new double[sampled.size()];
+                    double sampledLength = 0;
+                    for (Status file : files)
+                    {
+                        totalLength += file.getLength();
+                    }
+                    for (Status file : sampled)
+                    {
+                        paths.add(file.getPath());
+                        sampledLength += file.getLength();
+                    }
+                    // each sampled file is aggregated separately for the standard errors of the column sizes
+                    Map<String, ColumnStatsAggregate> fileAggregates = statScanner.scanEach(paths);
+                    aggregate = new ColumnStatsAggregate();
+                    for (int i = 0; i < sampled.size(); ++i)
                     {
-                        column.setChunkSize(0);
-                        column.setSize(0);
-                        columnMap.put(column.getName(), column);
+                        ColumnStatsAggregate fileAggregate = fileAggregates.get(sampled.get(i).getPath());
+                        aggregate.merge(fileAggregate);
+                        sampledAggregates.add(fileAggregate);
+                        sampledLengths[i] = sampled.get(i).getLength();
+                        sampledRowGroups[i] = fileAggregate.getNumRowGroups();
+                        sampledRows[i] = statScanner.getFileRows(sampled.get(i).getPath());
                     }
+                    double[] rowCountEstimate = StatSampler.estimateTotal(
+                            sampledLengths, sampledRows, totalLength, files.size());
+                    sizeScale = sampledLength == 0 ? 1 : totalLength / sampledLength;
+                    System.out.println(sampled.size() + " of " + files.size() + " files are sampled, " +
+                            "estimated row count: " + Math.round(rowCountEstimate[0]) +
+                            String.format(" (standard error %.0f)", rowCountEstimate[1]));
+                }
+                else if (cacheFile != null)
+                {
+                    aggregate = statScanner.scan(files, new StatCache(cacheFile));
+                }
+                else
+                {
+                    List<String> paths = new ArrayList<>(files.size());
+                    for (Status file : files)
+                    {
+                        paths.add(file.getPath());
+                    }
+                    aggregate = statScanner.scan(paths);
+                }
+                int rowGroupCount = aggregate.getNumRowGroups();
+                long sampledRowCount = aggregate.getNumRows();
+                long rowCount = Math.round(sampledRowCount * sizeScale);
 
-                    int rowGroupCount = 0;
-                    long rowCount = 0;
-                    for (String path : files)
+                for (Column column : columns)
+                {
+                    // the chunk size is not scaled as it is the average of the read row groups
+                    column.setChunkSize(aggregate.getColumnSize(column.getName()) / (double) rowGroupCount);
+                    column.setSize(aggregate.getColumnSize(column.getName()) * sizeScale);
+                    String sizeBounds = "";
+                    if (sampledAggregates != null)
                     {
-                        if (!path.endsWith("/"))
+                        // the ratio estimates are the same as the scaled sizes, with their standard errors
+                        double[] sampledSizes = new double[sampledAggregates.size()];
+                        for (int i = 0; i < sampledSizes.length; ++i)
                         {
-                            path += "/";
-                        }
-                        Storage storage = StorageFactory.Instance().getStorage(path);
-                        PixelsReader pixelsReader = PixelsReaderImpl.newBuilder()
-                                .setPath(path).setStorage(storage).setEnableCache(false)
-                                .setCacheOrder(ImmutableList.of()).setPixelsCacheReader(null)
-                                .setPixelsFooterCache(new PixelsFooterCache()).build();
-                        PixelsProto.Footer fileFooter = pixelsReader.getFooter();
-                        int numRowGroup = pixelsReader.getRowGroupNum();
-                        rowGroupCount += numRowGroup;
-                        rowCount += pixelsReader.getNumberOfRows();
-                        List<PixelsProto.Type> types = fileFooter.getTypesList();
-                        for (int i = 0; i < numRowGroup; ++i)
-                        {
-                            PixelsProto.RowGroupFooter rowGroupFooter = pixelsReader.getRowGroupFooter(i);
-                            List<PixelsProto.ColumnChunkIndex> chunkIndices =
-                                    rowGroupFooter.getRowGroupIndexEntry().getColumnChunkIndexEntriesList();
-                            for (int j = 0; j < types.size(); ++j)
-                            {
-                                Column column = columnMap.get(types.get(j).getName());
-                                long chunkLength = chunkIndices.get(j).getChunkLength();
-                                column.setSize(chunkLength + column.getSize());
-                            }
+                            sampledSizes[i] = sampledAggregates.get(i).getColumnSize(column.getName());
                         }
-                        List<TypeDescription> fields = pixelsReader.getFileSchema().getChildren();
-                        checkArgument(fields.size() == types.size(),
-                                "types.size and fields.size are not consistent");
-                        for (int i = 0; i < fields.size(); ++i)
+                        double[] size = StatSampler.estimateTotal(
+                                sampledLengths, sampledSizes, totalLength, files.size());
+                        double[] chunkSize = StatSampler.estimateRatio(sampledRowGroups, sampledSizes, files.size());
+                        column.setSize(size[0]);
+                        column.setChunkSize(chunkSize[0]);
+                        sizeBounds = String.format("size: %.0f (standard error %.0f), " +
+                                "chunk size: %.0f (standard error %.0f)", size[0], size[1], chunkSize[0], chunkSize[1]);
+                    }
+                    column.setRecordStats(aggregate.getRecordStats(column.getName())
+                            .toByteString().asReadOnlyByteBuffer());
+                    if (!useSql)
+                    {
+                        // the null counts and distinct sketches are collected in the same pass as the footers.
+                        long nullCount = aggregate.getNullCount(column.getName());
+                        column.setNullFraction(sampledRowCount == 0 ? 0 : nullCount / (double) sampledRowCount);
+                        HyperLogLog sketch = aggregate.getDistinctSketch(column.getName());
+                        String bounds = " (unchanged, type not supported)";
+                        if (sketch != null)
                         {
-                            TypeDescription field = fields.get(i);
-                            PixelsProto.Type type = types.get(i);
-                            StatsRecorder statsRecorder = columnStatsMap.get(type.getName());
-                            if (statsRecorder == null)
+                            long distinct = sketch.estimate();
+                            bounds = String.format(" (+/-%.2f%%)", sketch.getStandardError() * 100);
+                            if (sizeScale != 1)
                             {
-                                columnStatsMap.put(type.getName(),
-                                        StatsRecorder.create(field, fileFooter.getColumnStats(i)));
-                            }
-                            else
-                            {
-                                statsRecorder.merge(StatsRecorder.create(field, fileFooter.getColumnStats(i)));
+                                double sampledNonNull = sampledRowCount - nullCount;
+                                double totalNonNull = rowCount * (1 - column.getNullFraction());
+                                bounds = String.format(" (sampled %d, range [%d, %.0f])", distinct, distinct,
+                                        StatSampler.getDistinctUpperBound(distinct, sampledNonNull, totalNonNull));
+                                distinct = Math.round(StatSampler.estimateDistinct(
+                                        distinct, sampledNonNull, totalNonNull));
                             }
+                            column.setCardinality(distinct);
                         }
-                        pixelsReader.close();
+                        System.out.println(column.getName() + " cardinality: " + column.getCardinality() +
+                                bounds + ", null fraction: " + column.getNullFraction() +
+                                (sizeBounds.isEmpty() ? "" : ", " + sizeBounds));
+                    }
+                    else if (!sizeBounds.isEmpty())
+                    {
+                        System.out.println(column.getName() + " " + sizeBounds);
                     }
+                    column.getRecordStats().mark();
+                    metadataService.updateColumn(column);
+                    column.getRecordStats().reset();
+                }
 
+                if (useSql)
+                {
                     ConfigFactory instance = ConfigFactory.Instance();
                     Properties properties = new Properties();
                     properties.setProperty("user", instance.getProperty("presto.user"));
@@ -763,16 +1387,6 @@ public class Main
                         e.printStackTrace();
                     }
 
-                    for (Column column : columns)
-                    {
-                        column.setChunkSize(column.getSize() / rowGroupCount);
-                        column.setRecordStats(columnStatsMap.get(column.getName())
-                                .serialize().build().toByteString().asReadOnlyByteBuffer());
-                        column.getRecordStats().mark();
-                        metadataService.updateColumn(column);
-                        column.getRecordStats().reset();
-                    }
-
                     /* Set cardinality and null_fraction after the chunk size and column size,
                      * because chunk size and column size must exist in the metadata when calculating
                      * the cardinality and null_fraction using SQL queries.
@@ -804,46 +1418,443 @@ public class Main
                     {
                         e.printStackTrace();
                     }
+                }
 
-                    long endTime = System.currentTimeMillis();
-                    System.out.println("Elapsed time: " + (endTime - startTime) / 1000 + "s.");
+                long endTime = System.currentTimeMillis();
+                System.out.println("Elapsed time: " + (endTime - startTime) / 1000 + "s.");
+                metadataService.shutdown();
+            }
+            catch (IOException | MetadataException | InterruptedException | IllegalArgumentException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        if (command.equals("SCAN"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Scan Benchmark")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema")
+                    .help("Specify the schema name");
+            argumentParser.addArgument("-t", "--table")
+                    .help("Specify the table name");
+            argumentParser.addArgument("-o", "--ordered_enabled").setDefault(false)
+                    .help("Specify whether the ordered path is enabled");
+            argumentParser.addArgument("-c", "--compact_enabled").setDefault(true)
+                    .help("Specify whether the compact path is enabled");
+            argumentParser.addArgument("--path")
+                    .help("Specify the ';'-separated directories of the files to scan instead of " +
+                            "the paths of the table");
+            argumentParser.addArgument("-p", "--parallelism").setDefault("16")
+                    .help("Specify the number of threads used for reading the row groups");
+            argumentParser.addArgument("--columns")
+                    .help("Specify the comma-separated columns to read, all the columns are read by default");
+            argumentParser.addArgument("--predicate")
+                    .help("Specify the predicate to skip the row groups and filter the rows, " +
+                            "e.g., l_shipdate>=1994-01-01, the literal must not contain spaces");
+            argumentParser.addArgument("--batch_size").setDefault("10000")
+                    .help("Specify the number of rows in each row batch");
+            argumentParser.addArgument("-l", "--log")
+                    .help("Specify the csv file of the measurements of each row group");
+            argumentParser.addArgument("--summary")
+                    .help("Specify the csv file to append the measurements of the scan");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels SCAN.");
+                return;
+            }
+
+            try
+            {
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String dirs = ns.getString("path");
+                List<String> files = new ArrayList<>();
+                if (dirs != null)
+                {
+                    validateOrderOrCompactPath(dirs);
+                    Storage storage = StorageFactory.Instance().getStorage(dirs);
+                    for (String dir : dirs.split(";"))
+                    {
+                        for (String file : storage.listPaths(dir))
+                        {
+                            files.add(storage.ensureSchemePrefix(file));
+                        }
+                    }
+                }
+                else
+                {
+                    checkArgument(schemaName != null && tableName != null,
+                            "schema and table are required if path is not given");
+                    boolean orderedEnabled = Boolean.parseBoolean(ns.getString("ordered_enabled"));
+                    boolean compactEnabled = Boolean.parseBoolean(ns.getString("compact_enabled"));
+                    String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+                    int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+                    MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+                    List<Layout> layouts = metadataService.getLayouts(schemaName, tableName);
                     metadataService.shutdown();
+                    for (Layout layout : layouts)
+                    {
+                        if (layout.isReadable())
+                        {
+                            if (orderedEnabled)
+                            {
+                                String orderedPath = layout.getOrderPath();
+                                validateOrderOrCompactPath(orderedPath);
+                                Storage storage = StorageFactory.Instance().getStorage(orderedPath);
+                                for (Status status : storage.listStatus(orderedPath))
+                                {
+                                    files.add(status.getPath());
+                                }
+                            }
+                            if (compactEnabled)
+                            {
+                                String compactPath = layout.getCompactPath();
+                                validateOrderOrCompactPath(compactPath);
+                                Storage storage = StorageFactory.Instance().getStorage(compactPath);
+                                for (Status status : storage.listStatus(compactPath))
+                                {
+                                    files.add(status.getPath());
+                                }
+                            }
+                        }
+                    }
+                }
+                if (files.isEmpty())
+                {
+                    System.out.println("No files to scan.");
+                    return;
+                }
+
+                String columns = ns.getString("columns");
+                String predicate = ns.getString("predicate");
+                String log = ns.getString("log");
+                String summary = ns.getString("summary");
+                ScanRunner scanRunner = new ScanRunner(Integer.parseInt(ns.getString("parallelism")),
+                        Integer.parseInt(ns.getString("batch_size")));
+                ScanRunner.Result result;
+                try (BufferedWriter logWriter = log == null ? null : new BufferedWriter(new FileWriter(log)))
+                {
+                    if (logWriter != null)
+                    {
+                        logWriter.write(ScanRunner.LOG_HEADER + "\n");
+                    }
+                    result = scanRunner.scan(files, columns == null ? null : columns.split(","),
+                            predicate == null ? null : ScanPredicate.parse(predicate), logWriter);
                 }
-                catch (IOException | MetadataException | InterruptedException e)
+                result.print();
+                if (summary != null)
                 {
-                    e.printStackTrace();
+                    boolean exists = new File(summary).exists();
+                    try (BufferedWriter summaryWriter = new BufferedWriter(new FileWriter(summary, true)))
+                    {
+                        if (!exists)
+                        {
+                            summaryWriter.write("columns,predicate," + ScanRunner.Result.CSV_HEADER + "\n");
+                        }
+                        // the columns are separated by ';' to keep them in one csv column
+                        summaryWriter.write((columns == null ? "*" : columns.replace(',', ';')) + "," +
+                                (predicate == null ? "" : predicate) + "," + result.toCsv() + "\n");
+                    }
                 }
             }
+            catch (IOException | MetadataException | InterruptedException | IllegalArgumentException e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        if (command.equals("WARMUP"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Cache Warmup")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("Specify the schema name");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("Specify the table name");
+            argumentParser.addArgument("-w", "--workload")
+                    .help("Specify the path of workload, in the format of QUERY, to find the hot columns");
+            argumentParser.addArgument("-l", "--log")
+                    .help("Specify the duration log of the workload written by QUERY, " +
+                            "the queries are equally weighted if it is absent");
+            argumentParser.addArgument("--columns")
+                    .help("Specify the comma-separated hot columns instead of the workload");
+            argumentParser.addArgument("-z", "--cache_size").setDefault("0")
+                    .help("Specify the max size (MB) of the warmed column chunks in all the compact files, " +
+                            "0 for all the chunks of the hot columns");
+            argumentParser.addArgument("-p", "--parallelism").setDefault("16")
+                    .help("Specify the number of threads used for reading the files");
+            argumentParser.addArgument("-o", "--output")
+                    .help("Specify the path of the json file to write the compact layout in which " +
+                            "the warmed chunks are before the cache border, for pixels-cache");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels WARMUP.");
+                return;
+            }
 
-            if (!command.equals("QUERY") &&
-                    !command.equals("LOAD") &&
-                    !command.equals("COPY") &&
-                    !command.equals("COMPACT") &&
-                    !command.equals("STAT"))
+            try
             {
-                System.out.println("Command error");
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String workload = ns.getString("workload");
+                String hotColumns = ns.getString("columns");
+                String output = ns.getString("output");
+                checkArgument(workload != null || hotColumns != null, "either workload or columns is required");
+                long cacheSize = Long.parseLong(ns.getString("cache_size")) * 1024L * 1024L;
+                int parallelism = Integer.parseInt(ns.getString("parallelism"));
+
+                String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+                int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+                MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+                List<Column> columns = metadataService.getColumns(schemaName, tableName, false);
+                // the queries read the compact files of the latest readable layout
+                Layout layout = null;
+                for (Layout layout1 : metadataService.getLayouts(schemaName, tableName))
+                {
+                    if (layout1.isReadable() && (layout == null || layout1.getVersion() > layout.getVersion()))
+                    {
+                        layout = layout1;
+                    }
+                }
+                metadataService.shutdown();
+                requireNonNull(layout, String.format("readable layout is not found for table '%s.%s'.",
+                        schemaName, tableName));
+
+                List<String> columnNames = new ArrayList<>(columns.size());
+                double[] chunkSizes = new double[columns.size()];
+                for (int i = 0; i < columns.size(); ++i)
+                {
+                    columnNames.add(columns.get(i).getName());
+                    chunkSizes[i] = columns.get(i).getChunkSize();
+                }
+                double[] heat = new double[columns.size()];
+                if (hotColumns != null)
+                {
+                    for (String hotColumn : hotColumns.split(","))
+                    {
+                        int columnId = columnNames.indexOf(hotColumn.trim());
+                        checkArgument(columnId >= 0, "column '%s' is not found", hotColumn);
+                        heat[columnId] = 1;
+                    }
+                }
+                else
+                {
+                    LayoutOptimizer optimizer = new LayoutOptimizer(tableName, columnNames, chunkSizes);
+                    int numQueries = optimizer.addWorkload(workload, ns.getString("log"));
+                    heat = optimizer.getColumnHeat();
+                    System.out.println(numQueries + " queries on '" + schemaName + "." + tableName +
+                            "' are analyzed.");
+                }
+
+                String compactPath = layout.getCompactPath();
+                validateOrderOrCompactPath(compactPath);
+                Storage storage = StorageFactory.Instance().getStorage(compactPath);
+                List<String> files = new ArrayList<>();
+                for (Status status : storage.listStatus(compactPath))
+                {
+                    files.add(status.getPath());
+                }
+                if (files.isEmpty())
+                {
+                    System.out.println("No compact files to warm up.");
+                    return;
+                }
+
+                long startTime = System.currentTimeMillis();
+                CacheWarmer cacheWarmer = new CacheWarmer(storage, parallelism);
+                Map<String, Long> chunkBytes = cacheWarmer.getChunkBytes(files);
+                List<String> chunkIds = CacheWarmer.selectChunks(chunkBytes, heat, cacheSize);
+                System.out.println(chunkIds.size() + " of " + chunkBytes.size() + " column chunks are hot " +
+                        "in the compact layout of version " + layout.getVersion() + ".");
+                CacheWarmer.Result result = cacheWarmer.warm(files, chunkIds);
+                result.print();
+                if (output != null)
+                {
+                    Compact compact = CacheWarmer.buildCompact(layout.getCompactObject(), chunkIds);
+                    try (BufferedWriter writer = new BufferedWriter(new FileWriter(output)))
+                    {
+                        writer.write(JSON.toJSONString(compact));
+                    }
+                    System.out.println("Compact layout with the cache border " + compact.getCacheBorder() +
+                            " is written into '" + output + "'.");
+                }
+                System.out.println("Elapsed time: " + (System.currentTimeMillis() - startTime) / 1000 + "s.");
+            }
+            catch (IOException | MetadataException | InterruptedException | IllegalArgumentException e)
+            {
+                e.printStackTrace();
             }
         }
 
-    }
+        if (command.equals("INGEST"))
+        {
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Sink INGEST")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-s", "--schema").required(true)
+                    .help("Specify the schema name");
+            argumentParser.addArgument("-t", "--table").required(true)
+                    .help("Specify the table name");
+            argumentParser.addArgument("-k", "--primary_key").required(true)
+                    .help("Specify the comma-separated columns of the primary key, " +
+                            "the deletes and updates are keyed by them");
+            argumentParser.addArgument("--tail")
+                    .help("Specify the local file to tail for the change events, one JSON event per line");
+            argumentParser.addArgument("--listen")
+                    .help("Specify the local port to receive the change events, one JSON event per line");
+            argumentParser.addArgument("--from_end").setDefault(false)
+                    .help("Specify whether to skip the existing events in the tailed file");
+            argumentParser.addArgument("-l", "--loading_data_path")
+                    .help("specify the path of loading data, " +
+                            "the default is the order path of the last writable layout of the table");
+            argumentParser.addArgument("--delete_path")
+                    .help("Specify the directory of the delete files, " +
+                            "the default is the first loading data path with the suffix '_deletes'");
+            argumentParser.addArgument("--flush_ms").setDefault("1000")
+                    .help("Specify the max time (ms) to buffer a change before it is flushed");
+            argumentParser.addArgument("--file_size").setDefault("128")
+                    .help("Specify the target size (MB) of the text values in a flushed pixels file");
+            argumentParser.addArgument("--wal_dir")
+                    .help("Specify the local directory of the write-ahead log, the events are acknowledged " +
+                            "once they are group-committed into the log instead of after the flushes, " +
+                            "thus flush_ms and file_size can be large");
+            argumentParser.addArgument("-e", "--enable_encoding").setDefault(true)
+                    .help("specify the option of enabling encoding or not");
+            argumentParser.addArgument("--idle_timeout").setDefault("0")
+                    .help("Specify the time (s) after which the ingestion stops if no event is received, " +
+                            "0 to run until interrupted");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels INGEST.");
+                return;
+            }
+
+            try
+            {
+                String schemaName = ns.getString("schema");
+                String tableName = ns.getString("table");
+                String tail = ns.getString("tail");
+                String listen = ns.getString("listen");
+                checkArgument((tail == null) != (listen == null), "either tail or listen is required");
+                String loadingDataPath = ns.getString("loading_data_path");
+                if (loadingDataPath != null && !loadingDataPath.isEmpty())
+                {
+                    validateOrderOrCompactPath(loadingDataPath);
+                }
+                config = new Config(schemaName, tableName, 0, "", "pixels", loadingDataPath,
+                        Boolean.parseBoolean(ns.getString("enable_encoding")));
+                if (!config.load(ConfigFactory.Instance()))
+                {
+                    System.out.println("Failed to load the config of table '" + schemaName + "." + tableName + "'.");
+                    return;
+                }
+                String deletePath = ns.getString("delete_path");
+                if (deletePath == null)
+                {
+                    String firstPath = config.getPixelsPath().split(";")[0];
+                    deletePath = (firstPath.endsWith("/") ?
+                            firstPath.substring(0, firstPath.length() - 1) : firstPath) + "_deletes/";
+                }
+
+                String walDir = ns.getString("wal_dir");
+                ChangeLog changeLog = walDir != null ? new ChangeLog(walDir) : null;
+                ChangeIngestor ingestor = new ChangeIngestor(config, ns.getString("primary_key").split(","),
+                        deletePath, Long.parseLong(ns.getString("flush_ms")),
+                        Long.parseLong(ns.getString("file_size")) * 1024L * 1024L, changeLog);
+                long startTime = System.currentTimeMillis();
+                try (ChangeSource source = tail != null ?
+                        new FileTailSource(tail, Boolean.parseBoolean(ns.getString("from_end"))) :
+                        new SocketSource(Integer.parseInt(listen)))
+                {
+                    System.out.println("Ingesting the change events into '" + config.getPixelsPath() +
+                            "', the delete files are written into '" + deletePath + "'.");
+                    ingestor.run(source, Long.parseLong(ns.getString("idle_timeout")) * 1000L);
+                } finally
+                {
+                    if (changeLog != null)
+                    {
+                        changeLog.close();
+                    }
+                    ingestor.printSummary();
+                    System.out.println("Ingestion is stopped after " +
+                            (System.currentTimeMillis() - startTime) / 1000 + "s.");
+                }
+            } catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
 
-    public static long executeSQL(String jdbcUrl, Properties jdbcProperties, String sql, String id) {
-        long start = 0L, end = 0L;
-        try (Connection connection = DriverManager.getConnection(jdbcUrl, jdbcProperties))
+        if (command.equals("WORKER"))
         {
-            Statement statement = connection.createStatement();
-            start = System.currentTimeMillis();
-            ResultSet resultSet = statement.executeQuery(sql);
-            while (resultSet.next()) {}
-            end = System.currentTimeMillis();
-            resultSet.close();
-            statement.close();
-        } catch (SQLException e)
+            ArgumentParser argumentParser = ArgumentParsers.newArgumentParser("Pixels Sink WORKER")
+                    .defaultHelp(true);
+
+            argumentParser.addArgument("-a", "--host").setDefault("localhost")
+                    .help("Specify the host of the load coordinator started by LOAD --coordinator_port");
+            argumentParser.addArgument("-p", "--port").required(true)
+                    .help("Specify the port of the load coordinator");
+            argumentParser.addArgument("-c", "--consumer_thread_num").setDefault("4")
+                    .help("specify the number of consumer threads used to load a split");
+
+            Namespace ns = null;
+            try
+            {
+                ns = argumentParser.parseArgs(inputStr.substring(command.length()).trim().split("\\s+"));
+            } catch (ArgumentParserException e)
+            {
+                argumentParser.handleError(e);
+                System.out.println("Pixels WORKER.");
+                return;
+            }
+
+            try (LoadWorker worker = new LoadWorker(ns.getString("host"), Integer.parseInt(ns.getString("port")),
+                    Integer.parseInt(ns.getString("consumer_thread_num"))))
+            {
+                long startTime = System.currentTimeMillis();
+                int numSplits = worker.run();
+                System.out.println("Worker " + worker.getWorkerId() + " loaded " + numSplits + " splits in " +
+                        (System.currentTimeMillis() - startTime) / 1000 + "s.");
+            } catch (Exception e)
+            {
+                e.printStackTrace();
+            }
+        }
+
+        if (!command.equals("QUERY") &&
+                !command.equals("LOAD") &&
+                !command.equals("COPY") &&
+                !command.equals("COMPACT") &&
+                !command.equals("LAYOUT") &&
+                !command.equals("STAT") &&
+                !command.equals("SCAN") &&
+                !command.equals("WARMUP") &&
+                !command.equals("WORKER") &&
+                !command.equals("INGEST"))
         {
-            System.out.println("SQL: " + id + "\n" + sql);
-            System.out.println("Error msg: " + e.getMessage());
+            System.out.println("Command error");
         }
-        return end - start;
     }
 
     /**
@@ -183,8 +183,10 @@ public class ORCConsumer
             }
         } catch (InterruptedException e) {
             System.out.println("ORCConsumer: " + e.getMessage());
+            setFailed();
             currentThread().interrupt();
         } catch (IOException e) {
+            setFailed();
             e.printStackTrace();
         } finally {
             System.out.println(currentThread().getName() + ":" + count);
@@ -0,0 +1,492 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.common.utils.DateUtil;
+import io.pixelsdb.pixels.core.PixelsWriter;
+import io.pixelsdb.pixels.core.PixelsWriterImpl;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.vector.BinaryColumnVector;
+import io.pixelsdb.pixels.core.vector.ByteColumnVector;
+import io.pixelsdb.pixels.core.vector.ColumnVector;
+import io.pixelsdb.pixels.core.vector.DoubleColumnVector;
+import io.pixelsdb.pixels.core.vector.LongColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * Loads the ORC files into pixels files without the text round trip of exporting and parsing.
+ * <p>
+ * The source files are read by the vectorized reader of ORC, and each ORC row batch is copied column by
+ * column into a pixels row batch of the same size. The columns of the ORC files must be in the original
+ * column order of the table, as the text files of LOAD, and they are mapped into the columns of the writing
+ * layout by {@link Config#getOrderMapping()}. The integers, floats, strings, and binaries are copied as the
+ * values if the pixels column has the same kind of vector, the other values are converted into the text
+ * format of the pixels column. Like {@link PixelsConsumer}, the files are loaded by the consumer threads in
+ * parallel and each consumer rolls over to a new pixels file after the max number of rows.
+ * </p>
+ * <p>
+ * A source file that can not be opened or read is skipped with an error message, and the consumer goes
+ * on with the next file, but it is marked as failed in the end. If the failure happens in the middle of a
+ * file, the rows read before it are already written. A failure of writing the pixels files stops the consumer.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ORCToPixelsConsumer extends Consumer
+{
+    private final BlockingQueue<String> queue;
+    private final Properties prop;
+    private final Config config;
+    private final int consumerId;
+    /**
+     * Collects the statistics of the written files, null if the statistics are not published.
+     */
+    private final StatPublisher statPublisher;
+    /**
+     * Collects the paths of the closed files, null if not needed.
+     */
+    private final List<String> writtenFiles;
+
+    public ORCToPixelsConsumer(BlockingQueue<String> queue, Properties prop, Config config, int consumerId,
+                               StatPublisher statPublisher, List<String> writtenFiles)
+    {
+        this.queue = queue;
+        this.prop = prop;
+        this.config = config;
+        this.consumerId = consumerId;
+        this.statPublisher = statPublisher;
+        this.writtenFiles = writtenFiles;
+    }
+
+    @Override
+    public void run()
+    {
+        System.out.println("Start ORCToPixelsConsumer, " + currentThread().getName() + ", time: " +
+                DateUtil.formatTime(new Date()));
+        int count = 0;
+        String targetFilePath = null;
+        PixelsWriter pixelsWriter = null;
+
+        try
+        {
+            int[] orderMapping = config.getOrderMapping();
+            int maxRowNum = config.getMaxRowNum();
+            int pixelStride = Integer.parseInt(prop.getProperty("pixel.stride"));
+            int rowGroupSize = Integer.parseInt(prop.getProperty("row.group.size"));
+            long blockSize = Long.parseLong(prop.getProperty("block.size"));
+            short replication = Short.parseShort(prop.getProperty("block.replication"));
+
+            TypeDescription schema = TypeDescription.fromString(config.getSchema());
+            String[] columnNames = schema.getFieldNames().toArray(new String[0]);
+            final String[] targetPaths = config.getPixelsPath().split(";");
+            VectorizedRowBatch rowBatch = schema.createRowBatch();
+            ColumnVector[] columnVectors = rowBatch.cols;
+
+            Configuration conf = new Configuration();
+            conf.set("fs.hdfs.impl", DistributedFileSystem.class.getName());
+            conf.set("fs.file.impl", LocalFileSystem.class.getName());
+
+            Storage targetFileStorage = null;
+            // the null counts and sketches of the rows in the current file
+            ColumnStatsAggregate fileRows = null;
+            int rowCounter = 0;
+
+            String originalFilePath;
+            while ((originalFilePath = queue.poll(2, TimeUnit.SECONDS)) != null)
+            {
+                count++;
+                Reader reader;
+                RecordReader rows;
+                try
+                {
+                    reader = OrcFile.createReader(new Path(originalFilePath), OrcFile.readerOptions(conf));
+                    rows = reader.rows();
+                } catch (IOException | RuntimeException e)
+                {
+                    System.err.println("thread: " + currentThread().getName() + " skipped '" + originalFilePath +
+                            "', failed to open it: " + e.getMessage());
+                    e.printStackTrace();
+                    setFailed();
+                    continue;
+                }
+                List<org.apache.orc.TypeDescription> orcTypes = reader.getSchema().getChildren();
+                if (orcTypes == null || orcTypes.size() != orderMapping.length ||
+                        !orcTypes.stream().allMatch(type -> isSupported(type.getCategory())))
+                {
+                    System.err.println("thread: " + currentThread().getName() + " skipped '" + originalFilePath +
+                            "', its schema " + reader.getSchema() + " does not match the table.");
+                            setFailed();
+                    closeSource(rows, originalFilePath);
+                    continue;
+                }
+
+                // choose the target output directory using round-robin
+                int targetPathId = PixelsConsumer.GlobalTargetPathId.getAndIncrement() % targetPaths.length;
+                String targetDirPath = targetPaths[targetPathId];
+                Storage targetStorage = StorageFactory.Instance().getStorage(targetDirPath);
+
+                System.out.println("loading data into directory: " + targetDirPath);
+
+                // an orc batch is copied into exactly one pixels batch
+                org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch orcBatch =
+                        reader.getSchema().createRowBatch(rowBatch.getMaxSize());
+                long sourceRows = 0;
+                try
+                {
+                    while (true)
+                    {
+                        try
+                        {
+                            if (!rows.nextBatch(orcBatch))
+                            {
+                                break;
+                            }
+                        } catch (IOException | RuntimeException e)
+                        {
+                            // the rows read before the failure are already written
+                            System.err.println("thread: " + currentThread().getName() + " skipped the rest of '" +
+                                    originalFilePath + "' after " + sourceRows + " rows, failed to read it: " +
+                                    e.getMessage());
+                            e.printStackTrace();
+                            setFailed();
+                            break;
+                        }
+                        if (orcBatch.size == 0)
+                        {
+                            continue;
+                        }
+                        sourceRows += orcBatch.size;
+                        if (pixelsWriter == null)
+                        {
+                            targetFilePath = targetDirPath;
+                            if (targetStorage.getScheme() == Storage.Scheme.s3 ||
+                                    targetStorage.getScheme() == Storage.Scheme.minio)
+                            {
+                                // Partition the objects into different prefixes to avoid throttling.
+                                targetFilePath += consumerId + "/";
+                            }
+                            targetFilePath += config.getFilePrefix() + DateUtil.getCurTime() + ".pxl";
+
+                            pixelsWriter = PixelsWriterImpl.newBuilder()
+                                    .setSchema(schema)
+                                    .setPixelStride(pixelStride)
+                                    .setRowGroupSize(rowGroupSize)
+                                    .setStorage(targetStorage)
+                                    .setPath(targetFilePath)
+                                    .setBlockSize(blockSize)
+                                    .setReplication(replication)
+                                    .setBlockPadding(true)
+                                    .setEncoding(config.isEnableEncoding())
+                                    .setCompressionBlockSize(1)
+                                    .build();
+                            targetFileStorage = targetStorage;
+                            if (statPublisher != null && statPublisher.isWithRows())
+                            {
+                                fileRows = new ColumnStatsAggregate();
+                            }
+                        }
+
+                        for (int i = 0; i < columnVectors.length; i++)
+                        {
+                            int valueIdx = orderMapping[i];
+                            copyColumn(orcBatch.cols[valueIdx], orcTypes.get(valueIdx).getCategory(),
+                                    columnVectors[i], orcBatch.size);
+                        }
+                        rowBatch.size = orcBatch.size;
+                        rowCounter += orcBatch.size;
+                        if (fileRows != null)
+                        {
+                            fileRows.addRowBatch(columnNames, rowBatch);
+                        }
+                        pixelsWriter.addRowBatch(rowBatch);
+                        rowBatch.reset();
+
+                        if (rowCounter >= maxRowNum)
+                        {
+                            PixelsWriter closing = pixelsWriter;
+                            pixelsWriter = null;
+                            closing.close();
+                            if (writtenFiles != null)
+                            {
+                                writtenFiles.add(targetFilePath);
+                            }
+                            if (statPublisher != null)
+                            {
+                                statPublisher.addFile(targetFileStorage, targetFilePath, fileRows);
+                            }
+                            rowCounter = 0;
+                        }
+                    }
+                } finally
+                {
+                    closeSource(rows, originalFilePath);
+                }
+            }
+
+            if (pixelsWriter != null)
+            {
+                // left last file to write
+                PixelsWriter closing = pixelsWriter;
+                pixelsWriter = null;
+                closing.close();
+                if (writtenFiles != null)
+                {
+                    writtenFiles.add(targetFilePath);
+                }
+                if (statPublisher != null)
+                {
+                    statPublisher.addFile(targetFileStorage, targetFilePath, fileRows);
+                }
+            }
+        } catch (InterruptedException e)
+        {
+            System.out.println("ORCToPixelsConsumer: " + e.getMessage());
+            setFailed();
+            currentThread().interrupt();
+        } catch (IOException e)
+        {
+            setFailed();
+            e.printStackTrace();
+        } finally
+        {
+            if (pixelsWriter != null)
+            {
+                // the consumer is interrupted or failed to write, release the file without publishing it
+                try
+                {
+                    pixelsWriter.close();
+                } catch (IOException e)
+                {
+                    System.err.println("failed to close the pixels file '" + targetFilePath + "'.");
+                    e.printStackTrace();
+                }
+            }
+            System.out.println(currentThread().getName() + ":" + count);
+            System.out.println("Exit ORCToPixelsConsumer, " + currentThread().getName() + ", time: " +
+                    DateUtil.formatTime(new Date()));
+        }
+    }
+
+    private static void closeSource(RecordReader rows, String path)
+    {
+        try
+        {
+            rows.close();
+        } catch (IOException e)
+        {
+            System.err.println("failed to close the orc file '" + path + "'.");
+            e.printStackTrace();
+        }
+    }
+
+    private static boolean isSupported(org.apache.orc.TypeDescription.Category category)
+    {
+        switch (category)
+        {
+            case BOOLEAN:
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+            case STRING:
+            case CHAR:
+            case VARCHAR:
+            case BINARY:
+            case DATE:
+            case TIMESTAMP:
+            case DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Append the first size values of the orc column vector into the pixels column vector.
+     * @param source the orc column vector
+     * @param category the orc type of the column
+     * @param target the pixels column vector
+     * @param size the number of values to copy
+     */
+    static void copyColumn(org.apache.hadoop.hive.ql.exec.vector.ColumnVector source,
+                           org.apache.orc.TypeDescription.Category category, ColumnVector target, int size)
+    {
+        switch (category)
+        {
+            case BOOLEAN:
+            {
+                long[] values = ((org.apache.hadoop.hive.ql.exec.vector.LongColumnVector) source).vector;
+                boolean direct = target instanceof ByteColumnVector;
+                for (int r = 0; r < size; ++r)
+                {
+                    int i = source.isRepeating ? 0 : r;
+                    if (!source.noNulls && source.isNull[i])
+                    {
+                        target.addNull();
+                    }
+                    else if (direct)
+                    {
+                        target.add(values[i] != 0);
+                    }
+                    else
+                    {
+                        target.add(String.valueOf(values[i] != 0));
+                    }
+                }
+                break;
+            }
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            {
+                long[] values = ((org.apache.hadoop.hive.ql.exec.vector.LongColumnVector) source).vector;
+                boolean direct = target instanceof LongColumnVector;
+                for (int r = 0; r < size; ++r)
+                {
+                    int i = source.isRepeating ? 0 : r;
+                    if (!source.noNulls && source.isNull[i])
+                    {
+                        target.addNull();
+                    }
+                    else if (direct)
+                    {
+                        target.add(values[i]);
+                    }
+                    else
+                    {
+                        target.add(String.valueOf(values[i]));
+                    }
+                }
+                break;
+            }
+            case FLOAT:
+            case DOUBLE:
+            {
+                double[] values = ((org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector) source).vector;
+                boolean direct = target instanceof DoubleColumnVector;
+                for (int r = 0; r < size; ++r)
+                {
+                    int i = source.isRepeating ? 0 : r;
+                    if (!source.noNulls && source.isNull[i])
+                    {
+                        target.addNull();
+                    }
+                    else if (direct)
+                    {
+                        target.add(values[i]);
+                    }
+                    else
+                    {
+                        target.add(String.valueOf(values[i]));
+                    }
+                }
+                break;
+            }
+            case STRING:
+            case CHAR:
+            case VARCHAR:
+            case BINARY:
+            {
+                BytesColumnVector bytes = (BytesColumnVector) source;
+                boolean direct = target instanceof BinaryColumnVector;
+                for (int r = 0; r < size; ++r)
+                {
+                    int i = source.isRepeating ? 0 : r;
+                    if (!source.noNulls && source.isNull[i])
+                    {
+                        target.addNull();
+                    }
+                    else if (direct)
+                    {
+                        target.add(Arrays.copyOfRange(bytes.vector[i], bytes.start[i],
+                                bytes.start[i] + bytes.length[i]));
+                    }
+                    else
+                    {
+                        target.add(new String(bytes.vector[i], bytes.start[i], bytes.length[i],
+                                StandardCharsets.UTF_8));
+                    }
+                }
+                break;
+            }
+            case DATE:
+            {
+                // the days since epoch
+                long[] values = ((org.apache.hadoop.hive.ql.exec.vector.LongColumnVector) source).vector;
+                copyText(source, target, size, i -> LocalDate.ofEpochDay(values[i]).toString());
+                break;
+            }
+            case TIMESTAMP:
+            {
+                TimestampColumnVector timestamps = (TimestampColumnVector) source;
+                copyText(source, target, size, i -> timestamps.asScratchTimestamp(i).toString());
+                break;
+            }
+            case DECIMAL:
+            {
+                DecimalColumnVector decimals = (DecimalColumnVector) source;
+                copyText(source, target, size,
+                        i -> decimals.vector[i].getHiveDecimal().bigDecimalValue().toPlainString());
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("orc type " + category + " is not supported");
+        }
+    }
+
+    private static void copyText(org.apache.hadoop.hive.ql.exec.vector.ColumnVector source, ColumnVector target,
+                                 int size, IntFunction<String> toText)
+    {
+        for (int r = 0; r < size; ++r)
+        {
+            int i = source.isRepeating ? 0 : r;
+            if (!source.noNulls && source.isNull[i])
+            {
+                target.addNull();
+            }
+            else
+            {
+                target.add(toText.apply(i));
+            }
+        }
+    }
+}
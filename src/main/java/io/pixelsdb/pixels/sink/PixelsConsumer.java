@@ -28,6 +28,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Date;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -46,6 +47,14 @@ public class PixelsConsumer extends Consumer
     private final Properties prop;
     private final Config config;
     private final int consumerId;
+    /**
+     * Collects the statistics of the written files, null if the statistics are not published.
+     */
+    private final StatPublisher statPublisher;
+    /**
+     * Collects the paths of the closed files, null if not needed.
+     */
+    private final List<String> writtenFiles;
 
     public Properties getProp()
     {
@@ -53,11 +62,25 @@ public class PixelsConsumer extends Consumer
     }
 
     public PixelsConsumer(BlockingQueue<String> queue, Properties prop, Config config, int consumerId)
+    {
+        this(queue, prop, config, consumerId, null);
+    }
+
+    public PixelsConsumer(BlockingQueue<String> queue, Properties prop, Config config, int consumerId,
+                          StatPublisher statPublisher)
+    {
+        this(queue, prop, config, consumerId, statPublisher, null);
+    }
+
+    public PixelsConsumer(BlockingQueue<String> queue, Properties prop, Config config, int consumerId,
+                          StatPublisher statPublisher, List<String> writtenFiles)
     {
         this.queue = queue;
         this.prop = prop;
         this.config = config;
         this.consumerId = consumerId;
+        this.statPublisher = statPublisher;
+        this.writtenFiles = writtenFiles;
     }
 
     @Override
@@ -87,6 +110,7 @@ public class PixelsConsumer extends Consumer
             short replication = Short.parseShort(prop.getProperty("block.replication"));
 
             TypeDescription schema = TypeDescription.fromString(schemaStr);
+            String[] columnNames = schema.getFieldNames().toArray(new String[0]);
             final String[] targetPaths = pixelsPath.split(";");
             VectorizedRowBatch rowBatch = schema.createRowBatch();
             ColumnVector[] columnVectors = rowBatch.cols;
@@ -95,8 +119,11 @@ public class PixelsConsumer extends Consumer
             String line;
 
             boolean initPixelsFile = true;
-            String targetFilePath;
+            String targetFilePath = null;
+            Storage targetFileStorage = null;
             PixelsWriter pixelsWriter = null;
+            // the null counts and sketches of the rows in the current file
+            ColumnStatsAggregate fileRows = null;
             int rowCounter = 0;
 
             while (isRunning)
@@ -132,7 +159,7 @@ public class PixelsConsumer extends Consumer
                                 // Partition the objects into different prefixes to avoid throttling.
                                 targetFilePath += consumerId + "/";
                             }
-                            targetFilePath += DateUtil.getCurTime() + ".pxl";
+                            targetFilePath += config.getFilePrefix() + DateUtil.getCurTime() + ".pxl";
 
                             pixelsWriter = PixelsWriterImpl.newBuilder()
                                     .setSchema(schema)
@@ -146,6 +173,11 @@ public class PixelsConsumer extends Consumer
                                     .setEncoding(enableEncoding)
                                     .setCompressionBlockSize(1)
                                     .build();
+                            targetFileStorage = targetStorage;
+                            if (statPublisher != null && statPublisher.isWithRows())
+                            {
+                                fileRows = new ColumnStatsAggregate();
+                            }
                         }
                         initPixelsFile = false;
 
@@ -176,11 +208,23 @@ public class PixelsConsumer extends Consumer
 
                         if (rowBatch.size >= rowBatch.getMaxSize())
                         {
+                            if (fileRows != null)
+                            {
+                                fileRows.addRowBatch(columnNames, rowBatch);
+                            }
                             pixelsWriter.addRowBatch(rowBatch);
                             rowBatch.reset();
                             if (rowCounter >= maxRowNum)
                             {
                                 pixelsWriter.close();
+                                if (writtenFiles != null)
+                                {
+                                    writtenFiles.add(targetFilePath);
+                                }
+                                if (statPublisher != null)
+                                {
+                                    statPublisher.addFile(targetFileStorage, targetFilePath, fileRows);
+                                }
                                 rowCounter = 0;
                                 initPixelsFile = true;
                             }
@@ -200,17 +244,31 @@ public class PixelsConsumer extends Consumer
                 // left last file to write
                 if (rowBatch.size != 0)
                 {
+                    if (fileRows != null)
+                    {
+                        fileRows.addRowBatch(columnNames, rowBatch);
+                    }
                     pixelsWriter.addRowBatch(rowBatch);
                     rowBatch.reset();
                 }
                 pixelsWriter.close();
+                if (writtenFiles != null)
+                {
+                    writtenFiles.add(targetFilePath);
+                }
+                if (statPublisher != null)
+                {
+                    statPublisher.addFile(targetFileStorage, targetFilePath, fileRows);
+                }
             }
         } catch (InterruptedException e)
         {
             System.out.println("PixelsConsumer: " + e.getMessage());
+            setFailed();
             currentThread().interrupt();
         } catch (IOException e)
         {
+            setFailed();
             e.printStackTrace();
         } finally
         {
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The mergeable quantile sketch of long values (e.g., the sortable keys in {@link ColumnValues}),
+ * following the compactor hierarchy of KLL (Z. Karnin, K. Lang, and E. Liberty,
+ * "Optimal Quantile Approximation in Streams", FOCS 2016).
+ * <p>
+ * The values are kept in levels, each value at level h stands for 2^h values. When a level is full,
+ * it is sorted and every other value is promoted to the next level. The capacities of the levels
+ * decrease geometrically from the top level, thus the sketch keeps O(k) values. Whether the odd or
+ * even positions are promoted is decided by a hash of the number of values and the level instead of
+ * a random coin, so that the sketches of the same input are identical. With the default k of 200,
+ * the rank error is about 1%.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class QuantileSketch
+{
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_CAPACITY = 8;
+
+    private final int k;
+    private long[][] levels;
+    private int[] sizes;
+    private int numLevels;
+    private long count = 0;
+    private long min = Long.MAX_VALUE;
+    private long max = Long.MIN_VALUE;
+
+    public QuantileSketch()
+    {
+        this(DEFAULT_K);
+    }
+
+    /**
+     * @param k the capacity of the top level, the larger k, the more accurate the sketch
+     */
+    public QuantileSketch(int k)
+    {
+        checkArgument(k >= MIN_CAPACITY, "k must be at least " + MIN_CAPACITY);
+        this.k = k;
+        this.levels = new long[1][k];
+        this.sizes = new int[1];
+        this.numLevels = 1;
+    }
+
+    private int getCapacity(int level)
+    {
+        int depth = numLevels - 1 - level;
+        return Math.max(MIN_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    /**
+     * @param value the value to add
+     */
+    public void add(long value)
+    {
+        count++;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        append(0, value);
+        if (sizes[0] >= getCapacity(0))
+        {
+            compress();
+        }
+    }
+
+    private void append(int level, long value)
+    {
+        if (sizes[level] == levels[level].length)
+        {
+            levels[level] = Arrays.copyOf(levels[level], levels[level].length * 2);
+        }
+        levels[level][sizes[level]++] = value;
+    }
+
+    private void addLevel()
+    {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new long[k];
+        numLevels++;
+    }
+
+    /**
+     * Compact the full levels from the bottom until every level is within its capacity.
+     */
+    private void compress()
+    {
+        for (int level = 0; level < numLevels; ++level)
+        {
+            if (sizes[level] < getCapacity(level))
+            {
+                continue;
+            }
+            if (level + 1 == numLevels)
+            {
+                addLevel();
+            }
+            long[] values = levels[level];
+            int size = sizes[level];
+            Arrays.sort(values, 0, size);
+            // an odd value is left at this level, so that the weight is kept exactly
+            int start = size % 2 == 1 ? 1 : 0;
+            int offset = (int) (ColumnValues.mix(count * 31 + level) >>> 63);
+            for (int i = start + offset; i < size; i += 2)
+            {
+                append(level + 1, values[i]);
+            }
+            sizes[level] = start;
+        }
+    }
+
+    /**
+     * Merge another sketch into this one.
+     * @param other the other sketch
+     */
+    public void merge(QuantileSketch other)
+    {
+        if (other.count == 0)
+        {
+            return;
+        }
+        while (numLevels < other.numLevels)
+        {
+            addLevel();
+        }
+        for (int level = 0; level < other.numLevels; ++level)
+        {
+            for (int i = 0; i < other.sizes[level]; ++i)
+            {
+                append(level, other.levels[level][i]);
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress();
+    }
+
+    public long getCount()
+    {
+        return count;
+    }
+
+    public long getMin()
+    {
+        return min;
+    }
+
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * @return the retained values and their weights, sorted by the values
+     */
+    private long[][] getSortedValues()
+    {
+        int total = 0;
+        for (int level = 0; level < numLevels; ++level)
+        {
+            total += sizes[level];
+        }
+        long[][] weighted = new long[total][];
+        int n = 0;
+        for (int level = 0; level < numLevels; ++level)
+        {
+            for (int i = 0; i < sizes[level]; ++i)
+            {
+                weighted[n++] = new long[]{levels[level][i], 1L << level};
+            }
+        }
+        Arrays.sort(weighted, (a, b) -> Long.compare(a[0], b[0]));
+        return weighted;
+    }
+
+    /**
+     * @param fraction the normalized rank in [0, 1]
+     * @return the approximate value at the rank
+     */
+    public long getQuantile(double fraction)
+    {
+        checkArgument(count > 0, "the sketch is empty");
+        checkArgument(fraction >= 0 && fraction <= 1, "fraction must be in the range of [0, 1]");
+        if (fraction == 0)
+        {
+            return min;
+        }
+        if (fraction == 1)
+        {
+            return max;
+        }
+        long[][] weighted = getSortedValues();
+        long totalWeight = 0;
+        for (long[] value : weighted)
+        {
+            totalWeight += value[1];
+        }
+        double targetWeight = fraction * totalWeight;
+        long cumulativeWeight = 0;
+        for (long[] value : weighted)
+        {
+            cumulativeWeight += value[1];
+            if (cumulativeWeight >= targetWeight)
+            {
+                return value[0];
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @param value the value
+     * @return the approximate fraction of the values that are less than or equal to the value
+     */
+    public double getRank(long value)
+    {
+        if (count == 0)
+        {
+            return 0;
+        }
+        long totalWeight = 0, lessOrEqual = 0;
+        for (int level = 0; level < numLevels; ++level)
+        {
+            for (int i = 0; i < sizes[level]; ++i)
+            {
+                totalWeight += 1L << level;
+                if (levels[level][i] <= value)
+                {
+                    lessOrEqual += 1L << level;
+                }
+            }
+        }
+        return (double) lessOrEqual / totalWeight;
+    }
+
+    /**
+     * @param numBuckets the number of buckets
+     * @return the boundaries of the equi-depth buckets, i.e., the min value and the approximate
+     * upper bound of each bucket, each bucket has about count / numBuckets values
+     */
+    public long[] getEquiDepthBoundaries(int numBuckets)
+    {
+        checkArgument(numBuckets > 0, "numBuckets must be positive");
+        long[] boundaries = new long[numBuckets + 1];
+        for (int i = 0; i <= numBuckets; ++i)
+        {
+            boundaries[i] = getQuantile((double) i / numBuckets);
+        }
+        return boundaries;
+    }
+
+    /**
+     * @return the serialized sketch
+     */
+    public byte[] toBytes()
+    {
+        int numValues = 0;
+        for (int level = 0; level < numLevels; ++level)
+        {
+            numValues += sizes[level];
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(4 * 2 + 8 * 3 + numLevels * 4 + numValues * 8);
+        buffer.putInt(k).putLong(count).putLong(min).putLong(max).putInt(numLevels);
+        for (int level = 0; level < numLevels; ++level)
+        {
+            buffer.putInt(sizes[level]);
+            for (int i = 0; i < sizes[level]; ++i)
+            {
+                buffer.putLong(levels[level][i]);
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * @param bytes the bytes serialized by {@link #toBytes()}
+     * @return the deserialized sketch
+     */
+    public static QuantileSketch fromBytes(byte[] bytes)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        QuantileSketch sketch = new QuantileSketch(buffer.getInt());
+        sketch.count = buffer.getLong();
+        sketch.min = buffer.getLong();
+        sketch.max = buffer.getLong();
+        int numLevels = buffer.getInt();
+        while (sketch.numLevels < numLevels)
+        {
+            sketch.addLevel();
+        }
+        for (int level = 0; level < numLevels; ++level)
+        {
+            int size = buffer.getInt();
+            for (int i = 0; i < size; ++i)
+            {
+                sketch.append(level, buffer.getLong());
+            }
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.facebook.presto.jdbc.PrestoStatement;
+import io.trino.jdbc.TrinoStatement;
+
+import java.sql.*;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executes the queries of QUERY through a pool of jdbc connections, and measures the connect time,
+ * the time to the first row, and the total time of each query separately, so that the client
+ * overhead is not mixed into the latency of the query engine. Optionally, the fetched bytes and the
+ * {@link ResultChecksum} of each result are computed while the result is drained. Both of them decode
+ * every value into a string, thus they are off by default, and the decode time is measured separately
+ * and excluded from the total time.
+ * <p>
+ * The connections are pooled per user, as the user is a property of the connection. A connection
+ * is created if there is no idle connection of the user, and it is returned into the pool after
+ * the query. It is thread safe.
+ * </p>
+ * <p>
+ * The engine-side statistics of the query (wall, cpu and queued time, processed rows and bytes, and peak
+ * memory) are taken from the progress monitor of the Trino or Presto jdbc statement, so that a change of
+ * the latency can be attributed to the bytes actually read or to the queueing in the engine.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class QueryExecutor implements AutoCloseable
+{
+    /**
+     * The statistics of a query reported by the query engine.
+     */
+    public static class ServerStats
+    {
+        public static final String CSV_HEADER = "server query id,server wall(ms),server cpu(ms)," +
+                "server queued(ms),processed rows,processed bytes,peak memory(bytes)";
+        /**
+         * The empty columns of {@link #CSV_HEADER} if the statistics are not available.
+         */
+        public static final String EMPTY_CSV = ",,,,,,";
+
+        private final String queryId;
+        private final long wallTimeMillis;
+        private final long cpuTimeMillis;
+        private final long queuedTimeMillis;
+        private final long processedRows;
+        private final long processedBytes;
+        private final long peakMemoryBytes;
+
+        public ServerStats(String queryId, long wallTimeMillis, long cpuTimeMillis, long queuedTimeMillis,
+                           long processedRows, long processedBytes, long peakMemoryBytes)
+        {
+            this.queryId = queryId;
+            this.wallTimeMillis = wallTimeMillis;
+            this.cpuTimeMillis = cpuTimeMillis;
+            this.queuedTimeMillis = queuedTimeMillis;
+            this.processedRows = processedRows;
+            this.processedBytes = processedBytes;
+            this.peakMemoryBytes = peakMemoryBytes;
+        }
+
+        public String getQueryId()
+        {
+            return queryId;
+        }
+
+        public long getWallTimeMillis()
+        {
+            return wallTimeMillis;
+        }
+
+        public long getCpuTimeMillis()
+        {
+            return cpuTimeMillis;
+        }
+
+        public long getQueuedTimeMillis()
+        {
+            return queuedTimeMillis;
+        }
+
+        public long getProcessedRows()
+        {
+            return processedRows;
+        }
+
+        public long getProcessedBytes()
+        {
+            return processedBytes;
+        }
+
+        public long getPeakMemoryBytes()
+        {
+            return peakMemoryBytes;
+        }
+
+        /**
+         * @return the statistics in the columns of {@link #CSV_HEADER}
+         */
+        public String toCsv()
+        {
+            return queryId + "," + wallTimeMillis + "," + cpuTimeMillis + "," + queuedTimeMillis + "," +
+                    processedRows + "," + processedBytes + "," + peakMemoryBytes;
+        }
+    }
+
+    /**
+     * The measurements of an executed query.
+     */
+    public static class QueryResult
+    {
+        public static final String CSV_HEADER = "connect(ms),first row(ms),decode(ms),rows,bytes,checksum," +
+                ServerStats.CSV_HEADER;
+
+        private final long connectNanos;
+        private final long firstRowNanos;
+        private final long totalNanos;
+        private final long decodeNanos;
+        private final long rows;
+        private final long bytes;
+        private final String checksum;
+        private final ServerStats serverStats;
+        private final String error;
+
+        private QueryResult(long connectNanos, long firstRowNanos, long totalNanos, long decodeNanos, long rows,
+                            long bytes, String checksum, ServerStats serverStats, String error)
+        {
+            this.connectNanos = connectNanos;
+            this.firstRowNanos = firstRowNanos;
+            this.totalNanos = totalNanos;
+            this.decodeNanos = decodeNanos;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.checksum = checksum;
+            this.serverStats = serverStats;
+            this.error = error;
+        }
+
+        /**
+         * @return the time to get a connection, which is 0 if an idle connection is reused
+         */
+        public long getConnectNanos()
+        {
+            return connectNanos;
+        }
+
+        /**
+         * @return the time from submitting the query to receiving the first row (or the end of an empty result)
+         */
+        public long getFirstRowNanos()
+        {
+            return firstRowNanos;
+        }
+
+        /**
+         * @return the time from submitting the query to draining the result, excluding the connect time
+         * and the decode time
+         */
+        public long getTotalNanos()
+        {
+            return totalNanos;
+        }
+
+        /**
+         * @return the time to decode the values for the fetched bytes and the checksum, 0 if neither is computed
+         */
+        public long getDecodeNanos()
+        {
+            return decodeNanos;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        /**
+         * @return the total length of the fetched values in their string form, which is an
+         * approximation of the fetched bytes, or -1 if it is not counted
+         */
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        /**
+         * @return the order-independent checksum of the result, or null if it is not computed
+         */
+        public String getChecksum()
+        {
+            return checksum;
+        }
+
+        /**
+         * @return the statistics reported by the query engine, or null if the jdbc driver does not report them
+         */
+        public ServerStats getServerStats()
+        {
+            return serverStats;
+        }
+
+        public boolean isFailed()
+        {
+            return error != null;
+        }
+
+        public String getError()
+        {
+            return error;
+        }
+
+        /**
+         * @return the measurements in the columns of {@link #CSV_HEADER}
+         */
+        public String toCsv()
+        {
+            return String.format("%.3f,%.3f,%.3f,%d,%s,%s,", connectNanos / 1e6, firstRowNanos / 1e6,
+                    decodeNanos / 1e6, rows, bytes < 0 ? "" : String.valueOf(bytes),
+                    checksum == null ? "" : checksum) +
+                    (serverStats == null ? ServerStats.EMPTY_CSV : serverStats.toCsv());
+        }
+    }
+
+    private final String jdbcUrl;
+    private final Properties properties;
+    private final boolean countBytes;
+    private final boolean checksum;
+    private final Map<String, BlockingQueue<Connection>> idleConnections = new ConcurrentHashMap<>();
+    private volatile boolean closed = false;
+
+    /**
+     * @param jdbcUrl the jdbc url of the query engine
+     * @param properties the jdbc properties, the user property is overridden by the user of each query
+     */
+    public QueryExecutor(String jdbcUrl, Properties properties)
+    {
+        this(jdbcUrl, properties, false, false);
+    }
+
+    /**
+     * @param jdbcUrl the jdbc url of the query engine
+     * @param properties the jdbc properties, the user property is overridden by the user of each query
+     * @param countBytes whether to count the fetched bytes of each result while draining it
+     * @param checksum whether to compute the checksum of each result while draining it
+     */
+    public QueryExecutor(String jdbcUrl, Properties properties, boolean countBytes, boolean checksum)
+    {
+        this.jdbcUrl = requireNonNull(jdbcUrl, "jdbcUrl is null");
+        this.properties = requireNonNull(properties, "properties is null");
+        this.countBytes = countBytes;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Create and warm up the connections of a user before measuring the queries.
+     * @param user the user of the connections, null for the user in the jdbc properties
+     * @param numConnections the number of connections to create
+     * @throws SQLException if failed to create or warm up a connection
+     */
+    public void warmup(String user, int numConnections) throws SQLException
+    {
+        for (int i = 0; i < numConnections; ++i)
+        {
+            Connection connection = connect(user);
+            try (Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT 1"))
+            {
+                while (resultSet.next()) {}
+            }
+            release(user, connection);
+        }
+    }
+
+    /**
+     * Execute a query and drain its result.
+     * @param user the user of the query, null for the user in the jdbc properties
+     * @param sql the query
+     * @return the measurements of the query, or the error message if it failed
+     */
+    public QueryResult execute(String user, String sql)
+    {
+        long connectStart = System.nanoTime();
+        Connection connection = idleConnections.computeIfAbsent(String.valueOf(user),
+                k -> new LinkedBlockingQueue<>()).poll();
+        boolean reused = connection != null;
+        try
+        {
+            if (!reused)
+            {
+                connection = connect(user);
+            }
+            long connectNanos = reused ? 0 : System.nanoTime() - connectStart;
+            long start = System.nanoTime();
+            long firstRowNanos = -1, decodeNanos = 0, rows = 0, bytes = countBytes ? 0 : -1;
+            AtomicReference<ServerStats> serverStats = new AtomicReference<>();
+            ResultChecksum resultChecksum = checksum ? new ResultChecksum() : null;
+            boolean decode = countBytes || checksum;
+            try (Statement statement = connection.createStatement())
+            {
+                monitor(statement, serverStats);
+                ResultSet resultSet = statement.executeQuery(sql);
+                int numColumns = resultSet.getMetaData().getColumnCount();
+                while (resultSet.next())
+                {
+                    if (firstRowNanos < 0)
+                    {
+                        firstRowNanos = System.nanoTime() - start;
+                    }
+                    rows++;
+                    if (!decode)
+                    {
+                        continue;
+                    }
+                    // the values are decoded on the client, thus the decode time is not in the latency of the query
+                    long decodeStart = System.nanoTime();
+                    if (resultChecksum != null)
+                    {
+                        resultChecksum.startRow();
+                    }
+                    for (int i = 1; i <= numColumns; ++i)
+                    {
+                        String value = resultSet.getString(i);
+                        if (countBytes)
+                        {
+                            bytes += value == null ? 0 : value.length();
+                        }
+                        if (resultChecksum != null)
+                        {
+                            resultChecksum.addValue(value);
+                        }
+                    }
+                    if (resultChecksum != null)
+                    {
+                        resultChecksum.endRow();
+                    }
+                    decodeNanos += System.nanoTime() - decodeStart;
+                }
+                resultSet.close();
+            }
+            long totalNanos = System.nanoTime() - start - decodeNanos;
+            release(user, connection);
+            return new QueryResult(connectNanos, firstRowNanos < 0 ? totalNanos : firstRowNanos,
+                    totalNanos, decodeNanos, rows, bytes, resultChecksum == null ? null : resultChecksum.toString(),
+                    serverStats.get(), null);
+        } catch (SQLException e)
+        {
+            // the connection may be broken, thus it is not reused
+            closeQuietly(connection);
+            return new QueryResult(0, 0, 0, 0, 0, 0, null, null, e.getMessage());
+        }
+    }
+
+    /**
+     * Set the progress monitor of the statement to keep the latest statistics of the query reported by the
+     * query engine, the statistics are final after the result is drained.
+     * @param statement the statement of the query
+     * @param serverStats the reference to keep the statistics
+     * @throws SQLException if failed to unwrap the statement
+     */
+    private static void monitor(Statement statement, AtomicReference<ServerStats> serverStats) throws SQLException
+    {
+        if (statement.isWrapperFor(TrinoStatement.class))
+        {
+            statement.unwrap(TrinoStatement.class).setProgressMonitor(stats -> serverStats.set(new ServerStats(
+                    stats.getQueryId(), stats.getWallTimeMillis(), stats.getCpuTimeMillis(),
+                    stats.getQueuedTimeMillis(), stats.getProcessedRows(), stats.getProcessedBytes(),
+                    stats.getPeakMemoryBytes())));
+        }
+        else if (statement.isWrapperFor(PrestoStatement.class))
+        {
+            statement.unwrap(PrestoStatement.class).setProgressMonitor(stats -> serverStats.set(new ServerStats(
+                    stats.getQueryId(), stats.getWallTimeMillis(), stats.getCpuTimeMillis(),
+                    stats.getQueuedTimeMillis(), stats.getProcessedRows(), stats.getProcessedBytes(),
+                    stats.getPeakMemoryBytes())));
+        }
+    }
+
+    private Connection connect(String user) throws SQLException
+    {
+        Properties connectionProperties = new Properties();
+        connectionProperties.putAll(properties);
+        if (user != null)
+        {
+            connectionProperties.setProperty("user", user);
+        }
+        return DriverManager.getConnection(jdbcUrl, connectionProperties);
+    }
+
+    private void release(String user, Connection connection)
+    {
+        if (closed)
+        {
+            closeQuietly(connection);
+            return;
+        }
+        idleConnections.computeIfAbsent(String.valueOf(user), k -> new LinkedBlockingQueue<>()).offer(connection);
+    }
+
+    private static void closeQuietly(Connection connection)
+    {
+        if (connection == null)
+        {
+            return;
+        }
+        try
+        {
+            connection.close();
+        } catch (SQLException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Close the idle connections, the connections in use are closed when they are released.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+        for (BlockingQueue<Connection> connections : idleConnections.values())
+        {
+            Connection connection;
+            while ((connection = connections.poll()) != null)
+            {
+                closeQuietly(connection);
+            }
+        }
+    }
+}
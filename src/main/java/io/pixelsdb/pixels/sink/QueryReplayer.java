@@ -0,0 +1,421 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Replays the queries of a workload by concurrent clients for the QUERY command.
+ * <p>
+ * In a closed loop, each client thread runs the queries one after another, starting from a different
+ * position of the workload so that the clients do not run the same query at the same time. The
+ * latencies are recorded per query id in {@link LatencyRecorder}s.
+ * </p>
+ * <p>
+ * In an open loop, the queries are issued at a target arrival rate whether or not the earlier queries
+ * have finished, so that the queueing delay of a slow query is not hidden by holding back the next one.
+ * The latency of a query is measured from its scheduled start time instead of its actual start time.
+ * </p>
+ * <p>
+ * The queries are executed by a {@link QueryExecutor}, and the latencies exclude the connect time.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class QueryReplayer
+{
+    private final QueryExecutor queryExecutor;
+    private final String userPrefix;
+    private final List<Workload.Query> queries;
+    /**
+     * The writer of the duration of each query, null if not needed.
+     */
+    private final Writer timeWriter;
+    /**
+     * The validator of the results, null if not needed.
+     */
+    private final ResultValidator resultValidator;
+
+    /**
+     * @param queryExecutor the executor of the queries
+     * @param userPrefix the prefix of the user name, the user name of a query is the prefix plus its query id
+     * @param queries the queries in the workload
+     * @param timeWriter the writer of the duration of each query, null if not needed
+     */
+    public QueryReplayer(QueryExecutor queryExecutor, String userPrefix,
+                         List<Workload.Query> queries, Writer timeWriter)
+    {
+        this(queryExecutor, userPrefix, queries, timeWriter, null);
+    }
+
+    /**
+     * @param queryExecutor the executor of the queries
+     * @param userPrefix the prefix of the user name, the user name of a query is the prefix plus its query id
+     * @param queries the queries in the workload
+     * @param timeWriter the writer of the duration of each query, null if not needed
+     * @param resultValidator the validator of the results, null if not needed
+     */
+    public QueryReplayer(QueryExecutor queryExecutor, String userPrefix, List<Workload.Query> queries,
+                         Writer timeWriter, ResultValidator resultValidator)
+    {
+        this.queryExecutor = requireNonNull(queryExecutor, "queryExecutor is null");
+        this.userPrefix = userPrefix == null ? "" : userPrefix;
+        this.queries = requireNonNull(queries, "queries is null");
+        checkArgument(!queries.isEmpty(), "there is no query in the workload");
+        this.timeWriter = timeWriter;
+        this.resultValidator = resultValidator;
+    }
+
+    /**
+     * Run the queries by concurrent clients in closed loops.
+     * @param numClients the number of concurrent clients
+     * @param durationMs the duration of the run in milliseconds, or non-positive for each client to run
+     *                   each query in the workload once
+     * @return the recorded latencies
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    public LatencyRecorder runClosedLoop(int numClients, long durationMs) throws InterruptedException
+    {
+        checkArgument(numClients > 0, "numClients must be positive");
+        ExecutorService clientExecutor = Executors.newFixedThreadPool(numClients);
+        long deadline = System.currentTimeMillis() + durationMs;
+        int numQueries = queries.size();
+        List<Future<LatencyRecorder>> futures = new ArrayList<>(numClients);
+        for (int i = 0; i < numClients; ++i)
+        {
+            int clientId = i;
+            futures.add(clientExecutor.submit(() -> {
+                LatencyRecorder recorder = new LatencyRecorder();
+                int offset = (int) ((long) clientId * numQueries / numClients);
+                for (long j = 0; durationMs > 0 ? System.currentTimeMillis() < deadline : j < numQueries; ++j)
+                {
+                    execute(clientId, queries.get((int) ((offset + j) % numQueries)), recorder);
+                }
+                return recorder;
+            }));
+        }
+        clientExecutor.shutdown();
+
+        LatencyRecorder recorder = new LatencyRecorder();
+        try
+        {
+            for (Future<LatencyRecorder> future : futures)
+            {
+                recorder.merge(future.get());
+            }
+        } catch (ExecutionException e)
+        {
+            clientExecutor.shutdownNow();
+            throw new RuntimeException("query client failed", e.getCause());
+        }
+        return recorder;
+    }
+
+    /**
+     * The result of an open-loop run at an offered arrival rate.
+     */
+    public static class OpenLoopResult
+    {
+        private final double offeredRate;
+        /**
+         * The latencies from the scheduled start times.
+         */
+        private final LatencyRecorder responseTimes = new LatencyRecorder();
+        /**
+         * The latencies from the actual start times.
+         */
+        private final LatencyRecorder serviceTimes = new LatencyRecorder();
+        /**
+         * The delays from the scheduled start times to the actual start times, in microseconds.
+         */
+        private final Histogram startDelays = new Histogram(3);
+        private final AtomicLong dropped = new AtomicLong(0);
+        /**
+         * The number of queries that are completed within the arrival window.
+         */
+        private final AtomicLong completedInWindow = new AtomicLong(0);
+        private double windowSeconds;
+        private double elapsedSeconds;
+
+        private OpenLoopResult(double offeredRate)
+        {
+            this.offeredRate = offeredRate;
+        }
+
+        public double getOfferedRate()
+        {
+            return offeredRate;
+        }
+
+        /**
+         * The achieved rate is measured over the arrival window only. The queries that complete while
+         * the remaining ones are drained after the window are not counted, otherwise the drain time
+         * would be added to the window and a backlog built up during the window would be hidden.
+         * @return the number of queries completed per second during the arrival window
+         */
+        public double getAchievedRate()
+        {
+            return completedInWindow.get() / windowSeconds;
+        }
+
+        /**
+         * @return the length of the arrival window in seconds
+         */
+        public double getWindowSeconds()
+        {
+            return windowSeconds;
+        }
+
+        /**
+         * @return the elapsed time in seconds, including the time to drain the queries after the arrival window
+         */
+        public double getElapsedSeconds()
+        {
+            return elapsedSeconds;
+        }
+
+        public LatencyRecorder getResponseTimes()
+        {
+            return responseTimes;
+        }
+
+        public LatencyRecorder getServiceTimes()
+        {
+            return serviceTimes;
+        }
+
+        public Histogram getStartDelays()
+        {
+            return startDelays;
+        }
+
+        /**
+         * @return the number of queries that are not issued because the pool is full
+         */
+        public long getDropped()
+        {
+            return dropped.get();
+        }
+
+        /**
+         * @return true if the achieved rate falls behind the offered rate or any query is dropped
+         */
+        public boolean isSaturated()
+        {
+            return getDropped() > 0 || getAchievedRate() < offeredRate * 0.95;
+        }
+
+        /**
+         * @return the csv header of {@link #toCsvLine()}
+         */
+        public static String getCsvHeader()
+        {
+            return "offered(qps),achieved(qps),completed,errors,dropped,mean start delay(ms)," +
+                    "p50(ms),p95(ms),p99(ms),p999(ms),max(ms)\n";
+        }
+
+        public String toCsvLine()
+        {
+            Histogram total = responseTimes.getTotal();
+            return String.format("%.3f,%.3f,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f\n", offeredRate,
+                    getAchievedRate(), total.getTotalCount(), responseTimes.getTotalErrors(), getDropped(),
+                    startDelays.getMean() / 1000.0, total.getValueAtPercentile(50) / 1000.0,
+                    total.getValueAtPercentile(95) / 1000.0, total.getValueAtPercentile(99) / 1000.0,
+                    total.getValueAtPercentile(99.9) / 1000.0, total.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * Issue the queries in the order of the workload at an arrival rate in an open loop. The queries
+     * are run in a bounded pool, an arrival is dropped if the pool and its queue are full.
+     * @param rate the target arrival rate, i.e., the number of queries issued per second
+     * @param poisson whether the arrivals are a Poisson process, otherwise they are evenly spaced
+     * @param maxInFlight the max number of concurrently running queries, as well as the max number of
+     *                    queries waiting for a free thread in the pool
+     * @param durationMs the duration in milliseconds during which the queries are issued
+     * @param seed the seed of the random inter-arrival times
+     * @return the result of the run
+     * @throws InterruptedException if interrupted while waiting for the queries
+     */
+    public OpenLoopResult runOpenLoop(double rate, boolean poisson, int maxInFlight, long durationMs, long seed)
+            throws InterruptedException
+    {
+        checkArgument(rate > 0, "rate must be positive");
+        checkArgument(maxInFlight > 0, "maxInFlight must be positive");
+        checkArgument(durationMs > 0, "durationMs must be positive");
+        ThreadPoolExecutor queryPool = new ThreadPoolExecutor(maxInFlight, maxInFlight,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxInFlight));
+        OpenLoopResult result = new OpenLoopResult(rate);
+        Random random = new Random(seed);
+        double intervalNanos = 1e9 / rate;
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + durationMs * 1000000L;
+        double nextArrival = startNanos;
+        for (long i = 0; ; ++i)
+        {
+            // the inter-arrival times of a Poisson process are exponentially distributed
+            nextArrival += poisson ? -Math.log(1 - random.nextDouble()) * intervalNanos : intervalNanos;
+            long scheduledNanos = (long) nextArrival;
+            if (scheduledNanos >= endNanos)
+            {
+                break;
+            }
+            long waitNanos;
+            while ((waitNanos = scheduledNanos - System.nanoTime()) > 0)
+            {
+                LockSupport.parkNanos(waitNanos);
+                if (Thread.interrupted())
+                {
+                    queryPool.shutdownNow();
+                    throw new InterruptedException("interrupted while issuing the queries");
+                }
+            }
+            Workload.Query query = queries.get((int) (i % queries.size()));
+            try
+            {
+                queryPool.execute(() -> {
+                    long actualStartNanos = System.nanoTime();
+                    QueryExecutor.QueryResult queryResult = execute(query);
+                    long completedNanos = System.nanoTime();
+                    synchronized (result)
+                    {
+                        if (queryResult.isFailed())
+                        {
+                            result.responseTimes.recordError(query.getQueryId());
+                            result.serviceTimes.recordError(query.getQueryId());
+                            return;
+                        }
+                        result.responseTimes.record(query.getQueryId(), completedNanos - scheduledNanos);
+                        if (completedNanos < endNanos)
+                        {
+                            result.completedInWindow.incrementAndGet();
+                        }
+                        result.serviceTimes.record(query.getQueryId(), queryResult.getTotalNanos());
+                        result.startDelays.recordValue(Math.max(1, (actualStartNanos - scheduledNanos) / 1000));
+                    }
+                    writeTime(query.getQueryId() + "," + query.getId() + "," +
+                            queryResult.getTotalNanos() / 1000000 + "," +
+                            (scheduledNanos - startNanos) / 1000000 + "," +
+                            (actualStartNanos - startNanos) / 1000000 + "," + queryResult.toCsv() + "\n");
+                });
+            } catch (RejectedExecutionException e)
+            {
+                result.dropped.incrementAndGet();
+            }
+        }
+        queryPool.shutdown();
+        while (!queryPool.awaitTermination(100, TimeUnit.SECONDS));
+        result.windowSeconds = (endNanos - startNanos) / 1e9;
+        result.elapsedSeconds = Math.max(System.nanoTime() - startNanos, endNanos - startNanos) / 1e9;
+        return result;
+    }
+
+    /**
+     * Execute a query and record its latency, the failed query is recorded as an error.
+     * @param clientId the id of the client, only used in the log
+     * @param query the query
+     * @param recorder the recorder of the client
+     */
+    private void execute(int clientId, Workload.Query query, LatencyRecorder recorder)
+    {
+        QueryExecutor.QueryResult result = execute(query);
+        if (result.isFailed())
+        {
+            recorder.recordError(query.getQueryId());
+            return;
+        }
+        recorder.record(query.getQueryId(), result.getTotalNanos());
+        writeTime(query.getQueryId() + "," + query.getId() + "," + result.getTotalNanos() / 1000000 + "," +
+                clientId + "," + result.toCsv() + "\n");
+    }
+
+    /**
+     * Execute a query and drain its result, the error of the failed query is printed,
+     * and the result is checked by the result validator if there is one.
+     * @param query the query
+     * @return the result of the query
+     */
+    public QueryExecutor.QueryResult execute(Workload.Query query)
+    {
+        QueryExecutor.QueryResult result = queryExecutor.execute(getUser(query), query.getSql());
+        if (result.isFailed())
+        {
+            System.out.println("SQL: " + query.getQueryId() + "\n" + query.getSql());
+            System.out.println("Error msg: " + result.getError());
+        }
+        else if (resultValidator != null)
+        {
+            resultValidator.check(query, result);
+        }
+        return result;
+    }
+
+    /**
+     * @param query the query
+     * @return the user name of the query, or null if the query has no query id
+     */
+    public String getUser(Workload.Query query)
+    {
+        return query.getQueryId() == null ? null : userPrefix + query.getQueryId();
+    }
+
+    /**
+     * Create and warm up the connections of the users of all the queries in the workload.
+     * @param numConnections the number of connections for each user
+     * @throws SQLException if failed to create or warm up a connection
+     */
+    public void warmup(int numConnections) throws SQLException
+    {
+        Set<String> users = new LinkedHashSet<>();
+        for (Workload.Query query : queries)
+        {
+            users.add(getUser(query));
+        }
+        for (String user : users)
+        {
+            queryExecutor.warmup(user, numConnections);
+        }
+    }
+
+    private void writeTime(String line)
+    {
+        if (timeWriter == null)
+        {
+            return;
+        }
+        synchronized (timeWriter)
+        {
+            try
+            {
+                timeWriter.write(line);
+            } catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+        }
+    }
+}
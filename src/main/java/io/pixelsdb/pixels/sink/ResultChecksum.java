@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+/**
+ * The order-independent checksum of a query result, computed while the result is drained.
+ * <p>
+ * The values of a row are hashed in the column order into a row hash, and the checksum is the sum
+ * of the mixed row hashes, thus it does not depend on the order of the rows but still distinguishes
+ * the duplicated rows. The values are hashed in their string form returned by the jdbc driver, so the
+ * results of the same query on different storage formats have the same checksum as long as the engine
+ * returns the same values. The results of the aggregations over floating point values may differ in the
+ * last digits if the rows are aggregated in different orders. It is not thread safe.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ResultChecksum
+{
+    private static final long NULL_HASH = 0x9E3779B97F4A7C15L;
+
+    private long checksum = 0;
+    private long rows = 0;
+    private long rowHash;
+
+    /**
+     * Start hashing the values of a new row.
+     */
+    public void startRow()
+    {
+        rowHash = 0;
+    }
+
+    /**
+     * @param value the next value in the row, in its string form, may be null
+     */
+    public void addValue(String value)
+    {
+        long hash = NULL_HASH;
+        if (value != null)
+        {
+            hash = value.length();
+            for (int i = 0; i < value.length(); ++i)
+            {
+                hash = hash * 31 + value.charAt(i);
+            }
+            hash = ColumnValues.mix(hash);
+        }
+        // multiply before adding the next value, so that the order of the values in the row matters
+        rowHash = rowHash * 0xC2B2AE3D27D4EB4FL + hash;
+    }
+
+    /**
+     * Finish the current row and add it into the checksum.
+     */
+    public void endRow()
+    {
+        checksum += ColumnValues.mix(rowHash);
+        rows++;
+    }
+
+    public long getRows()
+    {
+        return rows;
+    }
+
+    public long getChecksum()
+    {
+        return checksum;
+    }
+
+    /**
+     * @return the checksum in 16 hex digits
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("%016x", checksum);
+    }
+}
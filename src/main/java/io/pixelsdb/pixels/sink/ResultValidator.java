@@ -0,0 +1,129 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cross-validates the row counts and checksums of the query results in QUERY.
+ * <p>
+ * The first result of each query (identified by its query id and id) is the expected one, unless it is
+ * loaded from the log of an earlier run, e.g., the run of the same workload on the other storage format.
+ * The later results of the query are compared with the expected one and the mismatches are printed.
+ * It is thread safe.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ResultValidator
+{
+    private final Map<String, String> expected = new ConcurrentHashMap<>();
+    private final AtomicLong numChecked = new AtomicLong(0);
+    private final AtomicLong numMismatches = new AtomicLong(0);
+
+    /**
+     * Load the expected results from a log written by QUERY with the checksums.
+     * @param log the log file
+     * @return the number of loaded results
+     * @throws IOException if failed to read the log or it has no checksum
+     */
+    public int load(String log) throws IOException
+    {
+        int numLoaded = 0;
+        try (BufferedReader logReader = new BufferedReader(new FileReader(log)))
+        {
+            String line = logReader.readLine();
+            if (line == null)
+            {
+                return 0;
+            }
+            List<String> header = Arrays.asList(line.split(","));
+            int queryIdIndex = header.indexOf("query id"), idIndex = header.indexOf("id");
+            int rowsIndex = header.indexOf("rows"), checksumIndex = header.indexOf("checksum");
+            if (queryIdIndex < 0 || idIndex < 0 || rowsIndex < 0 || checksumIndex < 0)
+            {
+                throw new IOException("log '" + log + "' has no query ids, row counts or checksums");
+            }
+            while ((line = logReader.readLine()) != null)
+            {
+                // keep the trailing empty columns
+                String[] columns = line.split(",", -1);
+                if (columns.length <= checksumIndex || columns[checksumIndex].isEmpty())
+                {
+                    continue;
+                }
+                if (expected.putIfAbsent(getKey(columns[queryIdIndex], columns[idIndex]),
+                        getValue(Long.parseLong(columns[rowsIndex]), columns[checksumIndex])) == null)
+                {
+                    numLoaded++;
+                }
+            }
+        }
+        return numLoaded;
+    }
+
+    /**
+     * Check the result of a query, the mismatch is printed.
+     * @param query the query
+     * @param result the result of the query
+     * @return false if the result does not match the expected one
+     */
+    public boolean check(Workload.Query query, QueryExecutor.QueryResult result)
+    {
+        if (result.isFailed() || result.getChecksum() == null)
+        {
+            return true;
+        }
+        numChecked.incrementAndGet();
+        String value = getValue(result.getRows(), result.getChecksum());
+        String expectedValue = expected.putIfAbsent(getKey(query.getQueryId(), String.valueOf(query.getId())), value);
+        if (expectedValue == null || expectedValue.equals(value))
+        {
+            return true;
+        }
+        numMismatches.incrementAndGet();
+        System.out.println("Result mismatch of query " + query.getQueryId() + " (" + query.getId() +
+                "): expected " + expectedValue + ", got " + value);
+        return false;
+    }
+
+    public long getNumChecked()
+    {
+        return numChecked.get();
+    }
+
+    public long getNumMismatches()
+    {
+        return numMismatches.get();
+    }
+
+    private static String getKey(String queryId, String id)
+    {
+        return queryId + "," + id;
+    }
+
+    private static String getValue(long rows, String checksum)
+    {
+        return rows + " rows, checksum " + checksum;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The descriptive statistics of the measured durations of the repeated runs of a query in QUERY.
+ * <p>
+ * The confidence interval of the mean is based on Student's t-distribution, as the number of
+ * runs is usually small.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SampleStatistics
+{
+    /**
+     * The 0.975 quantiles of the t-distribution with 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_975 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_975 = 1.959964;
+
+    private final double[] sorted;
+    private final double mean;
+    private final double stddev;
+
+    /**
+     * @param values the measured values, must not be empty
+     */
+    public SampleStatistics(List<Double> values)
+    {
+        checkArgument(!values.isEmpty(), "values must not be empty");
+        this.sorted = new double[values.size()];
+        double sum = 0;
+        for (int i = 0; i < sorted.length; ++i)
+        {
+            sorted[i] = values.get(i);
+            sum += sorted[i];
+        }
+        Arrays.sort(sorted);
+        this.mean = sum / sorted.length;
+        double squares = 0;
+        for (double value : sorted)
+        {
+            squares += (value - mean) * (value - mean);
+        }
+        // the sample standard deviation
+        this.stddev = sorted.length > 1 ? Math.sqrt(squares / (sorted.length - 1)) : 0;
+    }
+
+    public int getCount()
+    {
+        return sorted.length;
+    }
+
+    public double getMean()
+    {
+        return mean;
+    }
+
+    public double getMedian()
+    {
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2;
+    }
+
+    public double getStddev()
+    {
+        return stddev;
+    }
+
+    public double getMin()
+    {
+        return sorted[0];
+    }
+
+    public double getMax()
+    {
+        return sorted[sorted.length - 1];
+    }
+
+    /**
+     * @return the lower and upper bounds of the 95% confidence interval of the mean,
+     * which are both the mean if there is only one value
+     */
+    public double[] getConfidenceInterval()
+    {
+        if (sorted.length < 2)
+        {
+            return new double[]{mean, mean};
+        }
+        double halfWidth = getT975(sorted.length - 1) * stddev / Math.sqrt(sorted.length);
+        return new double[]{mean - halfWidth, mean + halfWidth};
+    }
+
+    /**
+     * @param degreesOfFreedom the degrees of freedom, must be positive
+     * @return the 0.975 quantile of the t-distribution
+     */
+    public static double getT975(int degreesOfFreedom)
+    {
+        checkArgument(degreesOfFreedom > 0, "degreesOfFreedom must be positive");
+        if (degreesOfFreedom <= T_975.length)
+        {
+            return T_975[degreesOfFreedom - 1];
+        }
+        // the first-order Cornish-Fisher expansion around the normal quantile
+        return Z_975 + (Z_975 * Z_975 * Z_975 + Z_975) / (4.0 * degreesOfFreedom);
+    }
+}
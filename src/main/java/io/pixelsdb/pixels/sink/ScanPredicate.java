@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.vector.BinaryColumnVector;
+import io.pixelsdb.pixels.core.vector.ColumnVector;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A comparison between a column and a literal, e.g., {@code l_shipdate>=1994-01-01}, used by SCAN
+ * to skip the row groups by their statistics and to filter the rows.
+ * <p>
+ * The values are compared by their sortable keys in {@link ColumnValues}, except that the string
+ * and binary values are compared byte by byte, as their keys are only built from 8-byte prefixes.
+ * A null value does not match any predicate.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ScanPredicate
+{
+    public enum Operator
+    {
+        EQ("="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Operator(String symbol)
+        {
+            this.symbol = symbol;
+        }
+
+        public static Operator from(String symbol)
+        {
+            if (symbol.equals("<>"))
+            {
+                return NE;
+            }
+            for (Operator operator : values())
+            {
+                if (operator.symbol.equals(symbol))
+                {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("unknown operator '" + symbol + "'");
+        }
+
+        /**
+         * @param comparison the result of comparing the value to the literal
+         * @return true if the comparison satisfies the operator
+         */
+        public boolean test(int comparison)
+        {
+            switch (this)
+            {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        @Override
+        public String toString()
+        {
+            return symbol;
+        }
+    }
+
+    private static final Pattern PATTERN = Pattern.compile("^\\s*(\\w+)\\s*(<=|>=|!=|<>|=|<|>)\\s*(.*?)\\s*$");
+
+    private final String column;
+    private final Operator operator;
+    private final String literal;
+
+    public ScanPredicate(String column, Operator operator, String literal)
+    {
+        this.column = requireNonNull(column, "column is null");
+        this.operator = requireNonNull(operator, "operator is null");
+        this.literal = requireNonNull(literal, "literal is null");
+    }
+
+    /**
+     * @param expression the predicate in the form of column, operator and literal, the literal may be quoted
+     * @return the predicate
+     */
+    public static ScanPredicate parse(String expression)
+    {
+        Matcher matcher = PATTERN.matcher(requireNonNull(expression, "expression is null"));
+        if (!matcher.matches())
+        {
+            throw new IllegalArgumentException("invalid predicate '" + expression + "'");
+        }
+        String literal = matcher.group(3);
+        if (literal.length() >= 2 && literal.charAt(0) == '\'' && literal.charAt(literal.length() - 1) == '\'')
+        {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        return new ScanPredicate(matcher.group(1), Operator.from(matcher.group(2)), literal);
+    }
+
+    public String getColumn()
+    {
+        return column;
+    }
+
+    public Operator getOperator()
+    {
+        return operator;
+    }
+
+    public String getLiteral()
+    {
+        return literal;
+    }
+
+    /**
+     * @param type the type of the column in the file
+     * @return the predicate bound to the type of the column
+     */
+    public Bound bind(PixelsProto.Type type)
+    {
+        switch (type.getKind())
+        {
+            case STRING:
+            case CHAR:
+            case VARCHAR:
+            case BINARY:
+            case VARBINARY:
+                byte[] bytes = literal.getBytes(StandardCharsets.UTF_8);
+                return new Bound(type, ColumnValues.prefixKey(bytes, 0, bytes.length), bytes);
+            case FLOAT:
+            case DOUBLE:
+                return new Bound(type, ColumnValues.doubleKey(Double.parseDouble(literal)), null);
+            case DECIMAL:
+                return new Bound(type, new BigDecimal(literal).setScale(type.getScale(), BigDecimal.ROUND_HALF_UP)
+                        .unscaledValue().longValue(), null);
+            case BOOLEAN:
+                return new Bound(type, Boolean.parseBoolean(literal) ? 1 : 0, null);
+            case DATE:
+                return new Bound(type, literal.indexOf('-') > 0 ?
+                        LocalDate.parse(literal).toEpochDay() : Long.parseLong(literal), null);
+            default:
+                // the integer types, and the time and timestamp in their stored units
+                return new Bound(type, Long.parseLong(literal), null);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return column + operator + literal;
+    }
+
+    /**
+     * The predicate with the literal converted into the values of the column type.
+     * It is immutable and thread safe.
+     */
+    public class Bound
+    {
+        private final PixelsProto.Type type;
+        private final long key;
+        private final byte[] bytes;
+
+        private Bound(PixelsProto.Type type, long key, byte[] bytes)
+        {
+            this.type = type;
+            this.key = key;
+            this.bytes = bytes;
+        }
+
+        /**
+         * @param stats the statistics of the column in a row group
+         * @return false if no row in the row group can match the predicate
+         */
+        public boolean mayMatch(PixelsProto.ColumnStatistic stats)
+        {
+            long[] range = ColumnValues.sortableRange(type, stats);
+            if (range == null)
+            {
+                return true;
+            }
+            // the comparisons are not strict, as the keys of the strings are only their prefixes
+            switch (operator)
+            {
+                case EQ:
+                    return range[0] <= key && key <= range[1];
+                case LT:
+                case LE:
+                    return range[0] <= key;
+                case GT:
+                case GE:
+                    return range[1] >= key;
+                default:
+                    return true;
+            }
+        }
+
+        /**
+         * @param vector the column vector
+         * @param row the row index in the vector
+         * @return true if the value of the row matches the predicate
+         */
+        public boolean test(ColumnVector vector, int row)
+        {
+            if (ColumnValues.isNull(vector, row))
+            {
+                return false;
+            }
+            if (bytes != null && vector instanceof BinaryColumnVector)
+            {
+                BinaryColumnVector binaryVector = (BinaryColumnVector) vector;
+                int r = vector.isRepeating ? 0 : row;
+                return operator.test(compareBytes(binaryVector.vector[r], binaryVector.start[r],
+                        binaryVector.lens[r], bytes));
+            }
+            return operator.test(Long.compare(ColumnValues.sortableKey(vector, row), key));
+        }
+    }
+
+    private static int compareBytes(byte[] value, int start, int length, byte[] literal)
+    {
+        int common = Math.min(length, literal.length);
+        for (int i = 0; i < common; ++i)
+        {
+            int diff = (value[start + i] & 0xFF) - (literal[i] & 0xFF);
+            if (diff != 0)
+            {
+                return diff;
+            }
+        }
+        return length - literal.length;
+    }
+}
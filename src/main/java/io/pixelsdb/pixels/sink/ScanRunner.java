@@ -0,0 +1,407 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.reader.PixelsReaderOption;
+import io.pixelsdb.pixels.core.reader.PixelsRecordReader;
+import io.pixelsdb.pixels.core.vector.ColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Reads the Pixels files of a table directly for the SCAN command, without a query engine.
+ * <p>
+ * The footers of the files are read first, and the row groups that cannot match the predicate are
+ * skipped by their statistics. The remaining row groups are read in parallel, each thread keeps
+ * taking the next unread row group and measures it into its own {@link Result}, and the partial
+ * results are merged after all the row groups are read.
+ * </p>
+ * <p>
+ * The time of each row group is split into the I/O time reported by the record reader, the time to
+ * evaluate the predicate, and the remaining time, which is mostly spent on decoding.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ScanRunner
+{
+    public static final String LOG_HEADER = "path,row group,rows,matched rows,bytes,io(ms),decode(ms),filter(ms),total(ms)";
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * The measurements of a scan, it is not thread safe.
+     */
+    public static class Result
+    {
+        public static final String CSV_HEADER = "files,row groups,pruned row groups,rows,matched rows,bytes," +
+                "elapsed(s),rows/s,MB/s,io(%),decode(%),filter(%),p50 row group(ms),p99 row group(ms)," +
+                "max row group(ms)";
+
+        private int numFiles = 0;
+        private int numRowGroups = 0;
+        private int numPrunedRowGroups = 0;
+        private long rows = 0;
+        private long matchedRows = 0;
+        private long bytes = 0;
+        private long ioNanos = 0;
+        private long filterNanos = 0;
+        private long totalNanos = 0;
+        private double elapsedSeconds = 0;
+        /**
+         * The time to read each row group in microseconds.
+         */
+        private final Histogram rowGroupMicros = new Histogram(SIGNIFICANT_DIGITS);
+
+        private void merge(Result other)
+        {
+            numRowGroups += other.numRowGroups;
+            rows += other.rows;
+            matchedRows += other.matchedRows;
+            bytes += other.bytes;
+            ioNanos += other.ioNanos;
+            filterNanos += other.filterNanos;
+            totalNanos += other.totalNanos;
+            rowGroupMicros.add(other.rowGroupMicros);
+        }
+
+        public int getNumFiles()
+        {
+            return numFiles;
+        }
+
+        /**
+         * @return the number of row groups that are read
+         */
+        public int getNumRowGroups()
+        {
+            return numRowGroups;
+        }
+
+        /**
+         * @return the number of row groups that are skipped by their statistics
+         */
+        public int getNumPrunedRowGroups()
+        {
+            return numPrunedRowGroups;
+        }
+
+        public long getRows()
+        {
+            return rows;
+        }
+
+        /**
+         * @return the number of rows that match the predicate, or all the rows if there is no predicate
+         */
+        public long getMatchedRows()
+        {
+            return matchedRows;
+        }
+
+        /**
+         * @return the bytes read from the storage
+         */
+        public long getBytes()
+        {
+            return bytes;
+        }
+
+        public double getElapsedSeconds()
+        {
+            return elapsedSeconds;
+        }
+
+        public double getRowsPerSecond()
+        {
+            return elapsedSeconds == 0 ? 0 : rows / elapsedSeconds;
+        }
+
+        public double getBytesPerSecond()
+        {
+            return elapsedSeconds == 0 ? 0 : bytes / elapsedSeconds;
+        }
+
+        /**
+         * @return the fractions of the total time of the row groups spent on I/O, decoding, and filtering
+         */
+        public double[] getTimeSplit()
+        {
+            if (totalNanos == 0)
+            {
+                return new double[]{0, 0, 0};
+            }
+            double io = ioNanos / (double) totalNanos;
+            double filter = filterNanos / (double) totalNanos;
+            return new double[]{io, Math.max(0, 1 - io - filter), filter};
+        }
+
+        public Histogram getRowGroupMicros()
+        {
+            return rowGroupMicros;
+        }
+
+        public void print()
+        {
+            double[] split = getTimeSplit();
+            System.out.println(String.format("%d files, %d row groups read, %d row groups pruned, %d rows, " +
+                            "%d matched rows, %.1f MB read in %.3fs", numFiles, numRowGroups, numPrunedRowGroups,
+                    rows, matchedRows, bytes / 1048576.0, elapsedSeconds));
+            System.out.println(String.format("%.0f rows/s, %.1f MB/s, io %.1f%%, decode %.1f%%, filter %.1f%%",
+                    getRowsPerSecond(), getBytesPerSecond() / 1048576.0,
+                    split[0] * 100, split[1] * 100, split[2] * 100));
+            System.out.println(String.format("row group p50 %.1fms, p99 %.1fms, max %.1fms",
+                    rowGroupMicros.getValueAtPercentile(50) / 1000.0,
+                    rowGroupMicros.getValueAtPercentile(99) / 1000.0, rowGroupMicros.getMaxValue() / 1000.0));
+        }
+
+        /**
+         * @return the measurements in the columns of {@link #CSV_HEADER}
+         */
+        public String toCsv()
+        {
+            double[] split = getTimeSplit();
+            return String.format("%d,%d,%d,%d,%d,%d,%.3f,%.1f,%.3f,%.1f,%.1f,%.1f,%.3f,%.3f,%.3f",
+                    numFiles, numRowGroups, numPrunedRowGroups, rows, matchedRows, bytes, elapsedSeconds,
+                    getRowsPerSecond(), getBytesPerSecond() / 1048576.0, split[0] * 100, split[1] * 100,
+                    split[2] * 100, rowGroupMicros.getValueAtPercentile(50) / 1000.0,
+                    rowGroupMicros.getValueAtPercentile(99) / 1000.0, rowGroupMicros.getMaxValue() / 1000.0);
+        }
+    }
+
+    /**
+     * A row group to read.
+     */
+    private static class RowGroup
+    {
+        private final String path;
+        private final int rowGroupId;
+
+        private RowGroup(String path, int rowGroupId)
+        {
+            this.path = path;
+            this.rowGroupId = rowGroupId;
+        }
+    }
+
+    private final int parallelism;
+    private final int batchSize;
+
+    /**
+     * @param parallelism the number of threads that read the row groups concurrently
+     * @param batchSize the number of rows in each row batch
+     */
+    public ScanRunner(int parallelism, int batchSize)
+    {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        checkArgument(batchSize > 0, "batchSize must be positive");
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Read the columns of the files.
+     * @param files the paths of the files
+     * @param columns the columns to read, null or empty to read all the columns
+     * @param predicate the predicate to filter the rows, null to read all the rows
+     * @param logWriter the writer of the measurements of each row group, null to skip them
+     * @return the measurements of the scan
+     * @throws IOException if failed to read any of the files
+     * @throws InterruptedException if interrupted while waiting for the scan threads
+     */
+    public Result scan(List<String> files, String[] columns, ScanPredicate predicate, Writer logWriter)
+            throws IOException, InterruptedException
+    {
+        Result result = new Result();
+        result.numFiles = files.size();
+        long start = System.nanoTime();
+
+        // read the footers and prune the row groups
+        List<RowGroup> rowGroups = new ArrayList<>();
+        String[] includedColumns = columns;
+        for (String path : files)
+        {
+            Storage storage = StorageFactory.Instance().getStorage(path);
+            try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+            {
+                List<String> fieldNames = pixelsReader.getFileSchema().getFieldNames();
+                if (includedColumns == null || includedColumns.length == 0)
+                {
+                    includedColumns = fieldNames.toArray(new String[0]);
+                }
+                PixelsProto.Footer footer = pixelsReader.getFooter();
+                int predicateColumnId = -1;
+                ScanPredicate.Bound bound = null;
+                if (predicate != null)
+                {
+                    predicateColumnId = fieldNames.indexOf(predicate.getColumn());
+                    checkArgument(predicateColumnId >= 0, "predicate column '%s' is not found in '%s'",
+                            predicate.getColumn(), path);
+                    bound = predicate.bind(footer.getTypes(predicateColumnId));
+                }
+                for (int i = 0; i < pixelsReader.getRowGroupNum(); ++i)
+                {
+                    if (bound != null && i < footer.getRowGroupStatsCount() &&
+                            !bound.mayMatch(footer.getRowGroupStats(i).getColumnChunkStats(predicateColumnId)))
+                    {
+                        result.numPrunedRowGroups++;
+                        continue;
+                    }
+                    rowGroups.add(new RowGroup(path, i));
+                }
+            }
+        }
+        // the predicate column is read after the projected columns if it is not projected
+        int predicateIndex = -1;
+        if (predicate != null)
+        {
+            predicateIndex = Arrays.asList(includedColumns).indexOf(predicate.getColumn());
+            if (predicateIndex < 0)
+            {
+                includedColumns = Arrays.copyOf(includedColumns, includedColumns.length + 1);
+                predicateIndex = includedColumns.length - 1;
+                includedColumns[predicateIndex] = predicate.getColumn();
+            }
+        }
+
+        String[] finalColumns = includedColumns;
+        int finalPredicateIndex = predicateIndex;
+        int numThreads = Math.max(1, Math.min(parallelism, rowGroups.size()));
+        ExecutorService scanExecutor = Executors.newFixedThreadPool(numThreads);
+        AtomicInteger nextRowGroup = new AtomicInteger(0);
+        List<Future<Result>> futures = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; ++i)
+        {
+            futures.add(scanExecutor.submit(() -> {
+                Result partial = new Result();
+                int rowGroupId;
+                while ((rowGroupId = nextRowGroup.getAndIncrement()) < rowGroups.size())
+                {
+                    readRowGroup(rowGroups.get(rowGroupId), finalColumns, predicate,
+                            finalPredicateIndex, partial, logWriter);
+                }
+                return partial;
+            }));
+        }
+        scanExecutor.shutdown();
+
+        try
+        {
+            for (Future<Result> future : futures)
+            {
+                result.merge(future.get());
+            }
+        } catch (ExecutionException e)
+        {
+            // stop the other threads from reading the remaining row groups
+            nextRowGroup.set(rowGroups.size());
+            scanExecutor.shutdownNow();
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("failed to scan the files", e.getCause());
+        }
+        result.elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        if (logWriter != null)
+        {
+            logWriter.flush();
+        }
+        return result;
+    }
+
+    private void readRowGroup(RowGroup rowGroup, String[] columns, ScanPredicate predicate, int predicateIndex,
+                              Result partial, Writer logWriter) throws IOException
+    {
+        Storage storage = StorageFactory.Instance().getStorage(rowGroup.path);
+        // the footer is found in the shared footer cache, thus reopening the file for each row group is cheap
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, rowGroup.path))
+        {
+            ScanPredicate.Bound bound = null;
+            if (predicate != null)
+            {
+                int columnId = pixelsReader.getFileSchema().getFieldNames().indexOf(predicate.getColumn());
+                bound = predicate.bind(pixelsReader.getFooter().getTypes(columnId));
+            }
+            PixelsReaderOption option = new PixelsReaderOption();
+            option.skipCorruptRecords(true);
+            option.tolerantSchemaEvolution(true);
+            option.includeCols(columns);
+            option.rgRange(rowGroup.rowGroupId, 1);
+
+            long start = System.nanoTime();
+            long filterNanos = 0, rows = 0, matchedRows = 0;
+            PixelsRecordReader recordReader = pixelsReader.read(option);
+            VectorizedRowBatch rowBatch;
+            do
+            {
+                rowBatch = recordReader.readBatch(batchSize);
+                rows += rowBatch.size;
+                if (bound == null)
+                {
+                    matchedRows += rowBatch.size;
+                    continue;
+                }
+                long filterStart = System.nanoTime();
+                ColumnVector vector = rowBatch.cols[predicateIndex];
+                for (int r = 0; r < rowBatch.size; ++r)
+                {
+                    if (bound.test(vector, r))
+                    {
+                        matchedRows++;
+                    }
+                }
+                filterNanos += System.nanoTime() - filterStart;
+            } while (!rowBatch.endOfFile);
+            long totalNanos = System.nanoTime() - start;
+            long ioNanos = Math.min(recordReader.getReadTimeNanos(), totalNanos);
+            long bytes = recordReader.getCompletedBytes();
+            recordReader.close();
+
+            partial.numRowGroups++;
+            partial.rows += rows;
+            partial.matchedRows += matchedRows;
+            partial.bytes += bytes;
+            partial.ioNanos += ioNanos;
+            partial.filterNanos += filterNanos;
+            partial.totalNanos += totalNanos;
+            partial.rowGroupMicros.recordValue(Math.max(1, totalNanos / 1000));
+            if (logWriter != null)
+            {
+                String line = String.format("%s,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f\n", rowGroup.path,
+                        rowGroup.rowGroupId, rows, matchedRows, bytes, ioNanos / 1e6,
+                        Math.max(0, totalNanos - ioNanos - filterNanos) / 1e6, filterNanos / 1e6, totalNanos / 1e6);
+                synchronized (logWriter)
+                {
+                    logWriter.write(line);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.utils.ConfigFactory;
+import io.pixelsdb.pixels.core.PixelsFooterCache;
+import io.pixelsdb.pixels.core.PixelsProto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The process-wide footer cache shared by the commands in pixels-sink.
+ * <p>
+ * Different from {@link PixelsFooterCache} which never evicts, this cache holds at most
+ * a bounded number of file tails and row group footers and evicts the least recently used ones.
+ * The bounds can be set by 'sink.footer.cache.file.tails' and 'sink.footer.cache.rg.footers'
+ * in pixels.properties.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SharedFooterCache extends PixelsFooterCache
+{
+    private static final int DEFAULT_MAX_FILE_TAILS = 10000;
+    private static final int DEFAULT_MAX_RG_FOOTERS = 100000;
+
+    private static volatile SharedFooterCache instance = null;
+
+    public static SharedFooterCache Instance()
+    {
+        if (instance == null)
+        {
+            synchronized (SharedFooterCache.class)
+            {
+                if (instance == null)
+                {
+                    ConfigFactory configFactory = ConfigFactory.Instance();
+                    instance = new SharedFooterCache(
+                            getOrDefault(configFactory, "sink.footer.cache.file.tails", DEFAULT_MAX_FILE_TAILS),
+                            getOrDefault(configFactory, "sink.footer.cache.rg.footers", DEFAULT_MAX_RG_FOOTERS));
+                }
+            }
+        }
+        return instance;
+    }
+
+    private static int getOrDefault(ConfigFactory configFactory, String key, int defaultValue)
+    {
+        String value = configFactory.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private final Map<String, PixelsProto.FileTail> fileTails;
+    private final Map<String, PixelsProto.RowGroupFooter> rowGroupFooters;
+
+    SharedFooterCache(int maxFileTails, int maxRowGroupFooters)
+    {
+        this.fileTails = new LruMap<>(maxFileTails);
+        this.rowGroupFooters = new LruMap<>(maxRowGroupFooters);
+    }
+
+    @Override
+    public void putFileTail(String id, PixelsProto.FileTail fileTail)
+    {
+        synchronized (fileTails)
+        {
+            fileTails.put(id, fileTail);
+        }
+    }
+
+    @Override
+    public PixelsProto.FileTail getFileTail(String id)
+    {
+        synchronized (fileTails)
+        {
+            return fileTails.get(id);
+        }
+    }
+
+    @Override
+    public void putRGFooter(String id, PixelsProto.RowGroupFooter footer)
+    {
+        synchronized (rowGroupFooters)
+        {
+            rowGroupFooters.put(id, footer);
+        }
+    }
+
+    @Override
+    public PixelsProto.RowGroupFooter getRGFooter(String id)
+    {
+        synchronized (rowGroupFooters)
+        {
+            return rowGroupFooters.get(id);
+        }
+    }
+
+    private static class LruMap<K, V> extends LinkedHashMap<K, V>
+    {
+        private final int capacity;
+
+        private LruMap(int capacity)
+        {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+        {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The thread pool shared by the commands, so that the jobs in the sink server reuse the warmed threads
+ * instead of creating and destroying a thread pool in each job.
+ * <p>
+ * A command submits its tasks through a {@link TaskGroup}, which bounds the number of its concurrently
+ * running tasks as the fixed thread pool of the command did. The pool itself is unbounded, thus a task
+ * group never waits for the tasks of the other jobs. The output of the submitting thread is propagated
+ * to the tasks by {@link ThreadOutput#wrap(Callable)}.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SharedThreadPool
+{
+    private static final AtomicInteger nextThreadId = new AtomicInteger(0);
+    private static final ThreadPoolExecutor POOL = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            5, TimeUnit.MINUTES, new SynchronousQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "sink-shared-" + nextThreadId.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private SharedThreadPool()
+    {
+    }
+
+    /**
+     * Start the threads that are kept alive in the pool even if they are idle.
+     * @param numThreads the number of the warmed threads
+     */
+    public static synchronized void prestart(int numThreads)
+    {
+        checkArgument(numThreads >= 0, "numThreads must be non-negative");
+        POOL.setCorePoolSize(numThreads);
+        POOL.prestartAllCoreThreads();
+    }
+
+    /**
+     * @param parallelism the max number of the concurrently running tasks in the group
+     * @return a new task group on the shared pool
+     */
+    public static TaskGroup newTaskGroup(int parallelism)
+    {
+        return new TaskGroup(parallelism);
+    }
+
+    /**
+     * The tasks of a command that run in the shared pool. At most parallelism tasks are running at the
+     * same time, the other tasks wait in the queue of the group. It is thread safe.
+     */
+    public static class TaskGroup implements Executor
+    {
+        private final int parallelism;
+        private final Queue<FutureTask<?>> pending = new ArrayDeque<>();
+        // the submitted tasks that are not done, a task removes itself when it is done
+        private final Set<Future<?>> incomplete = new HashSet<>();
+        private int running = 0;
+
+        private TaskGroup(int parallelism)
+        {
+            checkArgument(parallelism > 0, "parallelism must be positive");
+            this.parallelism = parallelism;
+        }
+
+        public <T> Future<T> submit(Callable<T> task)
+        {
+            FutureTask<T> future = new FutureTask<T>(ThreadOutput.wrap(task))
+            {
+                @Override
+                protected void done()
+                {
+                    complete(this);
+                }
+            };
+            boolean start;
+            synchronized (this)
+            {
+                incomplete.add(future);
+                start = running < parallelism;
+                if (start)
+                {
+                    running++;
+                }
+                else
+                {
+                    pending.add(future);
+                }
+            }
+            if (start)
+            {
+                POOL.execute(() -> runTasks(future));
+            }
+            return future;
+        }
+
+        public Future<?> submit(Runnable task)
+        {
+            return submit(Executors.callable(task));
+        }
+
+        @Override
+        public void execute(Runnable task)
+        {
+            submit(task);
+        }
+
+        /**
+         * Run the task and then the pending tasks of this group on the current thread.
+         */
+        private void runTasks(FutureTask<?> first)
+        {
+            FutureTask<?> task = first;
+            while (task != null)
+            {
+                task.run();
+                // clear the interrupt of a cancelled task, it must not affect the next task
+                Thread.interrupted();
+                synchronized (this)
+                {
+                    task = pending.poll();
+                    if (task == null)
+                    {
+                        running--;
+                    }
+                }
+            }
+        }
+
+        private synchronized void complete(Future<?> future)
+        {
+            incomplete.remove(future);
+            if (incomplete.isEmpty())
+            {
+                notifyAll();
+            }
+        }
+
+        /**
+         * Wait for all the submitted tasks to complete, fail or be cancelled. The results and failures
+         * of the tasks are left to the callers of {@link #submit(Callable)}.
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public synchronized void awaitAll() throws InterruptedException
+        {
+            while (!incomplete.isEmpty())
+            {
+                wait();
+            }
+        }
+
+        /**
+         * Cancel the pending tasks and interrupt the running tasks.
+         */
+        public synchronized void cancelAll()
+        {
+            // a cancelled task removes itself from the incomplete tasks
+            for (Future<?> future : new ArrayList<>(incomplete))
+            {
+                future.cancel(true);
+            }
+        }
+    }
+}
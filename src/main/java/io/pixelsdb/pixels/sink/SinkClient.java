@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ClientCalls;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * The client of the sink server, it submits the jobs and receives their output.
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SinkClient implements AutoCloseable
+{
+    private final ManagedChannel channel;
+
+    public SinkClient(String host, int port)
+    {
+        this.channel = ManagedChannelBuilder.forAddress(host, port).usePlaintext().build();
+    }
+
+    /**
+     * Execute a command on the server, it blocks until the job is done.
+     * @param command the command line
+     * @param lineConsumer consumes the output lines of the job
+     * @return true if the job is done successfully
+     */
+    public boolean execute(String command, Consumer<String> lineConsumer)
+    {
+        try
+        {
+            Iterator<SinkService.JobProgress> progresses = ClientCalls.blockingServerStreamingCall(
+                    channel, SinkService.EXECUTE_METHOD, CallOptions.DEFAULT, new SinkService.JobRequest(command));
+            while (progresses.hasNext())
+            {
+                SinkService.JobProgress progress = progresses.next();
+                if (progress.isDone())
+                {
+                    lineConsumer.accept(progress.getJobId() + " is done in " + progress.getElapsedMs() +
+                            "ms, success: " + progress.isSuccess());
+                    return progress.isSuccess();
+                }
+                lineConsumer.accept(progress.getLine());
+            }
+            lineConsumer.accept("The job is ended without a result.");
+            return false;
+        } catch (StatusRuntimeException e)
+        {
+            lineConsumer.accept("Failed to execute the job: " + e.getStatus());
+            return false;
+        }
+    }
+
+    /**
+     * Cancel a queued or running job on the server.
+     * @param jobId the id of the job, which is in the first output line of the job
+     * @param lineConsumer consumes the result of the cancellation
+     * @return true if the job is found and cancelled, false if it is done, not found, or failed to cancel
+     */
+    public boolean cancel(String jobId, Consumer<String> lineConsumer)
+    {
+        try
+        {
+            SinkService.CancelResponse response = ClientCalls.blockingUnaryCall(channel,
+                    SinkService.CANCEL_METHOD, CallOptions.DEFAULT, new SinkService.CancelRequest(jobId));
+            lineConsumer.accept(response.isFound() ? jobId + " is cancelled." :
+                    jobId + " is not found, it may be done.");
+            return response.isFound();
+        } catch (StatusRuntimeException e)
+        {
+            lineConsumer.accept("Failed to cancel the job: " + e.getStatus());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException
+    {
+        channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
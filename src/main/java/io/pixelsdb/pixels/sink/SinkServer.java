@@ -0,0 +1,352 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.google.common.collect.ImmutableSet;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The long-running sink server that executes the jobs submitted by {@link SinkService}.
+ * <p>
+ * A job is a command line of LOAD, COPY, COMPACT, STAT, WORKER, or INGEST, executed by
+ * {@link Main#executeCommand(String)} on a thread of the job pool. The server process keeps the loaded
+ * classes, the storage clients in StorageFactory, the footer cache and the JIT-compiled code across the
+ * jobs, thus a small job does not pay for starting a JVM. The job threads and the threads of
+ * {@link SharedThreadPool}, on which the commands run their tasks, are started and kept warm by the server.
+ * The output of a job is routed by {@link ThreadOutput} and streamed back to the client line by line.
+ * </p>
+ * <p>
+ * A job can be cancelled by its id, e.g., a COMPACT daemon that holds a job thread until it is stopped.
+ * A queued job is removed before it starts, and a running job is interrupted; the commands stop at
+ * their next blocking wait (e.g., the poll interval of the daemon or the wait for their tasks).
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SinkServer
+{
+    public static final Set<String> SUPPORTED_COMMANDS = ImmutableSet.of(
+            "LOAD", "COPY", "COMPACT", "STAT", "WORKER", "INGEST");
+
+    /**
+     * Executes the command line of a job, the output of the command is printed to System.out and System.err.
+     */
+    interface CommandExecutor
+    {
+        void execute(String command);
+    }
+
+    private final int port;
+    private final int numSharedThreads;
+    private final ThreadPoolExecutor jobExecutor;
+    private final CommandExecutor commandExecutor;
+    private final AtomicLong nextJobId = new AtomicLong(0);
+    /**
+     * The queued and running jobs by their ids.
+     */
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+    private Server server;
+
+    /**
+     * @param port the port of the gRPC server
+     * @param numJobThreads the max number of concurrent jobs, the other jobs wait in the queue
+     * @param numSharedThreads the number of the warmed threads in the shared pool of the commands
+     */
+    public SinkServer(int port, int numJobThreads, int numSharedThreads)
+    {
+        this(port, numJobThreads, numSharedThreads, Main::executeCommand);
+    }
+
+    SinkServer(int port, int numJobThreads, int numSharedThreads, CommandExecutor commandExecutor)
+    {
+        checkArgument(numJobThreads > 0, "numJobThreads must be positive");
+        checkArgument(numSharedThreads >= 0, "numSharedThreads must be non-negative");
+        this.port = port;
+        this.numSharedThreads = numSharedThreads;
+        this.jobExecutor = new ThreadPoolExecutor(numJobThreads, numJobThreads,
+                0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.commandExecutor = commandExecutor;
+    }
+
+    public void start() throws IOException
+    {
+        ThreadOutput.install();
+        jobExecutor.prestartAllCoreThreads();
+        SharedThreadPool.prestart(numSharedThreads);
+        ServerServiceDefinition service = ServerServiceDefinition.builder(SinkService.SERVICE_NAME)
+                .addMethod(SinkService.EXECUTE_METHOD, ServerCalls.asyncServerStreamingCall(this::execute))
+                .addMethod(SinkService.CANCEL_METHOD, ServerCalls.asyncUnaryCall(this::cancel))
+                .build();
+        this.server = ServerBuilder.forPort(port).addService(service).build().start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown));
+        System.out.println("Sink server is started on port " + getPort() + ".");
+    }
+
+    /**
+     * @return the port the server is listening on, which is assigned by the system if the given port is 0
+     */
+    public int getPort()
+    {
+        return server.getPort();
+    }
+
+    public void awaitTermination() throws InterruptedException
+    {
+        server.awaitTermination();
+    }
+
+    public void shutdown()
+    {
+        if (server != null)
+        {
+            server.shutdown();
+        }
+        for (Job job : jobs.values())
+        {
+            job.cancel();
+        }
+        jobExecutor.shutdown();
+        try
+        {
+            jobExecutor.awaitTermination(60, TimeUnit.SECONDS);
+        } catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private void execute(SinkService.JobRequest request, StreamObserver<SinkService.JobProgress> observer)
+    {
+        String command = request.getCommand() == null ? "" : request.getCommand().trim();
+        if (command.endsWith(";"))
+        {
+            command = command.substring(0, command.length() - 1).trim();
+        }
+        String commandName = command.split("\\s+")[0].toUpperCase();
+        if (!SUPPORTED_COMMANDS.contains(commandName))
+        {
+            observer.onError(Status.INVALID_ARGUMENT.withDescription("command '" + commandName +
+                    "' is not supported by the server, supported commands: " + SUPPORTED_COMMANDS)
+                    .asRuntimeException());
+            return;
+        }
+
+        String jobId = "job-" + nextJobId.incrementAndGet();
+        Job job = new Job(jobId, new JobOutput(jobId, observer));
+        String jobCommand = command;
+        System.out.println(jobId + " is submitted: " + jobCommand);
+        job.output.send(SinkService.JobProgress.line(jobId, jobId + " is submitted."));
+        job.future = new FutureTask<>(() -> {
+            if (!job.started.compareAndSet(false, true))
+            {
+                // the job is cancelled before it starts
+                return;
+            }
+            long start = System.currentTimeMillis();
+            boolean success = true;
+            ThreadOutput.set(job.output);
+            try
+            {
+                commandExecutor.execute(jobCommand);
+            } catch (Throwable e)
+            {
+                success = false;
+                e.printStackTrace();
+            } finally
+            {
+                ThreadOutput.remove();
+                jobs.remove(jobId);
+                // clear the interrupt of the cancelled job, it must not affect the next job on this thread
+                boolean cancelled = Thread.interrupted() || job.cancelled;
+                job.output.close(success && !cancelled, System.currentTimeMillis() - start);
+            }
+            System.out.println(jobId + " is done in " + (System.currentTimeMillis() - start) + "ms.");
+        }, null);
+        jobs.put(jobId, job);
+        jobExecutor.execute(job.future);
+    }
+
+    private void cancel(SinkService.CancelRequest request, StreamObserver<SinkService.CancelResponse> observer)
+    {
+        Job job = request.getJobId() == null ? null : jobs.get(request.getJobId().trim());
+        if (job != null)
+        {
+            System.out.println(job.jobId + " is cancelled.");
+            job.cancel();
+        }
+        observer.onNext(new SinkService.CancelResponse(job != null));
+        observer.onCompleted();
+    }
+
+    /**
+     * A queued or running job.
+     */
+    private class Job
+    {
+        private final String jobId;
+        private final JobOutput output;
+        /**
+         * Set by the job thread when the job starts, or by the canceller if the job is cancelled before it starts.
+         */
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private FutureTask<?> future;
+        private volatile boolean cancelled = false;
+
+        private Job(String jobId, JobOutput output)
+        {
+            this.jobId = jobId;
+            this.output = output;
+        }
+
+        private void cancel()
+        {
+            cancelled = true;
+            if (started.compareAndSet(false, true))
+            {
+                jobs.remove(jobId);
+                output.close(false, 0);
+            }
+            else
+            {
+                // interrupt the command, the job thread closes the output when the command returns
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * The output of a job that sends each line to the client. It is thread safe, as the tasks
+     * of the job write into it concurrently.
+     */
+    private static class JobOutput extends OutputStream implements ThreadOutput.Output
+    {
+        private final String jobId;
+        private final StreamObserver<SinkService.JobProgress> observer;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+        private final PrintStream printStream;
+        private volatile boolean closed = false;
+
+        private JobOutput(String jobId, StreamObserver<SinkService.JobProgress> observer)
+        {
+            this.jobId = jobId;
+            this.observer = observer;
+            try
+            {
+                this.printStream = new PrintStream(this, true, StandardCharsets.UTF_8.name());
+            } catch (UnsupportedEncodingException e)
+            {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public PrintStream getPrintStream()
+        {
+            return printStream;
+        }
+
+        @Override
+        public boolean isClosed()
+        {
+            return closed;
+        }
+
+        @Override
+        public synchronized void write(int b)
+        {
+            if (b == '\n')
+            {
+                sendLine();
+            }
+            else
+            {
+                line.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len)
+        {
+            for (int i = off; i < off + len; ++i)
+            {
+                write(b[i]);
+            }
+        }
+
+        private void sendLine()
+        {
+            String text = new String(line.toByteArray(), StandardCharsets.UTF_8);
+            line.reset();
+            send(SinkService.JobProgress.line(jobId, text.endsWith("\r") ?
+                    text.substring(0, text.length() - 1) : text));
+        }
+
+        private void send(SinkService.JobProgress progress)
+        {
+            if (observer instanceof ServerCallStreamObserver &&
+                    ((ServerCallStreamObserver<?>) observer).isCancelled())
+            {
+                // the client is gone, the job keeps running and its output is dropped
+                return;
+            }
+            try
+            {
+                observer.onNext(progress);
+            } catch (RuntimeException e)
+            {
+                // the call is cancelled or closed concurrently
+            }
+        }
+
+        private synchronized void close(boolean success, long elapsedMs)
+        {
+            printStream.flush();
+            if (line.size() > 0)
+            {
+                sendLine();
+            }
+            closed = true;
+            send(SinkService.JobProgress.done(jobId, success, elapsedMs));
+            try
+            {
+                observer.onCompleted();
+            } catch (RuntimeException e)
+            {
+                // the call is cancelled
+            }
+        }
+    }
+}
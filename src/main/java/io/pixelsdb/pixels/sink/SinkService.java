@@ -0,0 +1,278 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import com.alibaba.fastjson.JSON;
+import io.grpc.MethodDescriptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The gRPC job API of the sink server.
+ * <p>
+ * A client submits a command line in the same syntax as the REPL by the server-streaming Execute method,
+ * and receives the output lines of the command until the job is done. The first line is the id of the job,
+ * by which the job can be cancelled from any client by the unary Cancel method. The messages are
+ * encoded in JSON instead of protobuf, so that no code generation is needed and a client in any language
+ * can call the method with a JSON codec.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SinkService
+{
+    public static final String SERVICE_NAME = "io.pixelsdb.pixels.sink.SinkService";
+
+    public static final MethodDescriptor<JobRequest, JobProgress> EXECUTE_METHOD =
+            MethodDescriptor.<JobRequest, JobProgress>newBuilder()
+                    .setType(MethodDescriptor.MethodType.SERVER_STREAMING)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Execute"))
+                    .setRequestMarshaller(new JsonMarshaller<>(JobRequest.class))
+                    .setResponseMarshaller(new JsonMarshaller<>(JobProgress.class))
+                    .build();
+
+    public static final MethodDescriptor<CancelRequest, CancelResponse> CANCEL_METHOD =
+            MethodDescriptor.<CancelRequest, CancelResponse>newBuilder()
+                    .setType(MethodDescriptor.MethodType.UNARY)
+                    .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE_NAME, "Cancel"))
+                    .setRequestMarshaller(new JsonMarshaller<>(CancelRequest.class))
+                    .setResponseMarshaller(new JsonMarshaller<>(CancelResponse.class))
+                    .build();
+
+    private SinkService()
+    {
+    }
+
+    /**
+     * The request of a job.
+     */
+    public static class JobRequest
+    {
+        private String command;
+
+        public JobRequest()
+        {
+        }
+
+        public JobRequest(String command)
+        {
+            this.command = command;
+        }
+
+        /**
+         * @return the command line, e.g., 'STAT -s tpch -t region'
+         */
+        public String getCommand()
+        {
+            return command;
+        }
+
+        public void setCommand(String command)
+        {
+            this.command = command;
+        }
+    }
+
+    /**
+     * The progress of a job, i.e., an output line of the job, or the end of the job.
+     */
+    public static class JobProgress
+    {
+        private String jobId;
+        private String line;
+        private boolean done;
+        private boolean success;
+        private long elapsedMs;
+
+        public JobProgress()
+        {
+        }
+
+        public static JobProgress line(String jobId, String line)
+        {
+            JobProgress progress = new JobProgress();
+            progress.jobId = jobId;
+            progress.line = line;
+            return progress;
+        }
+
+        public static JobProgress done(String jobId, boolean success, long elapsedMs)
+        {
+            JobProgress progress = new JobProgress();
+            progress.jobId = jobId;
+            progress.done = true;
+            progress.success = success;
+            progress.elapsedMs = elapsedMs;
+            return progress;
+        }
+
+        public String getJobId()
+        {
+            return jobId;
+        }
+
+        public void setJobId(String jobId)
+        {
+            this.jobId = jobId;
+        }
+
+        /**
+         * @return the output line, or null if this is the end of the job
+         */
+        public String getLine()
+        {
+            return line;
+        }
+
+        public void setLine(String line)
+        {
+            this.line = line;
+        }
+
+        public boolean isDone()
+        {
+            return done;
+        }
+
+        public void setDone(boolean done)
+        {
+            this.done = done;
+        }
+
+        /**
+         * @return false if the command threw an exception or the job is cancelled, the errors printed by
+         * the command are in the lines
+         */
+        public boolean isSuccess()
+        {
+            return success;
+        }
+
+        public void setSuccess(boolean success)
+        {
+            this.success = success;
+        }
+
+        public long getElapsedMs()
+        {
+            return elapsedMs;
+        }
+
+        public void setElapsedMs(long elapsedMs)
+        {
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    /**
+     * The request to cancel a job.
+     */
+    public static class CancelRequest
+    {
+        private String jobId;
+
+        public CancelRequest()
+        {
+        }
+
+        public CancelRequest(String jobId)
+        {
+            this.jobId = jobId;
+        }
+
+        public String getJobId()
+        {
+            return jobId;
+        }
+
+        public void setJobId(String jobId)
+        {
+            this.jobId = jobId;
+        }
+    }
+
+    /**
+     * The response of cancelling a job.
+     */
+    public static class CancelResponse
+    {
+        private boolean found;
+
+        public CancelResponse()
+        {
+        }
+
+        public CancelResponse(boolean found)
+        {
+            this.found = found;
+        }
+
+        /**
+         * @return true if the job is queued or running, false if it is done or never submitted
+         */
+        public boolean isFound()
+        {
+            return found;
+        }
+
+        public void setFound(boolean found)
+        {
+            this.found = found;
+        }
+    }
+
+    /**
+     * Encodes the messages in JSON, it is also used by {@link LoadService}.
+     */
+    static class JsonMarshaller<T> implements MethodDescriptor.Marshaller<T>
+    {
+        private final Class<T> clazz;
+
+        JsonMarshaller(Class<T> clazz)
+        {
+            this.clazz = clazz;
+        }
+
+        @Override
+        public InputStream stream(T value)
+        {
+            return new ByteArrayInputStream(JSON.toJSONBytes(value));
+        }
+
+        @Override
+        public T parse(InputStream stream)
+        {
+            try
+            {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int n;
+                while ((n = stream.read(buffer)) != -1)
+                {
+                    bytes.write(buffer, 0, n);
+                }
+                return JSON.parseObject(bytes.toByteArray(), clazz);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException("failed to read the message", e);
+            }
+        }
+    }
+}
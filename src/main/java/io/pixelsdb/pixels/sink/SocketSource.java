@@ -0,0 +1,208 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives the change events from the local socket connections, one event per line, e.g.,
+ * 'nc localhost 9999 &lt; events.json'.
+ * <p>
+ * The events of the connections are merged into a bounded queue, thus the senders are blocked if
+ * the ingestion falls behind. The events of different connections are not ordered. When the events are
+ * acknowledged, a line of 'ack {n}' is sent back on each connection, where n is the number of the events of
+ * the connection that are durable, and a connection closed by its sender is closed after all its events
+ * are acknowledged. The events are polled and acknowledged by a single thread.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SocketSource implements ChangeSource
+{
+    private static class Connection
+    {
+        private final Socket socket;
+        private final Writer writer;
+        private final AtomicLong numReceived = new AtomicLong(0);
+        private volatile boolean ended = false;
+        private long numPolled = 0;
+        private long numAcked = 0;
+
+        private Connection(Socket socket) throws IOException
+        {
+            this.socket = socket;
+            this.writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class Event
+    {
+        private final Connection connection;
+        private final String line;
+
+        private Event(Connection connection, String line)
+        {
+            this.connection = connection;
+            this.line = line;
+        }
+    }
+
+    private final ServerSocket serverSocket;
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>(64 * 1024);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed = false;
+
+    /**
+     * @param port the port to listen on the loopback address
+     * @throws IOException if failed to listen on the port
+     */
+    public SocketSource(int port) throws IOException
+    {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::accept, "change-source-acceptor");
+        this.acceptor.setDaemon(true);
+        this.acceptor.start();
+    }
+
+    private void accept()
+    {
+        while (!closed)
+        {
+            try
+            {
+                Connection connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                Thread reader = new Thread(() -> read(connection), "change-source-" + connection.socket.getPort());
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e)
+            {
+                if (!closed)
+                {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void read(Connection connection)
+    {
+        try
+        {
+            BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(connection.socket.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while (!closed && (line = reader.readLine()) != null)
+            {
+                connection.numReceived.incrementAndGet();
+                events.put(new Event(connection, line));
+            }
+        } catch (IOException e)
+        {
+            if (!closed)
+            {
+                e.printStackTrace();
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        } finally
+        {
+            // the connection is kept open to send the acknowledgements
+            connection.ended = true;
+        }
+    }
+
+    @Override
+    public String poll(long timeoutMs) throws InterruptedException
+    {
+        Event event = events.poll(timeoutMs, TimeUnit.MILLISECONDS);
+        if (event == null)
+        {
+            return null;
+        }
+        event.connection.numPolled++;
+        return event.line;
+    }
+
+    @Override
+    public void commit()
+    {
+        Iterator<Connection> iterator = connections.iterator();
+        while (iterator.hasNext())
+        {
+            Connection connection = iterator.next();
+            try
+            {
+                if (connection.numPolled > connection.numAcked)
+                {
+                    connection.writer.write("ack " + connection.numPolled + "\n");
+                    connection.writer.flush();
+                    connection.numAcked = connection.numPolled;
+                }
+                if (connection.ended && connection.numAcked == connection.numReceived.get())
+                {
+                    iterator.remove();
+                    connection.socket.close();
+                }
+            } catch (IOException e)
+            {
+                // the sender is gone, it resends the unacknowledged events on reconnection
+                iterator.remove();
+                closeQuietly(connection.socket);
+            }
+        }
+    }
+
+    private static void closeQuietly(Socket socket)
+    {
+        try
+        {
+            socket.close();
+        } catch (IOException e)
+        {
+            // the socket is closed anyway
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        closed = true;
+        serverSocket.close();
+        for (Connection connection : connections)
+        {
+            closeQuietly(connection.socket);
+        }
+        connections.clear();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Maps multi-dimensional points to one-dimensional positions on the Z-order or Hilbert curve.
+ * <p>
+ * The coordinates of a point must be non-negative and less than 2^bits, and
+ * (number of dimensions * bits) must not exceed 63, so that the positions are
+ * non-negative longs and can be compared as signed values.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class SpaceFillingCurve
+{
+    private SpaceFillingCurve()
+    {
+    }
+
+    /**
+     * @param numDimensions the number of dimensions
+     * @return the max number of bits of each coordinate
+     */
+    public static int getBitsPerDimension(int numDimensions)
+    {
+        checkArgument(numDimensions > 0, "numDimensions must be positive");
+        return Math.min(Long.SIZE - 1, (Long.SIZE - 1) / numDimensions);
+    }
+
+    /**
+     * Scale a value into a coordinate of the given bits, keeping the order of the values.
+     * @param value the value, in the range of [min, max]
+     * @param min the min value of the dimension
+     * @param max the max value of the dimension
+     * @param bits the number of bits of the coordinate
+     * @return the coordinate
+     */
+    public static long normalize(long value, long min, long max, int bits)
+    {
+        long range = max - min;
+        long offset = value - min;
+        // the range and offset are treated as unsigned, thus (max - min) never overflows.
+        int rangeBits = Long.SIZE - Long.numberOfLeadingZeros(range);
+        int shift = Math.max(0, rangeBits - bits);
+        return offset >>> shift;
+    }
+
+    /**
+     * @param coordinates the coordinates of the point
+     * @param bits the number of bits of each coordinate
+     * @return the position of the point on the Z-order curve
+     */
+    public static long zOrder(long[] coordinates, int bits)
+    {
+        checkArgument(coordinates.length * bits < Long.SIZE, "too many bits for a long");
+        return interleave(coordinates, bits);
+    }
+
+    /**
+     * Compute the position using the transpose-based algorithm in
+     * J. Skilling, "Programming the Hilbert curve", AIP Conference Proceedings 707, 2004.
+     * @param coordinates the coordinates of the point
+     * @param bits the number of bits of each coordinate
+     * @return the position of the point on the Hilbert curve
+     */
+    public static long hilbert(long[] coordinates, int bits)
+    {
+        int n = coordinates.length;
+        checkArgument(n * bits < Long.SIZE, "too many bits for a long");
+        if (bits == 0)
+        {
+            return 0;
+        }
+        long[] x = coordinates.clone();
+        long m = 1L << (bits - 1);
+        // inverse undo excess work
+        for (long q = m; q > 1; q >>>= 1)
+        {
+            long p = q - 1;
+            for (int i = 0; i < n; ++i)
+            {
+                if ((x[i] & q) != 0)
+                {
+                    x[0] ^= p;
+                }
+                else
+                {
+                    long t = (x[0] ^ x[i]) & p;
+                    x[0] ^= t;
+                    x[i] ^= t;
+                }
+            }
+        }
+        // gray encode
+        for (int i = 1; i < n; ++i)
+        {
+            x[i] ^= x[i - 1];
+        }
+        long t = 0;
+        for (long q = m; q > 1; q >>>= 1)
+        {
+            if ((x[n - 1] & q) != 0)
+            {
+                t ^= q - 1;
+            }
+        }
+        for (int i = 0; i < n; ++i)
+        {
+            x[i] ^= t;
+        }
+        return interleave(x, bits);
+    }
+
+    private static long interleave(long[] coordinates, int bits)
+    {
+        long position = 0;
+        for (int b = bits - 1; b >= 0; --b)
+        {
+            for (long coordinate : coordinates)
+            {
+                position = (position << 1) | ((coordinate >>> b) & 1L);
+            }
+        }
+        return position;
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.LocalFileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hdfs.DistributedFileSystem;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The local cache of the partial results of STAT, so that a STAT run only reads
+ * the files that are new or changed since the last run.
+ * <p>
+ * The cache holds the {@link ColumnStatsAggregate} of each file, keyed by its path, length, and
+ * modification time. An entry is valid if its file still exists with the same length and modification
+ * time, otherwise it is dropped and the file (if it still exists) is read again. The modification times
+ * are listed through the hadoop file system of the paths; for the storages without one (e.g., S3),
+ * the files are identified by their paths and lengths, which is enough for the immutable pixels files.
+ * The cache file is deflated, as the distinct sketches of the small files are mostly empty registers.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class StatCache
+{
+    private static final int MAGIC = 0x50585354;
+    private static final int VERSION = 3;
+
+    private static class Entry
+    {
+        private final long length;
+        private final long modificationTime;
+        private final boolean withRows;
+        private final ColumnStatsAggregate aggregate;
+
+        private Entry(long length, long modificationTime, boolean withRows, ColumnStatsAggregate aggregate)
+        {
+            this.length = length;
+            this.modificationTime = modificationTime;
+            this.withRows = withRows;
+            this.aggregate = aggregate;
+        }
+    }
+
+    private final File cacheFile;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+    /**
+     * The modification times of the current files listed by {@link #retainValid(List, boolean)}.
+     */
+    private final Map<String, Long> modificationTimes = new HashMap<>();
+
+    /**
+     * @param cacheFile the local cache file, which is loaded if it exists
+     * @throws IOException if failed to read the cache file
+     */
+    public StatCache(String cacheFile) throws IOException
+    {
+        this.cacheFile = new File(requireNonNull(cacheFile, "cacheFile is null"));
+        if (!this.cacheFile.exists())
+        {
+            return;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(this.cacheFile))))
+        {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION)
+            {
+                System.out.println("STAT cache '" + cacheFile + "' is of an unknown version and ignored.");
+                return;
+            }
+            DataInputStream entryInput = new DataInputStream(new BufferedInputStream(new InflaterInputStream(input)));
+            int numEntries = entryInput.readInt();
+            for (int i = 0; i < numEntries; ++i)
+            {
+                String path = entryInput.readUTF();
+                long length = entryInput.readLong();
+                long modificationTime = entryInput.readLong();
+                boolean withRows = entryInput.readBoolean();
+                entries.put(path, new Entry(length, modificationTime, withRows,
+                        ColumnStatsAggregate.readFrom(entryInput)));
+            }
+        }
+    }
+
+    /**
+     * Drop the entries that are no longer valid for the current files.
+     * @param statuses the statuses of the current files
+     * @param withRows whether the null counts and distinct sketches are required
+     * @return the statuses of the files that are not covered by the remaining entries
+     */
+    public List<Status> retainValid(List<Status> statuses, boolean withRows)
+    {
+        modificationTimes.clear();
+        modificationTimes.putAll(getModificationTimes(statuses));
+        Map<String, Status> current = new HashMap<>(statuses.size());
+        for (Status status : statuses)
+        {
+            current.put(status.getPath(), status);
+        }
+        entries.entrySet().removeIf(file -> {
+            Status status = current.get(file.getKey());
+            Entry entry = file.getValue();
+            return status == null || status.getLength() != entry.length ||
+                    modificationTimes.getOrDefault(file.getKey(), 0L) != entry.modificationTime ||
+                    (withRows && !entry.withRows);
+        });
+        List<Status> uncovered = new ArrayList<>();
+        for (Status status : statuses)
+        {
+            if (!entries.containsKey(status.getPath()))
+            {
+                uncovered.add(status);
+            }
+        }
+        return uncovered;
+    }
+
+    /**
+     * Add the aggregate of a file into this cache. The modification time of the file is the one
+     * listed before it is read by the last {@link #retainValid(List, boolean)}.
+     * @param status the status of the file
+     * @param withRows whether the aggregate contains the null counts and distinct sketches
+     * @param aggregate the aggregate of the file
+     */
+    public void add(Status status, boolean withRows, ColumnStatsAggregate aggregate)
+    {
+        entries.put(status.getPath(), new Entry(status.getLength(),
+                modificationTimes.getOrDefault(status.getPath(), 0L), withRows, aggregate));
+    }
+
+    /**
+     * @return the number of cached files
+     */
+    public int getNumFiles()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Write this cache into the cache file. The cache file is replaced atomically,
+     * thus it is never left half written.
+     * @throws IOException if failed to write the cache file
+     */
+    public void save() throws IOException
+    {
+        File tmpFile = new File(cacheFile.getPath() + ".tmp");
+        try (FileOutputStream fileOutput = new FileOutputStream(tmpFile))
+        {
+            DataOutputStream output = new DataOutputStream(fileOutput);
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            DeflaterOutputStream deflater = new DeflaterOutputStream(fileOutput);
+            DataOutputStream entryOutput = new DataOutputStream(new BufferedOutputStream(deflater));
+            entryOutput.writeInt(entries.size());
+            for (Map.Entry<String, Entry> file : entries.entrySet())
+            {
+                Entry entry = file.getValue();
+                entryOutput.writeUTF(file.getKey());
+                entryOutput.writeLong(entry.length);
+                entryOutput.writeLong(entry.modificationTime);
+                entryOutput.writeBoolean(entry.withRows);
+                entry.aggregate.writeTo(entryOutput);
+            }
+            entryOutput.flush();
+            deflater.finish();
+            fileOutput.getFD().sync();
+        }
+        Files.move(tmpFile.toPath(), cacheFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * List the modification times of the files through the hadoop file systems of their directories.
+     * @param statuses the statuses of the files
+     * @return the modification times by the paths, the files on the storages without a hadoop file system
+     * are absent
+     */
+    static Map<String, Long> getModificationTimes(List<Status> statuses)
+    {
+        Map<String, List<String>> dirs = new LinkedHashMap<>();
+        for (Status status : statuses)
+        {
+            String path = status.getPath();
+            dirs.computeIfAbsent(path.substring(0, path.lastIndexOf('/') + 1), dir -> new ArrayList<>()).add(path);
+        }
+        Configuration conf = new Configuration();
+        conf.set("fs.hdfs.impl", DistributedFileSystem.class.getName());
+        conf.set("fs.file.impl", LocalFileSystem.class.getName());
+        Map<String, Long> modificationTimes = new HashMap<>(statuses.size());
+        for (Map.Entry<String, List<String>> dir : dirs.entrySet())
+        {
+            try
+            {
+                Path dirPath = new Path(dir.getKey());
+                Map<String, Long> byName = new HashMap<>();
+                for (FileStatus fileStatus : dirPath.getFileSystem(conf).listStatus(dirPath))
+                {
+                    byName.put(fileStatus.getPath().getName(), fileStatus.getModificationTime());
+                }
+                for (String path : dir.getValue())
+                {
+                    Long modificationTime = byName.get(path.substring(path.lastIndexOf('/') + 1));
+                    if (modificationTime != null)
+                    {
+                        modificationTimes.put(path, modificationTime);
+                    }
+                }
+            } catch (IOException | IllegalArgumentException e)
+            {
+                System.out.println("Modification times are not available in '" + dir.getKey() +
+                        "', the files are identified by their lengths.");
+            }
+        }
+        return modificationTimes;
+    }
+
+    /**
+     * Merge the aggregates of all the files. The aggregates are merged into the result in place,
+     * thus this cache should be saved before merging and not be used after that.
+     * @return the merged aggregate
+     */
+    public ColumnStatsAggregate merge()
+    {
+        ColumnStatsAggregate aggregate = new ColumnStatsAggregate();
+        for (Entry entry : entries.values())
+        {
+            aggregate.merge(entry.aggregate);
+        }
+        return aggregate;
+    }
+}
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.exception.MetadataException;
+import io.pixelsdb.pixels.common.metadata.MetadataService;
+import io.pixelsdb.pixels.common.metadata.domain.Column;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.utils.ConfigFactory;
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.stats.StatsRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collects the column statistics of the files written by LOAD or COMPACT as they are closed,
+ * and publishes them into metadata when the command finishes, so that no separate STAT pass is
+ * needed after writing.
+ * <p>
+ * The writers do not expose their footers, thus the footer of each closed file is read back,
+ * which only reads the tail of the file. The null counts and distinct sketches are optional.
+ * LOAD sketches the row batches before they are written, whereas COMPACT has no access to the
+ * rows and reads the rows of each compact file back.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class StatPublisher
+{
+    public enum Mode
+    {
+        /**
+         * Do not collect or publish the statistics.
+         */
+        NONE,
+        /**
+         * Replace the statistics in metadata, e.g., when loading into an empty table.
+         */
+        REPLACE,
+        /**
+         * Merge the statistics into the ones in metadata, e.g., when loading more data into a table.
+         */
+        MERGE;
+
+        public static Mode from(String name)
+        {
+            return valueOf(name.trim().toUpperCase());
+        }
+    }
+
+    private final Mode mode;
+    private final boolean withRows;
+    private final ColumnStatsAggregate aggregate = new ColumnStatsAggregate();
+    /**
+     * The types of the columns in the file footers, used to get the value ranges of the columns.
+     */
+    private final Map<String, PixelsProto.Type> columnTypes = new HashMap<>();
+    private int numFiles = 0;
+
+    /**
+     * @param mode how to publish the statistics, must not be {@link Mode#NONE}
+     * @param withRows whether to count the nulls and sketch the distinct values of the written rows
+     */
+    public StatPublisher(Mode mode, boolean withRows)
+    {
+        this.mode = requireNonNull(mode, "mode is null");
+        this.withRows = withRows;
+    }
+
+    /**
+     * @param mode the name of the mode, case-insensitive
+     * @param withRows whether to count the nulls and sketch the distinct values of the written rows
+     * @return the publisher, or null if the mode is none
+     */
+    public static StatPublisher create(String mode, boolean withRows)
+    {
+        Mode publishMode = Mode.from(mode);
+        return publishMode == Mode.NONE ? null : new StatPublisher(publishMode, withRows);
+    }
+
+    public boolean isWithRows()
+    {
+        return withRows;
+    }
+
+    /**
+     * Add a closed file into the statistics to be published. It is thread safe.
+     * @param storage the storage of the file
+     * @param path the path of the file
+     * @param rows the null counts and sketches of the rows in the file collected while writing them,
+     *             or null to read the rows back if {@link #isWithRows()}
+     * @throws IOException if failed to read the footer or the rows of the file
+     */
+    public void addFile(Storage storage, String path, ColumnStatsAggregate rows) throws IOException
+    {
+        ColumnStatsAggregate file = rows == null ? new ColumnStatsAggregate() : rows;
+        List<PixelsProto.Type> types;
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+        {
+            file.addFile(pixelsReader);
+            if (rows == null && withRows)
+            {
+                file.addRows(pixelsReader);
+            }
+            types = pixelsReader.getFooter().getTypesList();
+        }
+        synchronized (this)
+        {
+            aggregate.merge(file);
+            for (PixelsProto.Type type : types)
+            {
+                columnTypes.putIfAbsent(type.getName(), type);
+            }
+            numFiles++;
+        }
+    }
+
+    /**
+     * Publish the collected statistics into metadata.
+     * @param schemaName the schema of the table
+     * @param tableName the table
+     * @throws MetadataException if failed to get or update the columns in metadata
+     * @throws IOException if failed to parse the record stats in metadata
+     * @throws InterruptedException if interrupted while shutting down the metadata service
+     */
+    public synchronized void publish(String schemaName, String tableName)
+            throws MetadataException, IOException, InterruptedException
+    {
+        if (numFiles == 0)
+        {
+            System.out.println("No files are written, statistics are not published.");
+            return;
+        }
+        String metadataHost = ConfigFactory.Instance().getProperty("metadata.server.host");
+        int metadataPort = Integer.parseInt(ConfigFactory.Instance().getProperty("metadata.server.port"));
+        MetadataService metadataService = new MetadataService(metadataHost, metadataPort);
+        try
+        {
+            List<Column> columns = metadataService.getColumns(schemaName, tableName, true);
+            for (Column column : columns)
+            {
+                if (aggregate.getColumnStats(column.getName()) == null)
+                {
+                    System.out.println(column.getName() + " is not found in the written files.");
+                    continue;
+                }
+                if (mode == Mode.REPLACE)
+                {
+                    replace(column);
+                }
+                else
+                {
+                    merge(column);
+                }
+                System.out.println(column.getName() + " cardinality: " + column.getCardinality() +
+                        ", null fraction: " + column.getNullFraction());
+                column.getRecordStats().mark();
+                metadataService.updateColumn(column);
+                column.getRecordStats().reset();
+            }
+            System.out.println("Statistics of " + numFiles + " written files are " +
+                    (mode == Mode.REPLACE ? "published" : "merged") + " into metadata.");
+        } finally
+        {
+            metadataService.shutdown();
+        }
+    }
+
+    private void replace(Column column)
+    {
+        String columnName = column.getName();
+        long size = aggregate.getColumnSize(columnName);
+        column.setChunkSize(size / (double) aggregate.getNumRowGroups());
+        column.setSize(size);
+        column.setRecordStats(aggregate.getRecordStats(columnName).toByteString().asReadOnlyByteBuffer());
+        if (withRows)
+        {
+            long numRows = aggregate.getNumRows();
+            column.setNullFraction(numRows == 0 ? 0 : aggregate.getNullCount(columnName) / (double) numRows);
+            HyperLogLog sketch = aggregate.getDistinctSketch(columnName);
+            if (sketch != null)
+            {
+                column.setCardinality(sketch.estimate());
+            }
+        }
+    }
+
+    /**
+     * Merge the statistics of the written files into the ones of the existing files in metadata.
+     * The histogram in the existing record stats is dropped, as it can not be merged.
+     */
+    private void merge(Column column) throws IOException
+    {
+        String columnName = column.getName();
+        ByteBuffer existingBuffer = column.getRecordStats();
+        if (existingBuffer == null || !existingBuffer.hasRemaining() || column.getSize() <= 0)
+        {
+            // there are no statistics of the existing files
+            replace(column);
+            return;
+        }
+        PixelsProto.ColumnStatistic existing = PixelsProto.ColumnStatistic.parseFrom(existingBuffer.duplicate());
+        StatsRecorder writtenStats = aggregate.getColumnStats(columnName);
+        TypeDescription type = aggregate.getColumnType(columnName);
+        StatsRecorder mergedStats = StatsRecorder.create(type, existing);
+        mergedStats.merge(writtenStats);
+
+        long writtenSize = aggregate.getColumnSize(columnName);
+        double existingRowGroups = column.getChunkSize() > 0 ? column.getSize() / column.getChunkSize() : 0;
+        column.setSize(column.getSize() + writtenSize);
+        column.setChunkSize(column.getSize() / (existingRowGroups + aggregate.getNumRowGroups()));
+        column.setRecordStats(mergedStats.serialize().build().toByteString().asReadOnlyByteBuffer());
+        if (!withRows)
+        {
+            return;
+        }
+        // the number of values in the statistics of Pixels writers includes the nulls.
+        long existingRows = existing.getNumberOfValues();
+        long writtenRows = aggregate.getNumRows();
+        if (existingRows + writtenRows > 0)
+        {
+            column.setNullFraction((column.getNullFraction() * existingRows +
+                    aggregate.getNullCount(columnName)) / (existingRows + writtenRows));
+        }
+        HyperLogLog sketch = aggregate.getDistinctSketch(columnName);
+        if (sketch != null)
+        {
+            long written = sketch.estimate();
+            long[] existingRange = ColumnValues.sortableRange(columnTypes.get(columnName), existing);
+            long[] writtenRange = ColumnValues.sortableRange(columnTypes.get(columnName),
+                    writtenStats.serialize().build());
+            if (existingRange != null && writtenRange != null &&
+                    (writtenRange[0] > existingRange[1] || writtenRange[1] < existingRange[0]))
+            {
+                // the value ranges are disjoint, e.g., an increasing key or date, so are the distinct values
+                column.setCardinality(column.getCardinality() + written);
+            }
+            else
+            {
+                // the distinct values of the existing files are unknown, the larger one is a lower bound
+                column.setCardinality(Math.max(column.getCardinality(), written));
+            }
+        }
+    }
+}
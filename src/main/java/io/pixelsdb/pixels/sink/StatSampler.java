@@ -0,0 +1,209 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Samples the files of a table for the approximate STAT, and extrapolates the statistics
+ * of the sampled files to the whole table.
+ * <p>
+ * A file is sampled if the hash of its path and the seed is below the sample fraction, thus
+ * the sample is deterministic for the same seed, and a file stays sampled or not as other files
+ * are added. The totals (e.g., rows and column sizes) are extrapolated by the ratio of the total
+ * length of all the files to the length of the sampled files, with the standard error of
+ * the ratio estimator. The distinct counts are extrapolated by the method of moments under the
+ * assumption that the distinct values have the same frequency.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class StatSampler
+{
+    private final double fraction;
+    private final long seed;
+
+    /**
+     * @param fraction the fraction of the files to sample, in the range of (0, 1]
+     * @param seed the seed of the sample
+     */
+    public StatSampler(double fraction, long seed)
+    {
+        checkArgument(fraction > 0 && fraction <= 1, "fraction must be in the range of (0, 1]");
+        this.fraction = fraction;
+        this.seed = seed;
+    }
+
+    /**
+     * @param path the path of a file
+     * @return the position of the file in [0, 1), the file is sampled if it is below the fraction
+     */
+    private double getPosition(String path)
+    {
+        byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+        long hash = ColumnValues.mix(ColumnValues.hashBytes(bytes, 0, bytes.length) ^ ColumnValues.mix(seed));
+        return (hash >>> 11) / (double) (1L << 53);
+    }
+
+    /**
+     * @param statuses the statuses of all the files
+     * @return the statuses of the sampled files, at least one file is sampled if there is any file
+     */
+    public List<Status> sample(List<Status> statuses)
+    {
+        List<Status> sampled = new ArrayList<>();
+        Status first = null;
+        double firstPosition = 1;
+        for (Status status : statuses)
+        {
+            double position = getPosition(status.getPath());
+            if (position < fraction)
+            {
+                sampled.add(status);
+            }
+            if (position < firstPosition)
+            {
+                first = status;
+                firstPosition = position;
+            }
+        }
+        if (sampled.isEmpty() && first != null)
+        {
+            sampled.add(first);
+        }
+        return sampled;
+    }
+
+    /**
+     * Estimate the total of a value (e.g., the number of rows) in all the files by the ratio estimator.
+     * @param sampledLengths the lengths of the sampled files
+     * @param sampledValues the values in the sampled files
+     * @param totalLength the total length of all the files
+     * @param numFiles the number of all the files
+     * @return the estimated total and its standard error
+     */
+    public static double[] estimateTotal(double[] sampledLengths, double[] sampledValues,
+                                         double totalLength, int numFiles)
+    {
+        double[] ratio = estimateRatio(sampledLengths, sampledValues, numFiles);
+        if (sampledLengths.length == numFiles)
+        {
+            double sumValue = 0;
+            for (double value : sampledValues)
+            {
+                sumValue += value;
+            }
+            return new double[]{sumValue, 0};
+        }
+        return new double[]{ratio[0] * totalLength, ratio[1] * totalLength};
+    }
+
+    /**
+     * Estimate the ratio of a value to the length in all the files, e.g., the average size of the column
+     * chunks, whose length is the number of row groups in a file.
+     * @param sampledLengths the lengths of the sampled files
+     * @param sampledValues the values in the sampled files
+     * @param numFiles the number of all the files
+     * @return the estimated ratio and its standard error
+     */
+    public static double[] estimateRatio(double[] sampledLengths, double[] sampledValues, int numFiles)
+    {
+        checkArgument(sampledLengths.length == sampledValues.length,
+                "sampledLengths and sampledValues are not consistent");
+        int n = sampledLengths.length;
+        checkArgument(n > 0 && n <= numFiles, "the number of sampled files must be in the range of (0, numFiles]");
+        double sumLength = 0, sumValue = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            sumLength += sampledLengths[i];
+            sumValue += sampledValues[i];
+        }
+        double ratio = sumLength == 0 ? 0 : sumValue / sumLength;
+        if (n == numFiles)
+        {
+            return new double[]{ratio, 0};
+        }
+        if (n < 2 || sumLength == 0)
+        {
+            return new double[]{ratio, Double.NaN};
+        }
+        double residuals = 0;
+        for (int i = 0; i < n; ++i)
+        {
+            double residual = sampledValues[i] - ratio * sampledLengths[i];
+            residuals += residual * residual;
+        }
+        double meanLength = sumLength / n;
+        return new double[]{ratio, Math.sqrt((1 - (double) n / numFiles) * residuals / (n - 1) / n) / meanLength};
+    }
+
+    /**
+     * Estimate the number of distinct values in all the rows from the number of distinct values in the
+     * sampled rows, assuming the distinct values have the same frequency, i.e., solve
+     * sampledDistinct = D * (1 - (1 - q) ^ (totalRows / D)) for D, where q = sampledRows / totalRows.
+     * @param sampledDistinct the number of distinct values in the sampled rows
+     * @param sampledRows the number of sampled (non-null) rows
+     * @param totalRows the number of all the (non-null) rows
+     * @return the estimated number of distinct values, in the range of [sampledDistinct, totalRows]
+     */
+    public static double estimateDistinct(double sampledDistinct, double sampledRows, double totalRows)
+    {
+        if (sampledRows >= totalRows || sampledDistinct <= 0 || sampledRows <= 0)
+        {
+            return sampledDistinct;
+        }
+        // the sketched distinct count may slightly exceed the number of sampled rows
+        sampledDistinct = Math.min(sampledDistinct, sampledRows);
+        double logKeep = Math.log1p(-sampledRows / totalRows);
+        double low = sampledDistinct, high = totalRows;
+        for (int i = 0; i < 100 && high - low > 0.5; ++i)
+        {
+            double mid = (low + high) / 2;
+            double expected = -mid * Math.expm1(totalRows / mid * logKeep);
+            if (expected < sampledDistinct)
+            {
+                low = mid;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return (low + high) / 2;
+    }
+
+    /**
+     * @param sampledDistinct the number of distinct values in the sampled rows
+     * @param sampledRows the number of sampled (non-null) rows
+     * @param totalRows the number of all the (non-null) rows
+     * @return the linear scale-up of the sampled distinct count, which is reached if the values are
+     * as distinct in all the rows as in the sampled rows
+     */
+    public static double getDistinctUpperBound(double sampledDistinct, double sampledRows, double totalRows)
+    {
+        if (sampledRows >= totalRows || sampledRows <= 0)
+        {
+            return sampledDistinct;
+        }
+        return Math.min(totalRows, sampledDistinct * totalRows / sampledRows);
+    }
+}
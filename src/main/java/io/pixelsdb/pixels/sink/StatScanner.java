@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.core.PixelsReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Scans the footers of the Pixels files of a table in parallel for the STAT command.
+ * Optionally, the rows are also read in the same pass to count the nulls and the distinct values.
+ * <p>
+ * Each thread keeps taking the next unread file and aggregates it into its own
+ * {@link ColumnStatsAggregate}, thus no lock is held while reading the files.
+ * The partial aggregates are merged in the order of the threads after all the files are read.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class StatScanner
+{
+    private final int parallelism;
+    private final boolean readRows;
+    /**
+     * The number of rows in each file that is read.
+     */
+    private final Map<String, Long> fileRows = new ConcurrentHashMap<>();
+
+    /**
+     * @param parallelism the number of threads that read the files concurrently
+     * @param readRows whether to read the rows for the null counts and distinct sketches
+     */
+    public StatScanner(int parallelism, boolean readRows)
+    {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        this.parallelism = parallelism;
+        this.readRows = readRows;
+    }
+
+    /**
+     * Read the footers of the files and aggregate the column statistics in them.
+     * @param files the paths of the files
+     * @return the aggregated column statistics
+     * @throws IOException if failed to read any of the files
+     * @throws InterruptedException if interrupted while waiting for the scan threads
+     */
+    public ColumnStatsAggregate scan(List<String> files) throws IOException, InterruptedException
+    {
+        return scan(files, null);
+    }
+
+    /**
+     * Read the footers of the files and aggregate the column statistics in each of them,
+     * e.g., to estimate the statistics of all the files from a sample of the files.
+     * @param files the paths of the files
+     * @return the aggregated column statistics of each file, keyed by the path of the file
+     * @throws IOException if failed to read any of the files
+     * @throws InterruptedException if interrupted while waiting for the scan threads
+     */
+    public Map<String, ColumnStatsAggregate> scanEach(List<String> files) throws IOException, InterruptedException
+    {
+        Map<String, ColumnStatsAggregate> fileAggregates = new ConcurrentHashMap<>(files.size());
+        scan(files, fileAggregates);
+        return fileAggregates;
+    }
+
+    /**
+     * Read the footers of the files and aggregate the column statistics in them.
+     * @param files the paths of the files
+     * @param fileAggregates the map to put the aggregate of each file into, null if not needed.
+     *                       If it is given, the returned aggregate is empty
+     * @return the aggregated column statistics
+     * @throws IOException if failed to read any of the files
+     * @throws InterruptedException if interrupted while waiting for the scan threads
+     */
+    private ColumnStatsAggregate scan(List<String> files, Map<String, ColumnStatsAggregate> fileAggregates)
+            throws IOException, InterruptedException
+    {
+        int numThreads = Math.max(1, Math.min(parallelism, files.size()));
+        SharedThreadPool.TaskGroup scanTasks = SharedThreadPool.newTaskGroup(numThreads);
+        AtomicInteger nextFile = new AtomicInteger(0);
+        List<Future<ColumnStatsAggregate>> futures = new ArrayList<>(numThreads);
+        for (int i = 0; i < numThreads; ++i)
+        {
+            futures.add(scanTasks.submit(() -> {
+                ColumnStatsAggregate partial = new ColumnStatsAggregate();
+                int fileId;
+                while ((fileId = nextFile.getAndIncrement()) < files.size())
+                {
+                    String file = files.get(fileId);
+                    String path = file;
+                    if (!path.endsWith("/"))
+                    {
+                        path += "/";
+                    }
+                    Storage storage = StorageFactory.Instance().getStorage(path);
+                    ColumnStatsAggregate target = fileAggregates == null ? partial : new ColumnStatsAggregate();
+                    try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+                    {
+                        target.addFile(pixelsReader);
+                        fileRows.put(file, pixelsReader.getNumberOfRows());
+                        if (readRows)
+                        {
+                            target.addRows(pixelsReader);
+                        }
+                    }
+                    if (fileAggregates != null)
+                    {
+                        fileAggregates.put(file, target);
+                    }
+                }
+                return partial;
+            }));
+        }
+
+        ColumnStatsAggregate aggregate = new ColumnStatsAggregate();
+        try
+        {
+            for (Future<ColumnStatsAggregate> future : futures)
+            {
+                aggregate.merge(future.get());
+            }
+        } catch (ExecutionException e)
+        {
+            // stop the other threads from reading the remaining files
+            nextFile.set(files.size());
+            scanTasks.cancelAll();
+            if (e.getCause() instanceof IOException)
+            {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("failed to scan the footers of the files", e.getCause());
+        }
+        return aggregate;
+    }
+
+    /**
+     * @param path the path of a file that is read by this scanner
+     * @return the number of rows in the file, or 0 if the file is not read
+     */
+    public long getFileRows(String path)
+    {
+        return fileRows.getOrDefault(path, 0L);
+    }
+
+    /**
+     * Read the files that are not covered by the cache, and merge them with the cached results.
+     * The aggregate of each newly read file is added into the cache, and the cache is saved.
+     * @param statuses the statuses of the files
+     * @param statCache the cache of the partial results of the previous runs
+     * @return the aggregated column statistics of all the files
+     * @throws IOException if failed to read any of the files or save the cache
+     * @throws InterruptedException if interrupted while waiting for the scan threads
+     */
+    public ColumnStatsAggregate scan(List<Status> statuses, StatCache statCache)
+            throws IOException, InterruptedException
+    {
+        List<Status> uncovered = statCache.retainValid(statuses, readRows);
+        System.out.println((statuses.size() - uncovered.size()) + " files are covered by the cache, " +
+                uncovered.size() + " files to read.");
+        List<String> paths = new ArrayList<>(uncovered.size());
+        for (Status status : uncovered)
+        {
+            paths.add(status.getPath());
+        }
+        Map<String, ColumnStatsAggregate> fileAggregates = new ConcurrentHashMap<>(uncovered.size());
+        scan(paths, fileAggregates);
+        for (Status status : uncovered)
+        {
+            statCache.add(status, readRows, fileAggregates.get(status.getPath()));
+        }
+        statCache.save();
+        return statCache.merge();
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Routes System.out and System.err to the output of the current thread, so that the output of
+ * each job in the sink server is sent back to the client of the job.
+ * <p>
+ * The output is not inherited by the threads created by a job, as a long-lived thread created during a job
+ * (e.g., a thread of a storage client or of a shared pool) would keep writing into the job. Instead, the
+ * tasks submitted through {@link SharedThreadPool} carry the output of the submitting thread by
+ * {@link #wrap(Callable)}. The threads without an output, or whose output is closed, write to the original
+ * System.out and System.err.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class ThreadOutput
+{
+    /**
+     * The output of a thread, it is closed when the job is done.
+     */
+    public interface Output
+    {
+        PrintStream getPrintStream();
+
+        boolean isClosed();
+    }
+
+    private static final ThreadLocal<Output> OUTPUT = new ThreadLocal<>();
+    private static boolean installed = false;
+
+    private ThreadOutput()
+    {
+    }
+
+    /**
+     * Replace System.out and System.err with the routers, it is idempotent.
+     */
+    public static synchronized void install()
+    {
+        if (installed)
+        {
+            return;
+        }
+        System.setOut(new PrintStream(new Router(System.out), true));
+        System.setErr(new PrintStream(new Router(System.err), true));
+        installed = true;
+    }
+
+    /**
+     * @param output the output of the current thread
+     */
+    public static void set(Output output)
+    {
+        OUTPUT.set(output);
+    }
+
+    public static void remove()
+    {
+        OUTPUT.remove();
+    }
+
+    /**
+     * @param task the task to run on another thread
+     * @return the task that runs with the output of the current thread, and restores the output of
+     * the running thread after it is done
+     */
+    public static <T> Callable<T> wrap(Callable<T> task)
+    {
+        Output output = OUTPUT.get();
+        return () -> {
+            Output previous = OUTPUT.get();
+            OUTPUT.set(output);
+            try
+            {
+                return task.call();
+            } finally
+            {
+                if (previous == null)
+                {
+                    OUTPUT.remove();
+                }
+                else
+                {
+                    OUTPUT.set(previous);
+                }
+            }
+        };
+    }
+
+    private static class Router extends OutputStream
+    {
+        private final PrintStream fallback;
+
+        private Router(PrintStream fallback)
+        {
+            this.fallback = fallback;
+        }
+
+        private PrintStream getTarget()
+        {
+            Output output = OUTPUT.get();
+            return output == null || output.isClosed() ? fallback : output.getPrintStream();
+        }
+
+        @Override
+        public void write(int b)
+        {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len)
+        {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException
+        {
+            getTarget().flush();
+        }
+    }
+}
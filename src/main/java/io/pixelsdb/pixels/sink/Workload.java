@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The queries in a workload file of QUERY.
+ * <p>
+ * In the workload file, each line that contains SELECT is a query, and each of the other lines is
+ * the query id (i.e., the template) of the following queries, which is also used as the user name.
+ * </p>
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class Workload
+{
+    public static class Query
+    {
+        private final String queryId;
+        private final int id;
+        private final String sql;
+
+        public Query(String queryId, int id, String sql)
+        {
+            this.queryId = queryId;
+            this.id = id;
+            this.sql = sql;
+        }
+
+        /**
+         * @return the query id (template) of the query, may be null if it is not given in the workload
+         */
+        public String getQueryId()
+        {
+            return queryId;
+        }
+
+        /**
+         * @return the index of the query in the workload
+         */
+        public int getId()
+        {
+            return id;
+        }
+
+        public String getSql()
+        {
+            return sql;
+        }
+    }
+
+    private Workload()
+    {
+    }
+
+    /**
+     * @param workload the path of the workload file
+     * @return the queries in the workload file, in the order of the file
+     * @throws IOException if failed to read the workload file
+     */
+    public static List<Query> load(String workload) throws IOException
+    {
+        List<Query> queries = new ArrayList<>();
+        try (BufferedReader workloadReader = new BufferedReader(new FileReader(workload)))
+        {
+            String line;
+            String queryId = null;
+            while ((line = workloadReader.readLine()) != null)
+            {
+                if (!line.contains("SELECT"))
+                {
+                    queryId = line;
+                }
+                else
+                {
+                    queries.add(new Query(queryId, queries.size(), line));
+                }
+            }
+        }
+        return queries;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestCacheWarmer
+{
+    @Test
+    public void testSelectChunks()
+    {
+        Map<String, Long> chunkBytes = new LinkedHashMap<>();
+        chunkBytes.put("0:0", 100L);
+        chunkBytes.put("0:1", 400L);
+        chunkBytes.put("0:2", 50L);
+        chunkBytes.put("1:0", 100L);
+        chunkBytes.put("1:1", 400L);
+        chunkBytes.put("1:2", 50L);
+        // column 2 is never accessed, column 0 is hotter per byte than column 1
+        double[] heat = {2, 4, 0};
+        assertEquals(Arrays.asList("0:0", "1:0", "0:1", "1:1"),
+                CacheWarmer.selectChunks(chunkBytes, heat, 0));
+        assertEquals(Arrays.asList("0:0", "1:0", "0:1"),
+                CacheWarmer.selectChunks(chunkBytes, heat, 700));
+        assertEquals(Arrays.asList("0:0", "1:0"),
+                CacheWarmer.selectChunks(chunkBytes, heat, 300));
+    }
+
+    @Test
+    public void testBuildCompact()
+    {
+        Compact compact = new Compact();
+        compact.setNumRowGroupInBlock(2);
+        compact.setNumColumn(2);
+        compact.setCacheBorder(1);
+        compact.setColumnChunkOrder(Arrays.asList("0:0", "1:0", "0:1", "1:1"));
+        Compact warmed = CacheWarmer.buildCompact(compact, Arrays.asList("1:1", "0:1", "2:1"));
+        List<String> expected = Arrays.asList("1:1", "0:1", "0:0", "1:0");
+        assertEquals(expected, warmed.getColumnChunkOrder());
+        // the chunk of the missing row group is not counted
+        assertEquals(2, warmed.getCacheBorder());
+        assertEquals(2, warmed.getNumRowGroupInBlock());
+        assertEquals(2, warmed.getNumColumn());
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestChangeBuffer
+{
+    @Test
+    public void testParse()
+    {
+        ChangeEvent insert = ChangeEvent.parse("{\"schema\": {}, \"payload\": {\"op\": \"c\", \"before\": null, " +
+                "\"after\": {\"id\": 1, \"name\": \"AIR\"}, \"ts_ms\": 1}}");
+        assertEquals(ChangeEvent.Op.INSERT, insert.getOp());
+        assertEquals("AIR", insert.getAfter().get("name"));
+        ChangeEvent delete = ChangeEvent.parse("{\"op\": \"d\", \"before\": {\"id\": 1}, \"after\": null}");
+        assertEquals(ChangeEvent.Op.DELETE, delete.getOp());
+        assertNull(delete.getAfter());
+        assertNull(ChangeEvent.parse("null"));
+        assertNull(ChangeEvent.parse("  "));
+        try
+        {
+            ChangeEvent.parse("{\"op\": \"d\", \"after\": {\"id\": 1}}");
+            throw new AssertionError("a delete without the before image is accepted");
+        } catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void testAbsorbAndDelete()
+    {
+        ChangeBuffer buffer = new ChangeBuffer(new String[]{"id"}, 1000, 1L << 20);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.apply(ChangeEvent.parse("{\"op\": \"c\", \"after\": {\"id\": 1, \"name\": \"AIR\"}}"), 0);
+        buffer.apply(ChangeEvent.parse("{\"op\": \"c\", \"after\": {\"id\": 2, \"name\": \"MAIL\"}}"), 10);
+        // the update and delete of the buffered rows are absorbed in memory
+        buffer.apply(ChangeEvent.parse("{\"op\": \"u\", \"before\": {\"id\": 1, \"name\": \"AIR\"}, " +
+                "\"after\": {\"id\": 1, \"name\": \"RAIL\"}}"), 20);
+        buffer.apply(ChangeEvent.parse("{\"op\": \"d\", \"before\": {\"id\": 2, \"name\": \"MAIL\"}}"), 30);
+        assertFalse(buffer.shouldFlush(999));
+        assertTrue(buffer.shouldFlush(1000));
+
+        List<Map<String, Object>> rows = buffer.getRows();
+        assertEquals(1, rows.size());
+        assertEquals("RAIL", rows.get(0).get("name"));
+        assertTrue(buffer.getDeletes().isEmpty());
+        assertEquals(2, buffer.getNumAbsorbed());
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+
+        // the changes of the flushed row go to the delete set
+        buffer.apply(ChangeEvent.parse("{\"op\": \"u\", \"before\": {\"id\": 1, \"name\": \"RAIL\"}, " +
+                "\"after\": {\"id\": 1, \"name\": \"SHIP\"}}"), 2000);
+        buffer.apply(ChangeEvent.parse("{\"op\": \"d\", \"before\": {\"id\": 3}}"), 2000);
+        assertEquals(1, buffer.getRows().size());
+        assertEquals(2, buffer.getDeletes().size());
+        assertEquals(1, buffer.getDeletes().get(0).size());
+        assertEquals(1000, buffer.getAgeMs(3000));
+    }
+
+    @Test
+    public void testValidate()
+    {
+        ChangeBuffer buffer = new ChangeBuffer(new String[]{"id"}, 1000, 1L << 20);
+        buffer.validate(ChangeEvent.parse("{\"op\": \"c\", \"after\": {\"id\": 1}}"));
+        // the before image of an update is optional, the after image of a delete is ignored
+        buffer.validate(ChangeEvent.parse("{\"op\": \"u\", \"after\": {\"id\": 1, \"name\": \"AIR\"}}"));
+        buffer.validate(ChangeEvent.parse("{\"op\": \"d\", \"before\": {\"id\": 1}, \"after\": {}}"));
+        String[] invalid = {
+                "{\"op\": \"c\", \"after\": {\"name\": \"AIR\"}}",
+                "{\"op\": \"r\", \"after\": {\"id\": null}}",
+                "{\"op\": \"u\", \"before\": {\"name\": \"AIR\"}, \"after\": {\"id\": 1}}",
+                "{\"op\": \"d\", \"before\": {\"id\": null}}"};
+        for (String line : invalid)
+        {
+            try
+            {
+                buffer.validate(ChangeEvent.parse(line));
+                throw new AssertionError("an event without the primary key is accepted: " + line);
+            } catch (IllegalArgumentException e)
+            {
+                // expected
+            }
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testFlushBySize()
+    {
+        ChangeBuffer buffer = new ChangeBuffer(new String[]{"id"}, 1000, 16);
+        buffer.apply(ChangeEvent.parse("{\"op\": \"c\", \"after\": {\"id\": 1, \"name\": \"AIR\"}}"), 0);
+        assertFalse(buffer.shouldFlush(0));
+        buffer.apply(ChangeEvent.parse("{\"op\": \"c\", \"after\": {\"id\": 2, \"name\": \"REG AIR\"}}"), 0);
+        assertTrue(buffer.shouldFlush(0));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestChangeLog
+{
+    @Test
+    public void testReplayAndCheckpoint() throws IOException, InterruptedException
+    {
+        Path dir = Files.createTempDirectory("change-log");
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            assertEquals(0, log.replay(event -> {}));
+            log.append("{\"op\": \"c\"}");
+            log.sync(log.append("\u00e9v\u00e9nement"));
+            log.checkpoint();
+            log.sync(log.append("after checkpoint"));
+        }
+
+        List<String> events = new ArrayList<>();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            assertEquals(1, log.replay(events::add));
+            assertEquals(Arrays.asList("after checkpoint"), events);
+            log.sync(log.append("after restart"));
+        }
+
+        events.clear();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            // the segments before the restart are kept until the next checkpoint
+            assertEquals(2, log.replay(events::add));
+            assertEquals(Arrays.asList("after checkpoint", "after restart"), events);
+        }
+    }
+
+    @Test
+    public void testBaseId() throws IOException, InterruptedException
+    {
+        Path dir = Files.createTempDirectory("change-log");
+        long baseId;
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            log.replay(event -> {});
+            baseId = log.getBaseId();
+            log.sync(log.append("flushed"));
+            log.checkpoint();
+            assertTrue(log.getBaseId() > baseId);
+            baseId = log.getBaseId();
+            log.sync(log.append("not flushed"));
+        }
+
+        List<String> events = new ArrayList<>();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            // the flush after the restart has the same name as the one interrupted before the checkpoint
+            log.replay(events::add);
+            assertEquals(baseId, log.getBaseId());
+            assertEquals(Arrays.asList("not flushed"), events);
+            log.sync(log.append("after restart"));
+        }
+
+        // the crash after the checkpoint file is replaced, but before the old segments are deleted
+        Path segment = getLastSegment(dir);
+        Path checkpoint = dir.resolve("checkpoint");
+        long newBaseId = Long.parseLong(segment.getFileName().toString().substring(4, 24)) + 1;
+        Files.write(checkpoint, String.valueOf(newBaseId).getBytes(StandardCharsets.UTF_8));
+        events.clear();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            assertEquals(0, log.replay(events::add));
+            assertEquals(newBaseId, log.getBaseId());
+        }
+        assertTrue(!Files.exists(segment));
+    }
+
+    @Test
+    public void testTruncateTornTail() throws IOException, InterruptedException
+    {
+        Path dir = Files.createTempDirectory("change-log");
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            log.replay(event -> {});
+            log.append("first");
+            log.sync(log.append("second"));
+        }
+        Path segment = getLastSegment(dir);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+        {
+            // the second record is torn
+            channel.truncate(channel.size() - 2);
+        }
+
+        List<String> events = new ArrayList<>();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            assertEquals(1, log.replay(events::add));
+            assertEquals(Arrays.asList("first"), events);
+        }
+        // the record header and checksum of "first", then the event itself
+        assertEquals(8 + 5, Files.size(segment));
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception
+    {
+        Path dir = Files.createTempDirectory("change-log");
+        int numThreads = 8, numEvents = 200;
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            log.replay(event -> {});
+            Thread[] threads = new Thread[numThreads];
+            for (int t = 0; t < numThreads; ++t)
+            {
+                int id = t;
+                threads[t] = new Thread(() -> {
+                    try
+                    {
+                        for (int i = 0; i < numEvents; ++i)
+                        {
+                            log.sync(log.append(id + ":" + i));
+                        }
+                    } catch (IOException | InterruptedException e)
+                    {
+                        throw new RuntimeException(e);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+            {
+                thread.join();
+            }
+            assertEquals(numThreads * numEvents, log.getNumAppends());
+            assertTrue(log.getNumSyncs() <= numThreads * numEvents);
+        }
+
+        List<String> events = new ArrayList<>();
+        try (ChangeLog log = new ChangeLog(dir.toString()))
+        {
+            assertEquals(numThreads * numEvents, log.replay(events::add));
+        }
+        // the events of each thread are in order
+        int[] next = new int[numThreads];
+        for (String event : events)
+        {
+            String[] parts = event.split(":");
+            int id = Integer.parseInt(parts[0]);
+            assertEquals(next[id]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    private static Path getLastSegment(Path dir) throws IOException
+    {
+        Path last = null;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "wal-*.log"))
+        {
+            for (Path path : stream)
+            {
+                if (Files.size(path) > 0 && (last == null || path.compareTo(last) > 0))
+                {
+                    last = path;
+                }
+            }
+        }
+        return last;
+    }
+}
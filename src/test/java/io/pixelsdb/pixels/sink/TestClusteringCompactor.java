@@ -0,0 +1,271 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.core.PixelsReader;
+import io.pixelsdb.pixels.core.PixelsWriter;
+import io.pixelsdb.pixels.core.PixelsWriterImpl;
+import io.pixelsdb.pixels.core.TypeDescription;
+import io.pixelsdb.pixels.core.reader.PixelsReaderOption;
+import io.pixelsdb.pixels.core.reader.PixelsRecordReader;
+import io.pixelsdb.pixels.core.vector.BinaryColumnVector;
+import io.pixelsdb.pixels.core.vector.LongColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestClusteringCompactor
+{
+    private static final TypeDescription SCHEMA = TypeDescription.fromString("struct<k:bigint,v:bigint>");
+    private static final TypeDescription STRING_SCHEMA =
+            TypeDescription.fromString("struct<k:varchar(32),v:bigint>");
+
+    @Test
+    public void testSort() throws IOException
+    {
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < 5000; ++i)
+        {
+            rows.add(new long[]{(i * 7919L) % 5000, i});
+        }
+        checkSorted(rows, 1000, 3);
+    }
+
+    @Test
+    public void testSortSkewedPartition() throws IOException
+    {
+        // most of the rows share a hot key, thus the partition of the hot key exceeds the sort buffer.
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < 6000; ++i)
+        {
+            rows.add(new long[]{i % 6 == 0 ? i : 42, i});
+        }
+        checkSorted(rows, 500, 4);
+    }
+
+    @Test
+    public void testSortEqualKeys() throws IOException
+    {
+        List<long[]> rows = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i)
+        {
+            rows.add(new long[]{7, i});
+        }
+        checkSorted(rows, 1000, 2);
+    }
+
+    @Test
+    public void testSortSharedPrefixes() throws IOException
+    {
+        // the keys share the same 8-byte prefix, and the partition of the prefix exceeds the sort buffer
+        Storage storage = StorageFactory.Instance().getStorage("file");
+        File dir = Files.createTempDirectory("clustering").toFile();
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 3000; ++i)
+        {
+            keys.add(i % 5 == 0 ? "customer" : "customer#" + (i * 7919L) % 3000);
+        }
+        String path = new File(dir, "order_0.pxl").getPath();
+        writeStrings(storage, path, keys);
+
+        ClusteringCompactor compactor = new ClusteringCompactor(Collections.singletonList("k"),
+                ClusteringCompactor.Mode.KEY, 500, dir.getPath());
+        List<String> sortedPaths = compactor.sort(storage, Collections.singletonList(path), 2, "task");
+        List<String> sorted = new ArrayList<>();
+        for (String sortedPath : sortedPaths)
+        {
+            sorted.addAll(readStrings(compactor.getLocalStorage(), sortedPath));
+        }
+        compactor.cleanup(sortedPaths, "task");
+        storage.delete(path, false);
+        dir.delete();
+
+        List<String> expected = new ArrayList<>(keys);
+        Collections.sort(expected);
+        assertEquals(expected, sorted);
+    }
+
+    private static void checkSorted(List<long[]> rows, long sortBuffer, int numOutputFiles) throws IOException
+    {
+        Storage storage = StorageFactory.Instance().getStorage("file");
+        File dir = Files.createTempDirectory("clustering").toFile();
+        List<String> sourcePaths = new ArrayList<>();
+        int filesize = (rows.size() + 2) / 3;
+        for (int i = 0; i < rows.size(); i += filesize)
+        {
+            String path = new File(dir, "order_" + sourcePaths.size() + ".pxl").getPath();
+            writeRows(storage, path, rows.subList(i, Math.min(rows.size(), i + filesize)));
+            sourcePaths.add(path);
+        }
+
+        ClusteringCompactor compactor = new ClusteringCompactor(Collections.singletonList("k"),
+                ClusteringCompactor.Mode.KEY, sortBuffer, dir.getPath());
+        List<String> sortedPaths = compactor.sort(storage, sourcePaths, numOutputFiles, "task");
+        assertEquals(numOutputFiles, sortedPaths.size());
+        List<long[]> sorted = new ArrayList<>();
+        for (String path : sortedPaths)
+        {
+            sorted.addAll(readRows(compactor.getLocalStorage(), path));
+        }
+        compactor.cleanup(sortedPaths, "task");
+
+        assertEquals(rows.size(), sorted.size());
+        boolean[] seen = new boolean[rows.size()];
+        for (int i = 0; i < sorted.size(); ++i)
+        {
+            assertTrue(i == 0 || sorted.get(i - 1)[0] <= sorted.get(i)[0]);
+            int id = (int) sorted.get(i)[1];
+            assertTrue(!seen[id]);
+            seen[id] = true;
+            assertEquals(rows.get(id)[0], sorted.get(i)[0]);
+        }
+        for (String path : sourcePaths)
+        {
+            storage.delete(path, false);
+        }
+        dir.delete();
+    }
+
+    private static void writeRows(Storage storage, String path, List<long[]> rows) throws IOException
+    {
+        PixelsWriter pixelsWriter = PixelsWriterImpl.newBuilder()
+                .setSchema(SCHEMA)
+                .setPixelStride(10000)
+                .setRowGroupSize(64 * 1024 * 1024)
+                .setStorage(storage)
+                .setPath(path)
+                .setBlockSize(256 * 1024 * 1024)
+                .setReplication((short) 1)
+                .setBlockPadding(false)
+                .setEncoding(true)
+                .setCompressionBlockSize(1)
+                .build();
+        VectorizedRowBatch rowBatch = SCHEMA.createRowBatch();
+        for (long[] row : rows)
+        {
+            int r = rowBatch.size++;
+            ((LongColumnVector) rowBatch.cols[0]).vector[r] = row[0];
+            ((LongColumnVector) rowBatch.cols[1]).vector[r] = row[1];
+            if (rowBatch.size == rowBatch.getMaxSize())
+            {
+                pixelsWriter.addRowBatch(rowBatch);
+                rowBatch.reset();
+            }
+        }
+        if (rowBatch.size > 0)
+        {
+            pixelsWriter.addRowBatch(rowBatch);
+        }
+        pixelsWriter.close();
+    }
+
+    private static void writeStrings(Storage storage, String path, List<String> keys) throws IOException
+    {
+        PixelsWriter pixelsWriter = PixelsWriterImpl.newBuilder()
+                .setSchema(STRING_SCHEMA)
+                .setPixelStride(10000)
+                .setRowGroupSize(64 * 1024 * 1024)
+                .setStorage(storage)
+                .setPath(path)
+                .setBlockSize(256 * 1024 * 1024)
+                .setReplication((short) 1)
+                .setBlockPadding(false)
+                .setEncoding(true)
+                .setCompressionBlockSize(1)
+                .build();
+        VectorizedRowBatch rowBatch = STRING_SCHEMA.createRowBatch();
+        for (int i = 0; i < keys.size(); ++i)
+        {
+            int r = rowBatch.size++;
+            ((BinaryColumnVector) rowBatch.cols[0]).setVal(r, keys.get(i).getBytes(StandardCharsets.UTF_8));
+            ((LongColumnVector) rowBatch.cols[1]).vector[r] = i;
+            if (rowBatch.size == rowBatch.getMaxSize())
+            {
+                pixelsWriter.addRowBatch(rowBatch);
+                rowBatch.reset();
+            }
+        }
+        if (rowBatch.size > 0)
+        {
+            pixelsWriter.addRowBatch(rowBatch);
+        }
+        pixelsWriter.close();
+    }
+
+    private static List<String> readStrings(Storage storage, String path) throws IOException
+    {
+        List<String> keys = new ArrayList<>();
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+        {
+            PixelsReaderOption option = new PixelsReaderOption();
+            option.skipCorruptRecords(true);
+            option.tolerantSchemaEvolution(true);
+            option.includeCols(new String[]{"k"});
+            PixelsRecordReader recordReader = pixelsReader.read(option);
+            VectorizedRowBatch rowBatch;
+            do
+            {
+                rowBatch = recordReader.readBatch(1000);
+                BinaryColumnVector column = (BinaryColumnVector) rowBatch.cols[0];
+                for (int r = 0; r < rowBatch.size; ++r)
+                {
+                    keys.add(new String(column.vector[r], column.start[r], column.lens[r], StandardCharsets.UTF_8));
+                }
+            } while (!rowBatch.endOfFile);
+        }
+        return keys;
+    }
+
+    private static List<long[]> readRows(Storage storage, String path) throws IOException
+    {
+        List<long[]> rows = new ArrayList<>();
+        try (PixelsReader pixelsReader = FooterPrefetcher.openReader(storage, path))
+        {
+            PixelsReaderOption option = new PixelsReaderOption();
+            option.skipCorruptRecords(true);
+            option.tolerantSchemaEvolution(true);
+            option.includeCols(new String[]{"k", "v"});
+            PixelsRecordReader recordReader = pixelsReader.read(option);
+            VectorizedRowBatch rowBatch;
+            do
+            {
+                rowBatch = recordReader.readBatch(1000);
+                for (int r = 0; r < rowBatch.size; ++r)
+                {
+                    rows.add(new long[]{((LongColumnVector) rowBatch.cols[0]).vector[r],
+                            ((LongColumnVector) rowBatch.cols[1]).vector[r]});
+                }
+            } while (!rowBatch.endOfFile);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestCompactPlanner
+{
+    @Test
+    public void testBinPackBalancesTail()
+    {
+        List<CompactPlanner.SourceFile> files = new ArrayList<>();
+        for (int i = 0; i < 10; ++i)
+        {
+            files.add(new CompactPlanner.SourceFile("file_" + i, 100, 1));
+        }
+        // 10 files with at most 4 row groups per compact file: 4 + 3 + 3 instead of 4 + 4 + 2.
+        List<List<CompactPlanner.SourceFile>> groups = CompactPlanner.binPack(files, 0, 4);
+        assertEquals(3, groups.size());
+        int numFiles = 0;
+        for (List<CompactPlanner.SourceFile> group : groups)
+        {
+            assertTrue(group.size() >= 3 && group.size() <= 4);
+            numFiles += group.size();
+        }
+        assertEquals(10, numFiles);
+    }
+
+    @Test
+    public void testBinPackBySize()
+    {
+        List<CompactPlanner.SourceFile> files = new ArrayList<>();
+        files.add(new CompactPlanner.SourceFile("big", 900, 1));
+        for (int i = 0; i < 9; ++i)
+        {
+            files.add(new CompactPlanner.SourceFile("small_" + i, 100, 1));
+        }
+        // 1800 bytes with a target of 900 bytes: the big file is compacted alone.
+        List<List<CompactPlanner.SourceFile>> groups = CompactPlanner.binPack(files, 900, 16);
+        assertEquals(2, groups.size());
+        assertEquals(1, groups.get(0).size());
+        assertEquals("big", groups.get(0).get(0).getPath());
+        assertEquals(9, groups.get(1).size());
+        assertEquals(9, CompactPlanner.getNumRowGroups(groups.get(1)));
+    }
+
+    @Test
+    public void testBinPackOversizedFile()
+    {
+        List<CompactPlanner.SourceFile> files = new ArrayList<>();
+        files.add(new CompactPlanner.SourceFile("a", 100, 1));
+        files.add(new CompactPlanner.SourceFile("b", 100, 6));
+        files.add(new CompactPlanner.SourceFile("c", 100, 1));
+        List<List<CompactPlanner.SourceFile>> groups = CompactPlanner.binPack(files, 0, 4);
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(0).size());
+        assertEquals("b", groups.get(1).get(0).getPath());
+    }
+
+    @Test
+    public void testGroupByRange()
+    {
+        List<CompactPlanner.SourceFile> files = new ArrayList<>();
+        // listed in an order unrelated to the ranges
+        files.add(new CompactPlanner.SourceFile("c", 100, 1, new long[]{200, 250}));
+        files.add(new CompactPlanner.SourceFile("a", 100, 1, new long[]{0, 50}));
+        files.add(new CompactPlanner.SourceFile("d", 100, 1, new long[]{240, 300}));
+        files.add(new CompactPlanner.SourceFile("b", 100, 1, new long[]{51, 100}));
+        files.add(new CompactPlanner.SourceFile("x", 100, 1));
+        List<List<CompactPlanner.SourceFile>> groups = CompactPlanner.groupByRange(files, 0, 2);
+        assertEquals(3, groups.size());
+        // a and b are adjacent, c and d overlap
+        assertEquals("[a, b]", CompactPlanner.getPaths(groups.get(0)).toString());
+        assertEquals("[c, d]", CompactPlanner.getPaths(groups.get(1)).toString());
+        assertEquals("[x]", CompactPlanner.getPaths(groups.get(2)).toString());
+    }
+
+    @Test
+    public void testGroupByRangeRespectsCaps()
+    {
+        List<CompactPlanner.SourceFile> files = new ArrayList<>();
+        for (int i = 0; i < 6; ++i)
+        {
+            // all the ranges overlap
+            files.add(new CompactPlanner.SourceFile("file_" + i, 100, 1, new long[]{i, 100}));
+        }
+        List<List<CompactPlanner.SourceFile>> groups = CompactPlanner.groupByRange(files, 250, 16);
+        assertEquals(3, groups.size());
+        for (List<CompactPlanner.SourceFile> group : groups)
+        {
+            assertEquals(2, group.size());
+        }
+    }
+}
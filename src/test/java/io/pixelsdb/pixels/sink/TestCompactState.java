@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestCompactState
+{
+    @Test
+    public void testCommitAndAbort() throws IOException
+    {
+        File file = newStateFile();
+        CompactState state = new CompactState(file);
+        state.intent(Arrays.asList("compact_0.pxl", "compact_1.pxl"));
+        state.commit("compact_0.pxl", Arrays.asList("order_0.pxl", "order_1.pxl"));
+        state.abort("compact_1.pxl");
+        assertTrue(state.getPendingIntents().isEmpty());
+
+        CompactState reloaded = new CompactState(file);
+        assertTrue(reloaded.getPendingIntents().isEmpty());
+        assertEquals(2, reloaded.getCompacted().size());
+        assertTrue(reloaded.getCompacted().contains("order_0.pxl"));
+        assertTrue(reloaded.getCompacted().contains("order_1.pxl"));
+        file.delete();
+    }
+
+    @Test
+    public void testRecoverInterruptedCompaction() throws IOException
+    {
+        File file = newStateFile();
+        CompactState state = new CompactState(file);
+        state.intent(Arrays.asList("compact_0.pxl", "compact_1.pxl"));
+        state.commit("compact_0.pxl", Collections.singletonList("order_0.pxl"));
+        // the daemon crashes before compact_1.pxl is committed.
+
+        CompactState recovered = new CompactState(file);
+        assertEquals(Collections.singletonList("compact_1.pxl"), recovered.getPendingIntents());
+        assertEquals(Collections.singleton("order_0.pxl"), recovered.getCompacted());
+        recovered.abort("compact_1.pxl");
+        assertTrue(new CompactState(file).getPendingIntents().isEmpty());
+        file.delete();
+    }
+
+    @Test
+    public void testTruncateTornRecord() throws IOException
+    {
+        File file = newStateFile();
+        CompactState state = new CompactState(file);
+        state.intent(Collections.singletonList("compact_0.pxl"));
+        try (FileOutputStream output = new FileOutputStream(file, true))
+        {
+            // the commit record is torn by a crash, thus the order files are not compacted.
+            output.write("commit\tcompact_0.pxl\torder_0.pxl\torder_".getBytes(StandardCharsets.UTF_8));
+        }
+
+        CompactState recovered = new CompactState(file);
+        assertEquals(Collections.singletonList("compact_0.pxl"), recovered.getPendingIntents());
+        assertTrue(recovered.getCompacted().isEmpty());
+        recovered.abort("compact_0.pxl");
+        assertEquals("intent\tcompact_0.pxl\nabort\tcompact_0.pxl\n",
+                new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        file.delete();
+    }
+
+    private static File newStateFile() throws IOException
+    {
+        File file = File.createTempFile("compact_state", ".txt");
+        file.delete();
+        return file;
+    }
+}
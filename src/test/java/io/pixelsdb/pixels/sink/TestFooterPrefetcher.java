@@ -0,0 +1,127 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Storage;
+import io.pixelsdb.pixels.common.physical.StorageFactory;
+import io.pixelsdb.pixels.core.*;
+import io.pixelsdb.pixels.core.vector.LongColumnVector;
+import io.pixelsdb.pixels.core.vector.VectorizedRowBatch;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestFooterPrefetcher
+{
+    @Test
+    public void testPrefetch() throws IOException, InterruptedException
+    {
+        Storage storage = StorageFactory.Instance().getStorage("file");
+        File dir = Files.createTempDirectory("footer_prefetcher").toFile();
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < 4; ++i)
+        {
+            paths.add(writeFile(storage, new File(dir, "order_" + i + ".pxl").getPath(), 1000 * (i + 1)));
+        }
+
+        Map<String, PixelsProto.Footer> footers = FooterPrefetcher.prefetch(storage, paths, true, 2);
+        assertEquals(paths.size(), footers.size());
+        for (int i = 0; i < paths.size(); ++i)
+        {
+            long numRows = 0;
+            for (PixelsProto.RowGroupInformation info : footers.get(paths.get(i)).getRowGroupInfosList())
+            {
+                numRows += info.getNumberOfRows();
+            }
+            assertEquals(1000 * (i + 1), numRows);
+        }
+        for (String path : paths)
+        {
+            storage.delete(path, false);
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testUnreadableFooter() throws IOException, InterruptedException
+    {
+        Storage storage = StorageFactory.Instance().getStorage("file");
+        File dir = Files.createTempDirectory("footer_prefetcher").toFile();
+        String path = writeFile(storage, new File(dir, "order_0.pxl").getPath(), 1000);
+        File notPixels = new File(dir, "_SUCCESS");
+        Files.write(notPixels.toPath(), "not a pixels file".getBytes(StandardCharsets.UTF_8));
+        try
+        {
+            FooterPrefetcher.prefetch(storage, Arrays.asList(path, notPixels.getPath()), false, 2);
+            fail("the footer of a non-pixels file should not be read");
+        } catch (IOException e)
+        {
+            assertTrue(e.getMessage().contains(notPixels.getPath()));
+        }
+        storage.delete(path, false);
+        notPixels.delete();
+        dir.delete();
+    }
+
+    private static String writeFile(Storage storage, String path, int numRows) throws IOException
+    {
+        TypeDescription schema = TypeDescription.fromString("struct<id:bigint>");
+        VectorizedRowBatch rowBatch = schema.createRowBatch();
+        PixelsWriter pixelsWriter = PixelsWriterImpl.newBuilder()
+                .setSchema(schema)
+                .setPixelStride(10000)
+                .setRowGroupSize(64 * 1024 * 1024)
+                .setStorage(storage)
+                .setPath(path)
+                .setBlockSize(256 * 1024 * 1024)
+                .setReplication((short) 1)
+                .setBlockPadding(false)
+                .setEncoding(true)
+                .setCompressionBlockSize(1)
+                .build();
+        LongColumnVector column = (LongColumnVector) rowBatch.cols[0];
+        for (int i = 0; i < numRows; ++i)
+        {
+            column.vector[rowBatch.size++] = i;
+            if (rowBatch.size == rowBatch.getMaxSize())
+            {
+                pixelsWriter.addRowBatch(rowBatch);
+                rowBatch.reset();
+            }
+        }
+        if (rowBatch.size > 0)
+        {
+            pixelsWriter.addRowBatch(rowBatch);
+        }
+        pixelsWriter.close();
+        return path;
+    }
+}
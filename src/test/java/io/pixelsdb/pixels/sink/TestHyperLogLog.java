@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestHyperLogLog
+{
+    @Test
+    public void testEstimate()
+    {
+        for (int numDistinct : new int[]{10, 1000, 1000000})
+        {
+            HyperLogLog sketch = new HyperLogLog();
+            for (int i = 0; i < numDistinct; ++i)
+            {
+                // each value is added twice
+                sketch.add(ColumnValues.mix(i));
+                sketch.add(ColumnValues.mix(i));
+            }
+            double error = Math.abs(sketch.estimate() - numDistinct) / (double) numDistinct;
+            assertTrue(numDistinct + " distinct values, error " + error, error < 4 * sketch.getStandardError());
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        HyperLogLog left = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog all = new HyperLogLog();
+        for (int i = 0; i < 100000; ++i)
+        {
+            byte[] value = ("value_" + i).getBytes(StandardCharsets.UTF_8);
+            long hash = ColumnValues.hashBytes(value, 0, value.length);
+            // the two halves overlap
+            if (i < 60000)
+            {
+                left.add(hash);
+            }
+            if (i >= 40000)
+            {
+                right.add(hash);
+            }
+            all.add(hash);
+        }
+        left.merge(right);
+        assertEquals(all, left);
+        assertEquals(all, HyperLogLog.fromBytes(all.toBytes()));
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.metadata.domain.Compact;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestLayoutOptimizer
+{
+    private static final List<String> COLUMNS = Arrays.asList("a", "b", "c", "d", "e", "f");
+
+    @Test
+    public void testAccessedColumns()
+    {
+        LayoutOptimizer optimizer = new LayoutOptimizer("t", COLUMNS, new double[6]);
+        BitSet columns = optimizer.getAccessedColumns(
+                "SELECT t.A, SUM(c) FROM t WHERE f = 'b and d' GROUP BY t.a");
+        assertEquals("{0, 2, 5}", columns.toString());
+        assertEquals(6, optimizer.getAccessedColumns("SELECT * FROM t").cardinality());
+        assertEquals(1, optimizer.getAccessedColumns("SELECT COUNT(*) FROM t WHERE e > 1").cardinality());
+    }
+
+    @Test
+    public void testAccessedColumnsOfTargetTable()
+    {
+        LayoutOptimizer optimizer = new LayoutOptimizer("t", COLUMNS, new double[6]);
+        // the columns qualified by the other table or its alias are not accessed on t.
+        assertEquals("{0, 3}", optimizer.getAccessedColumns(
+                "SELECT x.a, y.b, y.c FROM s.t AS x JOIN u y ON x.d = y.e").toString());
+        assertEquals("{1, 4}", optimizer.getAccessedColumns(
+                "SELECT t.b, u.c FROM t, u WHERE t.e = u.e").toString());
+        // the alias of t is not a column even if it has the same name as one.
+        assertEquals("{1}", optimizer.getAccessedColumns("SELECT a.b FROM t a").toString());
+        assertEquals("{3}", optimizer.getAccessedColumns(
+                "SELECT EXTRACT(YEAR FROM d) FROM t").toString());
+        // t is not in the FROM clause.
+        assertTrue(optimizer.getAccessedColumns("SELECT a, b FROM u").isEmpty());
+        assertTrue(optimizer.getAccessedColumns("SELECT * FROM u").isEmpty());
+        // * only accesses all the columns if it is not qualified by another table.
+        assertEquals("{0}", optimizer.getAccessedColumns("SELECT y.*, x.a FROM t x JOIN u y ON x.a = y.a")
+                .toString());
+        assertEquals(6, optimizer.getAccessedColumns("SELECT x.* FROM t x JOIN u y ON x.a = y.a").cardinality());
+        assertEquals(6, optimizer.getAccessedColumns(
+                "SELECT * FROM u WHERE u.a IN (SELECT a FROM t)").cardinality());
+    }
+
+    @Test
+    public void testCoAccessedColumnsAreAdjacent()
+    {
+        double[] sizes = {10, 10, 10, 10, 10, 10};
+        LayoutOptimizer optimizer = new LayoutOptimizer("t", COLUMNS, sizes);
+        optimizer.addQuery("SELECT a, f FROM t", 10);
+        optimizer.addQuery("SELECT b, d FROM t", 5);
+        optimizer.addQuery("SELECT c FROM t", 1);
+        int[] order = optimizer.optimize(0);
+        // each query reads exactly the bytes of the columns it accesses
+        assertEquals(10 * 20 + 5 * 20 + 10, optimizer.getCost(order), 1e-9);
+        assertTrue(optimizer.getCost(order) < optimizer.getCost(new int[]{0, 1, 2, 3, 4, 5}));
+    }
+
+    @Test
+    public void testCachedColumns()
+    {
+        double[] sizes = {100, 10, 10, 10, 10, 10};
+        LayoutOptimizer optimizer = new LayoutOptimizer("t", COLUMNS, sizes);
+        optimizer.addQuery("SELECT a, c FROM t", 1);
+        optimizer.addQuery("SELECT c, e FROM t", 1);
+        int[] order = optimizer.optimize(25);
+        int numCached = optimizer.getNumCachedColumns();
+        assertEquals(2, numCached);
+        // c and e are accessed most per byte
+        int[] cached = Arrays.copyOf(order, numCached);
+        Arrays.sort(cached);
+        assertEquals(Arrays.asList("c", "e"), optimizer.getColumnNames(cached));
+
+        Compact compact = optimizer.buildCompact(order, numCached, 4);
+        assertEquals(6, compact.getNumColumn());
+        assertEquals(8, compact.getCacheBorder());
+        assertEquals(24, compact.getColumnChunkOrder().size());
+        assertEquals("0:" + order[0], compact.getColumnChunkOrder().get(0));
+        assertEquals("3:" + order[0], compact.getColumnChunkOrder().get(3));
+    }
+}
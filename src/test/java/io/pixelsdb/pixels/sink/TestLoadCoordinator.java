@@ -0,0 +1,337 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestLoadCoordinator
+{
+    @Test
+    public void testGroupFiles()
+    {
+        List<List<String>> splits = LoadCoordinator.groupFiles(Arrays.asList("a", "b", "c", "d", "e"),
+                Arrays.asList(40L, 50L, 200L, 10L, 10L), 100);
+        assertEquals(3, splits.size());
+        assertEquals(Arrays.asList("a", "b"), splits.get(0));
+        // a file larger than the split size is a split itself
+        assertEquals(Collections.singletonList("c"), splits.get(1));
+        assertEquals(Arrays.asList("d", "e"), splits.get(2));
+    }
+
+    @Test
+    public void testReassignExpiredLease()
+    {
+        AtomicLong now = new AtomicLong(0);
+        LoadCoordinator coordinator = new LoadCoordinator(Arrays.asList(
+                Collections.singletonList("s0"), Collections.singletonList("s1")), 100, 3, now::get);
+
+        LoadCoordinator.Lease lease0 = coordinator.acquire("w0");
+        LoadCoordinator.Lease lease1 = coordinator.acquire("w1");
+        assertEquals(0, lease0.getSplitId());
+        assertEquals(1, lease1.getSplitId());
+        assertNull(coordinator.acquire("w2"));
+
+        now.set(50);
+        assertTrue(coordinator.renew("w0", 0, 1, Collections.singletonList("w0_0.pxl")));
+        now.set(120);
+        // the lease of w1 is expired, whereas the lease of w0 is renewed
+        assertTrue(coordinator.takeOrphanFiles().isEmpty());
+        LoadCoordinator.Lease retry = coordinator.acquire("w2");
+        assertEquals(1, retry.getSplitId());
+        assertEquals(2, retry.getAttempt());
+
+        // the stale attempt can not complete the split
+        assertFalse(coordinator.complete("w1", 1, 1, true, Collections.singletonList("w1_0.pxl")));
+        assertTrue(coordinator.complete("w2", 1, 2, true, Collections.singletonList("w2_0.pxl")));
+
+        now.set(200);
+        // w0 is paused for longer than the lease, the files it has renewed with become orphans
+        assertFalse(coordinator.complete("w0", 0, 1, true, Arrays.asList("w0_0.pxl", "w0_1.pxl")));
+        assertEquals(Collections.singletonList("w0_0.pxl"), coordinator.takeOrphanFiles());
+        assertFalse(coordinator.isFinished());
+
+        lease0 = coordinator.acquire("w1");
+        assertEquals(0, lease0.getSplitId());
+        assertTrue(coordinator.complete("w1", 0, lease0.getAttempt(), true, Collections.singletonList("w1_1.pxl")));
+        assertTrue(coordinator.isFinished());
+        assertTrue(coordinator.isSuccessful());
+        assertEquals(Arrays.asList("w2_0.pxl", "w1_1.pxl"), coordinator.getLoadedFiles());
+    }
+
+    @Test
+    public void testAbortAfterMaxAttempts()
+    {
+        LoadCoordinator coordinator = new LoadCoordinator(Arrays.asList(
+                Collections.singletonList("s0"), Collections.singletonList("s1")), 1000, 2, () -> 0L);
+        LoadCoordinator.Lease lease = coordinator.acquire("w0");
+        LoadCoordinator.Lease other = coordinator.acquire("w1");
+        assertTrue(coordinator.complete("w0", lease.getSplitId(), 1, false, Collections.singletonList("f0")));
+        lease = coordinator.acquire("w0");
+        assertEquals(2, lease.getAttempt());
+        assertTrue(coordinator.complete("w0", lease.getSplitId(), 2, false, Collections.singletonList("f1")));
+        assertEquals(LoadCoordinator.SplitState.FAILED, coordinator.getState(lease.getSplitId()));
+        assertEquals(Arrays.asList("f0", "f1"), coordinator.takeOrphanFiles());
+
+        // no more splits are assigned, the running split can still complete
+        assertNull(coordinator.acquire("w0"));
+        assertFalse(coordinator.isFinished());
+        assertTrue(coordinator.complete("w1", other.getSplitId(), 1, true, Collections.singletonList("f2")));
+        assertTrue(coordinator.isFinished());
+        assertFalse(coordinator.isSuccessful());
+    }
+
+    @Test
+    public void testRetiredPrefixes()
+    {
+        AtomicLong now = new AtomicLong(0);
+        LoadCoordinator coordinator = new LoadCoordinator(Collections.singletonList(
+                Collections.singletonList("s0")), 100, 3, now::get);
+        LoadCoordinator.Lease lease = coordinator.acquire("w0");
+        assertEquals("split0_a1_", LoadCoordinator.getFilePrefix(lease.getSplitId(), lease.getAttempt()));
+
+        // w0 is dead without renewing, its files are only found by the prefix
+        now.set(200);
+        lease = coordinator.acquire("w1");
+        assertEquals(2, lease.getAttempt());
+        assertTrue(coordinator.takeOrphanFiles().isEmpty());
+        assertEquals(Collections.singletonList("split0_a1_"), coordinator.takeRetiredPrefixes());
+        assertTrue(coordinator.takeRetiredPrefixes().isEmpty());
+
+        assertTrue(coordinator.complete("w1", 0, 2, true, Collections.singletonList("split0_a2_0.pxl")));
+        assertEquals(Collections.singletonList("split0_a1_"), coordinator.getRetiredPrefixes());
+    }
+
+    @Test
+    public void testDeleteAttemptFiles() throws IOException
+    {
+        File dir0 = Files.createTempDirectory("load0").toFile();
+        File dir1 = Files.createTempDirectory("load1").toFile();
+        File retired0 = new File(dir0, "split0_a1_20261019.pxl");
+        File retired1 = new File(dir1, "split0_a1_20261020.pxl");
+        File loaded = new File(dir0, "split0_a2_20261019.pxl");
+        File other = new File(dir1, "split10_a1_20261019.pxl");
+        for (File file : Arrays.asList(retired0, retired1, loaded, other))
+        {
+            assertTrue(file.createNewFile());
+        }
+
+        LoadCoordinator.deleteAttemptFiles(dir0.getPath() + "/;" + dir1.getPath() + "/",
+                Collections.singletonList(LoadCoordinator.getFilePrefix(0, 1)));
+        assertFalse(retired0.exists());
+        assertFalse(retired1.exists());
+        assertTrue(loaded.exists());
+        assertTrue(other.exists());
+
+        loaded.delete();
+        other.delete();
+        dir0.delete();
+        dir1.delete();
+    }
+
+    @Test
+    public void testServeWithoutLoadingPath() throws IOException, InterruptedException
+    {
+        // LOAD without -l, the path must be resolved into the order path before serving
+        LoadService.LoadSpec spec = new LoadService.LoadSpec("tpch", "region", 1000, "\\|", null, true);
+        LoadCoordinator coordinator = new LoadCoordinator(Collections.singletonList(
+                Collections.singletonList("s0")), 1000, 3);
+        try
+        {
+            coordinator.serve(0, spec);
+            fail("the coordinator should not serve without the loading data path");
+        } catch (IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("loading data path"));
+        }
+        // the coordinator lists the resolved path when a lease expires
+        spec.setLoadingDataPath(Files.createTempDirectory("order").toString() + "/");
+        LoadCoordinator.deleteAttemptFiles(spec.getLoadingDataPath(),
+                Collections.singletonList(LoadCoordinator.getFilePrefix(0, 1)));
+        new File(spec.getLoadingDataPath()).delete();
+    }
+
+    /**
+     * The worker process of {@link #testWorkerProcesses()}. It copies each source file into the loading path
+     * with the file prefix of the attempt. The first attempt of a split that has a 'crash' file halts the
+     * process after writing its copy, and the first attempt of a split that has a 'fail' file fails.
+     */
+    public static class WorkerProcess
+    {
+        public static void main(String[] args) throws InterruptedException
+        {
+            try (LoadWorker worker = new LoadWorker(args[0], Integer.parseInt(args[1]), 1,
+                    WorkerProcess::load))
+            {
+                System.out.println("Worker " + worker.getWorkerId() + " loaded " + worker.run() + " splits.");
+            }
+        }
+
+        private static boolean load(BlockingQueue<String> files, Config config, List<String> writtenFiles)
+        {
+            boolean firstAttempt = config.getFilePrefix().endsWith("_a1_");
+            String file;
+            while ((file = files.poll()) != null)
+            {
+                String name = file.substring(file.lastIndexOf('/') + 1);
+                String path = config.getPixelsPath() + config.getFilePrefix() + name;
+                try
+                {
+                    Files.copy(Paths.get(file), Paths.get(path));
+                } catch (IOException e)
+                {
+                    e.printStackTrace();
+                    return false;
+                }
+                if (firstAttempt && name.equals("crash"))
+                {
+                    // the copy is not reported to the coordinator, it is only found by the prefix
+                    Runtime.getRuntime().halt(1);
+                }
+                writtenFiles.add(path);
+                if (firstAttempt && name.equals("fail"))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    @Test
+    public void testWorkerProcesses() throws Exception
+    {
+        File sourceDir = Files.createTempDirectory("source").toFile();
+        File loadingDir = Files.createTempDirectory("loading").toFile();
+        List<String> names = Arrays.asList("s0", "s1", "crash", "s2", "fail", "s3");
+        List<String> paths = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        for (String name : names)
+        {
+            File file = new File(sourceDir, name);
+            Files.write(file.toPath(), name.getBytes(StandardCharsets.UTF_8));
+            paths.add(file.getPath());
+            lengths.add(file.length());
+        }
+        // a split for each file
+        LoadCoordinator coordinator = new LoadCoordinator(LoadCoordinator.groupFiles(paths, lengths, 1), 2000, 3);
+        LoadService.LoadSpec spec = new LoadService.LoadSpec("tpch", "region", 1000, "\\|",
+                loadingDir.getPath() + "/", true);
+        int port;
+        try (ServerSocket socket = new ServerSocket(0))
+        {
+            port = socket.getLocalPort();
+        }
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Process> workers = new ArrayList<>();
+        try
+        {
+            Future<Boolean> served = executor.submit(() -> coordinator.serve(port, spec));
+            waitForPort(port, served);
+            String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+            for (int i = 0; i < 3; ++i)
+            {
+                workers.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        WorkerProcess.class.getName(), "localhost", String.valueOf(port)).inheritIO().start());
+            }
+            assertTrue(served.get(60, TimeUnit.SECONDS));
+            int numCrashed = 0;
+            for (Process worker : workers)
+            {
+                assertTrue(worker.waitFor(30, TimeUnit.SECONDS));
+                numCrashed += worker.exitValue() == 0 ? 0 : 1;
+            }
+            assertEquals(1, numCrashed);
+        } finally
+        {
+            for (Process worker : workers)
+            {
+                worker.destroyForcibly();
+            }
+            executor.shutdownNow();
+        }
+
+        // each source file is loaded exactly once, the files of the crashed and failed attempts are deleted
+        List<String> contents = new ArrayList<>();
+        File[] loadedFiles = loadingDir.listFiles();
+        for (File file : loadedFiles)
+        {
+            contents.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            assertTrue(coordinator.getLoadedFiles().contains(file.getPath()));
+        }
+        Collections.sort(contents);
+        List<String> expected = new ArrayList<>(names);
+        Collections.sort(expected);
+        assertEquals(expected, contents);
+        assertEquals(new HashSet<>(Arrays.asList("split2_a1_", "split4_a1_")),
+                new HashSet<>(coordinator.getRetiredPrefixes()));
+
+        for (File file : loadedFiles)
+        {
+            file.delete();
+        }
+        for (String path : paths)
+        {
+            new File(path).delete();
+        }
+        loadingDir.delete();
+        sourceDir.delete();
+    }
+
+    private static void waitForPort(int port, Future<?> served) throws InterruptedException
+    {
+        // stop waiting if the coordinator has failed to start
+        while (!served.isDone())
+        {
+            try (Socket socket = new Socket("localhost", port))
+            {
+                return;
+            } catch (IOException e)
+            {
+                TimeUnit.MILLISECONDS.sleep(50);
+            }
+        }
+    }
+}
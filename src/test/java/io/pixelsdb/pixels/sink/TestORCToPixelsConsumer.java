@@ -0,0 +1,279 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.core.vector.BinaryColumnVector;
+import io.pixelsdb.pixels.core.vector.ByteColumnVector;
+import io.pixelsdb.pixels.core.vector.DoubleColumnVector;
+import io.pixelsdb.pixels.core.vector.LongColumnVector;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DecimalColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.orc.TypeDescription.Category;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestORCToPixelsConsumer
+{
+    /**
+     * The pixels column vectors that record the added values, a null for each added null.
+     */
+    private static class LongValues extends LongColumnVector
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void add(long value)
+        {
+            values.add(value);
+        }
+
+        @Override
+        public void add(String value)
+        {
+            values.add(value);
+        }
+
+        @Override
+        public void addNull()
+        {
+            values.add(null);
+        }
+    }
+
+    private static class ByteValues extends ByteColumnVector
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void add(boolean value)
+        {
+            values.add(value);
+        }
+
+        @Override
+        public void addNull()
+        {
+            values.add(null);
+        }
+    }
+
+    private static class DoubleValues extends DoubleColumnVector
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void add(double value)
+        {
+            values.add(value);
+        }
+
+        @Override
+        public void addNull()
+        {
+            values.add(null);
+        }
+    }
+
+    /**
+     * The binary values are recorded as byte buffers, the text values as strings.
+     */
+    private static class BinaryValues extends BinaryColumnVector
+    {
+        private final List<Object> values = new ArrayList<>();
+
+        @Override
+        public void add(byte[] value)
+        {
+            values.add(ByteBuffer.wrap(value));
+        }
+
+        @Override
+        public void add(String value)
+        {
+            values.add(value);
+        }
+
+        @Override
+        public void addNull()
+        {
+            values.add(null);
+        }
+    }
+
+    private static <T extends ColumnVector> T withNull(T vector, int row)
+    {
+        vector.noNulls = false;
+        vector.isNull[row] = true;
+        return vector;
+    }
+
+    @Test
+    public void testBoolean()
+    {
+        org.apache.hadoop.hive.ql.exec.vector.LongColumnVector source =
+                new org.apache.hadoop.hive.ql.exec.vector.LongColumnVector(3);
+        source.vector[0] = 1;
+        source.vector[2] = 0;
+        withNull(source, 1);
+        ByteValues direct = new ByteValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.BOOLEAN, direct, 3);
+        assertEquals(Arrays.asList(true, null, false), direct.values);
+
+        BinaryValues text = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.BOOLEAN, text, 3);
+        assertEquals(Arrays.asList("true", null, "false"), text.values);
+    }
+
+    @Test
+    public void testLong()
+    {
+        org.apache.hadoop.hive.ql.exec.vector.LongColumnVector source =
+                new org.apache.hadoop.hive.ql.exec.vector.LongColumnVector(3);
+        source.vector[0] = -7;
+        source.vector[1] = Long.MAX_VALUE;
+        withNull(source, 2);
+        LongValues direct = new LongValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.LONG, direct, 3);
+        assertEquals(Arrays.asList(-7L, Long.MAX_VALUE, null), direct.values);
+
+        BinaryValues text = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.INT, text, 2);
+        assertEquals(Arrays.asList("-7", String.valueOf(Long.MAX_VALUE)), text.values);
+    }
+
+    @Test
+    public void testDouble()
+    {
+        org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector source =
+                new org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector(3);
+        withNull(source, 0);
+        source.vector[1] = 1.5;
+        source.vector[2] = -0.25;
+        DoubleValues direct = new DoubleValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.DOUBLE, direct, 3);
+        assertEquals(Arrays.asList(null, 1.5, -0.25), direct.values);
+
+        BinaryValues text = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.FLOAT, text, 3);
+        assertEquals(Arrays.asList(null, "1.5", "-0.25"), text.values);
+    }
+
+    @Test
+    public void testBytes()
+    {
+        // the values are slices of a shared buffer, as they are in the orc batches
+        byte[] buffer = "xxhello\u00e9yy".getBytes(StandardCharsets.UTF_8);
+        BytesColumnVector source = new BytesColumnVector(3);
+        source.setRef(0, buffer, 2, 5);
+        withNull(source, 1);
+        source.setRef(2, buffer, 2, 7);
+        BinaryValues direct = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.BINARY, direct, 3);
+        assertEquals(Arrays.asList(ByteBuffer.wrap("hello".getBytes(StandardCharsets.UTF_8)), null,
+                ByteBuffer.wrap("hello\u00e9".getBytes(StandardCharsets.UTF_8))), direct.values);
+
+        // e.g., a numeric column of the table stored as strings in orc
+        LongValues text = new LongValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.VARCHAR, text, 3);
+        assertEquals(Arrays.asList("hello", null, "hello\u00e9"), text.values);
+    }
+
+    @Test
+    public void testDate()
+    {
+        org.apache.hadoop.hive.ql.exec.vector.LongColumnVector source =
+                new org.apache.hadoop.hive.ql.exec.vector.LongColumnVector(3);
+        source.vector[0] = 0;
+        withNull(source, 1);
+        source.vector[2] = 20745;
+        BinaryValues target = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.DATE, target, 3);
+        assertEquals(Arrays.asList("1970-01-01", null, "2026-10-19"), target.values);
+    }
+
+    @Test
+    public void testTimestamp()
+    {
+        TimestampColumnVector source = new TimestampColumnVector(2);
+        source.set(0, Timestamp.valueOf("2026-10-19 08:30:00.125"));
+        withNull(source, 1);
+        BinaryValues target = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.TIMESTAMP, target, 2);
+        assertEquals(Arrays.asList("2026-10-19 08:30:00.125", null), target.values);
+    }
+
+    @Test
+    public void testDecimal()
+    {
+        DecimalColumnVector source = new DecimalColumnVector(2, 15, 2);
+        source.set(0, HiveDecimal.create("-1234.50"));
+        withNull(source, 1);
+        BinaryValues target = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(source, Category.DECIMAL, target, 2);
+        assertEquals(Arrays.asList("-1234.5", null), target.values);
+    }
+
+    @Test
+    public void testRepeating()
+    {
+        org.apache.hadoop.hive.ql.exec.vector.LongColumnVector longs =
+                new org.apache.hadoop.hive.ql.exec.vector.LongColumnVector(3);
+        longs.isRepeating = true;
+        longs.vector[0] = 42;
+        LongValues longValues = new LongValues();
+        ORCToPixelsConsumer.copyColumn(longs, Category.LONG, longValues, 3);
+        assertEquals(Arrays.asList(42L, 42L, 42L), longValues.values);
+
+        // a repeating null is marked in the first row only
+        org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector doubles =
+                withNull(new org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector(3), 0);
+        doubles.isRepeating = true;
+        DoubleValues doubleValues = new DoubleValues();
+        ORCToPixelsConsumer.copyColumn(doubles, Category.DOUBLE, doubleValues, 3);
+        assertEquals(Arrays.asList(null, null, null), doubleValues.values);
+
+        byte[] buffer = "abc".getBytes(StandardCharsets.UTF_8);
+        BytesColumnVector bytes = new BytesColumnVector(3);
+        bytes.isRepeating = true;
+        bytes.setRef(0, buffer, 0, 3);
+        LongValues text = new LongValues();
+        ORCToPixelsConsumer.copyColumn(bytes, Category.STRING, text, 3);
+        assertEquals(Arrays.asList("abc", "abc", "abc"), text.values);
+
+        org.apache.hadoop.hive.ql.exec.vector.LongColumnVector dates =
+                new org.apache.hadoop.hive.ql.exec.vector.LongColumnVector(2);
+        dates.isRepeating = true;
+        dates.vector[0] = 1;
+        BinaryValues dateValues = new BinaryValues();
+        ORCToPixelsConsumer.copyColumn(dates, Category.DATE, dateValues, 2);
+        assertEquals(Arrays.asList("1970-01-02", "1970-01-02"), dateValues.values);
+    }
+}
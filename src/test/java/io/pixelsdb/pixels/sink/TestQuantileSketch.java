@@ -0,0 +1,79 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestQuantileSketch
+{
+    @Test
+    public void testQuantiles()
+    {
+        QuantileSketch sketch = new QuantileSketch();
+        Random random = new Random(1);
+        int n = 1000000;
+        for (int i = 0; i < n; ++i)
+        {
+            // a permutation of [0, n)
+            sketch.add((i * 7919L) % n);
+        }
+        assertEquals(n, sketch.getCount());
+        assertEquals(0, sketch.getMin());
+        assertEquals(n - 1, sketch.getMax());
+        for (double fraction = 0.05; fraction < 1; fraction += 0.05)
+        {
+            long quantile = sketch.getQuantile(fraction);
+            assertEquals("quantile " + fraction, fraction, quantile / (double) n, 0.02);
+            long value = random.nextInt(n);
+            assertEquals("rank of " + value, value / (double) n, sketch.getRank(value), 0.02);
+        }
+    }
+
+    @Test
+    public void testMerge()
+    {
+        QuantileSketch merged = new QuantileSketch();
+        for (int part = 0; part < 8; ++part)
+        {
+            QuantileSketch sketch = new QuantileSketch();
+            for (int i = 0; i < 100000; ++i)
+            {
+                // skewed: the half of the values are 0
+                sketch.add(i % 2 == 0 ? 0 : part * 100000L + i);
+            }
+            merged.merge(QuantileSketch.fromBytes(sketch.toBytes()));
+        }
+        assertEquals(800000, merged.getCount());
+        assertEquals(0, merged.getQuantile(0.4));
+        assertEquals(0.75, merged.getRank(400000), 0.02);
+
+        EquiDepthHistogram histogram = EquiDepthHistogram.fromBytes(
+                EquiDepthHistogram.fromSketch(merged, 64).toBytes());
+        assertEquals(64, histogram.getNumBuckets());
+        assertEquals(0.5, histogram.estimateFraction(0, 0), 0.03);
+        assertEquals(0.25, histogram.estimateFraction(1, 400000), 0.03);
+        assertEquals(1, histogram.estimateFraction(Long.MIN_VALUE, Long.MAX_VALUE), 1e-9);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestResultChecksum
+{
+    @Test
+    public void testOrderIndependent()
+    {
+        String[][] rows = {{"1", "AIR"}, {"2", null}, {"3", "RAIL"}};
+        ResultChecksum forward = checksum(rows[0], rows[1], rows[2]);
+        ResultChecksum backward = checksum(rows[2], rows[1], rows[0]);
+        assertEquals(3, forward.getRows());
+        assertEquals(forward.getChecksum(), backward.getChecksum());
+        assertEquals(16, forward.toString().length());
+    }
+
+    @Test
+    public void testDifferentResults()
+    {
+        ResultChecksum expected = checksum(new String[]{"1", "AIR"}, new String[]{"2", "RAIL"});
+        // the values are swapped between the columns
+        assertTrue(expected.getChecksum() !=
+                checksum(new String[]{"AIR", "1"}, new String[]{"2", "RAIL"}).getChecksum());
+        // a duplicated row
+        assertTrue(expected.getChecksum() !=
+                checksum(new String[]{"1", "AIR"}, new String[]{"2", "RAIL"}, new String[]{"2", "RAIL"})
+                        .getChecksum());
+        // a null value and an empty string
+        assertTrue(checksum(new String[]{"1", null}).getChecksum() !=
+                checksum(new String[]{"1", ""}).getChecksum());
+    }
+
+    private static ResultChecksum checksum(String[]... rows)
+    {
+        ResultChecksum checksum = new ResultChecksum();
+        for (String[] row : rows)
+        {
+            checksum.startRow();
+            for (String value : row)
+            {
+                checksum.addValue(value);
+            }
+            checksum.endRow();
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestSampleStatistics
+{
+    @Test
+    public void testStatistics()
+    {
+        SampleStatistics statistics = new SampleStatistics(Arrays.asList(4.0, 2.0, 8.0, 6.0));
+        assertEquals(4, statistics.getCount());
+        assertEquals(5, statistics.getMean(), 1e-9);
+        assertEquals(5, statistics.getMedian(), 1e-9);
+        assertEquals(Math.sqrt(20.0 / 3), statistics.getStddev(), 1e-9);
+        assertEquals(2, statistics.getMin(), 1e-9);
+        assertEquals(8, statistics.getMax(), 1e-9);
+        double[] interval = statistics.getConfidenceInterval();
+        double halfWidth = 3.182 * Math.sqrt(20.0 / 3) / 2;
+        assertEquals(5 - halfWidth, interval[0], 1e-9);
+        assertEquals(5 + halfWidth, interval[1], 1e-9);
+
+        SampleStatistics single = new SampleStatistics(Collections.singletonList(3.0));
+        assertEquals(3, single.getMedian(), 1e-9);
+        assertEquals(0, single.getStddev(), 1e-9);
+        assertEquals(3, single.getConfidenceInterval()[0], 1e-9);
+    }
+
+    @Test
+    public void testT975()
+    {
+        assertEquals(12.706, SampleStatistics.getT975(1), 1e-9);
+        assertEquals(2.042, SampleStatistics.getT975(30), 1e-9);
+        assertEquals(2.021, SampleStatistics.getT975(40), 0.002);
+        assertEquals(1.984, SampleStatistics.getT975(100), 0.002);
+    }
+}
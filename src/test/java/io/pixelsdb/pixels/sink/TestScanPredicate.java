@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.core.PixelsProto;
+import io.pixelsdb.pixels.core.vector.BinaryColumnVector;
+import io.pixelsdb.pixels.core.vector.LongColumnVector;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestScanPredicate
+{
+    @Test
+    public void testParse()
+    {
+        ScanPredicate predicate = ScanPredicate.parse("l_quantity<=10");
+        assertEquals("l_quantity", predicate.getColumn());
+        assertEquals(ScanPredicate.Operator.LE, predicate.getOperator());
+        assertEquals("10", predicate.getLiteral());
+
+        predicate = ScanPredicate.parse("l_shipmode<>'AIR'");
+        assertEquals(ScanPredicate.Operator.NE, predicate.getOperator());
+        assertEquals("AIR", predicate.getLiteral());
+    }
+
+    @Test
+    public void testLong()
+    {
+        PixelsProto.Type type = PixelsProto.Type.newBuilder().setKind(PixelsProto.Type.Kind.LONG).build();
+        ScanPredicate.Bound bound = ScanPredicate.parse("a>=10").bind(type);
+        LongColumnVector vector = new LongColumnVector();
+        vector.vector[0] = 9;
+        vector.vector[1] = 10;
+        vector.vector[2] = 11;
+        vector.noNulls = false;
+        vector.isNull[2] = true;
+        assertFalse(bound.test(vector, 0));
+        assertTrue(bound.test(vector, 1));
+        // nulls never match
+        assertFalse(bound.test(vector, 2));
+
+        assertTrue(bound.mayMatch(intStats(5, 10)));
+        assertFalse(bound.mayMatch(intStats(1, 9)));
+        ScanPredicate.Bound equal = ScanPredicate.parse("a=3").bind(type);
+        assertFalse(equal.mayMatch(intStats(5, 10)));
+        assertTrue(equal.mayMatch(intStats(1, 9)));
+    }
+
+    @Test
+    public void testString()
+    {
+        PixelsProto.Type type = PixelsProto.Type.newBuilder().setKind(PixelsProto.Type.Kind.VARCHAR).build();
+        BinaryColumnVector vector = new BinaryColumnVector();
+        String[] values = {"DELIVER IN PERSON", "DELIVER IN", "TAKE BACK RETURN"};
+        for (int i = 0; i < values.length; ++i)
+        {
+            vector.vector[i] = values[i].getBytes(StandardCharsets.UTF_8);
+            vector.start[i] = 0;
+            vector.lens[i] = vector.vector[i].length;
+        }
+        // the values share the 8-byte prefix with the literal, but they are compared exactly
+        ScanPredicate.Bound bound = ScanPredicate.parse("s='DELIVER IN PERSON'").bind(type);
+        assertTrue(bound.test(vector, 0));
+        assertFalse(bound.test(vector, 1));
+        assertFalse(bound.test(vector, 2));
+        bound = ScanPredicate.parse("s<DELIVER_IN_PERSON").bind(type);
+        assertTrue(bound.test(vector, 0));
+        assertTrue(bound.test(vector, 1));
+        assertFalse(bound.test(vector, 2));
+    }
+
+    private static PixelsProto.ColumnStatistic intStats(long min, long max)
+    {
+        return PixelsProto.ColumnStatistic.newBuilder().setNumberOfValues(10)
+                .setIntStatistics(PixelsProto.IntegerStatistic.newBuilder().setMinimum(min).setMaximum(max))
+                .build();
+    }
+}
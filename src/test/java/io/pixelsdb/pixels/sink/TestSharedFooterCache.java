@@ -0,0 +1,61 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.core.PixelsProto;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestSharedFooterCache
+{
+    @Test
+    public void testEvictLeastRecentlyUsedFileTail()
+    {
+        SharedFooterCache cache = new SharedFooterCache(2, 2);
+        PixelsProto.FileTail fileTail = PixelsProto.FileTail.getDefaultInstance();
+        cache.putFileTail("a", fileTail);
+        cache.putFileTail("b", fileTail);
+        // 'a' is accessed after 'b', thus 'b' is the least recently used one.
+        assertNotNull(cache.getFileTail("a"));
+        cache.putFileTail("c", fileTail);
+        assertNotNull(cache.getFileTail("a"));
+        assertNull(cache.getFileTail("b"));
+        assertNotNull(cache.getFileTail("c"));
+    }
+
+    @Test
+    public void testEvictRowGroupFooters()
+    {
+        SharedFooterCache cache = new SharedFooterCache(2, 3);
+        PixelsProto.RowGroupFooter footer = PixelsProto.RowGroupFooter.getDefaultInstance();
+        for (int i = 0; i < 5; ++i)
+        {
+            cache.putRGFooter("file:" + i, footer);
+        }
+        assertNull(cache.getRGFooter("file:0"));
+        assertNull(cache.getRGFooter("file:1"));
+        for (int i = 2; i < 5; ++i)
+        {
+            assertNotNull(cache.getRGFooter("file:" + i));
+        }
+    }
+}
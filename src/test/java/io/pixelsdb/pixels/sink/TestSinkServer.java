@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestSinkServer
+{
+    /**
+     * The commands of the tests instead of the real commands, which need the metadata server.
+     */
+    private static void execute(String command)
+    {
+        if (command.startsWith("LOAD"))
+        {
+            System.out.println("hello");
+            SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(2);
+            tasks.execute(() -> System.out.println("from task"));
+            try
+            {
+                tasks.awaitAll();
+            } catch (InterruptedException e)
+            {
+                e.printStackTrace();
+            }
+        }
+        else if (command.startsWith("COMPACT"))
+        {
+            System.out.println("blocking");
+            try
+            {
+                TimeUnit.MINUTES.sleep(10);
+            } catch (InterruptedException e)
+            {
+                System.out.println("stopped");
+            }
+        }
+        else
+        {
+            throw new IllegalStateException("failed");
+        }
+    }
+
+    @Test
+    public void testExecute() throws IOException, InterruptedException
+    {
+        SinkServer server = new SinkServer(0, 2, 2, TestSinkServer::execute);
+        server.start();
+        try (SinkClient client = new SinkClient("localhost", server.getPort()))
+        {
+            List<String> lines = new CopyOnWriteArrayList<>();
+            assertTrue(client.execute("LOAD -s tpch -t region;", lines::add));
+            assertEquals("job-1 is submitted.", lines.get(0));
+            assertTrue(lines.contains("hello"));
+            assertTrue(lines.contains("from task"));
+            assertTrue(lines.get(lines.size() - 1).endsWith("success: true"));
+
+            lines.clear();
+            assertFalse(client.execute("STAT -s tpch -t region", lines::add));
+            assertTrue(lines.get(lines.size() - 1).endsWith("success: false"));
+        } finally
+        {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testUnsupportedCommand() throws IOException, InterruptedException
+    {
+        SinkServer server = new SinkServer(0, 1, 0, TestSinkServer::execute);
+        server.start();
+        try (SinkClient client = new SinkClient("localhost", server.getPort()))
+        {
+            List<String> lines = new CopyOnWriteArrayList<>();
+            assertFalse(client.execute("QUERY -t pixels", lines::add));
+            assertEquals(1, lines.size());
+            assertTrue(lines.get(0).contains("INVALID_ARGUMENT"));
+        } finally
+        {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws IOException, InterruptedException
+    {
+        // a single job thread, thus the second job is queued behind the daemon-like first job
+        SinkServer server = new SinkServer(0, 1, 0, TestSinkServer::execute);
+        server.start();
+        try (SinkClient client = new SinkClient("localhost", server.getPort()))
+        {
+            List<String> daemonLines = new CopyOnWriteArrayList<>();
+            AtomicBoolean daemonSuccess = new AtomicBoolean(true);
+            Thread daemon = new Thread(() -> daemonSuccess.set(client.execute("COMPACT -d", daemonLines::add)));
+            daemon.start();
+            waitForLine(daemonLines, "blocking");
+
+            List<String> queuedLines = new CopyOnWriteArrayList<>();
+            AtomicBoolean queuedSuccess = new AtomicBoolean(true);
+            Thread queued = new Thread(() -> queuedSuccess.set(client.execute("LOAD", queuedLines::add)));
+            queued.start();
+            waitForLine(queuedLines, "job-2 is submitted.");
+
+            List<String> lines = new CopyOnWriteArrayList<>();
+            assertTrue(client.cancel("job-2", lines::add));
+            queued.join();
+            assertFalse(queuedSuccess.get());
+            assertFalse(queuedLines.contains("hello"));
+
+            assertTrue(client.cancel("job-1", lines::add));
+            daemon.join();
+            assertFalse(daemonSuccess.get());
+            assertTrue(daemonLines.contains("stopped"));
+
+            assertFalse(client.cancel("job-1", lines::add));
+            assertEquals("job-1 is not found, it may be done.", lines.get(lines.size() - 1));
+
+            // the job thread is reusable after the cancellation
+            assertTrue(client.execute("LOAD", lines::add));
+        } finally
+        {
+            server.shutdown();
+        }
+    }
+
+    private static void waitForLine(List<String> lines, String line) throws InterruptedException
+    {
+        while (!lines.contains(line))
+        {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestSpaceFillingCurve
+{
+    @Test
+    public void testZOrder()
+    {
+        // x = 0b11, y = 0b01 -> 0b1011
+        assertEquals(11, SpaceFillingCurve.zOrder(new long[]{3, 1}, 2));
+        assertEquals(0, SpaceFillingCurve.zOrder(new long[]{0, 0, 0}, 21));
+    }
+
+    @Test
+    public void testHilbertIsContinuous()
+    {
+        int bits = 4;
+        int side = 1 << bits;
+        long[][] points = new long[side * side][];
+        for (int x = 0; x < side; ++x)
+        {
+            for (int y = 0; y < side; ++y)
+            {
+                long position = SpaceFillingCurve.hilbert(new long[]{x, y}, bits);
+                assertTrue(position >= 0 && position < side * side);
+                assertEquals(null, points[(int) position]);
+                points[(int) position] = new long[]{x, y};
+            }
+        }
+        // the consecutive positions on the Hilbert curve are adjacent cells.
+        for (int i = 1; i < points.length; ++i)
+        {
+            long distance = Math.abs(points[i][0] - points[i - 1][0]) + Math.abs(points[i][1] - points[i - 1][1]);
+            assertEquals("positions " + (i - 1) + " and " + i, 1, distance);
+        }
+    }
+
+    @Test
+    public void testNormalize()
+    {
+        int bits = SpaceFillingCurve.getBitsPerDimension(2);
+        assertEquals(31, bits);
+        assertEquals(0, SpaceFillingCurve.normalize(-5, -5, 100, bits));
+        assertEquals(105, SpaceFillingCurve.normalize(100, -5, 100, bits));
+        long[] values = {Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE};
+        long[] normalized = new long[values.length];
+        for (int i = 0; i < values.length; ++i)
+        {
+            normalized[i] = SpaceFillingCurve.normalize(values[i], Long.MIN_VALUE, Long.MAX_VALUE, bits);
+            assertTrue(normalized[i] >= 0 && normalized[i] < (1L << bits));
+        }
+        long[] sorted = normalized.clone();
+        Arrays.sort(sorted);
+        assertTrue(Arrays.equals(sorted, normalized));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestStatCache
+{
+    @Test
+    public void testHit() throws IOException
+    {
+        File dir = Files.createTempDirectory("stat_cache").toFile();
+        File cacheFile = new File(dir, "stat.cache");
+        List<File> files = createFiles(dir, 3);
+
+        StatCache statCache = new StatCache(cacheFile.getPath());
+        List<Status> uncovered = statCache.retainValid(getStatuses(files), false);
+        assertEquals(3, uncovered.size());
+        addAll(statCache, uncovered, false);
+        statCache.save();
+
+        StatCache reloaded = new StatCache(cacheFile.getPath());
+        assertEquals(3, reloaded.getNumFiles());
+        assertTrue(reloaded.retainValid(getStatuses(files), false).isEmpty());
+        // the entries without the rows do not cover the scans that read the rows.
+        assertEquals(3, reloaded.retainValid(getStatuses(files), true).size());
+        deleteAll(dir);
+    }
+
+    @Test
+    public void testChangedFile() throws IOException
+    {
+        File dir = Files.createTempDirectory("stat_cache").toFile();
+        File cacheFile = new File(dir, "stat.cache");
+        List<File> files = createFiles(dir, 3);
+
+        StatCache statCache = new StatCache(cacheFile.getPath());
+        addAll(statCache, statCache.retainValid(getStatuses(files), true), true);
+        statCache.save();
+
+        // file 0 is rewritten with a different length, file 1 with the same length but a later mtime.
+        Files.write(files.get(0).toPath(), "rewritten".getBytes(StandardCharsets.UTF_8));
+        Files.write(files.get(1).toPath(), "file_x".getBytes(StandardCharsets.UTF_8));
+        assertTrue(files.get(1).setLastModified(files.get(1).lastModified() + 10000));
+
+        StatCache reloaded = new StatCache(cacheFile.getPath());
+        List<Status> uncovered = reloaded.retainValid(getStatuses(files), false);
+        assertEquals(2, uncovered.size());
+        assertEquals(files.get(0).getPath(), uncovered.get(0).getPath());
+        assertEquals(files.get(1).getPath(), uncovered.get(1).getPath());
+        assertEquals(1, reloaded.getNumFiles());
+        deleteAll(dir);
+    }
+
+    @Test
+    public void testDeletedFile() throws IOException
+    {
+        File dir = Files.createTempDirectory("stat_cache").toFile();
+        File cacheFile = new File(dir, "stat.cache");
+        List<File> files = createFiles(dir, 3);
+
+        StatCache statCache = new StatCache(cacheFile.getPath());
+        addAll(statCache, statCache.retainValid(getStatuses(files), false), false);
+        statCache.save();
+
+        assertTrue(files.remove(2).delete());
+        StatCache reloaded = new StatCache(cacheFile.getPath());
+        assertTrue(reloaded.retainValid(getStatuses(files), false).isEmpty());
+        assertEquals(2, reloaded.getNumFiles());
+        reloaded.save();
+        assertEquals(2, new StatCache(cacheFile.getPath()).getNumFiles());
+        deleteAll(dir);
+    }
+
+    @Test
+    public void testUnknownVersion() throws IOException
+    {
+        File cacheFile = File.createTempFile("stat", ".cache");
+        Files.write(cacheFile.toPath(), new byte[]{0, 1, 2, 3, 4, 5, 6, 7});
+        assertEquals(0, new StatCache(cacheFile.getPath()).getNumFiles());
+        cacheFile.delete();
+    }
+
+    private static List<File> createFiles(File dir, int numFiles) throws IOException
+    {
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < numFiles; ++i)
+        {
+            File file = new File(dir, "order_" + i + ".pxl");
+            Files.write(file.toPath(), ("file_" + i).getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+
+    private static List<Status> getStatuses(List<File> files)
+    {
+        List<Status> statuses = new ArrayList<>();
+        for (File file : files)
+        {
+            statuses.add(new Status(file.getPath(), file.length(), false, 1));
+        }
+        return statuses;
+    }
+
+    private static void addAll(StatCache statCache, List<Status> statuses, boolean withRows)
+    {
+        for (Status status : statuses)
+        {
+            statCache.add(status, withRows, new ColumnStatsAggregate());
+        }
+    }
+
+    private static void deleteAll(File dir)
+    {
+        File[] files = dir.listFiles();
+        for (File file : files == null ? Collections.<File>emptyList() : Arrays.asList(files))
+        {
+            file.delete();
+        }
+        dir.delete();
+    }
+}
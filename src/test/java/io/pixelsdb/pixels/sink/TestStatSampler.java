@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import io.pixelsdb.pixels.common.physical.Status;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestStatSampler
+{
+    @Test
+    public void testSampleIsDeterministic()
+    {
+        List<Status> statuses = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i)
+        {
+            statuses.add(new Status("hdfs://node:9000/pixels/t/v_0_order/" + i + ".pxl", 1000));
+        }
+        List<Status> sampled = new StatSampler(0.1, 7).sample(statuses);
+        assertTrue(sampled.size() > 50 && sampled.size() < 150);
+        assertEquals(sampled, new StatSampler(0.1, 7).sample(statuses));
+        // a file stays sampled when more files are added
+        List<Status> more = new ArrayList<>(statuses);
+        more.add(new Status("hdfs://node:9000/pixels/t/v_0_order/new.pxl", 1000));
+        assertTrue(new StatSampler(0.1, 7).sample(more).containsAll(sampled));
+        assertEquals(1, new StatSampler(0.0001, 7).sample(statuses).size());
+    }
+
+    @Test
+    public void testEstimateTotal()
+    {
+        // 100 rows per 1000 bytes in each file
+        double[] total = StatSampler.estimateTotal(
+                new double[]{1000, 2000, 3000}, new double[]{100, 200, 300}, 60000, 30);
+        assertEquals(6000, total[0], 1e-9);
+        assertEquals(0, total[1], 1e-9);
+        total = StatSampler.estimateTotal(new double[]{1000, 1000}, new double[]{90, 110}, 10000, 10);
+        assertEquals(1000, total[0], 1e-9);
+        assertTrue(total[1] > 0);
+    }
+
+    @Test
+    public void testEstimateRatio()
+    {
+        // 1000 bytes per row group in each file
+        double[] ratio = StatSampler.estimateRatio(new double[]{1, 2, 4}, new double[]{1000, 2000, 4000}, 30);
+        assertEquals(1000, ratio[0], 1e-9);
+        assertEquals(0, ratio[1], 1e-9);
+        ratio = StatSampler.estimateRatio(new double[]{2, 2}, new double[]{1800, 2200}, 10);
+        assertEquals(1000, ratio[0], 1e-9);
+        assertTrue(ratio[1] > 0);
+        // the total is the ratio scaled by the total length
+        double[] total = StatSampler.estimateTotal(new double[]{2, 2}, new double[]{1800, 2200}, 20, 10);
+        assertEquals(ratio[0] * 20, total[0], 1e-9);
+        assertEquals(ratio[1] * 20, total[1], 1e-9);
+        assertTrue(Double.isNaN(StatSampler.estimateRatio(new double[]{2}, new double[]{1800}, 10)[1]));
+    }
+
+    @Test
+    public void testEstimateDistinct()
+    {
+        // a unique column: the 1% sample is unique too
+        assertEquals(1000000, StatSampler.estimateDistinct(10000, 10000, 1000000), 1000);
+        // a column with 100 values is saturated in the sample
+        assertEquals(100, StatSampler.estimateDistinct(100, 10000, 1000000), 1);
+        double estimate = StatSampler.estimateDistinct(5000, 10000, 1000000);
+        assertTrue(estimate > 5000 && estimate < StatSampler.getDistinctUpperBound(5000, 10000, 1000000));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2026 PixelsDB.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.pixelsdb.pixels.sink;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created at: 19/10/2026
+ * Author: hank
+ */
+public class TestThreadOutput
+{
+    private static class BufferOutput implements ThreadOutput.Output
+    {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final PrintStream printStream = new PrintStream(bytes, true);
+        private volatile boolean closed = false;
+
+        @Override
+        public PrintStream getPrintStream()
+        {
+            return printStream;
+        }
+
+        @Override
+        public boolean isClosed()
+        {
+            return closed;
+        }
+
+        private String getText()
+        {
+            return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testSharedPoolTasks() throws InterruptedException, ExecutionException
+    {
+        ThreadOutput.install();
+        BufferOutput output = new BufferOutput();
+        ThreadOutput.set(output);
+        try
+        {
+            SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(2);
+            for (int i = 0; i < 4; ++i)
+            {
+                int taskId = i;
+                tasks.execute(() -> System.out.println("task " + taskId));
+            }
+            tasks.awaitAll();
+        } finally
+        {
+            ThreadOutput.remove();
+        }
+        for (int i = 0; i < 4; ++i)
+        {
+            assertTrue(output.getText().contains("task " + i + "\n"));
+        }
+
+        // the shared thread does not keep the output of the job after the task is done
+        SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(1);
+        tasks.submit(() -> System.out.println("after the job")).get();
+        assertFalse(output.getText().contains("after the job"));
+    }
+
+    @Test
+    public void testThreadsAreNotInherited() throws InterruptedException
+    {
+        ThreadOutput.install();
+        BufferOutput output = new BufferOutput();
+        ThreadOutput.set(output);
+        Thread thread;
+        try
+        {
+            // e.g., a long-lived thread of a storage client created during the job
+            thread = new Thread(() -> System.out.println("long-lived thread"));
+            thread.start();
+            thread.join();
+            System.out.println("job thread");
+        } finally
+        {
+            ThreadOutput.remove();
+        }
+        assertEquals("job thread\n", output.getText());
+    }
+
+    @Test
+    public void testClosedOutput() throws InterruptedException
+    {
+        ThreadOutput.install();
+        BufferOutput output = new BufferOutput();
+        ThreadOutput.set(output);
+        try
+        {
+            System.out.println("before close");
+            output.closed = true;
+            System.out.println("after close");
+        } finally
+        {
+            ThreadOutput.remove();
+        }
+        assertEquals("before close\n", output.getText());
+    }
+
+    @Test
+    public void testTaskGroupParallelism() throws InterruptedException
+    {
+        SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(3);
+        AtomicInteger running = new AtomicInteger(0);
+        AtomicInteger maxRunning = new AtomicInteger(0);
+        for (int i = 0; i < 20; ++i)
+        {
+            tasks.execute(() -> {
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                try
+                {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+            });
+        }
+        tasks.awaitAll();
+        assertTrue(maxRunning.get() <= 3);
+        assertEquals(0, running.get());
+    }
+
+    @Test
+    public void testAwaitNestedTasks() throws InterruptedException
+    {
+        SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(2);
+        // returns at once if there is no task
+        tasks.awaitAll();
+        AtomicInteger done = new AtomicInteger(0);
+        for (int i = 0; i < 100; ++i)
+        {
+            // the tasks submitted by a running task are awaited as well
+            tasks.execute(() -> tasks.execute(done::incrementAndGet));
+        }
+        tasks.awaitAll();
+        assertEquals(100, done.get());
+    }
+
+    @Test
+    public void testCancelAll() throws InterruptedException
+    {
+        SharedThreadPool.TaskGroup tasks = SharedThreadPool.newTaskGroup(1);
+        AtomicInteger interrupted = new AtomicInteger(0);
+        AtomicInteger started = new AtomicInteger(0);
+        Future<?> running = tasks.submit(() -> {
+            started.incrementAndGet();
+            try
+            {
+                TimeUnit.MINUTES.sleep(1);
+            } catch (InterruptedException e)
+            {
+                interrupted.incrementAndGet();
+            }
+        });
+        Future<?> pending = tasks.submit(started::incrementAndGet);
+        while (started.get() == 0)
+        {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        tasks.cancelAll();
+        tasks.awaitAll();
+        assertTrue(running.isCancelled());
+        assertTrue(pending.isCancelled());
+        while (interrupted.get() == 0)
+        {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        assertEquals(1, started.get());
+    }
+}